@@ -22,6 +22,8 @@ import org.semux.config.Config;
 import org.semux.config.Constants;
 import org.semux.consensus.SemuxBft;
 import org.semux.consensus.SemuxSync;
+import org.semux.core.BlockIndexer;
+import org.semux.core.BlockPruner;
 import org.semux.core.Blockchain;
 import org.semux.core.BlockchainImpl;
 import org.semux.core.Consensus;
@@ -88,6 +90,8 @@ public class Kernel {
     protected ChannelManager channelMgr;
     protected PendingManager pendingMgr;
     protected NodeManager nodeMgr;
+    protected BlockPruner pruner;
+    protected BlockIndexer indexer;
 
     protected PeerServer p2p;
     protected SemuxApiService api;
@@ -152,9 +156,13 @@ public class Kernel {
         channelMgr = new ChannelManager(this);
         pendingMgr = new PendingManager(this);
         nodeMgr = new NodeManager(this);
+        pruner = new BlockPruner(this);
+        indexer = new BlockIndexer(this);
 
         pendingMgr.start();
         nodeMgr.start();
+        pruner.start();
+        indexer.start();
 
         // ====================================
         // start p2p module
@@ -215,7 +223,7 @@ public class Kernel {
 
         if (blocksDir.exists()) {
             LeveldbDatabase db = new LeveldbDatabase(blocksDir);
-            byte[] header = db.get(Bytes.merge((byte) 0x00, Bytes.of(0L)));
+            byte[] header = db.get(Bytes.merge((byte) 0x00, 0L));
             db.close();
 
             if (header == null || header.length < 33) {
@@ -346,9 +354,11 @@ public class Kernel {
         api.stop();
         p2p.stop();
 
-        // stop pending manager and node manager
+        // stop pending manager, node manager, pruner and indexer
         pendingMgr.stop();
         nodeMgr.stop();
+        pruner.stop();
+        indexer.stop();
 
         // close client
         client.close();
@@ -357,6 +367,7 @@ public class Kernel {
         ReentrantReadWriteLock.WriteLock lock = stateLock.writeLock();
         lock.lock();
         try {
+            chain.flush();
             for (DatabaseName name : DatabaseName.values()) {
                 dbFactory.getDB(name).close();
             }
@@ -25,9 +25,11 @@ public interface ApiHandler {
      *            the uri
      * @param params
      *            the params
+     * @param body
+     *            the request body, or null if it's absent or form-encoded
      * @param headers
      *            the headers
      * @return the response object
      */
-    Object service(HttpMethod method, String uri, Map<String, String> params, HttpHeaders headers);
+    Object service(HttpMethod method, String uri, Map<String, String> params, String body, HttpHeaders headers);
 }
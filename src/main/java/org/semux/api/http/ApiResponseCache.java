@@ -0,0 +1,233 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.api.http;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.semux.api.Version;
+import org.semux.core.Block;
+import org.semux.core.BlockchainListener;
+import org.semux.core.PendingManager.PendingTransaction;
+import org.semux.core.PendingManagerListener;
+import org.semux.crypto.Hash;
+import org.semux.crypto.Hex;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.netty.handler.codec.http.HttpMethod;
+
+/**
+ * Cache of serialized responses of read-only API routes.
+ * <p>
+ * Responses of routes that only depend on the blockchain are dropped when a
+ * new block is added; responses of routes that also depend on the pending
+ * transactions are dropped as well whenever the pending pool changes. Entries
+ * also expire after a short while, which bounds the staleness of the few
+ * fields, like the number of active peers, that change independently.
+ */
+public class ApiResponseCache implements BlockchainListener, PendingManagerListener {
+
+    private static final long MAX_AGE_SECONDS = 10;
+
+    /**
+     * What a cached response depends on.
+     */
+    private enum Dependency {
+        BLOCKCHAIN, PENDING
+    }
+
+    /**
+     * [path] => {@link Dependency}
+     */
+    private static final Map<String, Dependency> routes;
+
+    static {
+        Map<String, Dependency> map = new HashMap<>();
+        String prefix = "/" + Version.v2_0_0.prefix;
+        map.put(prefix + "/block-by-number", Dependency.BLOCKCHAIN);
+        map.put(prefix + "/delegates", Dependency.BLOCKCHAIN);
+        map.put(prefix + "/latest-block", Dependency.BLOCKCHAIN);
+        map.put(prefix + "/validators", Dependency.BLOCKCHAIN);
+        map.put(prefix + "/info", Dependency.PENDING);
+        map.put(prefix + "/pending-transactions", Dependency.PENDING);
+        routes = Collections.unmodifiableMap(map);
+    }
+
+    private final Cache<String, Entry> blockchainCache;
+    private final Cache<String, Entry> pendingCache;
+
+    private final AtomicLong blockchainGeneration = new AtomicLong(0);
+    private final AtomicLong pendingGeneration = new AtomicLong(0);
+
+    /**
+     * Creates a response cache.
+     *
+     * @param maxSize
+     *            the max total size of cached responses, in bytes
+     */
+    public ApiResponseCache(long maxSize) {
+        this.blockchainCache = newCache(maxSize / 2);
+        this.pendingCache = newCache(maxSize / 2);
+    }
+
+    private static Cache<String, Entry> newCache(long maxWeight) {
+        return Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .<String, Entry>weigher((k, v) -> k.length() + v.body.length)
+                .expireAfterWrite(MAX_AGE_SECONDS, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * Returns the cache key of a request, or null if the response is not
+     * cacheable.
+     *
+     * @param method
+     * @param path
+     *            the request path, with or without trailing slash
+     * @param params
+     *            the request parameters
+     * @return
+     */
+    public Key getKey(HttpMethod method, String path, Map<String, String> params) {
+        if (!HttpMethod.GET.equals(method)) {
+            return null;
+        }
+
+        if (path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        Dependency dependency = routes.get(path);
+        if (dependency == null) {
+            return null;
+        }
+
+        StringBuilder sb = new StringBuilder(path);
+        char separator = '?';
+        for (Map.Entry<String, String> param : new TreeMap<>(params).entrySet()) {
+            sb.append(separator).append(param.getKey()).append('=').append(param.getValue());
+            separator = '&';
+        }
+
+        return new Key(sb.toString(), dependency);
+    }
+
+    /**
+     * Returns the cached response of a request.
+     *
+     * @param key
+     * @return the cached response, or null
+     */
+    public Entry get(Key key) {
+        return getCache(key).getIfPresent(key.value);
+    }
+
+    /**
+     * Returns the current generation of a key, which must be obtained before
+     * computing the response to {@link #put(Key, long, byte[])}.
+     *
+     * @param key
+     * @return
+     */
+    public long getGeneration(Key key) {
+        return getGeneration(key.dependency).get();
+    }
+
+    /**
+     * Caches a response, unless it was invalidated while being computed.
+     *
+     * @param key
+     * @param generation
+     *            the generation of the key before the response was computed
+     * @param body
+     *            the serialized response body
+     * @return the cache entry
+     */
+    public Entry put(Key key, long generation, byte[] body) {
+        Entry entry = new Entry(body);
+
+        AtomicLong current = getGeneration(key.dependency);
+        if (current.get() == generation) {
+            Cache<String, Entry> cache = getCache(key);
+            cache.put(key.value, entry);
+
+            // the cache may have been cleared in between
+            if (current.get() != generation) {
+                cache.invalidate(key.value);
+            }
+        }
+
+        return entry;
+    }
+
+    @Override
+    public void onBlockAdded(Block block) {
+        blockchainGeneration.incrementAndGet();
+        blockchainCache.invalidateAll();
+        onPendingTransactionAdded(null);
+    }
+
+    @Override
+    public void onPendingTransactionAdded(PendingTransaction tx) {
+        pendingGeneration.incrementAndGet();
+        pendingCache.invalidateAll();
+    }
+
+    @Override
+    public void onPendingTransactionsRemoved(List<PendingTransaction> txs) {
+        onPendingTransactionAdded(null);
+    }
+
+    private Cache<String, Entry> getCache(Key key) {
+        return key.dependency == Dependency.BLOCKCHAIN ? blockchainCache : pendingCache;
+    }
+
+    private AtomicLong getGeneration(Dependency dependency) {
+        return dependency == Dependency.BLOCKCHAIN ? blockchainGeneration : pendingGeneration;
+    }
+
+    /**
+     * The cache key of a request.
+     */
+    public static class Key {
+        private final String value;
+        private final Dependency dependency;
+
+        private Key(String value, Dependency dependency) {
+            this.value = value;
+            this.dependency = dependency;
+        }
+    }
+
+    /**
+     * A cached response.
+     */
+    public static class Entry {
+        private final byte[] body;
+        private final String etag;
+
+        private Entry(byte[] body) {
+            this.body = body;
+            this.etag = "\"" + Hex.encode(Hash.h256(body)) + "\"";
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public String getETag() {
+            return etag;
+        }
+    }
+}
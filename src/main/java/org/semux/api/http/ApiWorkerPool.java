@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.api.http;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.semux.config.Config;
+
+/**
+ * A bounded pool of threads that runs API handlers off the Netty event loops.
+ * <p>
+ * Requests are rejected, rather than queued indefinitely, when either the
+ * shared queue is full or the route already has its maximum number of queued
+ * or running requests. This keeps a few heavy calls from starving cheap ones.
+ */
+public class ApiWorkerPool {
+
+    /**
+     * Max number of routes tracked individually. Requests to further routes, which
+     * are most likely invalid paths, share a single limit.
+     */
+    private static final int MAX_TRACKED_ROUTES = 256;
+
+    private static final String OTHER_ROUTES = "";
+
+    private static final ThreadFactory factory = new ThreadFactory() {
+        final AtomicInteger cnt = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "api-worker-" + cnt.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        }
+    };
+
+    private final ThreadPoolExecutor executor;
+    private final int maxConcurrentRequestsPerRoute;
+    private final Map<String, Semaphore> routes = new ConcurrentHashMap<>();
+
+    public ApiWorkerPool(Config config) {
+        this(config.apiWorkerThreads(), config.apiMaxQueueSize(), config.apiMaxConcurrentRequestsPerRoute());
+    }
+
+    public ApiWorkerPool(int threads, int maxQueueSize, int maxConcurrentRequestsPerRoute) {
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxQueueSize), factory, new ThreadPoolExecutor.AbortPolicy());
+        this.maxConcurrentRequestsPerRoute = maxConcurrentRequestsPerRoute;
+    }
+
+    /**
+     * Submits a task for the given route.
+     *
+     * @param route
+     *            the request path
+     * @param task
+     *            the task to run
+     * @return true if the task was accepted, false if it was rejected because
+     *         the pool or the route is saturated
+     */
+    public boolean submit(String route, Runnable task) {
+        Semaphore permits = getPermits(route);
+        if (!permits.tryAcquire()) {
+            return false;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            return false;
+        }
+    }
+
+    /**
+     * Returns the number of requests waiting for a worker thread.
+     *
+     * @return
+     */
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Stops accepting requests and interrupts the running ones.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private Semaphore getPermits(String route) {
+        Semaphore permits = routes.get(route);
+        if (permits == null) {
+            String key = routes.size() < MAX_TRACKED_ROUTES ? route : OTHER_ROUTES;
+            permits = routes.computeIfAbsent(key, k -> new Semaphore(maxConcurrentRequestsPerRoute));
+        }
+        return permits;
+    }
+}
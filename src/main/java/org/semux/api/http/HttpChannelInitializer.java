@@ -6,6 +6,7 @@
  */
 package org.semux.api.http;
 
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.socket.SocketChannel;
@@ -23,8 +24,21 @@ public abstract class HttpChannelInitializer extends ChannelInitializer<SocketCh
         p.addLast(new HttpServerKeepAliveHandler());
         p.addLast(new HttpObjectAggregator(HttpHandler.MAX_BODY_SIZE));
         p.addLast(new ChunkedWriteHandler());
+        ChannelHandler webSocketHandler = initWebSocketHandler();
+        if (webSocketHandler != null) {
+            p.addLast(webSocketHandler);
+        }
         p.addLast(initHandler());
     }
 
     abstract HttpHandler initHandler();
+
+    /**
+     * Returns the handler of WebSocket connections, or null if not supported.
+     *
+     * @return
+     */
+    ChannelHandler initWebSocketHandler() {
+        return null;
+    }
 }
@@ -13,19 +13,23 @@ import static io.netty.handler.codec.http.HttpHeaderValues.KEEP_ALIVE;
 import static io.netty.handler.codec.http.HttpResponseStatus.BAD_REQUEST;
 import static io.netty.handler.codec.http.HttpResponseStatus.INTERNAL_SERVER_ERROR;
 import static io.netty.handler.codec.http.HttpResponseStatus.NOT_FOUND;
+import static io.netty.handler.codec.http.HttpResponseStatus.NOT_MODIFIED;
 import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static io.netty.handler.codec.http.HttpResponseStatus.SERVICE_UNAVAILABLE;
 import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
 
+import java.io.IOException;
 import java.io.InputStream;
-import java.net.URI;
+import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.security.MessageDigest;
+import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -44,8 +48,10 @@ import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
@@ -58,6 +64,7 @@ import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpChunkedInput;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.HttpUtil;
 import io.netty.handler.codec.http.QueryStringDecoder;
@@ -73,26 +80,44 @@ public class HttpHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
     private static final Logger logger = LoggerFactory.getLogger(HttpHandler.class);
 
     protected static final int MAX_BODY_SIZE = 512 * 1024; // 512KB
+    private static final int RESPONSE_BUFFER_SIZE = 1024; // initial size, grows as needed
     private static final Charset CHARSET = CharsetUtil.UTF_8;
     private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final ObjectWriter writer = objectMapper.writer();
+    private static final ObjectWriter prettyWriter = objectMapper.writerWithDefaultPrettyPrinter();
     private static final MimetypesFileTypeMap mimeTypesMap = new MimetypesFileTypeMap(
             HttpHandler.class.getResourceAsStream("/org/semux/api/mime.types"));
 
     private static final String JSON_CONTENT_TYPE = "application/json; charset=UTF-8";
-    private static final String INTERNAL_SERVER_ERROR_RESPONSE = "{\"success\":false,\"message\":\"500 Internal Server Error\"}";
-    private static final String NOT_FOUND_RESPONSE = "{\"success\":false,\"message\":\"404 Not Found\"}";
-    private static final String BAD_REQUEST_RESPONSE = "{\"success\":false,\"message\":\"400 Bad Request\"}";
+    private static final byte[] INTERNAL_SERVER_ERROR_RESPONSE = Bytes
+            .of("{\"success\":false,\"message\":\"500 Internal Server Error\"}");
+    private static final byte[] NOT_FOUND_RESPONSE = Bytes.of("{\"success\":false,\"message\":\"404 Not Found\"}");
+    private static final byte[] BAD_REQUEST_RESPONSE = Bytes.of("{\"success\":false,\"message\":\"400 Bad Request\"}");
+    private static final byte[] SERVICE_UNAVAILABLE_RESPONSE = Bytes
+            .of("{\"success\":false,\"message\":\"503 Service Unavailable\"}");
 
     private static final Pattern STATIC_FILE_PATTERN = Pattern.compile("^.+\\.(html|json|js|css|png)$");
 
     private final Config config;
     private final Map<Version, ApiHandler> apiHandlers;
+    private final ApiWorkerPool workerPool;
+    private final ApiResponseCache responseCache;
 
-    private Boolean isKeepAlive = false;
+    private boolean isKeepAlive = false;
 
-    public HttpHandler(Kernel kernel, final Map<Version, ApiHandler> apiHandlers) {
+    /**
+     * Whether an API request of this channel is being served by the worker pool.
+     * Requests that arrive meanwhile are held back to keep responses in order.
+     */
+    private boolean isBusy = false;
+    private final Deque<FullHttpRequest> pendingRequests = new ArrayDeque<>();
+
+    public HttpHandler(Kernel kernel, final Map<Version, ApiHandler> apiHandlers, ApiWorkerPool workerPool,
+            ApiResponseCache responseCache) {
         this.config = kernel.getConfig();
         this.apiHandlers = apiHandlers;
+        this.workerPool = workerPool;
+        this.responseCache = responseCache;
     }
 
     /**
@@ -110,6 +135,8 @@ public class HttpHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
                         .collect(Collectors.toMap(
                                 v -> v,
                                 v -> apiHandler)));
+        this.workerPool = null;
+        this.responseCache = null;
     }
 
     @Override
@@ -117,17 +144,26 @@ public class HttpHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
         ctx.flush();
     }
 
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        FullHttpRequest msg;
+        while ((msg = pendingRequests.poll()) != null) {
+            msg.release();
+        }
+        super.channelInactive(ctx);
+    }
+
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest msg) {
-        URI uri = URI.create(msg.uri());
+        if (isBusy) {
+            pendingRequests.add(msg.retain());
+            return;
+        }
 
-        // copy collection to ensure it is writable
-        Map<String, List<String>> params = new HashMap<>(new QueryStringDecoder(msg.uri(), CHARSET).parameters());
         HttpHeaders headers = msg.headers();
-        ByteBuf body = Unpooled.buffer(MAX_BODY_SIZE);
 
         // basic authentication
-        if (!checkBasicAuth(headers)) {
+        if (!checkBasicAuth(config, headers)) {
             FullHttpResponse resp = new DefaultFullHttpResponse(HTTP_1_1, HttpResponseStatus.UNAUTHORIZED);
             resp.headers().set(HttpHeaderNames.WWW_AUTHENTICATE, "Basic realm=\"Semux RESTful API\"");
             resp.headers().set(HttpHeaderNames.CONTENT_LENGTH, resp.content().readableBytes());
@@ -145,55 +181,107 @@ public class HttpHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
         // check if keep-alive is supported
         isKeepAlive = HttpUtil.isKeepAlive(msg);
 
-        // read request body
-        ByteBuf content = msg.content();
-        int length = content.readableBytes();
-        if (length > 0) {
-            body.writeBytes(content, length);
-        }
-
-        // parse parameter from request body
-        if ("application/x-www-form-urlencoded".equals(headers.get("Content-type"))
-                && body.readableBytes() > 0) {
-            QueryStringDecoder decoder = new QueryStringDecoder("?" + body.toString(CHARSET));
-            Map<String, List<String>> map = decoder.parameters();
-            for (Map.Entry<String, List<String>> entry : map.entrySet()) {
-                if (params.containsKey(entry.getKey())) {
-                    params.get(entry.getKey()).addAll(entry.getValue());
-                } else {
-                    params.put(entry.getKey(), entry.getValue());
-                }
-            }
-        }
-
-        // filter parameters
+        // parse parameters from query string, the first occurrence wins as duplicate
+        // names are not allowed
+        QueryStringDecoder uriDecoder = new QueryStringDecoder(msg.uri(), CHARSET);
         Map<String, String> map = new HashMap<>();
-        for (Map.Entry<String, List<String>> entry : params.entrySet()) {
-            List<String> v = entry.getValue();
-            // duplicate names are not allowed.
-            if (!v.isEmpty()) {
-                map.put(entry.getKey(), v.get(0));
-            }
+        addParameters(map, uriDecoder.parameters());
+
+        // parse parameters from request body, read in place from the aggregated
+        // request content; any other content is passed as is, e.g. a JSON body
+        ByteBuf content = msg.content();
+        boolean isForm = "application/x-www-form-urlencoded".equals(headers.get(HttpHeaderNames.CONTENT_TYPE));
+        if (content.isReadable() && isForm) {
+            addParameters(map, new QueryStringDecoder(content.toString(CHARSET), CHARSET, false).parameters());
         }
+        String body = content.isReadable() && !isForm ? content.toString(CHARSET) : null;
 
         // delegate the request
         ChannelFuture lastContentFuture;
-        Version version = checkVersionPrefix(uri.toString());
-        final String path = uri.getPath();
+        final String path = uriDecoder.path();
+        Version version = checkVersionPrefix(path);
         if (STATIC_FILE_PATTERN.matcher(path).matches()) { // static files
             lastContentFuture = writeStaticFile(ctx, "/org/semux/api", uriToResourcePath(path));
         } else { // api
             boolean prettyPrint = Boolean.parseBoolean(map.get("pretty"));
-            Object response = apiHandlers.get(version).service(msg.method(), path, map, headers);
-            lastContentFuture = writeApiResponse(ctx, prettyPrint, response);
+            ApiHandler apiHandler = apiHandlers.get(version);
+            HttpMethod method = msg.method();
+            ApiResponseCache.Key cacheKey = responseCache == null ? null
+                    : responseCache.getKey(method, path, map);
+            ApiResponseCache.Entry cached = cacheKey == null ? null : responseCache.get(cacheKey);
+
+            if (cached != null) { // served from cache
+                lastContentFuture = ctx.writeAndFlush(encodeCachedResponse(cached, headers));
+            } else if (workerPool == null) { // served on the event loop
+                lastContentFuture = ctx.writeAndFlush(
+                        serviceApi(ctx, apiHandler, method, path, map, body, headers, prettyPrint, cacheKey));
+            } else { // served by the worker pool
+                isBusy = true;
+                ctx.channel().config().setAutoRead(false);
+                boolean accepted = workerPool.submit(path, () -> {
+                    FullHttpResponse resp = null;
+                    try {
+                        resp = serviceApi(ctx, apiHandler, method, path, map, body, headers, prettyPrint, cacheKey);
+                    } catch (Exception e) {
+                        logger.error("Exception in API handler", e);
+                    } finally {
+                        // the channel is released on every path, errors included
+                        FullHttpResponse response = resp != null ? resp
+                                : encodeResponse(JSON_CONTENT_TYPE, INTERNAL_SERVER_ERROR,
+                                        Unpooled.wrappedBuffer(INTERNAL_SERVER_ERROR_RESPONSE));
+                        ctx.executor().execute(() -> completeRequest(ctx, ctx.writeAndFlush(response)));
+                    }
+                });
+                if (accepted) {
+                    return;
+                }
+
+                isBusy = false;
+                ctx.channel().config().setAutoRead(true);
+                lastContentFuture = writeJsonResponse(ctx, SERVICE_UNAVAILABLE, SERVICE_UNAVAILABLE_RESPONSE);
+            }
+        }
+
+        if (!isKeepAlive) {
+            lastContentFuture.addListener(ChannelFutureListener.CLOSE);
         }
+    }
 
+    /**
+     * Finishes a request served by the worker pool and resumes reading from the
+     * channel. Called on the event loop.
+     *
+     * @param ctx
+     * @param lastContentFuture
+     */
+    private void completeRequest(ChannelHandlerContext ctx, ChannelFuture lastContentFuture) {
         if (!isKeepAlive) {
             lastContentFuture.addListener(ChannelFutureListener.CLOSE);
         }
+
+        isBusy = false;
+        ctx.channel().config().setAutoRead(true);
+
+        FullHttpRequest msg;
+        while (!isBusy && (msg = pendingRequests.poll()) != null) {
+            try {
+                channelRead0(ctx, msg);
+            } finally {
+                msg.release();
+            }
+        }
+    }
+
+    private void addParameters(Map<String, String> map, Map<String, List<String>> params) {
+        for (Map.Entry<String, List<String>> entry : params.entrySet()) {
+            List<String> v = entry.getValue();
+            if (!v.isEmpty()) {
+                map.putIfAbsent(entry.getKey(), v.get(0));
+            }
+        }
     }
 
-    private boolean checkBasicAuth(HttpHeaders headers) {
+    static boolean checkBasicAuth(Config config, HttpHeaders headers) {
         Pair<String, String> auth = BasicAuth.parseAuth(headers.get(HttpHeaderNames.AUTHORIZATION));
 
         return auth != null
@@ -201,12 +289,21 @@ public class HttpHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
                 && MessageDigest.isEqual(Bytes.of(auth.getRight()), Bytes.of(config.apiPassword()));
     }
 
-    private Version checkVersionPrefix(String uri) {
-        Optional<Version> versionOptional = Arrays.stream(uri.split("/"))
-                .filter(s -> s.startsWith("v"))
-                .findFirst()
-                .map(Version::fromPrefix);
-        return versionOptional.orElse(Version.v1_0_1);
+    private Version checkVersionPrefix(String path) {
+        // the first path segment starting with 'v' selects the version
+        int from = 0;
+        while (from < path.length()) {
+            int to = path.indexOf('/', from);
+            if (to == -1) {
+                to = path.length();
+            }
+            if (to > from && path.charAt(from) == 'v') {
+                Version version = Version.fromPrefix(path.substring(from, to));
+                return version == null ? Version.v1_0_1 : version;
+            }
+            from = to + 1;
+        }
+        return Version.v1_0_1;
     }
 
     private String uriToResourcePath(String uri) {
@@ -235,6 +332,53 @@ public class HttpHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
     }
 
     private ChannelFuture writeApiResponse(ChannelHandlerContext ctx, Boolean prettyPrint, Object response) {
+        return ctx.writeAndFlush(encodeApiResponse(ctx, prettyPrint, response));
+    }
+
+    /**
+     * Calls the API handler and encodes its response, caching it if the route is
+     * cacheable and the call succeeded.
+     */
+    private FullHttpResponse serviceApi(ChannelHandlerContext ctx, ApiHandler apiHandler, HttpMethod method,
+            String path, Map<String, String> params, String body, HttpHeaders headers, boolean prettyPrint,
+            ApiResponseCache.Key cacheKey) {
+        long generation = cacheKey == null ? 0 : responseCache.getGeneration(cacheKey);
+        Object response = apiHandler.service(method, path, params, body, headers);
+
+        if (cacheKey != null && response instanceof Response && ((Response) response).getStatus() == 200) {
+            try {
+                byte[] body = (prettyPrint ? prettyWriter : writer)
+                        .writeValueAsBytes(((Response) response).getEntity());
+                return encodeCachedResponse(responseCache.put(cacheKey, generation, body), headers);
+            } catch (JsonProcessingException e) {
+                logger.error("Failed to encode API response", e);
+                return encodeResponse(JSON_CONTENT_TYPE, INTERNAL_SERVER_ERROR,
+                        Unpooled.wrappedBuffer(INTERNAL_SERVER_ERROR_RESPONSE));
+            }
+        }
+
+        return encodeApiResponse(ctx, prettyPrint, response);
+    }
+
+    /**
+     * Encodes a cached response, or a 304 Not Modified if the client already has
+     * it.
+     */
+    private FullHttpResponse encodeCachedResponse(ApiResponseCache.Entry entry, HttpHeaders requestHeaders) {
+        FullHttpResponse resp;
+        if (entry.getETag().equals(requestHeaders.get(HttpHeaderNames.IF_NONE_MATCH))) {
+            resp = new DefaultFullHttpResponse(HTTP_1_1, NOT_MODIFIED);
+            resp.headers().set(CONNECTION, isKeepAlive ? KEEP_ALIVE : CLOSE);
+            HttpUtil.setContentLength(resp, 0);
+        } else {
+            resp = encodeResponse(JSON_CONTENT_TYPE, OK, Unpooled.wrappedBuffer(entry.getBody()));
+        }
+        resp.headers().set(HttpHeaderNames.ETAG, entry.getETag());
+
+        return resp;
+    }
+
+    private FullHttpResponse encodeApiResponse(ChannelHandlerContext ctx, Boolean prettyPrint, Object response) {
         HttpResponseStatus status;
         if (response instanceof javax.ws.rs.core.Response) { // since v2.0.0, a standard JAX-RS response is provided
             status = HttpResponseStatus.valueOf(((Response) response).getStatus());
@@ -243,41 +387,34 @@ public class HttpHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
             status = OK;
         }
 
-        // encode response object
-        String responseBody;
-        try {
-            if (prettyPrint) {
-                responseBody = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(response);
-            } else {
-                responseBody = objectMapper.writeValueAsString(response);
-            }
-        } catch (JsonProcessingException e) {
-            status = INTERNAL_SERVER_ERROR;
-            responseBody = INTERNAL_SERVER_ERROR_RESPONSE;
+        // encode response object straight into a pooled buffer
+        ByteBuf responseBody = ctx.alloc().buffer(RESPONSE_BUFFER_SIZE);
+        try (ByteBufOutputStream out = new ByteBufOutputStream(responseBody)) {
+            (prettyPrint ? prettyWriter : writer).writeValue((OutputStream) out, response);
+        } catch (IOException e) {
+            logger.error("Failed to encode API response", e);
+            responseBody.release();
+            return encodeResponse(JSON_CONTENT_TYPE, INTERNAL_SERVER_ERROR,
+                    Unpooled.wrappedBuffer(INTERNAL_SERVER_ERROR_RESPONSE));
         }
 
-        return writeJsonResponse(ctx, status, responseBody);
+        return encodeResponse(JSON_CONTENT_TYPE, status, responseBody);
     }
 
-    private ChannelFuture writeJsonResponse(ChannelHandlerContext ctx, HttpResponseStatus status, String responseBody) {
-        return writeStringResponse(ctx, JSON_CONTENT_TYPE, status, responseBody);
+    private ChannelFuture writeJsonResponse(ChannelHandlerContext ctx, HttpResponseStatus status, byte[] responseBody) {
+        return ctx.writeAndFlush(encodeResponse(JSON_CONTENT_TYPE, status, Unpooled.wrappedBuffer(responseBody)));
     }
 
-    private ChannelFuture writeStringResponse(ChannelHandlerContext ctx, String contentType, HttpResponseStatus status,
-            String responseBody) {
-        // construct a HTTP response
-        FullHttpResponse resp = new DefaultFullHttpResponse(
-                HTTP_1_1,
-                status,
-                Unpooled.copiedBuffer(responseBody == null ? "" : responseBody, CHARSET));
+    private FullHttpResponse encodeResponse(String contentType, HttpResponseStatus status, ByteBuf responseBody) {
+        // construct a HTTP response, which takes ownership of the buffer
+        FullHttpResponse resp = new DefaultFullHttpResponse(HTTP_1_1, status, responseBody);
 
         // set response headers
         resp.headers().set(CONNECTION, isKeepAlive ? KEEP_ALIVE : CLOSE);
         resp.headers().set(CONTENT_TYPE, contentType);
-        HttpUtil.setTransferEncodingChunked(resp, true);
+        HttpUtil.setContentLength(resp, responseBody.readableBytes());
 
-        // write response
-        return ctx.writeAndFlush(resp);
+        return resp;
     }
 
     @Override
@@ -51,6 +51,9 @@ public class SemuxApiService {
 
     private EventLoopGroup bossGroup;
     private EventLoopGroup workerGroup;
+    private ApiWorkerPool workerPool;
+    private ApiResponseCache responseCache;
+    private WebSocketPublisher webSocketPublisher;
 
     private final Map<Version, ApiHandler> apiHandlers;
 
@@ -106,6 +109,18 @@ public class SemuxApiService {
             this.port = port;
             bossGroup = new NioEventLoopGroup(1, factory);
             workerGroup = new NioEventLoopGroup(0, factory);
+            workerPool = new ApiWorkerPool(kernel.getConfig());
+            if (responseCache == null && kernel.getConfig().apiResponseCacheSize() > 0
+                    && kernel.getBlockchain() != null && kernel.getPendingManager() != null) {
+                responseCache = new ApiResponseCache(kernel.getConfig().apiResponseCacheSize());
+                kernel.getBlockchain().addListener(responseCache);
+                kernel.getPendingManager().addListener(responseCache);
+            }
+            if (webSocketPublisher == null && kernel.getBlockchain() != null && kernel.getPendingManager() != null) {
+                webSocketPublisher = new WebSocketPublisher(kernel.getConfig().apiWebSocketMaxQueuedEvents());
+                kernel.getBlockchain().addListener(webSocketPublisher);
+                kernel.getPendingManager().addListener(webSocketPublisher);
+            }
 
             ServerBootstrap b = new ServerBootstrap();
             b.group(bossGroup, workerGroup).channel(NioServerSocketChannel.class)
@@ -132,6 +147,20 @@ public class SemuxApiService {
 
                 workerGroup.shutdownGracefully();
                 bossGroup.shutdownGracefully();
+                workerPool.shutdown();
+
+                // detach the cache and the publisher, which are created again on start
+                if (responseCache != null) {
+                    kernel.getBlockchain().removeListener(responseCache);
+                    kernel.getPendingManager().removeListener(responseCache);
+                    responseCache = null;
+                }
+                if (webSocketPublisher != null) {
+                    webSocketPublisher.stop();
+                    kernel.getBlockchain().removeListener(webSocketPublisher);
+                    kernel.getPendingManager().removeListener(webSocketPublisher);
+                    webSocketPublisher = null;
+                }
 
                 // workerGroup.terminationFuture().sync();
                 // bossGroup.terminationFuture().sync();
@@ -168,7 +197,13 @@ public class SemuxApiService {
 
         @Override
         public HttpHandler initHandler() {
-            return new HttpHandler(kernel, apiHandlers);
+            return new HttpHandler(kernel, apiHandlers, workerPool, responseCache);
+        }
+
+        @Override
+        public WebSocketHandler initWebSocketHandler() {
+            return webSocketPublisher == null ? null
+                    : new WebSocketHandler(kernel.getConfig(), webSocketPublisher);
         }
     }
 }
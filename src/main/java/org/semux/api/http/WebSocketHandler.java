@@ -0,0 +1,237 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.api.http;
+
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.semux.api.Version;
+import org.semux.api.http.WebSocketPublisher.DropPolicy;
+import org.semux.api.http.WebSocketPublisher.Subscriber;
+import org.semux.api.http.WebSocketPublisher.Topic;
+import org.semux.config.Config;
+import org.semux.crypto.CryptoException;
+import org.semux.crypto.Hex;
+import org.semux.crypto.Key;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.websocketx.CloseWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.PingWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.PongWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketServerHandshaker;
+import io.netty.handler.codec.http.websocketx.WebSocketServerHandshakerFactory;
+
+/**
+ * Upgrades requests to {@link #PATH} to WebSocket connections and handles the
+ * subscription commands of the clients. All other requests are passed on to
+ * the {@link HttpHandler}.
+ * <p>
+ * Commands are JSON objects, for example:
+ *
+ * <pre>
+ * {"action": "subscribe", "topic": "blocks"}
+ * {"action": "subscribe", "topic": "transactions", "address": "0x..."}
+ * {"action": "subscribe", "topic": "pending-transactions", "dropPolicy": "disconnect"}
+ * {"action": "unsubscribe", "topic": "pending-transactions"}
+ * </pre>
+ */
+public class WebSocketHandler extends ChannelInboundHandlerAdapter {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketHandler.class);
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    public static final String PATH = "/" + Version.v2_0_0.prefix + "/ws";
+
+    private static final int MAX_FRAME_SIZE = 64 * 1024;
+
+    private final Config config;
+    private final WebSocketPublisher publisher;
+
+    private WebSocketServerHandshaker handshaker;
+    private Subscriber subscriber;
+
+    public WebSocketHandler(Config config, WebSocketPublisher publisher) {
+        this.config = config;
+        this.publisher = publisher;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (msg instanceof FullHttpRequest && isUpgradeRequest((FullHttpRequest) msg)) {
+            FullHttpRequest request = (FullHttpRequest) msg;
+            try {
+                handshake(ctx, request);
+            } finally {
+                request.release();
+            }
+        } else if (msg instanceof WebSocketFrame) {
+            WebSocketFrame frame = (WebSocketFrame) msg;
+            try {
+                handleFrame(ctx, frame);
+            } finally {
+                frame.release();
+            }
+        } else {
+            ctx.fireChannelRead(msg);
+        }
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) {
+        if (subscriber != null && ctx.channel().isWritable()) {
+            subscriber.drain();
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) {
+        if (subscriber != null) {
+            publisher.removeSubscriber(subscriber);
+            subscriber = null;
+        }
+        ctx.fireChannelInactive();
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        if (handshaker == null) {
+            ctx.fireExceptionCaught(cause);
+        } else {
+            logger.debug("WebSocket error", cause);
+            ctx.close();
+        }
+    }
+
+    private boolean isUpgradeRequest(FullHttpRequest request) {
+        String uri = request.uri();
+        int query = uri.indexOf('?');
+        String path = query == -1 ? uri : uri.substring(0, query);
+
+        return (path.equals(PATH) || path.equals(PATH + "/"))
+                && request.headers().containsValue(HttpHeaderNames.UPGRADE, HttpHeaderValues.WEBSOCKET, true);
+    }
+
+    private void handshake(ChannelHandlerContext ctx, FullHttpRequest request) {
+        if (!HttpHandler.checkBasicAuth(config, request.headers())) {
+            FullHttpResponse resp = new DefaultFullHttpResponse(HTTP_1_1, HttpResponseStatus.UNAUTHORIZED);
+            resp.headers().set(HttpHeaderNames.WWW_AUTHENTICATE, "Basic realm=\"Semux RESTful API\"");
+            resp.headers().set(HttpHeaderNames.CONTENT_LENGTH, 0);
+            ctx.writeAndFlush(resp).addListener(ChannelFutureListener.CLOSE);
+            return;
+        }
+
+        String location = "ws://" + request.headers().get(HttpHeaderNames.HOST) + PATH;
+        WebSocketServerHandshakerFactory factory = new WebSocketServerHandshakerFactory(location, null, false,
+                MAX_FRAME_SIZE);
+        handshaker = factory.newHandshaker(request);
+        if (handshaker == null) {
+            WebSocketServerHandshakerFactory.sendUnsupportedVersionResponse(ctx.channel());
+        } else {
+            handshaker.handshake(ctx.channel(), request);
+            subscriber = publisher.addSubscriber(ctx.channel());
+        }
+    }
+
+    private void handleFrame(ChannelHandlerContext ctx, WebSocketFrame frame) {
+        if (frame instanceof CloseWebSocketFrame) {
+            handshaker.close(ctx.channel(), (CloseWebSocketFrame) frame.retain());
+        } else if (frame instanceof PingWebSocketFrame) {
+            ctx.writeAndFlush(new PongWebSocketFrame(frame.content().retain()));
+        } else if (frame instanceof TextWebSocketFrame) {
+            String reply = handleCommand(((TextWebSocketFrame) frame).text());
+            ctx.writeAndFlush(new TextWebSocketFrame(reply));
+        } else if (!(frame instanceof PongWebSocketFrame)) {
+            handshaker.close(ctx.channel(), new CloseWebSocketFrame(1003, "Unsupported frame type"));
+        }
+    }
+
+    /**
+     * Applies a command and returns the reply.
+     *
+     * @param text
+     * @return
+     */
+    protected String handleCommand(String text) {
+        Map<String, Object> reply = new LinkedHashMap<>();
+        try {
+            JsonNode command = objectMapper.readTree(text);
+            if (command == null || !command.isObject()) {
+                throw new IllegalArgumentException("Command must be a JSON object");
+            }
+
+            String action = command.path("action").asText();
+            Topic topic = parseEnum(Topic.class, command.path("topic").asText(), "topic");
+            byte[] address = command.hasNonNull("address") ? parseAddress(command.get("address").asText()) : null;
+            if (command.hasNonNull("dropPolicy")) {
+                subscriber.setDropPolicy(parseEnum(DropPolicy.class, command.get("dropPolicy").asText(), "dropPolicy"));
+            }
+
+            if ("subscribe".equals(action)) {
+                subscriber.subscribe(topic, address);
+            } else if ("unsubscribe".equals(action)) {
+                subscriber.unsubscribe(topic, address);
+            } else {
+                throw new IllegalArgumentException("Unknown action: " + action);
+            }
+
+            reply.put("success", true);
+        } catch (IOException e) {
+            reply.put("success", false);
+            reply.put("message", "Malformed command");
+        } catch (IllegalArgumentException e) {
+            reply.put("success", false);
+            reply.put("message", e.getMessage());
+        }
+
+        try {
+            return objectMapper.writeValueAsString(reply);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static <T extends Enum<T>> T parseEnum(Class<T> clazz, String value, String name) {
+        try {
+            return Enum.valueOf(clazz, value.toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value);
+        }
+    }
+
+    private static byte[] parseAddress(String value) {
+        try {
+            byte[] address = Hex.decode0x(value);
+            if (address.length != Key.ADDRESS_LEN) {
+                throw new IllegalArgumentException("Invalid address: " + value);
+            }
+            return address;
+        } catch (CryptoException e) {
+            throw new IllegalArgumentException("Invalid address: " + value);
+        }
+    }
+}
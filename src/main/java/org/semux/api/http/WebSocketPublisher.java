@@ -0,0 +1,409 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.api.http;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.semux.api.v2_0_0.TypeFactory;
+import org.semux.core.Block;
+import org.semux.core.BlockchainListener;
+import org.semux.core.PendingManager.PendingTransaction;
+import org.semux.core.PendingManagerListener;
+import org.semux.core.Transaction;
+import org.semux.crypto.Hex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.handler.codec.http.websocketx.CloseWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+
+/**
+ * Pushes new blocks, transactions and pending transactions to WebSocket
+ * subscribers.
+ * <p>
+ * Each event is serialized once, on a dedicated thread, and then queued to the
+ * matching subscribers. Every subscriber has a bounded queue, which is drained
+ * on its channel's event loop as fast as the client reads; when the queue is
+ * full the subscriber's {@link DropPolicy} applies. A slow client therefore
+ * never holds up block import, the pending manager or other subscribers.
+ */
+public class WebSocketPublisher implements BlockchainListener, PendingManagerListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketPublisher.class);
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Max number of addresses each subscriber can filter transactions by.
+     */
+    public static final int MAX_ADDRESSES = 1024;
+
+    /**
+     * Max number of events waiting to be serialized.
+     */
+    private static final int MAX_PENDING_EVENTS = 4096;
+
+    private static final ThreadFactory factory = r -> {
+        Thread t = new Thread(r, "api-ws-publisher");
+        t.setDaemon(true);
+        return t;
+    };
+
+    /**
+     * What to do with a new event when a subscriber's queue is full.
+     */
+    public enum DropPolicy {
+        /**
+         * Discard the oldest queued event.
+         */
+        DROP_OLDEST,
+
+        /**
+         * Discard the new event.
+         */
+        DROP_NEWEST,
+
+        /**
+         * Close the connection.
+         */
+        DISCONNECT
+    }
+
+    /**
+     * Subscription topics.
+     */
+    public enum Topic {
+        /**
+         * Headers of new blocks.
+         */
+        BLOCKS,
+
+        /**
+         * Transactions included in new blocks, filtered by address.
+         */
+        TRANSACTIONS,
+
+        /**
+         * Transactions added to the pending pool, optionally filtered by address.
+         */
+        PENDING_TRANSACTIONS
+    }
+
+    private final int maxQueuedEvents;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private final ThreadPoolExecutor exec;
+
+    /**
+     * Creates a publisher.
+     *
+     * @param maxQueuedEvents
+     *            the max number of events queued for each subscriber
+     */
+    public WebSocketPublisher(int maxQueuedEvents) {
+        this.maxQueuedEvents = maxQueuedEvents;
+        this.exec = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(MAX_PENDING_EVENTS), factory,
+                (r, e) -> logger.warn("WebSocket publisher is overloaded, event discarded"));
+    }
+
+    /**
+     * Registers a subscriber for the given channel.
+     *
+     * @param channel
+     * @return
+     */
+    public Subscriber addSubscriber(Channel channel) {
+        Subscriber subscriber = new Subscriber(channel);
+        subscribers.add(subscriber);
+        return subscriber;
+    }
+
+    /**
+     * Unregisters a subscriber.
+     *
+     * @param subscriber
+     */
+    public void removeSubscriber(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    /**
+     * Stops publishing events.
+     */
+    public void stop() {
+        exec.shutdownNow();
+    }
+
+    @Override
+    public void onBlockAdded(Block block) {
+        if (!subscribers.isEmpty()) {
+            exec.execute(() -> publishBlock(block));
+        }
+    }
+
+    @Override
+    public void onPendingTransactionAdded(PendingTransaction tx) {
+        if (!subscribers.isEmpty()) {
+            exec.execute(() -> publishPendingTransaction(tx.transaction));
+        }
+    }
+
+    @Override
+    public void onPendingTransactionsRemoved(List<PendingTransaction> txs) {
+        // subscribers are only notified of new transactions
+    }
+
+    protected void publishBlock(Block block) {
+        byte[] header = null;
+        boolean hasTransactionSubscribers = false;
+        for (Subscriber s : subscribers) {
+            if (s.blocks) {
+                if (header == null) {
+                    header = encode("block", TypeFactory.blockHeaderType(block));
+                }
+                s.offer(header);
+            }
+            hasTransactionSubscribers |= !s.transactionAddresses.isEmpty();
+        }
+
+        if (hasTransactionSubscribers) {
+            for (Transaction tx : block.getTransactions()) {
+                String from = Hex.encode(tx.getFrom());
+                String to = Hex.encode(tx.getTo());
+                byte[] event = null;
+                for (Subscriber s : subscribers) {
+                    if (s.transactionAddresses.contains(from) || s.transactionAddresses.contains(to)) {
+                        if (event == null) {
+                            event = encode("transaction", TypeFactory.transactionType(block.getNumber(), tx));
+                        }
+                        s.offer(event);
+                    }
+                }
+            }
+        }
+    }
+
+    protected void publishPendingTransaction(Transaction tx) {
+        String from = Hex.encode(tx.getFrom());
+        String to = Hex.encode(tx.getTo());
+        byte[] event = null;
+        for (Subscriber s : subscribers) {
+            if (s.allPendingTransactions
+                    || s.pendingTransactionAddresses.contains(from) || s.pendingTransactionAddresses.contains(to)) {
+                if (event == null) {
+                    event = encode("pending-transaction", TypeFactory.pendingTransactionType(tx));
+                }
+                s.offer(event);
+            }
+        }
+    }
+
+    protected static byte[] encode(String event, Object result) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("event", event);
+        map.put("result", result);
+
+        try {
+            return objectMapper.writeValueAsBytes(map);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to encode event: " + event, e);
+        }
+    }
+
+    /**
+     * A WebSocket subscriber, with its subscriptions and queue of outgoing
+     * events.
+     */
+    public class Subscriber {
+
+        private final Channel channel;
+
+        private volatile boolean blocks = false;
+        private volatile boolean allPendingTransactions = false;
+        private final Set<String> transactionAddresses = ConcurrentHashMap.newKeySet();
+        private final Set<String> pendingTransactionAddresses = ConcurrentHashMap.newKeySet();
+
+        private volatile DropPolicy dropPolicy = DropPolicy.DROP_OLDEST;
+
+        // guarded by this
+        private final Deque<byte[]> queue = new ArrayDeque<>();
+        private int dropped = 0;
+        private boolean isDrainScheduled = false;
+
+        private Subscriber(Channel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Subscribes to a topic.
+         *
+         * @param topic
+         * @param address
+         *            the address to filter transactions by, or null
+         * @throws IllegalArgumentException
+         *             if the subscription is invalid
+         */
+        public void subscribe(Topic topic, byte[] address) {
+            switch (topic) {
+            case BLOCKS:
+                blocks = true;
+                break;
+            case TRANSACTIONS:
+                if (address == null) {
+                    throw new IllegalArgumentException("An address is required");
+                }
+                addAddress(transactionAddresses, address);
+                break;
+            case PENDING_TRANSACTIONS:
+                if (address == null) {
+                    allPendingTransactions = true;
+                } else {
+                    addAddress(pendingTransactionAddresses, address);
+                }
+                break;
+            }
+        }
+
+        /**
+         * Unsubscribes from a topic.
+         *
+         * @param topic
+         * @param address
+         *            the address to stop filtering by, or null for all
+         */
+        public void unsubscribe(Topic topic, byte[] address) {
+            switch (topic) {
+            case BLOCKS:
+                blocks = false;
+                break;
+            case TRANSACTIONS:
+                removeAddress(transactionAddresses, address);
+                break;
+            case PENDING_TRANSACTIONS:
+                if (address == null) {
+                    allPendingTransactions = false;
+                }
+                removeAddress(pendingTransactionAddresses, address);
+                break;
+            }
+        }
+
+        public void setDropPolicy(DropPolicy dropPolicy) {
+            this.dropPolicy = dropPolicy;
+        }
+
+        private void addAddress(Set<String> addresses, byte[] address) {
+            if (transactionAddresses.size() + pendingTransactionAddresses.size() >= MAX_ADDRESSES) {
+                throw new IllegalArgumentException("Too many addresses, the limit is " + MAX_ADDRESSES);
+            }
+            addresses.add(Hex.encode(address));
+        }
+
+        private void removeAddress(Set<String> addresses, byte[] address) {
+            if (address == null) {
+                addresses.clear();
+            } else {
+                addresses.remove(Hex.encode(address));
+            }
+        }
+
+        /**
+         * Queues an event for this subscriber.
+         *
+         * @param event
+         *            the serialized event
+         */
+        protected void offer(byte[] event) {
+            boolean disconnect = false;
+            boolean scheduleDrain = false;
+
+            synchronized (this) {
+                if (queue.size() < maxQueuedEvents) {
+                    queue.add(event);
+                } else {
+                    switch (dropPolicy) {
+                    case DROP_OLDEST:
+                        queue.poll();
+                        queue.add(event);
+                        dropped++;
+                        break;
+                    case DROP_NEWEST:
+                        dropped++;
+                        break;
+                    case DISCONNECT:
+                        disconnect = true;
+                        break;
+                    }
+                }
+
+                if (!disconnect && !isDrainScheduled) {
+                    isDrainScheduled = true;
+                    scheduleDrain = true;
+                }
+            }
+
+            if (disconnect) {
+                logger.debug("Disconnecting slow WebSocket subscriber: {}", channel.remoteAddress());
+                removeSubscriber(this);
+                channel.writeAndFlush(new CloseWebSocketFrame(1008, "Too many queued events"))
+                        .addListener(f -> channel.close());
+            } else if (scheduleDrain) {
+                channel.eventLoop().execute(this::drain);
+            }
+        }
+
+        /**
+         * Writes queued events while the channel is writable. Must be called on the
+         * channel's event loop.
+         */
+        protected void drain() {
+            synchronized (this) {
+                isDrainScheduled = false;
+            }
+
+            boolean written = false;
+            while (channel.isWritable()) {
+                byte[] event;
+                synchronized (this) {
+                    if (dropped > 0) {
+                        event = encode("dropped", dropped);
+                        dropped = 0;
+                    } else {
+                        event = queue.poll();
+                    }
+                }
+                if (event == null) {
+                    break;
+                }
+
+                channel.write(new TextWebSocketFrame(Unpooled.wrappedBuffer(event)));
+                written = true;
+            }
+
+            if (written) {
+                channel.flush();
+            }
+        }
+    }
+}
@@ -38,7 +38,8 @@ public class ApiHandlerImpl implements ApiHandler {
     }
 
     @Override
-    public ApiHandlerResponse service(HttpMethod method, String uri, Map<String, String> params, HttpHeaders headers) {
+    public ApiHandlerResponse service(HttpMethod method, String uri, Map<String, String> params, String body,
+            HttpHeaders headers) {
         // strip version prefix
         uri = uri.replaceAll("^/" + Version.v1_0_1.prefix, "");
 
@@ -8,9 +8,7 @@ package org.semux.api.v2_0_0;
 
 import static org.semux.core.TransactionType.DELEGATE;
 
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.semux.Kernel;
@@ -28,6 +26,7 @@ import org.semux.core.Block;
 import org.semux.core.Blockchain;
 import org.semux.core.BlockchainImpl;
 import org.semux.core.Transaction;
+import org.semux.core.ValidatorSet;
 import org.semux.core.state.Account;
 import org.semux.core.state.Delegate;
 import org.semux.crypto.Hex;
@@ -50,6 +49,13 @@ public class TypeFactory {
         if (coinbaseTransaction != null) {
             txs.add(0, coinbaseTransaction);
         }
+        return blockHeaderType(block)
+                .transactions(txs.stream()
+                        .map(tx -> transactionType(block.getNumber(), tx))
+                        .collect(Collectors.toList()));
+    }
+
+    public static BlockType blockHeaderType(Block block) {
         return new BlockType()
                 .hash(Hex.encode0x(block.getHash()))
                 .number(String.valueOf(block.getNumber()))
@@ -60,10 +66,7 @@ public class TypeFactory {
                 .transactionsRoot(Hex.encode0x(block.getTransactionsRoot()))
                 .resultsRoot(Hex.encode0x(block.getResultsRoot()))
                 .stateRoot(Hex.encode0x(block.getStateRoot()))
-                .data(Hex.encode0x(block.getData()))
-                .transactions(txs.stream()
-                        .map(tx -> transactionType(block.getNumber(), tx))
-                        .collect(Collectors.toList()));
+                .data(Hex.encode0x(block.getData()));
     }
 
     public static DelegateType delegateType(BlockchainImpl.ValidatorStats validatorStats, Delegate delegate,
@@ -80,7 +83,7 @@ public class TypeFactory {
     }
 
     public static List<AccountVoteType> accountVotes(Blockchain blockchain, byte[] address) {
-        Set<String> validators = new HashSet<>(blockchain.getValidators());
+        ValidatorSet validators = blockchain.getValidatorSet();
         return blockchain.getDelegateState()
                 .getDelegates()
                 .parallelStream()
@@ -9,13 +9,13 @@ package org.semux.api.v2_0_0.impl;
 
 import static javax.ws.rs.core.Response.Status.NOT_FOUND;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
 
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Response;
@@ -46,22 +46,26 @@ public class ApiHandlerImpl implements ApiHandler {
     private final SemuxApiServiceImpl semuxApi;
 
     /**
-     * [http method, uri] => {@link Route}
+     * [http method] => [uri] => {@link Route}
      */
-    private final Map<ImmutablePair<HttpMethod, String>, Route> routes;
+    private final Map<HttpMethod, Map<String, Route>> routes;
 
     public ApiHandlerImpl(Kernel kernel) {
         this.semuxApi = new SemuxApiServiceImpl(kernel);
-        this.routes = new ConcurrentHashMap<>();
+        this.routes = new HashMap<>();
         loadRoutes();
     }
 
     @Override
-    public Object service(HttpMethod method, String uri, Map<String, String> params, HttpHeaders headers) {
+    public Object service(HttpMethod method, String uri, Map<String, String> params, String body,
+            HttpHeaders headers) {
         // strip trailing slash
-        uri = uri.replaceAll("/$", "");
+        if (uri.endsWith("/")) {
+            uri = uri.substring(0, uri.length() - 1);
+        }
 
-        Route route = routes.get(ImmutablePair.of(method, uri));
+        Map<String, Route> routesOfMethod = routes.get(method);
+        Route route = routesOfMethod == null ? null : routesOfMethod.get(uri);
         if (route == null) {
             return Response.status(NOT_FOUND)
                     .entity(new ApiHandlerResponse().success(false).message("Invalid request: uri = " + uri))
@@ -69,7 +73,7 @@ public class ApiHandlerImpl implements ApiHandler {
         }
 
         try {
-            return route.invoke(params);
+            return route.invoke(params, body);
         } catch (Exception e) {
             return semuxApi.failure(new ApiHandlerResponse(), "Failed to process your request: " + e.getMessage());
         }
@@ -94,13 +98,12 @@ public class ApiHandlerImpl implements ApiHandler {
         for (Map.Entry<String, io.swagger.models.Path> pathEntry : swagger.getPaths().entrySet()) {
             for (Map.Entry<io.swagger.models.HttpMethod, Operation> operation : pathEntry.getValue().getOperationMap()
                     .entrySet()) {
-                ImmutablePair<HttpMethod, String> key = ImmutablePair.of(HttpMethod.valueOf(operation.getKey().name()),
-                        pathEntry.getKey());
+                HttpMethod httpMethod = HttpMethod.valueOf(operation.getKey().name());
+                String uri = pathEntry.getKey();
                 ImmutablePair<Method, Method> methodPair = methodMap.get(operation.getValue().getOperationId());
-                routes.put(
-                        key,
-                        new Route(key.left, key.right, methodPair.left, methodPair.right));
-                logger.debug("Loaded route: {} {}", key.getLeft(), key.getRight());
+                routes.computeIfAbsent(httpMethod, k -> new HashMap<>())
+                        .put(uri, new Route(httpMethod, uri, methodPair.left, methodPair.right));
+                logger.debug("Loaded route: {} {}", httpMethod, uri);
             }
         }
     }
@@ -113,27 +116,55 @@ public class ApiHandlerImpl implements ApiHandler {
         @SuppressWarnings("unused")
         final String uri;
 
-        @SuppressWarnings("unused")
-        final Method methodInterface;
-
-        final Method methodImpl;
+        /**
+         * The implementation, bound to the service instance and adapted to take all
+         * parameters as one array, so that it can be called with invokeExact.
+         */
+        final MethodHandle invoker;
 
-        final List<QueryParam> queryParams;
+        /**
+         * The query parameter name of each method parameter, or null for the body.
+         */
+        final String[] paramNames;
 
         Route(HttpMethod httpMethod, String uri, Method methodInterface, Method methodImpl) {
             this.httpMethod = httpMethod;
             this.uri = uri;
-            this.methodInterface = methodInterface;
-            this.methodImpl = methodImpl;
-            this.queryParams = Arrays.stream(methodInterface.getParameters())
-                    .map(p -> p.getAnnotation(QueryParam.class))
-                    .collect(Collectors.toList());
+            this.paramNames = Arrays.stream(methodInterface.getParameters())
+                    .map(p -> p.isAnnotationPresent(QueryParam.class) ? p.getAnnotation(QueryParam.class).value()
+                            : null)
+                    .toArray(String[]::new);
+
+            // all the API parameters are strings
+            for (Class<?> type : methodImpl.getParameterTypes()) {
+                if (type != String.class) {
+                    throw new UnreachableException("Unsupported parameter type of " + methodImpl + ": " + type);
+                }
+            }
+
+            try {
+                this.invoker = MethodHandles.lookup().unreflect(methodImpl)
+                        .bindTo(semuxApi)
+                        .asSpreader(String[].class, paramNames.length)
+                        .asType(MethodType.methodType(Object.class, String[].class));
+            } catch (IllegalAccessException e) {
+                throw new UnreachableException(e);
+            }
         }
 
-        Object invoke(Map<String, String> params) throws Exception {
-            return this.methodImpl.invoke(
-                    semuxApi,
-                    queryParams.stream().map(p -> params.getOrDefault(p.value(), null)).toArray());
+        Object invoke(Map<String, String> params, String body) throws Exception {
+            String[] args = new String[paramNames.length];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = paramNames[i] == null ? body : params.get(paramNames[i]);
+            }
+
+            try {
+                return (Object) invoker.invokeExact(args);
+            } catch (Exception | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new UnreachableException(e);
+            }
         }
     }
 }
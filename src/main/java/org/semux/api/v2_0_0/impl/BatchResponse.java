@@ -0,0 +1,274 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.api.v2_0_0.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.semux.Kernel;
+import org.semux.api.v2_0_0.TypeFactory;
+import org.semux.api.v2_0_0.model.ApiHandlerResponse;
+import org.semux.api.v2_0_0.model.GetAccountResponse;
+import org.semux.api.v2_0_0.model.GetTransactionResponse;
+import org.semux.core.Block;
+import org.semux.core.Blockchain;
+import org.semux.core.BlockchainSnapshot;
+import org.semux.core.PendingManager.PendingTransaction;
+import org.semux.core.Transaction;
+import org.semux.core.state.Account;
+import org.semux.crypto.CryptoException;
+import org.semux.crypto.Hex;
+import org.semux.crypto.Key;
+import org.semux.util.ByteArray;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+/**
+ * The response of a batch request.
+ * <p>
+ * The operations are executed while the response is being serialized, on a
+ * snapshot of the blockchain, so that all of them see the same state without
+ * holding up block import, and their results are written straight into the
+ * response body, as one JSON array with an element per operation.
+ */
+public class BatchResponse extends JsonSerializable.Base {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Max number of operations in a batch.
+     */
+    public static final int MAX_OPERATIONS = 1024;
+
+    /**
+     * Max number of blocks returned by a batch.
+     */
+    public static final int MAX_BLOCKS = 128;
+
+    private final Kernel kernel;
+    private final List<Operation> operations;
+
+    /**
+     * [address] => number of pending transactions, computed on first use
+     */
+    private Map<ByteArray, Integer> pendingTransactionCounts;
+
+    private BatchResponse(Kernel kernel, List<Operation> operations) {
+        this.kernel = kernel;
+        this.operations = operations;
+    }
+
+    /**
+     * Parses a batch of operations, in the form of a JSON array like:
+     *
+     * <pre>
+     * [{"method": "getAccount", "address": "0x..."},
+     *  {"method": "getTransaction", "hash": "0x..."},
+     *  {"method": "getBlocksByNumber", "from": "1", "to": "11"}]
+     * </pre>
+     *
+     * Block ranges include <code>from</code> and exclude <code>to</code>.
+     *
+     * @param kernel
+     * @param json
+     * @return
+     * @throws IllegalArgumentException
+     *             if the batch is malformed or exceeds the limits
+     */
+    public static BatchResponse parse(Kernel kernel, String json) {
+        JsonNode array;
+        try {
+            array = objectMapper.readTree(json);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Parameter `operations` is not valid JSON");
+        }
+        if (array == null || !array.isArray()) {
+            throw new IllegalArgumentException("Parameter `operations` must be a JSON array");
+        }
+        if (array.size() > MAX_OPERATIONS) {
+            throw new IllegalArgumentException("Too many operations, the limit is " + MAX_OPERATIONS);
+        }
+
+        List<Operation> operations = new ArrayList<>(array.size());
+        long blocks = 0;
+        for (JsonNode node : array) {
+            Operation op = Operation.parse(node);
+            blocks += op.to - op.from;
+            if (blocks > MAX_BLOCKS) {
+                throw new IllegalArgumentException("Too many blocks, the limit is " + MAX_BLOCKS);
+            }
+            operations.add(op);
+        }
+
+        return new BatchResponse(kernel, operations);
+    }
+
+    @Override
+    public void serialize(JsonGenerator gen, SerializerProvider provider) throws IOException {
+        try (BlockchainSnapshot chain = kernel.getBlockchain().getSnapshot()) {
+            gen.writeStartArray();
+            for (Operation op : operations) {
+                switch (op.method) {
+                case GET_ACCOUNT:
+                    provider.defaultSerializeValue(getAccount(chain, op.address), gen);
+                    break;
+                case GET_TRANSACTION:
+                    provider.defaultSerializeValue(getTransaction(chain, op.hash), gen);
+                    break;
+                case GET_BLOCKS_BY_NUMBER:
+                    writeBlocks(chain, op.from, op.to, gen, provider);
+                    break;
+                }
+            }
+            gen.writeEndArray();
+        }
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator gen, SerializerProvider provider, TypeSerializer typeSer)
+            throws IOException {
+        serialize(gen, provider);
+    }
+
+    private ApiHandlerResponse getAccount(Blockchain chain, byte[] address) {
+        Account account = chain.getAccountState().getAccount(address);
+        int transactionCount = chain.getTransactionCount(address);
+        int pendingTransactionCount = getPendingTransactionCounts().getOrDefault(ByteArray.of(address), 0);
+
+        GetAccountResponse resp = new GetAccountResponse();
+        resp.setResult(TypeFactory.accountType(account, transactionCount, pendingTransactionCount));
+        resp.setSuccess(true);
+        return resp;
+    }
+
+    private ApiHandlerResponse getTransaction(Blockchain chain, byte[] hash) {
+        Transaction transaction = chain.getTransaction(hash);
+        if (transaction == null) {
+            return new ApiHandlerResponse().success(false).message("The request transaction was not found");
+        }
+
+        GetTransactionResponse resp = new GetTransactionResponse();
+        resp.setResult(TypeFactory.transactionType(chain.getTransactionBlockNumber(hash), transaction));
+        resp.setSuccess(true);
+        return resp;
+    }
+
+    private void writeBlocks(Blockchain chain, long from, long to, JsonGenerator gen, SerializerProvider provider)
+            throws IOException {
+        gen.writeStartObject();
+        gen.writeBooleanField("success", true);
+        gen.writeArrayFieldStart("result");
+        for (long number = from; number < to; number++) {
+            Block block = chain.getBlock(number);
+            if (block == null) {
+                break;
+            }
+            provider.defaultSerializeValue(TypeFactory.blockType(block, chain.getCoinbaseTransaction(number)), gen);
+        }
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    /**
+     * Counts the pending transactions of every address at once, rather than
+     * scanning the pending pool for each account.
+     *
+     * @return
+     */
+    private Map<ByteArray, Integer> getPendingTransactionCounts() {
+        if (pendingTransactionCounts == null) {
+            pendingTransactionCounts = new HashMap<>();
+            for (PendingTransaction pendingTransaction : kernel.getPendingManager().getPendingTransactions()) {
+                Transaction tx = pendingTransaction.transaction;
+                pendingTransactionCounts.merge(ByteArray.of(tx.getFrom()), 1, Integer::sum);
+                if (!ByteArray.of(tx.getFrom()).equals(ByteArray.of(tx.getTo()))) {
+                    pendingTransactionCounts.merge(ByteArray.of(tx.getTo()), 1, Integer::sum);
+                }
+            }
+        }
+        return pendingTransactionCounts;
+    }
+
+    private enum Method {
+        GET_ACCOUNT, GET_TRANSACTION, GET_BLOCKS_BY_NUMBER
+    }
+
+    private static class Operation {
+        Method method;
+        byte[] address;
+        byte[] hash;
+        long from;
+        long to;
+
+        static Operation parse(JsonNode node) {
+            if (!node.isObject()) {
+                throw new IllegalArgumentException("Each operation must be a JSON object");
+            }
+
+            Operation op = new Operation();
+            String method = node.path("method").asText();
+            switch (method) {
+            case "getAccount":
+                op.method = Method.GET_ACCOUNT;
+                op.address = parseHex(node, "address");
+                if (op.address.length != Key.ADDRESS_LEN) {
+                    throw new IllegalArgumentException("Parameter `address` is not a valid address");
+                }
+                break;
+            case "getTransaction":
+                op.method = Method.GET_TRANSACTION;
+                op.hash = parseHex(node, "hash");
+                break;
+            case "getBlocksByNumber":
+                op.method = Method.GET_BLOCKS_BY_NUMBER;
+                op.from = parseNumber(node, "from");
+                op.to = parseNumber(node, "to");
+                if (op.to < op.from) {
+                    throw new IllegalArgumentException("Parameter `to` must not be less than `from`");
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported method: " + method);
+            }
+            return op;
+        }
+
+        static byte[] parseHex(JsonNode node, String name) {
+            if (!node.hasNonNull(name)) {
+                throw new IllegalArgumentException("Parameter `" + name + "` is required");
+            }
+            try {
+                return Hex.decode0x(node.get(name).asText());
+            } catch (CryptoException e) {
+                throw new IllegalArgumentException("Parameter `" + name + "` is not a valid hexadecimal string");
+            }
+        }
+
+        static long parseNumber(JsonNode node, String name) {
+            if (!node.hasNonNull(name)) {
+                throw new IllegalArgumentException("Parameter `" + name + "` is required");
+            }
+            try {
+                long number = Long.parseLong(node.get(name).asText());
+                if (number < 0) {
+                    throw new NumberFormatException();
+                }
+                return number;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Parameter `" + name + "` is not a valid number");
+            }
+        }
+    }
+}
@@ -14,8 +14,6 @@ import java.io.File;
 import java.net.UnknownHostException;
 import java.nio.charset.Charset;
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -56,11 +54,12 @@ import org.semux.api.v2_0_0.model.SignMessageResponse;
 import org.semux.api.v2_0_0.model.SignRawTransactionResponse;
 import org.semux.api.v2_0_0.model.VerifyMessageResponse;
 import org.semux.core.Block;
-import org.semux.core.Blockchain;
 import org.semux.core.BlockchainImpl;
+import org.semux.core.BlockchainSnapshot;
 import org.semux.core.PendingManager;
 import org.semux.core.Transaction;
 import org.semux.core.TransactionType;
+import org.semux.core.ValidatorSet;
 import org.semux.core.exception.WalletLockedException;
 import org.semux.core.state.Account;
 import org.semux.core.state.Delegate;
@@ -132,6 +131,20 @@ public final class SemuxApiServiceImpl implements SemuxApi {
         }
     }
 
+    @Override
+    public Response batch(String operations) {
+        ApiHandlerResponse resp = new ApiHandlerResponse();
+        if (!isSet(operations)) {
+            return failure(resp, "Parameter `operations` is required");
+        }
+
+        try {
+            return Response.ok().entity(BatchResponse.parse(kernel, operations)).build();
+        } catch (IllegalArgumentException e) {
+            return failure(resp, e.getMessage());
+        }
+    }
+
     @Override
     public Response composeRawTransaction(String network, String type, String fee, String nonce, String to,
             String value,
@@ -196,8 +209,12 @@ public final class SemuxApiServiceImpl implements SemuxApi {
             return failure(resp, "Parameter `address` is not a valid hexadecimal string");
         }
 
-        Account account = kernel.getBlockchain().getAccountState().getAccount(addressBytes);
-        int transactionCount = kernel.getBlockchain().getTransactionCount(account.getAddress());
+        Account account;
+        int transactionCount;
+        try (BlockchainSnapshot chain = kernel.getBlockchain().getSnapshot()) {
+            account = chain.getAccountState().getAccount(addressBytes);
+            transactionCount = chain.getTransactionCount(account.getAddress());
+        }
         int pendingTransactionCount = (int) kernel.getPendingManager()
                 .getPendingTransactions().parallelStream()
                 .map(pendingTransaction -> pendingTransaction.transaction)
@@ -243,10 +260,11 @@ public final class SemuxApiServiceImpl implements SemuxApi {
             return failure(resp, "Parameter `to` is not a valid integer");
         }
 
-        resp.setResult(kernel.getBlockchain().getTransactions(addressBytes, fromInt, toInt).parallelStream()
-                .map(tx -> TypeFactory.transactionType(
-                        kernel.getBlockchain().getTransactionBlockNumber(tx.getHash()), tx))
-                .collect(Collectors.toList()));
+        try (BlockchainSnapshot chain = kernel.getBlockchain().getSnapshot()) {
+            resp.setResult(chain.getTransactions(addressBytes, fromInt, toInt).parallelStream()
+                    .map(tx -> TypeFactory.transactionType(chain.getTransactionBlockNumber(tx.getHash()), tx))
+                    .collect(Collectors.toList()));
+        }
         resp.setSuccess(true);
         return Response.ok().entity(resp).build();
     }
@@ -317,7 +335,9 @@ public final class SemuxApiServiceImpl implements SemuxApi {
             return failure(resp, "Parameter `address` is not a valid hexadecimal string");
         }
 
-        resp.setResult(TypeFactory.accountVotes(kernel.getBlockchain(), addressBytes));
+        try (BlockchainSnapshot chain = kernel.getBlockchain().getSnapshot()) {
+            resp.setResult(TypeFactory.accountVotes(chain, addressBytes));
+        }
         resp.setSuccess(true);
         return Response.ok(resp).build();
     }
@@ -336,12 +356,14 @@ public final class SemuxApiServiceImpl implements SemuxApi {
             return failure(resp, "Parameter `hash` is not a valid hexadecimal string");
         }
 
-        Block block = kernel.getBlockchain().getBlock(hash);
-        if (block == null) {
-            return failure(resp, "The requested block was not found");
-        }
+        try (BlockchainSnapshot chain = kernel.getBlockchain().getSnapshot()) {
+            Block block = chain.getBlock(hash);
+            if (block == null) {
+                return failure(resp, "The requested block was not found");
+            }
 
-        resp.setResult(TypeFactory.blockType(block, kernel.getBlockchain().getCoinbaseTransaction(block.getNumber())));
+            resp.setResult(TypeFactory.blockType(block, chain.getCoinbaseTransaction(block.getNumber())));
+        }
         resp.setSuccess(true);
         return Response.ok().entity(resp).build();
     }
@@ -361,12 +383,14 @@ public final class SemuxApiServiceImpl implements SemuxApi {
             return failure(resp, "Parameter `number` is not a valid number");
         }
 
-        Block block = kernel.getBlockchain().getBlock(blockNumLong);
-        if (block == null) {
-            return failure(resp, "The requested block was not found");
-        }
+        try (BlockchainSnapshot chain = kernel.getBlockchain().getSnapshot()) {
+            Block block = chain.getBlock(blockNumLong);
+            if (block == null) {
+                return failure(resp, "The requested block was not found");
+            }
 
-        resp.setResult(TypeFactory.blockType(block, kernel.getBlockchain().getCoinbaseTransaction(block.getNumber())));
+            resp.setResult(TypeFactory.blockType(block, chain.getCoinbaseTransaction(block.getNumber())));
+        }
         resp.setSuccess(true);
         return Response.ok().entity(resp).build();
     }
@@ -384,17 +408,18 @@ public final class SemuxApiServiceImpl implements SemuxApi {
         } catch (CryptoException e) {
             return failure(resp, e.getMessage());
         }
-        Blockchain chain = kernel.getBlockchain();
 
-        Delegate delegate = chain.getDelegateState().getDelegateByAddress(addressBytes);
-        if (delegate == null) {
-            return failure(resp, "The provided address is not a delegate");
-        }
+        try (BlockchainSnapshot chain = kernel.getBlockchain().getSnapshot()) {
+            Delegate delegate = chain.getDelegateState().getDelegateByAddress(addressBytes);
+            if (delegate == null) {
+                return failure(resp, "The provided address is not a delegate");
+            }
 
-        BlockchainImpl.ValidatorStats validatorStats = chain.getValidatorStats(addressBytes);
-        boolean isValidator = chain.getValidators().contains(address.replace("0x", ""));
+            BlockchainImpl.ValidatorStats validatorStats = chain.getValidatorStats(addressBytes);
+            boolean isValidator = chain.getValidatorSet().contains(addressBytes);
 
-        resp.setResult(TypeFactory.delegateType(validatorStats, delegate, isValidator));
+            resp.setResult(TypeFactory.delegateType(validatorStats, delegate, isValidator));
+        }
         resp.setSuccess(true);
         return Response.ok().entity(resp).build();
     }
@@ -402,15 +427,16 @@ public final class SemuxApiServiceImpl implements SemuxApi {
     @Override
     public Response getDelegates() {
         GetDelegatesResponse resp = new GetDelegatesResponse();
-        Blockchain chain = kernel.getBlockchain();
-        Set<String> validators = new HashSet<>(chain.getValidators());
-
-        resp.setResult(chain.getDelegateState().getDelegates().parallelStream()
-                .map(delegate -> TypeFactory.delegateType(
-                        chain.getValidatorStats(delegate.getAddress()),
-                        delegate,
-                        validators.contains(delegate.getAddressString())))
-                .collect(Collectors.toList()));
+        try (BlockchainSnapshot chain = kernel.getBlockchain().getSnapshot()) {
+            ValidatorSet validators = chain.getValidatorSet();
+
+            resp.setResult(chain.getDelegateState().getDelegates().parallelStream()
+                    .map(delegate -> TypeFactory.delegateType(
+                            chain.getValidatorStats(delegate.getAddress()),
+                            delegate,
+                            validators.contains(delegate.getAddressString())))
+                    .collect(Collectors.toList()));
+        }
         resp.setSuccess(true);
         return Response.ok().entity(resp).build();
     }
@@ -426,8 +452,10 @@ public final class SemuxApiServiceImpl implements SemuxApi {
     @Override
     public Response getLatestBlock() {
         GetLatestBlockResponse resp = new GetLatestBlockResponse();
-        Block block = kernel.getBlockchain().getLatestBlock();
-        resp.setResult(TypeFactory.blockType(block, kernel.getBlockchain().getCoinbaseTransaction(block.getNumber())));
+        try (BlockchainSnapshot chain = kernel.getBlockchain().getSnapshot()) {
+            Block block = chain.getLatestBlock();
+            resp.setResult(TypeFactory.blockType(block, chain.getCoinbaseTransaction(block.getNumber())));
+        }
         resp.setSuccess(true);
         return Response.ok().entity(resp).build();
     }
@@ -484,14 +512,15 @@ public final class SemuxApiServiceImpl implements SemuxApi {
             return failure(resp, "Parameter `hash` is not a valid hexadecimal string");
         }
 
-        Transaction transaction = kernel.getBlockchain().getTransaction(hashBytes);
-        if (transaction == null) {
-            return failure(resp, "The request transaction was not found");
-        }
+        try (BlockchainSnapshot chain = kernel.getBlockchain().getSnapshot()) {
+            Transaction transaction = chain.getTransaction(hashBytes);
+            if (transaction == null) {
+                return failure(resp, "The request transaction was not found");
+            }
 
-        resp.setResult(TypeFactory.transactionType(
-                kernel.getBlockchain().getTransactionBlockNumber(transaction.getHash()),
-                transaction));
+            resp.setResult(TypeFactory.transactionType(chain.getTransactionBlockNumber(transaction.getHash()),
+                    transaction));
+        }
         resp.setSuccess(true);
         return Response.ok().entity(resp).build();
     }
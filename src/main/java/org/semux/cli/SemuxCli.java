@@ -8,6 +8,10 @@ package org.semux.cli;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.security.spec.InvalidKeySpecException;
 import java.util.List;
 
@@ -20,10 +24,18 @@ import org.semux.Launcher;
 import org.semux.config.Config;
 import org.semux.config.Constants;
 import org.semux.config.exception.ConfigException;
+import org.semux.consensus.BootstrapImporter;
+import org.semux.core.Blockchain;
+import org.semux.core.BlockchainImpl;
+import org.semux.core.BootstrapFile;
+import org.semux.core.StateSnapshot;
 import org.semux.core.Wallet;
+import org.semux.core.exception.BlockchainException;
 import org.semux.core.exception.WalletLockedException;
 import org.semux.crypto.Hex;
 import org.semux.crypto.Key;
+import org.semux.db.DatabaseFactory;
+import org.semux.db.LeveldbDatabase.LeveldbFactory;
 import org.semux.exception.LauncherException;
 import org.semux.message.CliMessages;
 import org.semux.net.filter.exception.IpFilterJsonParseException;
@@ -110,6 +122,47 @@ public class SemuxCli extends Launcher {
                 .hasArg(true).optionalArg(false).argName("key").type(String.class)
                 .build();
         addOption(importPrivateKeyOption);
+
+        Option exportSnapshotOption = Option.builder()
+                .longOpt(SemuxOption.EXPORT_SNAPSHOT.toString())
+                .desc(CliMessages.get("ExportSnapshot"))
+                .build();
+        addOption(exportSnapshotOption);
+
+        Option importSnapshotOption = Option.builder()
+                .longOpt(SemuxOption.IMPORT_SNAPSHOT.toString())
+                .desc(CliMessages.get("ImportSnapshot"))
+                .hasArg(true).optionalArg(false).argName("file").type(String.class)
+                .build();
+        addOption(importSnapshotOption);
+
+        Option exportBlocksOption = Option.builder()
+                .longOpt(SemuxOption.EXPORT_BLOCKS.toString())
+                .desc(CliMessages.get("ExportBlocks"))
+                .hasArg(true).optionalArg(false).argName("file").type(String.class)
+                .build();
+        addOption(exportBlocksOption);
+
+        Option importBlocksOption = Option.builder()
+                .longOpt(SemuxOption.IMPORT_BLOCKS.toString())
+                .desc(CliMessages.get("ImportBlocks"))
+                .hasArg(true).optionalArg(false).argName("file").type(String.class)
+                .build();
+        addOption(importBlocksOption);
+
+        Option fromBlockOption = Option.builder()
+                .longOpt(SemuxOption.FROM_BLOCK.toString())
+                .desc(CliMessages.get("FromBlock"))
+                .hasArg(true).numberOfArgs(1).optionalArg(false).argName("number").type(Number.class)
+                .build();
+        addOption(fromBlockOption);
+
+        Option toBlockOption = Option.builder()
+                .longOpt(SemuxOption.TO_BLOCK.toString())
+                .desc(CliMessages.get("ToBlock"))
+                .hasArg(true).numberOfArgs(1).optionalArg(false).argName("number").type(Number.class)
+                .build();
+        addOption(toBlockOption);
     }
 
     public void start(String[] args) throws ParseException, IOException {
@@ -141,6 +194,20 @@ public class SemuxCli extends Launcher {
             dumpPrivateKey(cmd.getOptionValue(SemuxOption.DUMP_PRIVATE_KEY.toString()).trim());
         } else if (cmd.hasOption(SemuxOption.IMPORT_PRIVATE_KEY.toString())) {
             importPrivateKey(cmd.getOptionValue(SemuxOption.IMPORT_PRIVATE_KEY.toString()).trim());
+        } else if (cmd.hasOption(SemuxOption.EXPORT_SNAPSHOT.toString())) {
+            exportSnapshot();
+        } else if (cmd.hasOption(SemuxOption.IMPORT_SNAPSHOT.toString())) {
+            importSnapshot(cmd.getOptionValue(SemuxOption.IMPORT_SNAPSHOT.toString()).trim());
+        } else if (cmd.hasOption(SemuxOption.EXPORT_BLOCKS.toString())) {
+            long from = cmd.hasOption(SemuxOption.FROM_BLOCK.toString())
+                    ? ((Number) cmd.getParsedOptionValue(SemuxOption.FROM_BLOCK.toString())).longValue()
+                    : 0L;
+            long to = cmd.hasOption(SemuxOption.TO_BLOCK.toString())
+                    ? ((Number) cmd.getParsedOptionValue(SemuxOption.TO_BLOCK.toString())).longValue()
+                    : Long.MAX_VALUE;
+            exportBlocks(cmd.getOptionValue(SemuxOption.EXPORT_BLOCKS.toString()).trim(), from, to);
+        } else if (cmd.hasOption(SemuxOption.IMPORT_BLOCKS.toString())) {
+            importBlocks(cmd.getOptionValue(SemuxOption.IMPORT_BLOCKS.toString()).trim());
         } else {
             start();
         }
@@ -313,6 +380,118 @@ public class SemuxCli extends Launcher {
         }
     }
 
+    protected void exportSnapshot() throws IOException {
+        Config config = getConfig();
+        Path dir = config.dataDir().toPath().resolve(StateSnapshot.DIR_NAME);
+        Files.createDirectories(dir);
+
+        DatabaseFactory dbFactory = new LeveldbFactory(config.databaseDir());
+        try {
+            Blockchain chain = new BlockchainImpl(config, dbFactory);
+            try {
+                Path tmp = Files.createTempFile(dir, "export", ".tmp");
+                StateSnapshot.Manifest manifest = chain.exportState(tmp);
+                Path file = StateSnapshot.getFile(dir, manifest.getDigest());
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+                logger.info(CliMessages.get("SnapshotExported", manifest.getNumber(), Hex.encode(manifest.getDigest()),
+                        file));
+            } finally {
+                // the transaction filter is deleted on load, save it back
+                chain.flush();
+            }
+        } finally {
+            dbFactory.close();
+        }
+    }
+
+    protected void importSnapshot(String file) throws IOException {
+        Config config = getConfig();
+
+        DatabaseFactory dbFactory = new LeveldbFactory(config.databaseDir());
+        try (StateSnapshot.Reader snapshot = new StateSnapshot.Reader(Paths.get(file))) {
+            Blockchain chain = new BlockchainImpl(config, dbFactory);
+            chain.importState(snapshot);
+            chain.flush();
+
+            logger.info(CliMessages.get("SnapshotImported", snapshot.getManifest().getNumber()));
+        } catch (BlockchainException e) {
+            logger.error(CliMessages.get("SnapshotImportFailed", e.getMessage()));
+            SystemUtil.exit(SystemUtil.Code.FAILED_TO_IMPORT_SNAPSHOT);
+        } finally {
+            dbFactory.close();
+        }
+    }
+
+    /**
+     * Exports a range of blocks into a bootstrap file.
+     *
+     * @param file
+     * @param from
+     *            the first block, or 0 for the earliest block not pruned
+     * @param to
+     * @throws IOException
+     */
+    protected void exportBlocks(String file, long from, long to) throws IOException {
+        Config config = getConfig();
+
+        DatabaseFactory dbFactory = new LeveldbFactory(config.databaseDir());
+        try {
+            Blockchain chain = new BlockchainImpl(config, dbFactory);
+            try {
+                long earliest = Math.max(chain.getEarliestBlockNumber(), 1L);
+                if (from == 0) {
+                    from = earliest;
+                } else if (from >= 1 && from < earliest) {
+                    logger.error(CliMessages.get("BlocksPruned", earliest));
+                    return;
+                }
+
+                to = Math.min(to, chain.getLatestBlockNumber());
+                if (from < 1 || from > to) {
+                    logger.error(CliMessages.get("InvalidBlockRange", from, to));
+                    return;
+                }
+
+                long t1 = System.currentTimeMillis();
+                try (BootstrapFile.Writer writer = new BootstrapFile.Writer(Paths.get(file), config.network().id(),
+                        from)) {
+                    for (long i = from; i <= to; i++) {
+                        writer.write(chain.getBlock(i));
+                    }
+                    writer.finish();
+                }
+                long t2 = System.currentTimeMillis();
+
+                logger.info(CliMessages.get("BlocksExported", from, to, (to - from + 1) * 1000L / Math.max(t2 - t1, 1),
+                        file));
+            } finally {
+                // the transaction filter is deleted on load, save it back
+                chain.flush();
+            }
+        } finally {
+            dbFactory.close();
+        }
+    }
+
+    protected void importBlocks(String file) throws IOException {
+        Config config = getConfig();
+
+        DatabaseFactory dbFactory = new LeveldbFactory(config.databaseDir());
+        try {
+            Blockchain chain = new BlockchainImpl(config, dbFactory);
+            long count = new BootstrapImporter(config, chain).importBlocks(Paths.get(file));
+            chain.flush();
+
+            logger.info(CliMessages.get("BlocksImported", count, chain.getLatestBlockNumber()));
+        } catch (BlockchainException e) {
+            logger.error(CliMessages.get("BlocksImportFailed", e.getMessage()));
+            SystemUtil.exit(SystemUtil.Code.FAILED_TO_IMPORT_BLOCKS);
+        } finally {
+            dbFactory.close();
+        }
+    }
+
     protected Wallet loadAndUnlockWallet() {
         if (getPassword() == null) {
             setPassword(ConsoleUtil.readPassword());
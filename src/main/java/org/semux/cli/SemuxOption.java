@@ -29,6 +29,18 @@ public enum SemuxOption {
 
     IMPORT_PRIVATE_KEY("importprivatekey"),
 
+    EXPORT_SNAPSHOT("exportsnapshot"),
+
+    IMPORT_SNAPSHOT("importsnapshot"),
+
+    EXPORT_BLOCKS("exportblocks"),
+
+    IMPORT_BLOCKS("importblocks"),
+
+    FROM_BLOCK("from"),
+
+    TO_BLOCK("to"),
+
     NETWORK("network");
 
     private final String name;
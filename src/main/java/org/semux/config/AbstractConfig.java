@@ -26,8 +26,10 @@ import java.util.concurrent.TimeUnit;
 import org.semux.Network;
 import org.semux.config.exception.ConfigException;
 import org.semux.core.Amount;
+import org.semux.core.IndexMode;
 import org.semux.core.TransactionType;
 import org.semux.crypto.Hash;
+import org.semux.crypto.Hex;
 import org.semux.net.NodeManager.Node;
 import org.semux.net.msg.MessageCode;
 import org.semux.util.BigIntegerUtil;
@@ -93,6 +95,11 @@ public abstract class AbstractConfig implements Config {
     protected int apiListenPort = Constants.DEFAULT_API_PORT;
     protected String apiUsername = null;
     protected String apiPassword = null;
+    protected int apiWorkerThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+    protected int apiMaxQueueSize = 1024;
+    protected int apiMaxConcurrentRequestsPerRoute = 0; // half of the worker threads by default
+    protected long apiResponseCacheSize = 32L * 1024 * 1024;
+    protected int apiWebSocketMaxQueuedEvents = 1024;
 
     // =========================
     // BFT consensus
@@ -105,6 +112,19 @@ public abstract class AbstractConfig implements Config {
     protected long bftFinalizeTimeout = 3000L;
     protected long maxBlockTimeDrift = TimeUnit.SECONDS.toMillis(30);
 
+    // =========================
+    // Blockchain
+    // =========================
+    protected long blockchainKeepBlocks = 0;
+    protected IndexMode blockchainAccountIndex = IndexMode.ON;
+    protected boolean blockchainValidatorStats = true;
+
+    // =========================
+    // Sync
+    // =========================
+    protected byte[] syncStateSnapshot = null;
+    protected long syncAssumeValid = 0;
+
     // =========================
     // Virtual machine
     // =========================
@@ -391,6 +411,32 @@ public abstract class AbstractConfig implements Config {
         return apiPassword == null ? "admin" : apiPassword;
     }
 
+    @Override
+    public int apiWorkerThreads() {
+        return apiWorkerThreads;
+    }
+
+    @Override
+    public int apiMaxQueueSize() {
+        return apiMaxQueueSize;
+    }
+
+    @Override
+    public int apiMaxConcurrentRequestsPerRoute() {
+        return apiMaxConcurrentRequestsPerRoute > 0 ? apiMaxConcurrentRequestsPerRoute
+                : Math.max(1, apiWorkerThreads / 2);
+    }
+
+    @Override
+    public long apiResponseCacheSize() {
+        return apiResponseCacheSize;
+    }
+
+    @Override
+    public int apiWebSocketMaxQueuedEvents() {
+        return apiWebSocketMaxQueuedEvents;
+    }
+
     @Override
     public long bftNewHeightTimeout() {
         return bftNewHeightTimeout;
@@ -426,6 +472,31 @@ public abstract class AbstractConfig implements Config {
         return maxBlockTimeDrift;
     }
 
+    @Override
+    public long blockchainKeepBlocks() {
+        return blockchainKeepBlocks;
+    }
+
+    @Override
+    public IndexMode blockchainAccountIndex() {
+        return blockchainAccountIndex;
+    }
+
+    @Override
+    public boolean blockchainValidatorStats() {
+        return blockchainValidatorStats;
+    }
+
+    @Override
+    public byte[] syncStateSnapshot() {
+        return syncStateSnapshot;
+    }
+
+    @Override
+    public long syncAssumeValid() {
+        return syncAssumeValid;
+    }
+
     @Override
     public boolean vmEnabled() {
         return vmEnabled;
@@ -540,6 +611,38 @@ public abstract class AbstractConfig implements Config {
                 case "api.password":
                     apiPassword = props.getProperty(name).trim();
                     break;
+                case "api.workerThreads":
+                    apiWorkerThreads = Integer.parseInt(props.getProperty(name).trim());
+                    break;
+                case "api.maxQueueSize":
+                    apiMaxQueueSize = Integer.parseInt(props.getProperty(name).trim());
+                    break;
+                case "api.maxConcurrentRequestsPerRoute":
+                    apiMaxConcurrentRequestsPerRoute = Integer.parseInt(props.getProperty(name).trim());
+                    break;
+                case "api.responseCacheSize":
+                    apiResponseCacheSize = Long.parseLong(props.getProperty(name).trim());
+                    break;
+                case "api.webSocketMaxQueuedEvents":
+                    apiWebSocketMaxQueuedEvents = Integer.parseInt(props.getProperty(name).trim());
+                    break;
+                case "blockchain.keepBlocks":
+                    blockchainKeepBlocks = Long.parseLong(props.getProperty(name).trim());
+                    break;
+                case "blockchain.accountIndex":
+                    blockchainAccountIndex = IndexMode.valueOf(props.getProperty(name).trim().toUpperCase(Locale.ROOT));
+                    break;
+                case "blockchain.validatorStats":
+                    blockchainValidatorStats = Boolean.parseBoolean(props.getProperty(name).trim());
+                    break;
+                case "sync.stateSnapshot": {
+                    String digest = props.getProperty(name).trim();
+                    syncStateSnapshot = digest.isEmpty() ? null : Hex.decode0x(digest);
+                    break;
+                }
+                case "sync.assumeValid":
+                    syncAssumeValid = Long.parseLong(props.getProperty(name).trim());
+                    break;
                 case "ui.locale": {
                     // ui.locale must be in format of en_US ([language]_[country])
                     String[] localeComponents = props.getProperty(name).trim().split("_");
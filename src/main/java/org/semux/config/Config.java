@@ -16,6 +16,7 @@ import java.util.Set;
 import org.semux.Network;
 import org.semux.consensus.ValidatorActivatedFork;
 import org.semux.core.Amount;
+import org.semux.core.IndexMode;
 import org.semux.core.TransactionType;
 import org.semux.net.CapabilitySet;
 import org.semux.net.NodeManager.Node;
@@ -313,6 +314,44 @@ public interface Config {
      */
     String apiPassword();
 
+    /**
+     * Returns the number of threads serving API requests.
+     *
+     * @return
+     */
+    int apiWorkerThreads();
+
+    /**
+     * Returns the max number of API requests waiting for a worker thread. Requests
+     * beyond this limit are rejected with 503 Service Unavailable.
+     *
+     * @return
+     */
+    int apiMaxQueueSize();
+
+    /**
+     * Returns the max number of queued or running requests per API route. Requests
+     * beyond this limit are rejected with 503 Service Unavailable.
+     *
+     * @return
+     */
+    int apiMaxConcurrentRequestsPerRoute();
+
+    /**
+     * Returns the max total size of cached API responses, in bytes. Zero disables
+     * the cache.
+     *
+     * @return
+     */
+    long apiResponseCacheSize();
+
+    /**
+     * Returns the max number of events queued for each WebSocket subscriber.
+     *
+     * @return
+     */
+    int apiWebSocketMaxQueuedEvents();
+
     // =========================
     // BFT consensus
     // =========================
@@ -367,6 +406,58 @@ public interface Config {
      */
     long maxBlockTimeDrift();
 
+    // =========================
+    // Blockchain
+    // =========================
+
+    /**
+     * Returns the number of recent blocks whose transactions, results and votes
+     * are kept; the older blocks are pruned down to their headers, see
+     * {@link org.semux.core.BlockPruner}.
+     *
+     * @return the number of blocks, or 0 to keep all the blocks
+     */
+    long blockchainKeepBlocks();
+
+    /**
+     * Returns how the transaction index of the accounts, which serves their
+     * transaction history and the coinbase transactions, is maintained.
+     *
+     * @return
+     */
+    IndexMode blockchainAccountIndex();
+
+    /**
+     * Returns whether the statistics of the validators, i.e. the blocks forged and
+     * the turns hit or missed, are maintained.
+     *
+     * @return
+     */
+    boolean blockchainValidatorStats();
+
+    // =========================
+    // Sync
+    // =========================
+
+    /**
+     * Returns the digest of the trusted state snapshot which an empty node
+     * downloads from its peers before syncing the later blocks, see
+     * {@link org.semux.core.StateSnapshot}.
+     *
+     * @return the digest, or null to sync all the blocks from the genesis
+     */
+    byte[] syncStateSnapshot();
+
+    /**
+     * Returns the height of the checkpoint, see {@link #checkpoints()}, up to
+     * which the vote signatures of the synced blocks are assumed valid, as the
+     * checkpoint hash authenticates all the blocks linked to it. Transactions are
+     * still fully verified, as block hashes don't commit to their signatures.
+     *
+     * @return the height, or 0 to verify all the blocks
+     */
+    long syncAssumeValid();
+
     // =========================
     // Virtual machine
     // =========================
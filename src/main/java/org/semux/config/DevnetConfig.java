@@ -6,7 +6,11 @@
  */
 package org.semux.config;
 
+import static org.semux.net.Capability.BLOCK_HEADERS;
+import static org.semux.net.Capability.COMPACT_PROPOSAL;
+import static org.semux.net.Capability.FAST_SYNC;
 import static org.semux.net.Capability.SEM_TESTNET;
+import static org.semux.net.Capability.TX_INVENTORY;
 
 import java.util.Collections;
 import java.util.Map;
@@ -24,7 +28,7 @@ public class DevnetConfig extends AbstractConfig {
 
     @Override
     public CapabilitySet capabilitySet() {
-        return CapabilitySet.of(SEM_TESTNET);
+        return CapabilitySet.of(SEM_TESTNET, TX_INVENTORY, COMPACT_PROPOSAL, FAST_SYNC, BLOCK_HEADERS);
     }
 
     @Override
@@ -6,7 +6,11 @@
  */
 package org.semux.config;
 
+import static org.semux.net.Capability.BLOCK_HEADERS;
+import static org.semux.net.Capability.COMPACT_PROPOSAL;
+import static org.semux.net.Capability.FAST_SYNC;
 import static org.semux.net.Capability.SEM;
+import static org.semux.net.Capability.TX_INVENTORY;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -53,7 +57,7 @@ public class MainnetConfig extends AbstractConfig {
 
     @Override
     public CapabilitySet capabilitySet() {
-        return CapabilitySet.of(SEM);
+        return CapabilitySet.of(SEM, TX_INVENTORY, COMPACT_PROPOSAL, FAST_SYNC, BLOCK_HEADERS);
     }
 
     @Override
@@ -0,0 +1,249 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.consensus;
+
+import static org.semux.core.Amount.ZERO;
+import static org.semux.core.Amount.sum;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
+import java.util.stream.Collectors;
+
+import org.semux.config.Config;
+import org.semux.config.Constants;
+import org.semux.core.Amount;
+import org.semux.core.Block;
+import org.semux.core.BlockHeader;
+import org.semux.core.Blockchain;
+import org.semux.core.Transaction;
+import org.semux.core.TransactionExecutor;
+import org.semux.core.TransactionResult;
+import org.semux.core.ValidatorSet;
+import org.semux.core.state.AccountState;
+import org.semux.core.state.DelegateState;
+import org.semux.crypto.Hex;
+import org.semux.crypto.Key;
+import org.semux.util.ByteArray;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Validates the blocks downloaded by {@link SemuxSync} or read by
+ * {@link BootstrapImporter}, and applies them to the chain.
+ * <p>
+ * The checks which don't depend on the chain, see {@link #verifyBlock(Block)}
+ * and {@link #verifyVotes(Block)}, are separated from the others, so that they
+ * can be run in parallel ahead of the blocks being applied.
+ */
+public class BlockImporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlockImporter.class);
+
+    private final Config config;
+    private final Blockchain chain;
+    private final ReentrantReadWriteLock stateLock;
+
+    // the verified chain of the checkpoint up to which votes are assumed valid,
+    // see Config#syncAssumeValid()
+    private volatile CheckpointChain checkpointChain;
+
+    /**
+     * Creates a block importer.
+     *
+     * @param config
+     * @param chain
+     * @param stateLock
+     *            the lock held while the state and the block are written
+     */
+    public BlockImporter(Config config, Blockchain chain, ReentrantReadWriteLock stateLock) {
+        this.config = config;
+        this.chain = chain;
+        this.stateLock = stateLock;
+    }
+
+    /**
+     * Sets the chain of the blocks whose votes are assumed valid.
+     *
+     * @param checkpointChain
+     *            the verified chain, or null to verify all the votes
+     */
+    public void setCheckpointChain(CheckpointChain checkpointChain) {
+        this.checkpointChain = checkpointChain;
+    }
+
+    /**
+     * Checks the hashes, the transactions and the results of a block, which don't
+     * depend on the chain.
+     *
+     * @param block
+     * @return
+     */
+    public boolean verifyBlock(Block block) {
+        BlockHeader header = block.getHeader();
+        List<Transaction> transactions = block.getTransactions();
+
+        if (!header.validate()) {
+            logger.error("Invalid block header");
+            return false;
+        }
+
+        if (!Block.validateTransactions(header, transactions, config.network())
+                || transactions.stream().mapToInt(Transaction::size).sum() > config.maxBlockTransactionsSize()) {
+            logger.error("Invalid block transactions");
+            return false;
+        }
+        if (!Block.validateResults(header, block.getResults())) {
+            logger.error("Invalid results");
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks the signatures of the votes of a block, unless it's on the verified
+     * chain of the checkpoint.
+     *
+     * @param block
+     * @return
+     */
+    public boolean verifyVotes(Block block) {
+        // the ancestors of the trusted checkpoint are authenticated by its hash
+        CheckpointChain checkpoints = checkpointChain;
+        if (checkpoints != null && checkpoints.contains(block.getNumber(), block.getHash())) {
+            return true;
+        }
+
+        Vote vote = new Vote(VoteType.PRECOMMIT, Vote.VALUE_APPROVE, block.getNumber(), block.getView(),
+                block.getHash());
+        byte[] encoded = vote.getEncoded();
+        if (!block.getVotes().stream().allMatch(sig -> Key.verify(encoded, sig))) {
+            logger.debug("Block votes are invalid");
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks a verified block against the chain, and evaluates its transactions.
+     *
+     * @param block
+     * @param asSnapshot
+     * @param dsSnapshot
+     * @return
+     */
+    public boolean validateBlock(Block block, AccountState asSnapshot, DelegateState dsSnapshot) {
+        BlockHeader header = block.getHeader();
+        List<Transaction> transactions = block.getTransactions();
+
+        // [1] check block header
+        Block latest = chain.getLatestBlock();
+        if (!Block.validateHeader(latest.getHeader(), header)) {
+            logger.error("Invalid block header");
+            return false;
+        }
+
+        // validate checkpoint
+        if (config.checkpoints().containsKey(header.getNumber()) &&
+                !Arrays.equals(header.getHash(), config.checkpoints().get(header.getNumber()))) {
+            logger.error("Checkpoint validation failed, checkpoint is {} => {}, getting {}", header.getNumber(),
+                    Hex.encode0x(config.checkpoints().get(header.getNumber())),
+                    Hex.encode0x(header.getHash()));
+            return false;
+        }
+        CheckpointChain checkpoints = checkpointChain;
+        if (checkpoints != null && header.getNumber() == checkpoints.getCheckpoint()) {
+            logger.info("Reached checkpoint #{}, the block votes assumed valid are confirmed", header.getNumber());
+        }
+
+        // blocks should never be forged by coinbase magic account
+        if (Arrays.equals(header.getCoinbase(), Constants.COINBASE_ADDRESS)) {
+            logger.error("A block forged by the coinbase magic account is not allowed");
+            return false;
+        }
+
+        // [2] check transactions
+        if (transactions.stream().anyMatch(tx -> chain.hasTransaction(tx.getHash()))) {
+            logger.error("Duplicated transaction hash is not allowed");
+            return false;
+        }
+
+        // [3] evaluate transactions
+        TransactionExecutor transactionExecutor = new TransactionExecutor(config);
+        List<TransactionResult> results = transactionExecutor.execute(transactions, asSnapshot, dsSnapshot);
+        if (!Block.validateResults(header, results)) {
+            logger.error("Invalid transactions");
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks the voters of a block against the validators.
+     *
+     * @param block
+     * @return
+     */
+    public boolean validateVotes(Block block) {
+        ValidatorSet validators = chain.getValidatorSet();
+        int twoThirds = validators.getTwoThirds();
+
+        // check the voters
+        if (!block.getVotes().stream().allMatch(validators::contains)) {
+            logger.debug("Block votes are invalid");
+            return false;
+        }
+
+        // at least two thirds voters
+        if (block.getVotes().stream()
+                .map(sig -> new ByteArray(sig.getA()))
+                .collect(Collectors.toSet()).size() < twoThirds) {
+            logger.debug("Not enough votes, needs 2/3+");
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Applies a validated block and the state updates of its transactions.
+     *
+     * @param block
+     * @param asSnapshot
+     * @param dsSnapshot
+     */
+    public void applyBlock(Block block, AccountState asSnapshot, DelegateState dsSnapshot) {
+        // [4] apply block reward and tx fees
+        Amount txsReward = block.getTransactions().stream().map(Transaction::getFee).reduce(ZERO, Amount::sum);
+        Amount reward = sum(config.getBlockReward(block.getNumber()), txsReward);
+
+        if (reward.gt0()) {
+            asSnapshot.adjustAvailable(block.getCoinbase(), reward);
+        }
+
+        // [5] commit the updates
+        asSnapshot.commit();
+        dsSnapshot.commit();
+
+        WriteLock writeLock = stateLock.writeLock();
+        writeLock.lock();
+        try {
+            // [6] flush state to disk
+            chain.getAccountState().commit();
+            chain.getDelegateState().commit();
+
+            // [7] add block to chain
+            chain.addBlock(block);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.consensus;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+import org.semux.config.Config;
+import org.semux.core.Block;
+import org.semux.core.BlockHeader;
+import org.semux.core.Blockchain;
+import org.semux.core.BootstrapFile;
+import org.semux.core.exception.BlockchainException;
+import org.semux.core.state.AccountState;
+import org.semux.core.state.DelegateState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Imports the blocks of a bootstrap file into the blockchain, with the same
+ * checks as {@link SemuxSync}, but without the network.
+ * <p>
+ * The import is a pipeline: while a batch of blocks is being applied, the next
+ * one is read and its signatures and hashes, which don't depend on the state,
+ * are verified in parallel.
+ * <p>
+ * The blockchain must not be used by a running node at the same time.
+ */
+public class BootstrapImporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(BootstrapImporter.class);
+
+    private static final int BATCH_SIZE = 256;
+    private static final long REPORT_INTERVAL = 10L * 1000L; // 10 seconds
+
+    private final Config config;
+    private final Blockchain chain;
+    private final BlockImporter importer;
+
+    // the block up to which votes are assumed valid, see Config#syncAssumeValid()
+    private final long assumeValid;
+
+    public BootstrapImporter(Config config, Blockchain chain) {
+        this.config = config;
+        this.chain = chain;
+        this.importer = new BlockImporter(config, chain, new ReentrantReadWriteLock());
+        this.assumeValid = SemuxSync.getAssumeValid(config);
+    }
+
+    /**
+     * Imports all the blocks of a bootstrap file. The first block must follow the
+     * latest block of the chain.
+     *
+     * @param file
+     * @return the number of blocks imported
+     * @throws IOException
+     *             if the file is corrupted or truncated
+     * @throws BlockchainException
+     *             if a block is invalid; the blocks before it are kept
+     */
+    public long importBlocks(Path file) throws IOException {
+        importer.setCheckpointChain(null);
+        if (assumeValid > chain.getLatestBlockNumber()) {
+            CheckpointChain checkpointChain = readCheckpointChain(file);
+            if (checkpointChain != null) {
+                logger.info("Assuming the block votes valid up to checkpoint #{}", assumeValid);
+                importer.setCheckpointChain(checkpointChain);
+            } else {
+                logger.warn("The bootstrap file doesn't lead to checkpoint #{}, all the block votes are verified",
+                        assumeValid);
+            }
+        }
+
+        try (BootstrapFile.Reader reader = new BootstrapFile.Reader(file)) {
+            return importBlocks(reader);
+        }
+    }
+
+    /**
+     * Reads the headers of the blocks up to the trusted checkpoint, and verifies
+     * their chain up to the checkpoint hash.
+     *
+     * @param file
+     * @return the verified chain, or null if the file doesn't lead to the
+     *         checkpoint
+     * @throws IOException
+     */
+    private CheckpointChain readCheckpointChain(Path file) throws IOException {
+        try (BootstrapFile.Reader reader = new BootstrapFile.Reader(file)) {
+            long from = reader.getFirst();
+            if (from != chain.getLatestBlockNumber() + 1 || from > assumeValid) {
+                return null;
+            }
+
+            // the hashes are held once, by the chain
+            CheckpointChain checkpointChain = new CheckpointChain(from, assumeValid,
+                    config.checkpoints().get(assumeValid));
+            Block block;
+            while (!checkpointChain.isComplete() && (block = reader.read()) != null) {
+                BlockHeader header = block.getHeader();
+                if (!header.validate()
+                        || !checkpointChain.append(header.getNumber(), header.getHash(), header.getParentHash())) {
+                    return null;
+                }
+            }
+            return checkpointChain.isComplete() ? checkpointChain : null;
+        }
+    }
+
+    private long importBlocks(BootstrapFile.Reader reader) throws IOException {
+        if (reader.getNetwork() != config.network().id()) {
+            throw new BlockchainException("The bootstrap file belongs to another network");
+        }
+        if (reader.getFirst() != chain.getLatestBlockNumber() + 1) {
+            throw new BlockchainException("The bootstrap file starts at block " + reader.getFirst()
+                    + ", expected " + (chain.getLatestBlockNumber() + 1));
+        }
+
+        long t1 = System.currentTimeMillis();
+        long lastReport = t1;
+        long count = 0;
+
+        List<Block> batch = readBatch(reader);
+        CompletableFuture<OptionalInt> verified = verifyAsync(batch);
+        while (!batch.isEmpty()) {
+            List<Block> nextBatch = readBatch(reader);
+            CompletableFuture<OptionalInt> nextVerified = verifyAsync(nextBatch);
+
+            OptionalInt invalid = verified.join();
+            int end = invalid.orElse(batch.size());
+            for (int i = 0; i < end; i++) {
+                importBlock(batch.get(i));
+                count++;
+            }
+            if (invalid.isPresent()) {
+                throw new BlockchainException("Invalid block signatures: " + batch.get(end).getNumber());
+            }
+
+            long now = System.currentTimeMillis();
+            if (now - lastReport > REPORT_INTERVAL) {
+                logger.info("Importing blocks: # = {}, latest = {}, speed = {} blocks/s", count,
+                        chain.getLatestBlockNumber(), getSpeed(count, now - t1));
+                lastReport = now;
+            }
+
+            batch = nextBatch;
+            verified = nextVerified;
+        }
+
+        long t2 = System.currentTimeMillis();
+        logger.info("Imported blocks: # = {}, latest = {}, time = {} ms, speed = {} blocks/s", count,
+                chain.getLatestBlockNumber(), t2 - t1, getSpeed(count, t2 - t1));
+        return count;
+    }
+
+    private static List<Block> readBatch(BootstrapFile.Reader reader) throws IOException {
+        List<Block> batch = new ArrayList<>(BATCH_SIZE);
+        Block block;
+        while (batch.size() < BATCH_SIZE && (block = reader.read()) != null) {
+            batch.add(block);
+        }
+        return batch;
+    }
+
+    /**
+     * Verifies the blocks of a batch in parallel.
+     *
+     * @param batch
+     * @return the index of the first invalid block, if any
+     */
+    private CompletableFuture<OptionalInt> verifyAsync(List<Block> batch) {
+        return CompletableFuture.supplyAsync(
+                () -> IntStream.range(0, batch.size()).parallel().filter(i -> !verify(batch.get(i))).min());
+    }
+
+    /**
+     * Checks everything of a block which doesn't depend on the chain: the hashes,
+     * the transaction signatures and the vote signatures, unless on the verified
+     * chain of the checkpoint.
+     *
+     * @param block
+     * @return
+     */
+    protected boolean verify(Block block) {
+        return importer.verifyBlock(block) && importer.verifyVotes(block);
+    }
+
+    /**
+     * Validates a verified block against the chain, and applies it.
+     *
+     * @param block
+     */
+    protected void importBlock(Block block) {
+        AccountState as = chain.getAccountState().track();
+        DelegateState ds = chain.getDelegateState().track();
+        if (!importer.validateBlock(block, as, ds) || !importer.validateVotes(block)) {
+            throw new BlockchainException("Invalid block " + block.getNumber());
+        }
+
+        importer.applyBlock(block, as, ds);
+    }
+
+    private static long getSpeed(long count, long millis) {
+        return millis == 0 ? count : count * 1000L / millis;
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.consensus;
+
+import static org.semux.crypto.Hash.HASH_LEN;
+
+import java.util.Arrays;
+
+import org.semux.core.BlockHeader;
+
+/**
+ * The hashes of the blocks leading to a trusted checkpoint, verified backwards
+ * from the checkpoint hash through the parent hashes of the block headers.
+ * <p>
+ * As the hashes commit to the parent hashes, a block on this chain is an
+ * ancestor of the checkpoint, and the checkpoint hash authenticates its votes.
+ */
+public class CheckpointChain {
+
+    private final long from;
+    private final long checkpoint;
+
+    // the hash of block n is at (n - from) * HASH_LEN
+    private final byte[] hashes;
+
+    // the next block to add, and its expected hash
+    private long next;
+    private byte[] expected;
+
+    // the last block appended, and its hash
+    private long last;
+    private byte[] lastHash;
+
+    /**
+     * Creates an empty chain.
+     *
+     * @param from
+     *            the first block of the chain
+     * @param checkpoint
+     *            the number of the checkpoint
+     * @param checkpointHash
+     *            the hash of the checkpoint
+     */
+    public CheckpointChain(long from, long checkpoint, byte[] checkpointHash) {
+        if (from > checkpoint || (checkpoint - from + 1) * HASH_LEN > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid checkpoint chain: [" + from + ", " + checkpoint + "]");
+        }
+
+        this.from = from;
+        this.checkpoint = checkpoint;
+        this.hashes = new byte[(int) (checkpoint - from + 1) * HASH_LEN];
+        this.next = checkpoint;
+        this.expected = checkpointHash;
+        this.last = from - 1;
+    }
+
+    public long getFrom() {
+        return from;
+    }
+
+    public long getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * Returns the number of the next header to add.
+     *
+     * @return
+     */
+    public synchronized long getNext() {
+        return next;
+    }
+
+    /**
+     * Returns whether all the blocks down to the first one are verified.
+     *
+     * @return
+     */
+    public synchronized boolean isComplete() {
+        return next < from;
+    }
+
+    /**
+     * Adds the header of the next block, below the ones already added.
+     *
+     * @param header
+     * @return true if the header is the parent of the previous one, otherwise
+     *         false
+     */
+    public boolean add(BlockHeader header) {
+        return header.validate() && add(header.getNumber(), header.getHash(), header.getParentHash());
+    }
+
+    /**
+     * Adds the next block, whose hash and parent hash must come from a validated
+     * header.
+     *
+     * @param number
+     * @param hash
+     * @param parentHash
+     * @return
+     */
+    synchronized boolean add(long number, byte[] hash, byte[] parentHash) {
+        if (next < from || number != next || !Arrays.equals(hash, expected)) {
+            return false;
+        }
+
+        System.arraycopy(hash, 0, hashes, (int) (number - from) * HASH_LEN, HASH_LEN);
+        expected = parentHash;
+        next--;
+        return true;
+    }
+
+    /**
+     * Appends the next block, above the ones already appended, for a chain read
+     * from the first block up rather than added backwards. The hash and parent
+     * hash must come from a validated header. The blocks are verified at once
+     * when the checkpoint is appended.
+     *
+     * @param number
+     * @param hash
+     * @param parentHash
+     * @return true if the block is the child of the previous one, and the
+     *         checkpoint has the checkpoint hash, otherwise false
+     */
+    synchronized boolean append(long number, byte[] hash, byte[] parentHash) {
+        if (next != checkpoint || number != last + 1
+                || (lastHash != null && !Arrays.equals(parentHash, lastHash))
+                || (number == checkpoint && !Arrays.equals(hash, expected))) {
+            return false;
+        }
+
+        System.arraycopy(hash, 0, hashes, (int) (number - from) * HASH_LEN, HASH_LEN);
+        last = number;
+        lastHash = hash;
+        if (number == checkpoint) {
+            // the parents are linked up to the checkpoint
+            next = from - 1;
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether a block is on the verified part of this chain, i.e. an
+     * ancestor of the checkpoint, or the checkpoint itself.
+     *
+     * @param number
+     * @param hash
+     * @return
+     */
+    public synchronized boolean contains(long number, byte[] hash) {
+        if (number <= next || number > checkpoint || hash.length != HASH_LEN) {
+            return false;
+        }
+
+        int offset = (int) (number - from) * HASH_LEN;
+        for (int i = 0; i < HASH_LEN; i++) {
+            if (hashes[offset + i] != hash[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,221 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.consensus;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.semux.core.BlockHeader;
+import org.semux.net.Channel;
+import org.semux.net.Capability;
+import org.semux.net.ChannelManager;
+import org.semux.net.msg.consensus.BlockHeaderMessage;
+import org.semux.net.msg.consensus.BlockNotFoundMessage;
+import org.semux.net.msg.consensus.GetBlockHeaderMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Downloads the block headers leading to a trusted checkpoint, from the
+ * checkpoint backwards, and verifies that each one is the parent of the
+ * previous one.
+ * <p>
+ * The votes of the blocks on the resulting {@link CheckpointChain} are
+ * authenticated by the checkpoint hash, so that their signatures don't need to
+ * be verified, see {@link org.semux.config.Config#syncAssumeValid()}.
+ */
+public class CheckpointSync {
+
+    private static final Logger logger = LoggerFactory.getLogger(CheckpointSync.class);
+
+    private static final long REQUEST_TIMEOUT = 10L * 1000L; // 10 seconds
+    private static final long MAX_IDLE_TIME = 2L * 60L * 1000L; // 2 minutes
+
+    /**
+     * Max number of headers being downloaded at the same time. A peer is asked for
+     * one header at a time, as its message queue holds the requests following an
+     * unanswered one.
+     */
+    private static final int MAX_IN_FLIGHT = 64;
+
+    private static final Random random = new Random();
+
+    private final ChannelManager channelMgr;
+
+    // the download in progress, protected by lock
+    private final Object lock = new Object();
+    private CheckpointChain chain;
+    private final Map<Long, Pair<String, BlockHeader>> received = new HashMap<>();
+    private final Map<Long, Pair<String, Long>> requested = new HashMap<>();
+    private final Set<String> badPeers = new HashSet<>();
+    private long lastProgress;
+
+    public CheckpointSync(ChannelManager channelMgr) {
+        this.channelMgr = channelMgr;
+    }
+
+    /**
+     * Downloads the headers of the blocks from the checkpoint down to the given
+     * block.
+     *
+     * @param from
+     *            the first block
+     * @param checkpoint
+     *            the number of the checkpoint
+     * @param hash
+     *            the hash of the checkpoint
+     * @param isRunning
+     *            whether to keep downloading
+     * @return the verified chain, or null if it can't be downloaded
+     */
+    public CheckpointChain download(long from, long checkpoint, byte[] hash, BooleanSupplier isRunning) {
+        synchronized (lock) {
+            chain = new CheckpointChain(from, checkpoint, hash);
+            received.clear();
+            requested.clear();
+            badPeers.clear();
+            lastProgress = System.currentTimeMillis();
+
+            try {
+                while (isRunning.getAsBoolean()) {
+                    long now = System.currentTimeMillis();
+                    Iterator<Map.Entry<Long, Pair<String, Long>>> itr = requested.entrySet().iterator();
+                    while (itr.hasNext()) {
+                        Map.Entry<Long, Pair<String, Long>> entry = itr.next();
+                        if (entry.getValue().getRight() + REQUEST_TIMEOUT < now) {
+                            // the peer won't be sent anything else until it replies
+                            logger.debug("Block header #{} from {} has expired", entry.getKey(),
+                                    entry.getValue().getLeft());
+                            badPeers.add(entry.getValue().getLeft());
+                            itr.remove();
+                        }
+                    }
+
+                    // add the headers received in order
+                    Pair<String, BlockHeader> next;
+                    while ((next = received.remove(chain.getNext())) != null) {
+                        if (!chain.add(next.getRight())) {
+                            // not the parent of the previous block, request it again
+                            logger.debug("Invalid block header #{} from {}", next.getRight().getNumber(),
+                                    next.getLeft());
+                            badPeers.add(next.getLeft());
+                            break;
+                        }
+                    }
+                    if (chain.isComplete()) {
+                        logger.info("Downloaded block headers [{}, {}]", from, checkpoint);
+                        return chain;
+                    }
+
+                    if (now - lastProgress > MAX_IDLE_TIME) {
+                        logger.warn("No peer serves the block headers of checkpoint #{}", checkpoint);
+                        return null;
+                    }
+
+                    request(chain.getNext());
+                    lock.wait(100);
+                }
+                return null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } finally {
+                chain = null;
+                received.clear();
+                requested.clear();
+            }
+        }
+    }
+
+    /**
+     * Requests the headers below the next one to add from random idle peers, one
+     * header per peer.
+     *
+     * @param next
+     */
+    private void request(long next) {
+        long checkpoint = chain.getCheckpoint();
+        Set<String> busyPeers = requested.values().stream().map(Pair::getLeft).collect(Collectors.toSet());
+        List<Channel> channels = channelMgr.getIdleChannels().stream()
+                .filter(c -> c.getRemotePeer().getCapabilities().isSupported(Capability.BLOCK_HEADERS)
+                        && c.getRemotePeer().getLatestBlockNumber() >= checkpoint
+                        && !badPeers.contains(c.getRemotePeer().getPeerId())
+                        && !busyPeers.contains(c.getRemotePeer().getPeerId()))
+                .collect(Collectors.toList());
+
+        // don't get too far ahead, to bound the headers held in memory
+        long end = Math.max(next - 2 * MAX_IN_FLIGHT, chain.getFrom() - 1);
+        for (long i = next; i > end && requested.size() < MAX_IN_FLIGHT && !channels.isEmpty(); i--) {
+            if (!received.containsKey(i) && !requested.containsKey(i)) {
+                long number = i;
+                List<Channel> candidates = channels.stream()
+                        .filter(c -> c.getRemotePeer().getEarliestBlockNumber() <= number)
+                        .collect(Collectors.toList());
+                if (candidates.isEmpty()) {
+                    continue;
+                }
+
+                Channel c = candidates.get(random.nextInt(candidates.size()));
+                logger.trace("Request block header #{} from channel = {}", i, c.getId());
+                c.getMessageQueue().sendMessage(new GetBlockHeaderMessage(i));
+                requested.put(i, Pair.of(c.getRemotePeer().getPeerId(), System.currentTimeMillis()));
+                channels.remove(c);
+            }
+        }
+    }
+
+    /**
+     * Handles a block header sent by a peer.
+     *
+     * @param channel
+     * @param msg
+     */
+    public void onBlockHeader(Channel channel, BlockHeaderMessage msg) {
+        String peerId = channel.getRemotePeer().getPeerId();
+        BlockHeader header = msg.getHeader();
+
+        synchronized (lock) {
+            Pair<String, Long> request = requested.get(header.getNumber());
+            if (chain == null || request == null || !request.getLeft().equals(peerId)) {
+                return;
+            }
+            requested.remove(header.getNumber());
+            received.put(header.getNumber(), Pair.of(peerId, header));
+
+            lastProgress = System.currentTimeMillis();
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Handles a block header the peer doesn't have, as it's pruned.
+     *
+     * @param channel
+     * @param msg
+     */
+    public void onBlockNotFound(Channel channel, BlockNotFoundMessage msg) {
+        String peerId = channel.getRemotePeer().getPeerId();
+
+        synchronized (lock) {
+            Pair<String, Long> request = requested.get(msg.getNumber());
+            if (chain == null || request == null || !request.getLeft().equals(peerId)) {
+                return;
+            }
+            requested.remove(msg.getNumber());
+            channel.getRemotePeer().setEarliestBlockNumber(msg.getEarliestBlockNumber());
+            lock.notifyAll();
+        }
+    }
+}
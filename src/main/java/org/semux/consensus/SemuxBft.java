@@ -12,16 +12,25 @@ import static org.semux.core.Amount.sum;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalLong;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.semux.Kernel;
 import org.semux.Network;
 import org.semux.config.Config;
@@ -39,20 +48,24 @@ import org.semux.core.SyncManager;
 import org.semux.core.Transaction;
 import org.semux.core.TransactionExecutor;
 import org.semux.core.TransactionResult;
+import org.semux.core.ValidatorSet;
 import org.semux.core.state.AccountState;
 import org.semux.core.state.DelegateState;
-import org.semux.crypto.Hash;
 import org.semux.crypto.Hex;
 import org.semux.crypto.Key;
 import org.semux.crypto.Key.Signature;
+import org.semux.net.Capability;
 import org.semux.net.Channel;
 import org.semux.net.ChannelManager;
 import org.semux.net.msg.Message;
 import org.semux.net.msg.MessageCode;
 import org.semux.net.msg.ReasonCode;
+import org.semux.net.msg.consensus.CompactProposalMessage;
+import org.semux.net.msg.consensus.GetProposalTransactionsMessage;
 import org.semux.net.msg.consensus.NewHeightMessage;
 import org.semux.net.msg.consensus.NewViewMessage;
 import org.semux.net.msg.consensus.ProposalMessage;
+import org.semux.net.msg.consensus.ProposalTransactionsMessage;
 import org.semux.net.msg.consensus.VoteMessage;
 import org.semux.util.ArrayUtil;
 import org.semux.util.ByteArray;
@@ -104,9 +117,30 @@ public class SemuxBft implements Consensus {
     protected final DelegateState delegateState;
     protected final Timer timer;
     protected final Broadcaster broadcaster;
+    protected final VoteVerifier voteVerifier;
     protected final BlockingQueue<Event> events = new LinkedBlockingQueue<>();
     protected final Cache<ByteArray, Block> validBlocks = Caffeine.newBuilder().maximumSize(8).build();
 
+    /**
+     * [encoded vote + signature] => [verification result], shared by the copies of
+     * a vote relayed by different peers.
+     */
+    protected final Cache<ByteArray, CompletableFuture<Boolean>> verifiedVotes = Caffeine.newBuilder()
+            .maximumSize(16 * 1024).build();
+
+    /**
+     * [block hash] => [proposal], the proposals sent to peers in compact form,
+     * whose transactions they may request.
+     */
+    protected final Cache<ByteArray, Proposal> compactProposals = Caffeine.newBuilder().maximumSize(8).build();
+
+    /**
+     * [peer id, block hash] => [compact proposal], the compact proposals waiting
+     * for their missing transactions from the peer which sent them.
+     */
+    protected final Cache<Pair<String, ByteArray>, PartialProposal> partialProposals = Caffeine.newBuilder()
+            .maximumSize(32).expireAfterWrite(10, TimeUnit.SECONDS).build();
+
     protected Config config;
 
     protected Blockchain chain;
@@ -120,7 +154,7 @@ public class SemuxBft implements Consensus {
     protected Proof proof;
     protected Proposal proposal;
 
-    protected List<String> validators;
+    protected ValidatorSet validators;
     protected List<Channel> activeValidators;
     protected long lastUpdate;
 
@@ -146,6 +180,7 @@ public class SemuxBft implements Consensus {
 
         this.timer = new Timer();
         this.broadcaster = new Broadcaster();
+        this.voteVerifier = new VoteVerifier();
 
         this.status = Status.STOPPED;
         this.state = State.NEW_HEIGHT;
@@ -230,6 +265,7 @@ public class SemuxBft implements Consensus {
             status = Status.RUNNING;
             timer.start();
             broadcaster.start();
+            voteVerifier.start();
             logger.info("Consensus started");
 
             enterNewHeight();
@@ -249,6 +285,7 @@ public class SemuxBft implements Consensus {
 
             timer.stop();
             broadcaster.stop();
+            voteVerifier.stop();
 
             status = Status.STOPPED;
             Event ev = new Event(Event.Type.STOP);
@@ -470,7 +507,7 @@ public class SemuxBft implements Consensus {
     protected void onNewHeight(long newHeight) {
         if (newHeight > height && state != State.FINALIZE) {
             // update active validators (potential overhead)
-            activeValidators = channelMgr.getActiveChannels(validators);
+            activeValidators = channelMgr.getActiveChannels(validators.getValidators());
 
             // Pick 2/3th active validator's height as sync target. The sync will not be
             // started if there are less than 2 active validators.
@@ -544,7 +581,7 @@ public class SemuxBft implements Consensus {
 
         if (v.getHeight() == height
                 && v.getView() == view
-                && isFromValidator(v.getSignature())
+                && isFromValidator(v)
                 && v.validate()) {
             boolean added = false;
 
@@ -638,10 +675,62 @@ public class SemuxBft implements Consensus {
             Proposal p = m.getProposal();
 
             if (p.getHeight() == height) {
-                if (p.validate()) {
-                    events.add(new Event(Event.Type.PROPOSAL, m.getProposal()));
+                addProposal(channel, p);
+            }
+            break;
+        }
+        case BFT_COMPACT_PROPOSAL: {
+            CompactProposalMessage m = (CompactProposalMessage) msg;
+
+            if (m.getHeight() == height) {
+                onCompactProposal(channel, m);
+            }
+            break;
+        }
+        case BFT_GET_PROPOSAL_TRANSACTIONS: {
+            GetProposalTransactionsMessage m = (GetProposalTransactionsMessage) msg;
+            Proposal p = compactProposals.getIfPresent(ByteArray.of(m.getBlockHash()));
+
+            if (p == null) {
+                // not found, so that the peer falls back to the full proposal or another peer
+                channel.getMessageQueue().sendMessage(
+                        new ProposalTransactionsMessage(m.getBlockHash(), Collections.emptyList()));
+                break;
+            }
+
+            // each transaction can be requested once
+            int size = p.getTransactions().size();
+            if (m.getIndices().size() > size) {
+                channel.getMessageQueue().disconnect(ReasonCode.BAD_PEER);
+                return;
+            }
+            boolean[] requested = new boolean[size];
+            List<Transaction> txs = new ArrayList<>(m.getIndices().size());
+            for (int index : m.getIndices()) {
+                if (index < 0 || index >= size || requested[index]) {
+                    channel.getMessageQueue().disconnect(ReasonCode.BAD_PEER);
+                    return;
+                }
+                requested[index] = true;
+                txs.add(p.getTransactions().get(index));
+            }
+            channel.getMessageQueue().sendMessage(new ProposalTransactionsMessage(m.getBlockHash(), txs));
+            break;
+        }
+        case BFT_PROPOSAL_TRANSACTIONS: {
+            ProposalTransactionsMessage m = (ProposalTransactionsMessage) msg;
+            // only the peer which was asked can complete the proposal
+            PartialProposal partial = partialProposals.asMap()
+                    .remove(Pair.of(channel.getRemotePeer().getPeerId(), ByteArray.of(m.getBlockHash())));
+
+            if (partial != null) {
+                if (m.getTransactions().isEmpty()) {
+                    logger.debug("Compact proposal not found by {}, waiting for the full proposal or another peer",
+                            channel.getRemotePeer().getPeerId());
+                } else if (partial.complete(m.getTransactions())) {
+                    addProposal(channel, partial.toProposal());
                 } else {
-                    logger.debug("Invalid proposal from {}", channel.getRemotePeer().getPeerId());
+                    logger.debug("Invalid proposal transactions from {}", channel.getRemotePeer().getPeerId());
                     channel.getMessageQueue().disconnect(ReasonCode.BAD_PEER);
                 }
             }
@@ -652,12 +741,7 @@ public class SemuxBft implements Consensus {
             Vote vote = m.getVote();
 
             if (vote.getHeight() == height) {
-                if (vote.revalidate()) {
-                    events.add(new Event(Event.Type.VOTE, vote));
-                } else {
-                    logger.debug("Invalid vote from {}", channel.getRemotePeer().getPeerId());
-                    channel.getMessageQueue().disconnect(ReasonCode.BAD_PEER);
-                }
+                voteVerifier.verify(channel, vote);
             }
             break;
         }
@@ -667,6 +751,68 @@ public class SemuxBft implements Consensus {
         }
     }
 
+    /**
+     * Validates a proposal received from a peer and feeds it into the event queue.
+     *
+     * @param channel
+     * @param p
+     */
+    protected void addProposal(Channel channel, Proposal p) {
+        if (p.validate()) {
+            events.add(new Event(Event.Type.PROPOSAL, p));
+        } else {
+            logger.debug("Invalid proposal from {}", channel.getRemotePeer().getPeerId());
+            channel.getMessageQueue().disconnect(ReasonCode.BAD_PEER);
+        }
+    }
+
+    /**
+     * Rebuilds a compact proposal from the transactions known to the pending
+     * manager, or requests the missing ones from the peer.
+     *
+     * @param channel
+     * @param m
+     */
+    protected void onCompactProposal(Channel channel, CompactProposalMessage m) {
+        ByteArray hash = ByteArray.of(m.getBlockHeader().getHash());
+        Pair<String, ByteArray> key = Pair.of(channel.getRemotePeer().getPeerId(), hash);
+        if (partialProposals.getIfPresent(key) != null) {
+            // already requested from this peer
+            return;
+        }
+
+        List<byte[]> hashes = m.getTransactionHashes();
+        Transaction[] txs = new Transaction[hashes.size()];
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < txs.length; i++) {
+            txs[i] = pendingMgr.getTransaction(hashes.get(i));
+            if (txs[i] == null) {
+                missing.add(i);
+            }
+        }
+
+        if (missing.isEmpty()) {
+            Proposal p = m.toProposal(Arrays.asList(txs));
+            if (p.validate()) {
+                events.add(new Event(Event.Type.PROPOSAL, p));
+                return;
+            }
+
+            // the local copies don't match the signed ones, request all of them
+            missing = IntStream.range(0, txs.length).boxed().collect(Collectors.toList());
+            if (missing.isEmpty()) {
+                logger.debug("Invalid proposal from {}", channel.getRemotePeer().getPeerId());
+                channel.getMessageQueue().disconnect(ReasonCode.BAD_PEER);
+                return;
+            }
+        }
+
+        logger.trace("Requesting {} / {} transactions of compact proposal", missing.size(), txs.length);
+        if (partialProposals.asMap().putIfAbsent(key, new PartialProposal(m, txs, missing)) == null) {
+            channel.getMessageQueue().sendMessage(new GetProposalTransactionsMessage(hash.getData(), missing));
+        }
+    }
+
     /**
      * Attempt to activate pending forks at current height.
      */
@@ -685,8 +831,8 @@ public class SemuxBft implements Consensus {
      * Update the validator sets.
      */
     protected void updateValidators() {
-        validators = chain.getValidators();
-        activeValidators = channelMgr.getActiveChannels(validators);
+        validators = chain.getValidatorSet();
+        activeValidators = channelMgr.getActiveChannels(validators.getValidators());
         lastUpdate = System.currentTimeMillis();
     }
 
@@ -721,19 +867,18 @@ public class SemuxBft implements Consensus {
      * @return
      */
     protected boolean isPrimary(long height, int view, String peerId) {
-        return config
-                .getPrimaryValidator(validators, height, view, chain.forkActivated(height, UNIFORM_DISTRIBUTION))
+        return validators.getPrimary(config, height, view, chain.forkActivated(height, UNIFORM_DISTRIBUTION))
                 .equals(peerId);
     }
 
     /**
-     * Check if the signature is from one of the validators.
+     * Check if the vote is from one of the validators.
      * 
-     * @param sig
+     * @param vote
      * @return
      */
-    protected boolean isFromValidator(Signature sig) {
-        return validators.contains(Hex.encode(Hash.h160(sig.getPublicKey())));
+    protected boolean isFromValidator(Vote vote) {
+        return vote.getSignature() != null && validators.contains(vote.getSignature());
     }
 
     /**
@@ -1044,13 +1189,26 @@ public class SemuxBft implements Consensus {
                 try {
                     Message msg = queue.take();
 
+                    Message compactMsg = null;
+
                     // thread-safety via volatile
                     List<Channel> channels = activeValidators;
                     if (channels != null) {
                         int[] indices = ArrayUtil.permutation(channels.size());
                         for (int i = 0; i < indices.length && i < config.netRelayRedundancy(); i++) {
                             Channel c = channels.get(indices[i]);
-                            if (c.isActive()) {
+                            if (!c.isActive()) {
+                                continue;
+                            }
+
+                            // send proposals in compact form, if supported
+                            if (msg instanceof ProposalMessage
+                                    && c.getRemotePeer().getCapabilities().isSupported(Capability.COMPACT_PROPOSAL)) {
+                                if (compactMsg == null) {
+                                    compactMsg = compact((ProposalMessage) msg);
+                                }
+                                c.getMessageQueue().sendMessage(compactMsg);
+                            } else {
                                 c.getMessageQueue().sendMessage(msg);
                             }
                         }
@@ -1062,6 +1220,12 @@ public class SemuxBft implements Consensus {
             }
         }
 
+        private Message compact(ProposalMessage msg) {
+            Proposal p = msg.getProposal();
+            compactProposals.put(ByteArray.of(p.getBlockHeader().getHash()), p);
+            return new CompactProposalMessage(p);
+        }
+
         public synchronized void start() {
             if (t == null) {
                 t = new Thread(this, "cons-relay");
@@ -1089,6 +1253,159 @@ public class SemuxBft implements Consensus {
         }
     }
 
+    /**
+     * Verifies the signatures of incoming votes off the network threads, and feeds
+     * the valid ones into the event queue. Each distinct vote is verified only
+     * once, no matter how many peers relay it.
+     */
+    public class VoteVerifier {
+        private static final int MAX_QUEUED_VOTES = 4096;
+
+        private ThreadPoolExecutor executor;
+
+        public synchronized void start() {
+            if (executor == null) {
+                int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+                AtomicInteger cnt = new AtomicInteger(0);
+                executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(MAX_QUEUED_VOTES),
+                        r -> new Thread(r, "cons-vote-verifier-" + cnt.getAndIncrement()));
+            }
+        }
+
+        public synchronized void stop() {
+            if (executor != null) {
+                // the queued votes are dropped, so that later copies are verified again
+                for (Runnable task : executor.shutdownNow()) {
+                    if (task instanceof VerifyTask) {
+                        ((VerifyTask) task).drop();
+                    }
+                }
+                executor = null;
+            }
+        }
+
+        /**
+         * Verifies a vote received from the given channel, asynchronously. A valid
+         * vote is added to the event queue; an invalid one gets the peer
+         * disconnected.
+         *
+         * @param channel
+         * @param vote
+         */
+        public void verify(Channel channel, Vote vote) {
+            ByteArray key = ByteArray.of(Bytes.merge(vote.getEncoded(), vote.getSignature().toBytes()));
+            boolean[] isNew = { false };
+            CompletableFuture<Boolean> result = verifiedVotes.get(key, k -> {
+                isNew[0] = true;
+                return new CompletableFuture<>();
+            });
+
+            if (isNew[0]) {
+                VerifyTask task = new VerifyTask(key, vote, result);
+                try {
+                    submit(task);
+                } catch (RejectedExecutionException e) {
+                    // overloaded or stopped, let a later copy try again
+                    task.drop();
+                }
+            }
+
+            result.thenAccept(valid -> {
+                if (valid == null) {
+                    logger.debug("Dropped vote from {}", channel.getRemotePeer().getPeerId());
+                } else if (valid) {
+                    vote.setValidated(true);
+                    events.add(new Event(Event.Type.VOTE, vote));
+                } else {
+                    logger.debug("Invalid vote from {}", channel.getRemotePeer().getPeerId());
+                    channel.getMessageQueue().disconnect(ReasonCode.BAD_PEER);
+                }
+            });
+        }
+
+        private synchronized void submit(Runnable task) {
+            if (executor == null) {
+                throw new RejectedExecutionException("Vote verifier is not running");
+            }
+            executor.execute(task);
+        }
+
+        /**
+         * Verifies a vote and completes its cached result, in any case.
+         */
+        private class VerifyTask implements Runnable {
+            private final ByteArray key;
+            private final Vote vote;
+            private final CompletableFuture<Boolean> result;
+
+            VerifyTask(ByteArray key, Vote vote, CompletableFuture<Boolean> result) {
+                this.key = key;
+                this.vote = vote;
+                this.result = result;
+            }
+
+            @Override
+            public void run() {
+                try {
+                    result.complete(vote.revalidate());
+                } catch (Exception e) {
+                    logger.warn("Failed to verify vote", e);
+                    drop();
+                }
+            }
+
+            /**
+             * Completes the result without verifying the vote, and removes it from
+             * the cache so that a later copy is verified again.
+             */
+            void drop() {
+                verifiedVotes.invalidate(key);
+                result.complete(null);
+            }
+        }
+    }
+
+    /**
+     * A compact proposal, with the transactions found so far.
+     */
+    protected static class PartialProposal {
+        private final CompactProposalMessage message;
+        private final Transaction[] transactions;
+        private final List<Integer> missing;
+
+        public PartialProposal(CompactProposalMessage message, Transaction[] transactions, List<Integer> missing) {
+            this.message = message;
+            this.transactions = transactions;
+            this.missing = missing;
+        }
+
+        /**
+         * Fills in the missing transactions.
+         *
+         * @param txs
+         *            the missing transactions, in the requested order
+         * @return false if the transactions don't match the requested ones
+         */
+        public boolean complete(List<Transaction> txs) {
+            if (txs.size() != missing.size()) {
+                return false;
+            }
+            for (int i = 0; i < txs.size(); i++) {
+                int index = missing.get(i);
+                if (!Arrays.equals(txs.get(i).getHash(), message.getTransactionHashes().get(index))) {
+                    return false;
+                }
+                transactions[index] = txs.get(i);
+            }
+            return true;
+        }
+
+        public Proposal toProposal() {
+            return message.toProposal(Arrays.asList(transactions));
+        }
+    }
+
     public static class Event {
         public enum Type {
             /**
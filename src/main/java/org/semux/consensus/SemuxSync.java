@@ -6,25 +6,19 @@
  */
 package org.semux.consensus;
 
-import static org.semux.core.Amount.ZERO;
-import static org.semux.core.Amount.sum;
-
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.math.MathContext;
 import java.net.InetSocketAddress;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Random;
-import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -34,32 +28,28 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.tuple.Pair;
 import org.semux.Kernel;
 import org.semux.config.Config;
-import org.semux.config.Constants;
-import org.semux.core.Amount;
 import org.semux.core.Block;
-import org.semux.core.BlockHeader;
 import org.semux.core.Blockchain;
 import org.semux.core.SyncManager;
-import org.semux.core.Transaction;
-import org.semux.core.TransactionExecutor;
-import org.semux.core.TransactionResult;
 import org.semux.core.state.AccountState;
 import org.semux.core.state.DelegateState;
 import org.semux.crypto.Hex;
-import org.semux.crypto.Key;
 import org.semux.net.Channel;
 import org.semux.net.ChannelManager;
 import org.semux.net.msg.Message;
+import org.semux.net.msg.MessageCode;
 import org.semux.net.msg.ReasonCode;
+import org.semux.net.msg.consensus.BlockHeaderMessage;
 import org.semux.net.msg.consensus.BlockMessage;
+import org.semux.net.msg.consensus.BlockNotFoundMessage;
 import org.semux.net.msg.consensus.GetBlockMessage;
-import org.semux.util.ByteArray;
+import org.semux.net.msg.consensus.GetStateSnapshotMessage;
+import org.semux.net.msg.consensus.StateSnapshotMessage;
 import org.semux.util.TimeUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -89,9 +79,14 @@ public class SemuxSync implements SyncManager {
     private static final ScheduledExecutorService timer1 = Executors.newSingleThreadScheduledExecutor(factory);
     private static final ScheduledExecutorService timer2 = Executors.newSingleThreadScheduledExecutor(factory);
 
-    private static final long MAX_DOWNLOAD_TIME = 10L * 1000L; // 10 seconds
+    /**
+     * Timeout of block requests to peers without any download yet.
+     */
+    private static final long INITIAL_DOWNLOAD_TIME = 10L * 1000L; // 10 seconds
+    private static final long MIN_DOWNLOAD_TIME = 1000L; // 1 second
+    private static final long MAX_DOWNLOAD_TIME = 30L * 1000L; // 30 seconds
 
-    private static final int MAX_UNFINISHED_JOBS = 16;
+    private static final int MAX_UNFINISHED_JOBS = 512;
 
     private static final int MAX_QUEUED_BLOCKS = 8192;
     private static final int MAX_PENDING_BLOCKS = 512;
@@ -103,15 +98,21 @@ public class SemuxSync implements SyncManager {
 
     private Blockchain chain;
     private ChannelManager channelMgr;
+    private StateSnapshotSync snapshotSync;
+    private CheckpointSync checkpointSync;
+    private BlockImporter importer;
 
     // task queues
     private AtomicLong latestQueuedTask = new AtomicLong();
     private TreeSet<Long> toDownload = new TreeSet<>();
-    private Map<Long, Long> toComplete = new HashMap<>();
+    private Map<Long, Request> toComplete = new HashMap<>();
     private TreeSet<Pair<Block, Channel>> toProcess = new TreeSet<>(
             Comparator.comparingLong(o -> o.getKey().getNumber()));
     private final Object lock = new Object();
 
+    // [peer id] => [download statistics]
+    private Map<String, PeerStats> peerStats = new HashMap<>();
+
     // current and target heights
     private AtomicLong begin = new AtomicLong();
     private AtomicLong current = new AtomicLong();
@@ -126,6 +127,9 @@ public class SemuxSync implements SyncManager {
 
         this.chain = kernel.getBlockchain();
         this.channelMgr = kernel.getChannelManager();
+        this.snapshotSync = new StateSnapshotSync(kernel);
+        this.checkpointSync = new CheckpointSync(channelMgr);
+        this.importer = new BlockImporter(config, chain, kernel.getStateLock());
     }
 
     @Override
@@ -135,11 +139,39 @@ public class SemuxSync implements SyncManager {
 
             logger.info("Syncing started, best known block = {}", targetHeight - 1);
 
-            // [1] set up queues
+            // [0] fast sync an empty node from the trusted state snapshot, if any
+            byte[] snapshot = config.syncStateSnapshot();
+            if (snapshot != null && chain.getLatestBlockNumber() == chain.getGenesis().getNumber()) {
+                logger.info("Downloading state snapshot {}", Hex.encode(snapshot));
+                if (!snapshotSync.download(snapshot, this::isRunning)) {
+                    // try again on the next sync, unless the option is removed
+                    logger.warn("Failed to fast sync, remove sync.stateSnapshot to sync from the genesis");
+                    isRunning.set(false);
+                    return;
+                }
+            }
+
+            // [1] verify the header chain of the trusted checkpoint, if any
+            importer.setCheckpointChain(null);
+            long assumeValid = getAssumeValid(config);
+            if (assumeValid > chain.getLatestBlockNumber()) {
+                logger.info("Downloading the block headers of checkpoint #{}", assumeValid);
+                CheckpointChain checkpointChain = checkpointSync.download(chain.getLatestBlockNumber() + 1,
+                        assumeValid, config.checkpoints().get(assumeValid), this::isRunning);
+                if (checkpointChain != null) {
+                    logger.info("Assuming the block votes valid up to checkpoint #{}", assumeValid);
+                    importer.setCheckpointChain(checkpointChain);
+                } else {
+                    logger.warn("Failed to verify checkpoint #{}, all the block votes are verified", assumeValid);
+                }
+            }
+
+            // [2] set up queues
             synchronized (lock) {
                 toDownload.clear();
                 toComplete.clear();
                 toProcess.clear();
+                peerStats.clear();
 
                 begin.set(chain.getLatestBlockNumber() + 1);
                 current.set(chain.getLatestBlockNumber() + 1);
@@ -148,11 +180,11 @@ public class SemuxSync implements SyncManager {
                 growToDownloadQueue();
             }
 
-            // [2] start tasks
+            // [3] start tasks
             ScheduledFuture<?> download = timer1.scheduleAtFixedRate(this::download, 0, 5, TimeUnit.MILLISECONDS);
             ScheduledFuture<?> process = timer2.scheduleAtFixedRate(this::process, 0, 5, TimeUnit.MILLISECONDS);
 
-            // [3] wait until the sync is done
+            // [4] wait until the sync is done
             while (isRunning.get()) {
                 synchronized (isRunning) {
                     try {
@@ -165,12 +197,15 @@ public class SemuxSync implements SyncManager {
                 }
             }
 
-            // [4] cancel tasks
+            // [5] cancel tasks
             download.cancel(true);
             process.cancel(false);
 
             Instant end = Instant.now();
             logger.info("Syncing finished, took {}", TimeUtil.formatDuration(Duration.between(beginningInstant, end)));
+            synchronized (lock) {
+                peerStats.forEach((peerId, stats) -> logger.debug("Sync peer {}: {}", peerId, stats));
+            }
         }
     }
 
@@ -190,11 +225,21 @@ public class SemuxSync implements SyncManager {
 
     @Override
     public void onMessage(Channel channel, Message msg) {
+        // snapshots are served whether syncing or not
+        if (msg.getCode() == MessageCode.GET_STATE_SNAPSHOT) {
+            snapshotSync.onGetStateSnapshot(channel, (GetStateSnapshotMessage) msg);
+            return;
+        }
+
         if (!isRunning()) {
             return;
         }
 
         switch (msg.getCode()) {
+        case STATE_SNAPSHOT: {
+            snapshotSync.onStateSnapshot(channel, (StateSnapshotMessage) msg);
+            break;
+        }
         case BLOCK: {
             BlockMessage blockMsg = (BlockMessage) msg;
             Block block = blockMsg.getBlock();
@@ -202,13 +247,33 @@ public class SemuxSync implements SyncManager {
                 if (toDownload.remove(block.getNumber())) {
                     growToDownloadQueue();
                 }
-                toComplete.remove(block.getNumber());
+                Request request = complete(block.getNumber());
+                if (request != null && request.peerId.equals(channel.getRemotePeer().getPeerId())) {
+                    getPeerStats(request.peerId).onDownload(System.currentTimeMillis() - request.timestamp,
+                            msg.getEncoded().length);
+                }
                 toProcess.add(Pair.of(block, channel));
             }
             break;
         }
         case BLOCK_HEADER: {
-            // TODO implement block header
+            checkpointSync.onBlockHeader(channel, (BlockHeaderMessage) msg);
+            break;
+        }
+        case BLOCK_NOT_FOUND: {
+            BlockNotFoundMessage m = (BlockNotFoundMessage) msg;
+            checkpointSync.onBlockNotFound(channel, m);
+            synchronized (lock) {
+                Request request = toComplete.get(m.getNumber());
+                if (request != null && request.peerId.equals(channel.getRemotePeer().getPeerId())) {
+                    // the block is pruned, or not yet known by the peer, request it from another one
+                    logger.debug("Block #{} not found by {}", m.getNumber(), request.peerId);
+                    channel.getRemotePeer().setEarliestBlockNumber(m.getEarliestBlockNumber());
+                    channel.getRemotePeer().setLatestBlockNumber(m.getLatestBlockNumber());
+                    complete(m.getNumber());
+                    toDownload.add(m.getNumber());
+                }
+            }
             break;
         }
         default: {
@@ -225,60 +290,119 @@ public class SemuxSync implements SyncManager {
         synchronized (lock) {
             // filter all expired tasks
             long now = System.currentTimeMillis();
-            Iterator<Entry<Long, Long>> itr = toComplete.entrySet().iterator();
+            Iterator<Entry<Long, Request>> itr = toComplete.entrySet().iterator();
             while (itr.hasNext()) {
-                Entry<Long, Long> entry = itr.next();
+                Entry<Long, Request> entry = itr.next();
+                Request request = entry.getValue();
+
+                if (request.timestamp + request.timeout < now) {
+                    logger.debug("Downloading of block #{} from {} has expired", entry.getKey(), request.peerId);
+                    PeerStats stats = getPeerStats(request.peerId);
+                    stats.inFlight--;
+                    stats.onTimeout();
 
-                if (entry.getValue() + MAX_DOWNLOAD_TIME < now) {
-                    logger.debug("Downloading of block #{} has expired", entry.getKey());
                     toDownload.add(entry.getKey());
                     itr.remove();
                 }
             }
 
-            // quit if too many unfinished jobs
-            if (toComplete.size() > MAX_UNFINISHED_JOBS) {
-                logger.trace("Max unfinished jobs reached");
-                return;
-            }
-
-            // quit if no more tasks
-            if (toDownload.isEmpty()) {
-                return;
-            }
-            Long task = toDownload.first();
-
-            // quit if too many pending blocks
-            if (toProcess.size() > MAX_PENDING_BLOCKS && task > toProcess.first().getKey().getNumber()) {
-                logger.trace("Pending block queue is full");
-                return;
-            }
+            while (true) {
+                // quit if too many unfinished jobs
+                if (toComplete.size() >= MAX_UNFINISHED_JOBS) {
+                    logger.trace("Max unfinished jobs reached");
+                    return;
+                }
 
-            // get idle channels
-            List<Channel> channels = channelMgr.getIdleChannels().stream()
-                    .filter(channel -> channel.getRemotePeer().getLatestBlockNumber() >= task)
-                    .collect(Collectors.toList());
-            logger.trace("Idle peers = {}", channels.size());
+                // quit if no more tasks
+                if (toDownload.isEmpty()) {
+                    return;
+                }
+                Long task = toDownload.first();
 
-            // quit if no idle channels.
-            if (channels.isEmpty()) {
-                return;
-            }
+                // quit if too many pending blocks
+                if (toProcess.size() > MAX_PENDING_BLOCKS && task > toProcess.first().getKey().getNumber()) {
+                    logger.trace("Pending block queue is full");
+                    return;
+                }
 
-            // pick a random channel
-            Channel c = channels.get(random.nextInt(channels.size()));
+                // quit if all peers are busy
+                Channel c = pickChannel(task);
+                if (c == null) {
+                    return;
+                }
 
-            // request the block
-            if (c.getRemotePeer().getLatestBlockNumber() >= task) {
+                // request the block
+                String peerId = c.getRemotePeer().getPeerId();
+                PeerStats stats = getPeerStats(peerId);
                 logger.debug("Request block #{} from channel = {}", task, c.getId());
                 c.getMessageQueue().sendMessage(new GetBlockMessage(task));
+                stats.inFlight++;
 
                 if (toDownload.remove(task)) {
                     growToDownloadQueue();
                 }
-                toComplete.put(task, System.currentTimeMillis());
+                toComplete.put(task, new Request(peerId, System.currentTimeMillis(), stats.getTimeout()));
+            }
+        }
+    }
+
+    /**
+     * Picks a channel to download the given block from, among the idle peers that
+     * have the block. Faster and more reliable peers are more likely to be picked.
+     * <p>
+     * The message queue of a channel sends one request at a time and holds the
+     * others until it's answered, so a peer is asked for one block at a time only.
+     * As the channel is idle, the request goes on the wire right away and its
+     * latency is measured from now.
+     *
+     * @param task
+     * @return the channel, or null if all peers are busy
+     */
+    private Channel pickChannel(long task) {
+        List<Channel> channels = channelMgr.getIdleChannels().stream()
+                .filter(channel -> channel.getRemotePeer().getLatestBlockNumber() >= task
+                        && channel.getRemotePeer().getEarliestBlockNumber() <= task
+                        && getPeerStats(channel.getRemotePeer().getPeerId()).isAvailable())
+                .collect(Collectors.toList());
+        logger.trace("Available peers = {}", channels.size());
+
+        if (channels.isEmpty()) {
+            return null;
+        }
+
+        double[] weights = new double[channels.size()];
+        double total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = getPeerStats(channels.get(i).getRemotePeer().getPeerId()).getWeight();
+            total += weights[i];
+        }
+
+        double r = random.nextDouble() * total;
+        for (int i = 0; i < weights.length; i++) {
+            r -= weights[i];
+            if (r < 0) {
+                return channels.get(i);
             }
         }
+        return channels.get(channels.size() - 1);
+    }
+
+    /**
+     * Removes the request of a block, if any, and releases the peer.
+     *
+     * @param number
+     * @return the request, or null if not requested
+     */
+    private Request complete(long number) {
+        Request request = toComplete.remove(number);
+        if (request != null) {
+            getPeerStats(request.peerId).inFlight--;
+        }
+        return request;
+    }
+
+    private PeerStats getPeerStats(String peerId) {
+        return peerStats.computeIfAbsent(peerId, k -> new PeerStats());
     }
 
     /**
@@ -341,7 +465,7 @@ public class SemuxSync implements SyncManager {
                     if (toDownload.remove(pair.getKey().getNumber())) {
                         growToDownloadQueue();
                     }
-                    toComplete.remove(pair.getKey().getNumber());
+                    complete(pair.getKey().getNumber());
                 }
             } else {
                 InetSocketAddress a = pair.getValue().getRemoteAddress();
@@ -349,7 +473,7 @@ public class SemuxSync implements SyncManager {
 
                 synchronized (lock) {
                     toDownload.add(pair.getKey().getNumber());
-                    toComplete.remove(pair.getKey().getNumber());
+                    complete(pair.getKey().getNumber());
                 }
 
                 // disconnect if the peer sends us invalid block
@@ -372,110 +496,33 @@ public class SemuxSync implements SyncManager {
     }
 
     protected boolean validateBlock(Block block, AccountState asSnapshot, DelegateState dsSnapshot) {
-        BlockHeader header = block.getHeader();
-        List<Transaction> transactions = block.getTransactions();
-
-        // [1] check block header
-        Block latest = chain.getLatestBlock();
-        if (!Block.validateHeader(latest.getHeader(), header)) {
-            logger.error("Invalid block header");
-            return false;
-        }
-
-        // validate checkpoint
-        if (config.checkpoints().containsKey(header.getNumber()) &&
-                !Arrays.equals(header.getHash(), config.checkpoints().get(header.getNumber()))) {
-            logger.error("Checkpoint validation failed, checkpoint is {} => {}, getting {}", header.getNumber(),
-                    Hex.encode0x(config.checkpoints().get(header.getNumber())),
-                    Hex.encode0x(header.getHash()));
-            return false;
-        }
-
-        // blocks should never be forged by coinbase magic account
-        if (Arrays.equals(header.getCoinbase(), Constants.COINBASE_ADDRESS)) {
-            logger.error("A block forged by the coinbase magic account is not allowed");
-            return false;
-        }
-
-        // [2] check transactions and results
-        if (!Block.validateTransactions(header, transactions, config.network())
-                || transactions.stream().mapToInt(Transaction::size).sum() > config.maxBlockTransactionsSize()) {
-            logger.error("Invalid block transactions");
-            return false;
-        }
-        if (!Block.validateResults(header, block.getResults())) {
-            logger.error("Invalid results");
-            return false;
-        }
-
-        if (transactions.stream().anyMatch(tx -> chain.hasTransaction(tx.getHash()))) {
-            logger.error("Duplicated transaction hash is not allowed");
-            return false;
-        }
-
-        // [3] evaluate transactions
-        TransactionExecutor transactionExecutor = new TransactionExecutor(config);
-        List<TransactionResult> results = transactionExecutor.execute(transactions, asSnapshot, dsSnapshot);
-        if (!Block.validateResults(header, results)) {
-            logger.error("Invalid transactions");
-            return false;
-        }
-
-        // [4] evaluate votes
-        return validateBlockVotes(block);
+        return importer.verifyBlock(block)
+                && importer.validateBlock(block, asSnapshot, dsSnapshot)
+                && validateBlockVotes(block);
     }
 
     protected boolean validateBlockVotes(Block block) {
-        Set<String> validators = new HashSet<>(chain.getValidators());
-        int twoThirds = (int) Math.ceil(validators.size() * 2.0 / 3.0);
-
-        Vote vote = new Vote(VoteType.PRECOMMIT, Vote.VALUE_APPROVE, block.getNumber(), block.getView(),
-                block.getHash());
-        byte[] encoded = vote.getEncoded();
-
-        // check validity of votes
-        if (!block.getVotes().stream()
-                .allMatch(sig -> Key.verify(encoded, sig) && validators.contains(Hex.encode(sig.getAddress())))) {
-            logger.debug("Block votes are invalid");
-            return false;
-        }
+        return importer.verifyVotes(block) && importer.validateVotes(block);
+    }
 
-        // at least two thirds voters
-        if (block.getVotes().stream()
-                .map(sig -> new ByteArray(sig.getA()))
-                .collect(Collectors.toSet()).size() < twoThirds) {
-            logger.debug("Not enough votes, needs 2/3+");
-            return false;
+    /**
+     * Returns the height up to which the block votes are assumed valid, see
+     * {@link Config#syncAssumeValid()}.
+     *
+     * @param config
+     * @return the height, or 0 if all the votes are verified
+     */
+    static long getAssumeValid(Config config) {
+        long number = config.syncAssumeValid();
+        if (number > 0 && !config.checkpoints().containsKey(number)) {
+            logger.warn("Block #{} isn't a checkpoint, all the block votes are verified", number);
+            return 0;
         }
-
-        return true;
+        return Math.max(number, 0);
     }
 
     protected boolean applyBlock(Block block, AccountState asSnapshot, DelegateState dsSnapshot) {
-        // [5] apply block reward and tx fees
-        Amount txsReward = block.getTransactions().stream().map(Transaction::getFee).reduce(ZERO, Amount::sum);
-        Amount reward = sum(config.getBlockReward(block.getNumber()), txsReward);
-
-        if (reward.gt0()) {
-            asSnapshot.adjustAvailable(block.getCoinbase(), reward);
-        }
-
-        // [6] commit the updates
-        asSnapshot.commit();
-        dsSnapshot.commit();
-
-        WriteLock writeLock = kernel.getStateLock().writeLock();
-        writeLock.lock();
-        try {
-            // [7] flush state to disk
-            chain.getAccountState().commit();
-            chain.getDelegateState().commit();
-
-            // [8] add block to chain
-            chain.addBlock(block);
-        } finally {
-            writeLock.unlock();
-        }
+        importer.applyBlock(block, asSnapshot, dsSnapshot);
 
         current.set(block.getNumber() + 1);
         return true;
@@ -490,6 +537,97 @@ public class SemuxSync implements SyncManager {
                 Duration.between(beginningInstant != null ? beginningInstant : Instant.now(), Instant.now()));
     }
 
+    /**
+     * A block request in flight.
+     */
+    private static class Request {
+        final String peerId;
+        final long timestamp;
+        final long timeout;
+
+        Request(String peerId, long timestamp, long timeout) {
+            this.peerId = peerId;
+            this.timestamp = timestamp;
+            this.timeout = timeout;
+        }
+    }
+
+    /**
+     * Download statistics of a peer, used to pick peers and to time out their
+     * requests. Guarded by the lock of the queues.
+     */
+    static class PeerStats {
+        // smoothed latency and its mean deviation, in milliseconds
+        long latency = -1;
+        long latencyDeviation;
+
+        long downloads;
+        long bytes;
+        long failures;
+
+        int inFlight;
+
+        /**
+         * Records a block downloaded in the given time, in milliseconds.
+         *
+         * @param time
+         * @param size
+         */
+        void onDownload(long time, int size) {
+            if (latency < 0) {
+                latency = time;
+                latencyDeviation = time / 2;
+            } else {
+                latencyDeviation = (3 * latencyDeviation + Math.abs(latency - time)) / 4;
+                latency = (7 * latency + time) / 8;
+            }
+            downloads++;
+            bytes += size;
+        }
+
+        /**
+         * Records a request which has timed out.
+         */
+        void onTimeout() {
+            failures++;
+        }
+
+        boolean isAvailable() {
+            return inFlight == 0;
+        }
+
+        /**
+         * Returns the timeout of a new request, in milliseconds.
+         *
+         * @return
+         */
+        long getTimeout() {
+            if (latency < 0) {
+                return INITIAL_DOWNLOAD_TIME;
+            }
+            return Math.min(Math.max(latency + 4 * latencyDeviation, MIN_DOWNLOAD_TIME), MAX_DOWNLOAD_TIME);
+        }
+
+        /**
+         * Returns the estimated number of blocks per second, discounted by the rate
+         * of failed requests. Peers without any download are assumed to take one
+         * second per block.
+         *
+         * @return
+         */
+        double getWeight() {
+            double time = latency < 0 ? 1000.0 : Math.max(latency, 1);
+            double successRate = (downloads + 1.0) / (downloads + failures + 1.0);
+            return 1000.0 / time * successRate;
+        }
+
+        @Override
+        public String toString() {
+            return "downloads = " + downloads + ", bytes = " + bytes + ", failures = " + failures
+                    + ", latency = " + latency + " ms";
+        }
+    }
+
     public static class SemuxSyncProgress implements SyncManager.Progress {
 
         final long beginHeight;
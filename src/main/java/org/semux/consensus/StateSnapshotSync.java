@@ -0,0 +1,421 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.consensus;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.semux.Kernel;
+import org.semux.core.Blockchain;
+import org.semux.core.StateSnapshot;
+import org.semux.core.exception.BlockchainException;
+import org.semux.crypto.Hash;
+import org.semux.crypto.Hex;
+import org.semux.net.Capability;
+import org.semux.net.Channel;
+import org.semux.net.ChannelManager;
+import org.semux.net.msg.consensus.GetStateSnapshotMessage;
+import org.semux.net.msg.consensus.StateSnapshotMessage;
+import org.semux.util.ByteArray;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fast sync of an empty node: downloads a trusted state snapshot from the
+ * peers, chunk by chunk, and imports it, so that only the blocks after the
+ * snapshot need to be synced. It also serves the snapshots saved in the
+ * snapshot directory to the peers.
+ * <p>
+ * As block headers don't commit to the state, the snapshot is trusted by its
+ * digest, see {@link org.semux.config.Config#syncStateSnapshot()}. Every chunk
+ * is checked against the manifest, so that any peer can serve it.
+ */
+public class StateSnapshotSync {
+
+    private static final Logger logger = LoggerFactory.getLogger(StateSnapshotSync.class);
+
+    private static final long REQUEST_TIMEOUT = 30L * 1000L; // 30 seconds
+    private static final long MAX_IDLE_TIME = 2L * 60L * 1000L; // 2 minutes
+
+    /**
+     * Time to wait before asking again a peer which replied with no data, doubled
+     * on each consecutive empty reply.
+     */
+    private static final long MIN_RETRY_WAIT = 1000L; // 1 second
+    private static final long MAX_RETRY_WAIT = 30L * 1000L; // 30 seconds
+
+    /**
+     * Max number of chunks being downloaded at the same time.
+     */
+    private static final int MAX_IN_FLIGHT = 8;
+
+    /**
+     * Max number of snapshot files kept open for the peers.
+     */
+    private static final int MAX_OPEN_SNAPSHOTS = 4;
+
+    /**
+     * Max number of chunks being served to a peer at the same time, and to all
+     * the peers.
+     */
+    private static final int MAX_SERVING_PER_PEER = MAX_IN_FLIGHT;
+    private static final int MAX_SERVING = 64;
+
+    private static final ThreadFactory factory = new ThreadFactory() {
+        private AtomicInteger cnt = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            return new Thread(r, "snapshot-" + cnt.getAndIncrement());
+        }
+    };
+
+    // the chunks are read from disk off the network threads
+    private static final ThreadPoolExecutor server = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(MAX_SERVING), factory);
+    static {
+        server.allowCoreThreadTimeOut(true);
+    }
+
+    private static final Random random = new Random();
+
+    private final Kernel kernel;
+    private final Blockchain chain;
+    private final ChannelManager channelMgr;
+    private final Path dir;
+
+    private final Map<ByteArray, StateSnapshot.Reader> snapshots = new HashMap<>();
+
+    // [peer id] => [number of chunks being served]
+    private final Map<String, AtomicInteger> serving = new ConcurrentHashMap<>();
+
+    // the download in progress, protected by lock
+    private final Object lock = new Object();
+    private byte[] digest;
+    private StateSnapshot.Manifest manifest;
+    private final Map<Integer, byte[]> received = new HashMap<>();
+    private final Map<Integer, Pair<String, Long>> requested = new HashMap<>();
+    private final Set<String> badPeers = new HashSet<>();
+    // [peer id] => [consecutive empty replies, time to retry]
+    private final Map<String, Pair<Integer, Long>> busyPeers = new HashMap<>();
+    private long lastProgress;
+
+    public StateSnapshotSync(Kernel kernel) {
+        this.kernel = kernel;
+        this.chain = kernel.getBlockchain();
+        this.channelMgr = kernel.getChannelManager();
+        this.dir = kernel.getConfig().dataDir().toPath().resolve(StateSnapshot.DIR_NAME);
+    }
+
+    /**
+     * Downloads a state snapshot, unless it's already saved, and imports it into
+     * the blockchain.
+     *
+     * @param digest
+     *            the digest of the snapshot
+     * @param isRunning
+     *            whether to keep downloading
+     * @return true if the snapshot is imported, otherwise false
+     */
+    public boolean download(byte[] digest, BooleanSupplier isRunning) {
+        Path file = StateSnapshot.getFile(dir, digest);
+
+        try {
+            if (!Files.exists(file)) {
+                Files.createDirectories(dir);
+                Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+                if (!fetch(digest, tmp, isRunning)) {
+                    Files.deleteIfExists(tmp);
+                    return false;
+                }
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+
+            try (StateSnapshot.Reader snapshot = new StateSnapshot.Reader(file)) {
+                if (!Arrays.equals(snapshot.getManifest().getDigest(), digest)) {
+                    throw new IOException("The snapshot doesn't match the digest");
+                }
+
+                WriteLock writeLock = kernel.getStateLock().writeLock();
+                writeLock.lock();
+                try {
+                    chain.importState(snapshot);
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+            return true;
+        } catch (IOException | BlockchainException e) {
+            logger.error("Failed to import state snapshot {}", Hex.encode(digest), e);
+            return false;
+        }
+    }
+
+    /**
+     * Fetches all the chunks of a snapshot from the peers, and writes them into a
+     * file in order.
+     *
+     * @param digest
+     * @param file
+     * @param isRunning
+     * @return true if the snapshot is complete, otherwise false
+     * @throws IOException
+     */
+    private boolean fetch(byte[] digest, Path file, BooleanSupplier isRunning) throws IOException {
+        try (StateSnapshot.Writer writer = new StateSnapshot.Writer(file)) {
+            synchronized (lock) {
+                this.digest = digest;
+                this.manifest = null;
+                received.clear();
+                requested.clear();
+                badPeers.clear();
+                busyPeers.clear();
+                lastProgress = System.currentTimeMillis();
+
+                try {
+                    int next = 0;
+                    while (isRunning.getAsBoolean()) {
+                        long now = System.currentTimeMillis();
+                        requested.values().removeIf(r -> r.getRight() + REQUEST_TIMEOUT < now);
+
+                        // write the chunks received in order
+                        while (manifest != null && received.containsKey(next)) {
+                            writer.addChunk(received.remove(next++));
+                        }
+                        if (manifest != null && next == manifest.getChunkCount()) {
+                            writer.finish(manifest.getNetwork(), manifest.getNumber(), manifest.getBlockHash());
+                            logger.info("Downloaded state snapshot: {}", manifest);
+                            return true;
+                        }
+
+                        if (now - lastProgress > MAX_IDLE_TIME) {
+                            logger.warn("No peer serves state snapshot {}", Hex.encode(digest));
+                            return false;
+                        }
+
+                        request(next);
+                        lock.wait(100);
+                    }
+                    return false;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                } finally {
+                    this.digest = null;
+                    this.manifest = null;
+                    received.clear();
+                    requested.clear();
+                    busyPeers.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * Requests the manifest, or the chunks following the next one to write, from
+     * random peers.
+     *
+     * @param next
+     */
+    private void request(int next) {
+        long now = System.currentTimeMillis();
+        List<Channel> channels = channelMgr.getActiveChannels().stream()
+                .filter(c -> c.getRemotePeer().getCapabilities().isSupported(Capability.FAST_SYNC)
+                        && !badPeers.contains(c.getRemotePeer().getPeerId())
+                        && !isBusy(c.getRemotePeer().getPeerId(), now))
+                .collect(Collectors.toList());
+        if (channels.isEmpty()) {
+            return;
+        }
+
+        if (manifest == null) {
+            if (!requested.containsKey(GetStateSnapshotMessage.MANIFEST)) {
+                send(channels, GetStateSnapshotMessage.MANIFEST);
+            }
+            return;
+        }
+
+        // don't get too far ahead, to bound the chunks held in memory
+        int end = Math.min(next + 2 * MAX_IN_FLIGHT, manifest.getChunkCount());
+        for (int i = next; i < end && requested.size() < MAX_IN_FLIGHT; i++) {
+            if (!received.containsKey(i) && !requested.containsKey(i)) {
+                send(channels, i);
+            }
+        }
+    }
+
+    private boolean isBusy(String peerId, long now) {
+        Pair<Integer, Long> busy = busyPeers.get(peerId);
+        return busy != null && busy.getRight() > now;
+    }
+
+    private void send(List<Channel> channels, int index) {
+        Channel c = channels.get(random.nextInt(channels.size()));
+        logger.debug("Request state snapshot chunk #{} from channel = {}", index, c.getId());
+        c.getMessageQueue().sendMessage(new GetStateSnapshotMessage(digest, index));
+        requested.put(index, Pair.of(c.getRemotePeer().getPeerId(), System.currentTimeMillis()));
+    }
+
+    /**
+     * Handles a chunk or a manifest sent by a peer.
+     *
+     * @param channel
+     * @param msg
+     */
+    public void onStateSnapshot(Channel channel, StateSnapshotMessage msg) {
+        String peerId = channel.getRemotePeer().getPeerId();
+        int index = msg.getIndex();
+
+        synchronized (lock) {
+            Pair<String, Long> request = requested.get(index);
+            if (digest == null || !Arrays.equals(digest, msg.getDigest())
+                    || request == null || !request.getLeft().equals(peerId)) {
+                return;
+            }
+            requested.remove(index);
+
+            byte[] data = msg.getData();
+            if (data.length == 0) {
+                // the peer is busy, or doesn't have the snapshot (yet), ask it again later
+                Pair<Integer, Long> busy = busyPeers.get(peerId);
+                int replies = busy == null ? 1 : busy.getLeft() + 1;
+                long wait = Math.min(MIN_RETRY_WAIT << Math.min(replies - 1, 5), MAX_RETRY_WAIT);
+                logger.debug("No state snapshot chunk #{} from {}, retrying in {} ms", index, peerId, wait);
+                busyPeers.put(peerId, Pair.of(replies, System.currentTimeMillis() + wait));
+                lock.notifyAll();
+                return;
+            }
+
+            if (index == GetStateSnapshotMessage.MANIFEST && Arrays.equals(Hash.h256(data), digest)) {
+                manifest = StateSnapshot.Manifest.fromBytes(data);
+                logger.info("Downloading state snapshot: {}", manifest);
+            } else if (manifest != null && manifest.isValidChunk(index, data)) {
+                received.put(index, data);
+            } else {
+                // the peer sent a corrupted chunk
+                logger.debug("Invalid state snapshot chunk #{} from {}", index, peerId);
+                badPeers.add(peerId);
+                return;
+            }
+            busyPeers.remove(peerId);
+
+            lastProgress = System.currentTimeMillis();
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Serves a chunk or the manifest of a saved snapshot to a peer, in the
+     * background.
+     * <p>
+     * As a peer sends its requests one at a time, the ones of a peer which doesn't
+     * support fast sync, or has too many chunks being served, are dropped. When
+     * all the peers have too many, the request is answered with no data, and the
+     * peer turns to another one for a while.
+     *
+     * @param channel
+     * @param msg
+     */
+    public void onGetStateSnapshot(Channel channel, GetStateSnapshotMessage msg) {
+        if (!channel.getRemotePeer().getCapabilities().isSupported(Capability.FAST_SYNC)) {
+            return;
+        }
+
+        String peerId = channel.getRemotePeer().getPeerId();
+        AtomicInteger count = serving.computeIfAbsent(peerId, k -> new AtomicInteger());
+        if (count.incrementAndGet() > MAX_SERVING_PER_PEER) {
+            logger.debug("Too many state snapshot requests from {}", peerId);
+            release(peerId, count);
+            return;
+        }
+
+        try {
+            server.execute(() -> {
+                try {
+                    byte[] data = getData(msg.getDigest(), msg.getIndex());
+                    channel.getMessageQueue().sendMessage(new StateSnapshotMessage(msg.getDigest(), msg.getIndex(),
+                            data == null ? new byte[0] : data));
+                } finally {
+                    release(peerId, count);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.debug("Too many state snapshot requests, rejecting the one from {}", peerId);
+            channel.getMessageQueue().sendMessage(new StateSnapshotMessage(msg.getDigest(), msg.getIndex(),
+                    new byte[0]));
+            release(peerId, count);
+        }
+    }
+
+    private void release(String peerId, AtomicInteger count) {
+        if (count.decrementAndGet() <= 0) {
+            serving.remove(peerId, count);
+        }
+    }
+
+    private synchronized byte[] getData(byte[] digest, int index) {
+        ByteArray key = ByteArray.of(digest);
+
+        try {
+            StateSnapshot.Reader snapshot = snapshots.get(key);
+            if (snapshot == null) {
+                Path file = StateSnapshot.getFile(dir, digest);
+                if (digest.length != Hash.HASH_LEN || !Files.exists(file)) {
+                    return null;
+                }
+
+                if (snapshots.size() >= MAX_OPEN_SNAPSHOTS) {
+                    closeSnapshots();
+                }
+                snapshot = new StateSnapshot.Reader(file);
+                snapshots.put(key, snapshot);
+            }
+
+            if (index == GetStateSnapshotMessage.MANIFEST) {
+                return snapshot.getManifest().toBytes();
+            } else if (index >= 0 && index < snapshot.getManifest().getChunkCount()) {
+                return snapshot.getChunk(index);
+            } else {
+                return null;
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to read state snapshot {}", Hex.encode(digest), e);
+            return null;
+        }
+    }
+
+    private void closeSnapshots() {
+        for (StateSnapshot.Reader snapshot : snapshots.values()) {
+            try {
+                snapshot.close();
+            } catch (IOException e) {
+                logger.debug("Failed to close state snapshot", e);
+            }
+        }
+        snapshots.clear();
+    }
+}
@@ -6,6 +6,7 @@
  */
 package org.semux.consensus;
 
+import org.semux.crypto.Hex;
 import org.semux.crypto.Key;
 import org.semux.crypto.Key.Signature;
 import org.semux.util.Bytes;
@@ -27,6 +28,7 @@ public class Vote {
 
     private Signature signature;
     private Boolean validated;
+    private String signerAddress;
 
     public Vote(VoteType type, boolean value, long height, int view, byte[] blockHash) {
         this.type = type;
@@ -76,6 +78,7 @@ public class Vote {
     public Vote sign(Key key) {
         this.signature = key.sign(encoded);
         this.validated = null;
+        this.signerAddress = null;
         return this;
     }
 
@@ -104,6 +107,28 @@ public class Vote {
         return validated == null ? revalidate() : validated;
     }
 
+    /**
+     * Records the result of a validation done elsewhere, for instance on another
+     * copy of the same vote.
+     *
+     * @param validated
+     */
+    void setValidated(boolean validated) {
+        this.validated = validated;
+    }
+
+    /**
+     * Returns the hex-encoded address of the signer, which is computed once.
+     *
+     * @return the signer address, or null if the vote is not signed
+     */
+    public String getSignerAddress() {
+        if (signerAddress == null && signature != null) {
+            signerAddress = Hex.encode(signature.getAddress());
+        }
+        return signerAddress;
+    }
+
     public VoteType getType() {
         return type;
     }
@@ -9,14 +9,11 @@ package org.semux.consensus;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
 
-import org.semux.crypto.Hex;
-import org.semux.crypto.Key.Signature;
+import org.semux.core.ValidatorSet;
 import org.semux.util.ByteArray;
 
 /**
@@ -29,14 +26,14 @@ import org.semux.util.ByteArray;
  */
 public class VoteSet {
 
-    private final Map<ByteArray, Map<String, Vote>> approvals;
-    private final Map<String, Vote> rejections;
+    // votes are keyed by the public key of their signers
+    private final Map<ByteArray, Map<ByteArray, Vote>> approvals;
+    private final Map<ByteArray, Vote> rejections;
     private final VoteType type;
     private final long height;
     private final int view;
 
-    private final Set<String> validators;
-    private final int twoThirds;
+    private final ValidatorSet validators;
 
     /**
      * Create a vote set.
@@ -45,15 +42,25 @@ public class VoteSet {
      * @param view
      * @param validators
      */
-    public VoteSet(VoteType type, long height, int view, List<String> validators) {
+    public VoteSet(VoteType type, long height, int view, ValidatorSet validators) {
         this.approvals = new HashMap<>();
         this.rejections = new HashMap<>();
         this.type = type;
         this.height = height;
         this.view = view;
 
-        this.validators = new HashSet<>(validators);
-        this.twoThirds = (int) Math.ceil(validators.size() * 2.0 / 3.0);
+        this.validators = validators;
+    }
+
+    /**
+     * Create a vote set.
+     * 
+     * @param height
+     * @param view
+     * @param validators
+     */
+    public VoteSet(VoteType type, long height, int view, List<String> validators) {
+        this(type, height, view, new ValidatorSet(validators));
     }
 
     /**
@@ -65,23 +72,21 @@ public class VoteSet {
      * @return
      */
     public boolean addVote(Vote vote) {
-        Signature sig = vote.getSignature();
-
         if (vote.getType() == type &&
                 vote.getHeight() == height
                 && vote.getView() == view
                 && vote.getBlockHash() != null
+                && vote.getSignature() != null
                 && vote.validate()
-                && sig != null
-                && validators.contains(Hex.encode(sig.getAddress()))) {
-            String peerId = Hex.encode(sig.getAddress());
+                && validators.contains(vote.getSignature())) {
+            ByteArray signer = ByteArray.of(vote.getSignature().getA());
 
             if (vote.getValue() == Vote.VALUE_APPROVE) {
                 ByteArray key = ByteArray.of(vote.getBlockHash());
-                Map<String, Vote> map = approvals.computeIfAbsent(key, k -> new HashMap<>());
-                return map.put(peerId, vote) == null;
+                Map<ByteArray, Vote> map = approvals.computeIfAbsent(key, k -> new HashMap<>());
+                return map.put(signer, vote) == null;
             } else {
-                return rejections.put(peerId, vote) == null;
+                return rejections.put(signer, vote) == null;
             }
         }
 
@@ -109,7 +114,7 @@ public class VoteSet {
      * @return
      */
     public boolean isApproved(byte[] blockHash) {
-        Map<String, Vote> v = approvals.get(ByteArray.of(blockHash));
+        Map<ByteArray, Vote> v = approvals.get(ByteArray.of(blockHash));
         return v != null && v.size() >= getTwoThirds();
     }
 
@@ -128,8 +133,8 @@ public class VoteSet {
      * @return
      */
     public Optional<byte[]> anyApproved() {
-        for (Map.Entry<ByteArray, Map<String, Vote>> e : approvals.entrySet()) {
-            Map<String, Vote> v = e.getValue();
+        for (Map.Entry<ByteArray, Map<ByteArray, Vote>> e : approvals.entrySet()) {
+            Map<ByteArray, Vote> v = e.getValue();
             if (v.size() >= getTwoThirds()) {
                 return Optional.of(e.getKey().getData());
             }
@@ -152,7 +157,7 @@ public class VoteSet {
      * @return
      */
     public List<Vote> getApprovals(byte[] blockHash) {
-        Map<String, Vote> map = approvals.get(ByteArray.of(blockHash));
+        Map<ByteArray, Vote> map = approvals.get(ByteArray.of(blockHash));
         return map == null ? new ArrayList<>() : new ArrayList<>(map.values());
     }
 
@@ -171,7 +176,7 @@ public class VoteSet {
      * @return
      */
     public int getTwoThirds() {
-        return twoThirds;
+        return validators.getTwoThirds();
     }
 
     /**
@@ -186,7 +191,7 @@ public class VoteSet {
     @Override
     public String toString() {
         int count = 0;
-        for (Map<String, Vote> map : approvals.values()) {
+        for (Map<ByteArray, Vote> map : approvals.values()) {
             count = Math.max(count, map.size());
         }
         return "[" + count + ", " + rejections.size() + "]";
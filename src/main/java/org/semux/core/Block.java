@@ -59,7 +59,7 @@ public class Block {
     /**
      * Transaction indexes
      */
-    protected final List<Pair<Integer, Integer>> indexes = new ArrayList<>();
+    protected final List<Pair<Integer, Integer>> indexes;
 
     /**
      * Create a new block, with no BFT information.
@@ -91,6 +91,28 @@ public class Block {
      */
     public Block(BlockHeader header, List<Transaction> transactions, List<TransactionResult> results, int view,
             List<Signature> votes) {
+        this(header, transactions, results, view, votes, null, null, null);
+    }
+
+    /**
+     * Create a block from decoded parts, reusing the encodings they were decoded
+     * from. When the encodings are not given, they are computed.
+     *
+     * @param header
+     * @param transactions
+     * @param results
+     * @param view
+     * @param votes
+     * @param encodedTransactions
+     *            the serialized transactions, or null
+     * @param encodedResults
+     *            the serialized transaction results, or null
+     * @param indexes
+     *            the transaction indexes into the above, or null
+     */
+    private Block(BlockHeader header, List<Transaction> transactions, List<TransactionResult> results, int view,
+            List<Signature> votes, byte[] encodedTransactions, byte[] encodedResults,
+            List<Pair<Integer, Integer>> indexes) {
         this.header = header;
 
         this.transactions = transactions;
@@ -100,19 +122,37 @@ public class Block {
         this.votes = votes;
 
         this.encodedHeader = header.toBytes();
-        SimpleEncoder encTx = new SimpleEncoder();
-        SimpleEncoder encRe = new SimpleEncoder();
-        encTx.writeInt(transactions.size());
-        encRe.writeInt(results.size());
-        for (int i = 0; i < transactions.size(); i++) {
-            int idxTx = encTx.getWriteIndex();
-            int idxRe = encRe.getWriteIndex();
-            encTx.writeBytes(transactions.get(i).toBytes());
-            encRe.writeBytes(results.get(i).toBytes());
-            indexes.add(Pair.of(idxTx, idxRe));
+        if (encodedTransactions != null && encodedResults != null && indexes != null) {
+            this.encodedTransactions = encodedTransactions;
+            this.encodedResults = encodedResults;
+            this.indexes = indexes;
+        } else {
+            int sizeTx = 4;
+            int sizeRe = 4;
+            byte[][] bytesTx = new byte[transactions.size()][];
+            byte[][] bytesRe = new byte[transactions.size()][];
+            for (int i = 0; i < transactions.size(); i++) {
+                bytesTx[i] = transactions.get(i).toBytes();
+                bytesRe[i] = results.get(i).toBytes();
+                sizeTx += SimpleEncoder.sizeOfBytes(bytesTx[i].length);
+                sizeRe += SimpleEncoder.sizeOfBytes(bytesRe[i].length);
+            }
+
+            this.indexes = new ArrayList<>(transactions.size());
+            SimpleEncoder encTx = new SimpleEncoder(sizeTx);
+            SimpleEncoder encRe = new SimpleEncoder(sizeRe);
+            encTx.writeInt(transactions.size());
+            encRe.writeInt(results.size());
+            for (int i = 0; i < transactions.size(); i++) {
+                int idxTx = encTx.getWriteIndex();
+                int idxRe = encRe.getWriteIndex();
+                encTx.writeBytes(bytesTx[i]);
+                encRe.writeBytes(bytesRe[i]);
+                this.indexes.add(Pair.of(idxTx, idxRe));
+            }
+            this.encodedTransactions = encTx.toBytes();
+            this.encodedResults = encRe.toBytes();
         }
-        this.encodedTransactions = encTx.toBytes();
-        this.encodedResults = encRe.toBytes();
     }
 
     /**
@@ -395,7 +435,9 @@ public class Block {
     }
 
     /**
-     * Parses a block instance from bytes.
+     * Parses a block instance from bytes. The given encodings are retained by the
+     * block and its transactions, so that storing or relaying it later does not
+     * re-serialize anything.
      *
      * @param h
      *            Serialized header
@@ -411,18 +453,32 @@ public class Block {
         BlockHeader header = BlockHeader.fromBytes(h);
 
         SimpleDecoder dec = new SimpleDecoder(t);
-        List<Transaction> transactions = new ArrayList<>();
         int n = dec.readInt();
+        List<Transaction> transactions = new ArrayList<>(n);
+        int[] idxTx = new int[n];
         for (int i = 0; i < n; i++) {
+            idxTx[i] = dec.getReadIndex();
             transactions.add(Transaction.fromBytes(dec.readBytes()));
         }
+        boolean exact = dec.getReadIndex() == t.length;
 
         dec = new SimpleDecoder(r);
-        List<TransactionResult> results = new ArrayList<>();
         n = dec.readInt();
+        List<TransactionResult> results = new ArrayList<>(n);
+        int[] idxRe = new int[n];
         for (int i = 0; i < n; i++) {
+            idxRe[i] = dec.getReadIndex();
             results.add(TransactionResult.fromBytes(dec.readBytes()));
         }
+        exact &= dec.getReadIndex() == r.length && results.size() == transactions.size();
+
+        List<Pair<Integer, Integer>> indexes = null;
+        if (exact) {
+            indexes = new ArrayList<>(idxTx.length);
+            for (int i = 0; i < idxTx.length; i++) {
+                indexes.add(Pair.of(idxTx[i], idxRe[i]));
+            }
+        }
 
         int view = 0;
         List<Signature> votes = new ArrayList<>();
@@ -436,7 +492,8 @@ public class Block {
             }
         }
 
-        return new Block(header, transactions, results, view, votes);
+        return exact ? new Block(header, transactions, results, view, votes, t, r, indexes)
+                : new Block(header, transactions, results, view, votes);
     }
 
     public static Block fromBytes(byte[] h, byte[] t, byte[] r) {
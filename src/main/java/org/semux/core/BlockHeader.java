@@ -39,6 +39,12 @@ public class BlockHeader {
 
     private final byte[] encoded;
 
+    /**
+     * Wire encoding (hash and encoded fields), computed on first use or retained
+     * from decoding.
+     */
+    private byte[] bytes;
+
     /**
      * Creates an instance of block header.
      *
@@ -156,10 +162,14 @@ public class BlockHeader {
     }
 
     public byte[] toBytes() {
-        SimpleEncoder enc = new SimpleEncoder();
-        enc.writeBytes(hash);
-        enc.writeBytes(encoded);
-        return enc.toBytes();
+        if (bytes == null) {
+            SimpleEncoder enc = new SimpleEncoder(
+                    SimpleEncoder.sizeOfBytes(hash.length) + SimpleEncoder.sizeOfBytes(encoded.length));
+            enc.writeBytes(hash);
+            enc.writeBytes(encoded);
+            bytes = enc.toBytes();
+        }
+        return bytes;
     }
 
     public static BlockHeader fromBytes(byte[] bytes) {
@@ -167,7 +177,11 @@ public class BlockHeader {
         byte[] hash = dec.readBytes();
         byte[] encoded = dec.readBytes();
 
-        return new BlockHeader(hash, encoded);
+        BlockHeader header = new BlockHeader(hash, encoded);
+        if (dec.getReadIndex() == bytes.length) {
+            header.bytes = bytes;
+        }
+        return header;
     }
 
     @Override
@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock.ReadLock;
+
+import org.semux.Kernel;
+import org.semux.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Catches up the transaction index of the accounts from the block database, in
+ * the background, when it's built lazily or has been turned off for a while,
+ * see {@link Config#blockchainAccountIndex()}.
+ * <p>
+ * Blocks are indexed in small batches, each holding the blockchain for a short
+ * time only, so that block processing is never held back for long.
+ */
+public class BlockIndexer {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlockIndexer.class);
+
+    private static final ThreadFactory factory = new ThreadFactory() {
+        private final AtomicInteger cnt = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            return new Thread(r, "indexer-" + cnt.getAndIncrement());
+        }
+    };
+
+    private static final long INDEX_INTERVAL = 10L; // 10 seconds
+    private static final int BATCH_SIZE = 100;
+    private static final long BATCH_DELAY = 10L; // 10 milliseconds
+
+    private final Kernel kernel;
+    private final Config config;
+    private final Blockchain chain;
+
+    private final ScheduledExecutorService exec;
+    private ScheduledFuture<?> indexFuture;
+
+    private volatile boolean isRunning;
+
+    public BlockIndexer(Kernel kernel) {
+        this.kernel = kernel;
+        this.config = kernel.getConfig();
+        this.chain = kernel.getBlockchain();
+
+        this.exec = Executors.newSingleThreadScheduledExecutor(factory);
+    }
+
+    /**
+     * Starts indexing, unless the index is turned off.
+     */
+    public synchronized void start() {
+        if (!isRunning && config.blockchainAccountIndex() != IndexMode.OFF) {
+            indexFuture = exec.scheduleWithFixedDelay(this::index, 0, INDEX_INTERVAL, TimeUnit.SECONDS);
+
+            isRunning = true;
+            logger.info("Block indexer started");
+        }
+    }
+
+    /**
+     * Stops indexing. The batch being indexed, if any, is completed before the
+     * databases are closed, as it holds the state read lock.
+     */
+    public synchronized void stop() {
+        if (isRunning) {
+            isRunning = false;
+            indexFuture.cancel(false);
+
+            logger.info("Block indexer stopped");
+        }
+    }
+
+    /**
+     * Returns whether the indexer is running.
+     *
+     * @return
+     */
+    public boolean isRunning() {
+        return isRunning;
+    }
+
+    /**
+     * Indexes all the blocks which the index is missing.
+     */
+    protected void index() {
+        long t1 = System.currentTimeMillis();
+        long count = 0;
+
+        while (isRunning) {
+            int n;
+            ReadLock lock = kernel.getStateLock().readLock();
+            lock.lock();
+            try {
+                // the databases may have been closed in the meantime
+                if (!isRunning) {
+                    return;
+                }
+                n = chain.indexBlocks(BATCH_SIZE);
+            } catch (RuntimeException e) {
+                logger.error("Failed to index blocks", e);
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            if (n == 0) {
+                break;
+            }
+            count += n;
+
+            try {
+                Thread.sleep(BATCH_DELAY);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        if (count > 0) {
+            long t2 = System.currentTimeMillis();
+            logger.info("Indexed blocks: # = {}, time = {} ms", count, t2 - t1);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock.ReadLock;
+
+import org.semux.Kernel;
+import org.semux.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Prunes the transactions, results and votes of the blocks older than
+ * {@link Config#blockchainKeepBlocks()}, in the background.
+ * <p>
+ * Blocks are deleted in small batches of consecutive keys, which LevelDB
+ * compacts away cheaply, with a pause between batches so that block processing
+ * is never held back for long.
+ */
+public class BlockPruner {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlockPruner.class);
+
+    private static final ThreadFactory factory = new ThreadFactory() {
+        private final AtomicInteger cnt = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            return new Thread(r, "pruner-" + cnt.getAndIncrement());
+        }
+    };
+
+    private static final long PRUNE_INTERVAL = 60L; // 1 minute
+    private static final int BATCH_SIZE = 1000;
+    private static final long BATCH_DELAY = 100L; // 100 milliseconds
+
+    private final Kernel kernel;
+    private final Config config;
+    private final Blockchain chain;
+
+    private final ScheduledExecutorService exec;
+    private ScheduledFuture<?> pruneFuture;
+
+    private volatile boolean isRunning;
+
+    public BlockPruner(Kernel kernel) {
+        this.kernel = kernel;
+        this.config = kernel.getConfig();
+        this.chain = kernel.getBlockchain();
+
+        this.exec = Executors.newSingleThreadScheduledExecutor(factory);
+    }
+
+    /**
+     * Starts pruning, if enabled.
+     */
+    public synchronized void start() {
+        if (!isRunning && config.blockchainKeepBlocks() > 0) {
+            pruneFuture = exec.scheduleWithFixedDelay(this::prune, PRUNE_INTERVAL, PRUNE_INTERVAL, TimeUnit.SECONDS);
+
+            isRunning = true;
+            logger.info("Block pruner started, keeping the latest {} blocks", config.blockchainKeepBlocks());
+        }
+    }
+
+    /**
+     * Stops pruning. The batch being deleted, if any, is completed before the
+     * databases are closed, as it holds the state read lock.
+     */
+    public synchronized void stop() {
+        if (isRunning) {
+            isRunning = false;
+            pruneFuture.cancel(false);
+
+            logger.info("Block pruner stopped");
+        }
+    }
+
+    /**
+     * Returns whether the pruner is running.
+     *
+     * @return
+     */
+    public boolean isRunning() {
+        return isRunning;
+    }
+
+    /**
+     * Prunes all the blocks out of the retained range.
+     */
+    protected void prune() {
+        long target = chain.getLatestBlockNumber() - config.blockchainKeepBlocks() + 1;
+        long begin = Math.max(chain.getEarliestBlockNumber(), 1);
+
+        long from;
+        while (isRunning && (from = Math.max(chain.getEarliestBlockNumber(), 1)) < target) {
+            ReadLock lock = kernel.getStateLock().readLock();
+            lock.lock();
+            try {
+                // the databases may have been closed in the meantime
+                if (!isRunning) {
+                    return;
+                }
+                chain.pruneBlocks(Math.min(from + BATCH_SIZE, target));
+            } catch (RuntimeException e) {
+                logger.error("Failed to prune blocks", e);
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                Thread.sleep(BATCH_DELAY);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        long end = Math.max(chain.getEarliestBlockNumber(), 1);
+        if (end > begin) {
+            logger.info("Pruned blocks: [{}, {})", begin, end);
+        }
+    }
+}
@@ -6,6 +6,8 @@
  */
 package org.semux.core;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 
@@ -56,7 +58,7 @@ public interface Blockchain {
      * Returns block by number.
      * 
      * @param number
-     * @return
+     * @return the block, or null if it doesn't exist or has been pruned
      */
     Block getBlock(long number);
 
@@ -184,6 +186,14 @@ public interface Blockchain {
      */
     List<String> getValidators();
 
+    /**
+     * Returns the validator set based on current state, which is shared until the
+     * next update of the validators.
+     *
+     * @return
+     */
+    ValidatorSet getValidatorSet();
+
     /**
      * Returns the statistics of a validator.
      * 
@@ -206,6 +216,92 @@ public interface Blockchain {
      */
     void addListener(BlockchainListener listener);
 
+    /**
+     * Unregister a blockchain listener.
+     *
+     * @param listener
+     */
+    void removeListener(BlockchainListener listener);
+
+    /**
+     * Returns a consistent, read-only view of the blockchain and its state as of
+     * the latest block, which is not affected by the blocks imported afterwards.
+     * Reading it doesn't require the state lock, nor does it block the import of
+     * new blocks.
+     * <p>
+     * NOTE: be sure to close the snapshot after use.
+     *
+     * @return
+     */
+    BlockchainSnapshot getSnapshot();
+
+    /**
+     * Returns the root hash of the account and delegate state as of the latest
+     * block, see {@link org.semux.core.state.StateTrie}. It's computed locally,
+     * and not part of the block headers.
+     *
+     * @return
+     */
+    byte[] getStateRoot();
+
+    /**
+     * Exports the state as of the latest block into a snapshot file, see
+     * {@link StateSnapshot}.
+     *
+     * @param file
+     * @return the manifest of the snapshot
+     * @throws IOException
+     */
+    StateSnapshot.Manifest exportState(Path file) throws IOException;
+
+    /**
+     * Imports a state snapshot into an empty blockchain, i.e. with the genesis
+     * block only. The blocks after the snapshot can then be added as usual, while
+     * the blocks before are missing.
+     *
+     * @param snapshot
+     * @throws IOException
+     *             if the snapshot file is corrupted
+     */
+    void importState(StateSnapshot.Reader snapshot) throws IOException;
+
+    /**
+     * Returns the number of the earliest block whose transactions, results and
+     * votes are kept. The blocks before it, except the genesis, have been pruned
+     * or were never synced, see {@link #pruneBlocks(long)}.
+     *
+     * @return
+     */
+    long getEarliestBlockNumber();
+
+    /**
+     * Deletes the transactions, results and votes of the blocks before the given
+     * number, along with their coinbase transactions. The headers and the
+     * transaction hash index are kept, so that new blocks are still fully
+     * validated. The genesis and the latest block are never pruned.
+     *
+     * @param number
+     *            the earliest block to keep
+     */
+    void pruneBlocks(long number);
+
+    /**
+     * Adds up to the given number of blocks to the transaction index of the
+     * accounts, when it's behind the blockchain, see
+     * {@link org.semux.config.Config#blockchainAccountIndex()}.
+     *
+     * @param max
+     *            the max number of blocks to index
+     * @return the number of blocks indexed, or 0 if the index is up to date
+     */
+    int indexBlocks(int max);
+
+    /**
+     * Saves the in-memory indexes, so that they don't need to be rebuilt on the
+     * next start. Should be called before the databases are closed.
+     */
+    void flush();
+
     /**
      * Checks whether a fork is activated at a certain blockchain height.
      *
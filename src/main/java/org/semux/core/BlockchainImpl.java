@@ -9,14 +9,21 @@ package org.semux.core;
 import static org.semux.consensus.ValidatorActivatedFork.UNIFORM_DISTRIBUTION;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
@@ -31,15 +38,23 @@ import org.semux.core.state.AccountStateImpl;
 import org.semux.core.state.Delegate;
 import org.semux.core.state.DelegateState;
 import org.semux.core.state.DelegateStateImpl;
+import org.semux.core.state.StateTrie;
+import org.semux.crypto.Hash;
 import org.semux.crypto.Hex;
+import org.semux.db.BufferedDatabase;
 import org.semux.db.Database;
 import org.semux.db.DatabaseFactory;
 import org.semux.db.DatabaseName;
 import org.semux.db.LeveldbDatabase;
 import org.semux.db.Migration;
-import org.semux.event.PubSub;
+import org.semux.db.exception.DatabaseException;
+import org.semux.event.PubSubEvent;
 import org.semux.event.PubSubFactory;
+import org.semux.util.BloomFilter;
 import org.semux.util.Bytes;
+import org.semux.util.ClosableIterator;
+import org.semux.util.FileUtil;
+import org.semux.util.MerkleUtil;
 import org.semux.util.SimpleDecoder;
 import org.semux.util.SimpleEncoder;
 import org.slf4j.Logger;
@@ -62,6 +77,8 @@ import com.github.benmanes.caffeine.cache.Caffeine;
  * [4, transaction_hash] => [block_number, from, to] | [coinbase_transaction]
  * [5, address, n] => [transaction_hash]
  * [7] => [activated forks]
+ * [8] => [earliest_block_number]
+ * [9] => [next_account_index_block_number]
  *
  * [0xff] => [database version]
  * </pre>
@@ -90,6 +107,8 @@ public class BlockchainImpl implements Blockchain {
     protected static final byte TYPE_ACCOUNT_TRANSACTION = 0x05;
     protected static final byte TYPE_ACTIVATED_FORKS = 0x06;
     protected static final byte TYPE_COINBASE_TRANSACTION_HASH = 0x07;
+    protected static final byte TYPE_EARLIEST_BLOCK_NUMBER = 0x08;
+    protected static final byte TYPE_ACCOUNT_INDEX_NUMBER = 0x09;
     protected static final byte TYPE_DATABASE_VERSION = (byte) 0xff;
 
     protected static final byte TYPE_BLOCK_HEADER = 0x00;
@@ -97,22 +116,66 @@ public class BlockchainImpl implements Blockchain {
     protected static final byte TYPE_BLOCK_RESULTS = 0x02;
     protected static final byte TYPE_BLOCK_VOTES = 0x03;
 
+    /**
+     * Min number of transactions the transaction filter is sized for.
+     */
+    private static final long TRANSACTION_FILTER_MIN_CAPACITY = 1L << 20;
+    private static final double TRANSACTION_FILTER_FALSE_POSITIVE_RATE = 0.01;
+    private static final String TRANSACTION_FILTER_FILE = "transactions.filter";
+
     protected enum StatsType {
         FORGED, HIT, MISSED
     }
 
     private final Config config;
 
+    private DatabaseFactory dbFactory;
     private Database indexDB;
     private Database blockDB;
 
+    /**
+     * Filter of all the transaction hashes in the index, which answers most
+     * {@link #hasTransaction(byte[])} calls without a database lookup.
+     */
+    private volatile BloomFilter transactionFilter;
+    private long transactionFilterCapacity;
+    private Path transactionFilterFile;
+
+    /**
+     * The hashes added to the transaction filter while a larger one is built in
+     * the background, or null if none is.
+     */
+    private List<byte[]> transactionFilterBacklog;
+
     private AccountState accountState;
     private DelegateState delegateState;
 
+    /**
+     * Authenticated structure over the account and delegate state.
+     */
+    private StateTrie stateTrie;
+
     private Genesis genesis;
     private Block latestBlock;
+    private volatile long earliestBlockNumber;
 
-    private final List<BlockchainListener> listeners = new ArrayList<>();
+    /**
+     * The current validators, decoded once per update.
+     */
+    private volatile ValidatorSet validatorSet;
+
+    /**
+     * The next block to add to the transaction index of the accounts, or -1 if
+     * the index is maintained along with every block.
+     */
+    private long accountIndexNumber = -1;
+
+    private final List<BlockchainListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Snapshot of the databases at the latest block, shared by all readers.
+     */
+    private final AtomicReference<SnapshotHolder> latestSnapshot = new AtomicReference<>();
 
     /**
      * Activated forks at current height.
@@ -138,28 +201,67 @@ public class BlockchainImpl implements Blockchain {
     public BlockchainImpl(Config config, DatabaseFactory dbFactory) {
         this.config = config;
         openDb(dbFactory);
+        updateSnapshot();
+    }
+
+    /**
+     * Creates a read-only view of a blockchain, based on a snapshot.
+     *
+     * @param chain
+     * @param snapshot
+     */
+    private BlockchainImpl(BlockchainImpl chain, SnapshotHolder snapshot) {
+        this.config = chain.config;
+
+        this.indexDB = snapshot.databases.get(DatabaseName.INDEX);
+        this.blockDB = snapshot.databases.get(DatabaseName.BLOCK);
+
+        this.accountState = new AccountStateImpl(snapshot.databases.get(DatabaseName.ACCOUNT));
+        this.delegateState = new DelegateStateImpl(this, snapshot.databases.get(DatabaseName.DELEGATE),
+                snapshot.databases.get(DatabaseName.VOTE));
+
+        this.genesis = chain.genesis;
+        // the filter may also contain later transactions, which is fine for a filter
+        this.transactionFilter = chain.transactionFilter;
+        this.latestBlock = snapshot.latestBlock;
+        this.earliestBlockNumber = chain.earliestBlockNumber;
+        this.validatorSet = snapshot.validatorSet;
+        this.activatedForks = new ConcurrentHashMap<>(snapshot.activatedForks);
     }
 
     private synchronized void openDb(DatabaseFactory factory) {
+        this.dbFactory = factory;
         this.indexDB = factory.getDB(DatabaseName.INDEX);
         this.blockDB = factory.getDB(DatabaseName.BLOCK);
 
-        this.accountState = new AccountStateImpl(factory.getDB(DatabaseName.ACCOUNT));
+        this.stateTrie = new StateTrie(factory.getDB(DatabaseName.TRIE));
+        this.accountState = new AccountStateImpl(factory.getDB(DatabaseName.ACCOUNT), stateTrie);
         this.delegateState = new DelegateStateImpl(this, factory.getDB(DatabaseName.DELEGATE),
-                factory.getDB(DatabaseName.VOTE));
+                factory.getDB(DatabaseName.VOTE), stateTrie);
 
         this.genesis = Genesis.load(config.network());
+        this.transactionFilterFile = factory.getDataDir().resolve(TRANSACTION_FILTER_FILE);
 
         // checks if the database needs to be initialized
         byte[] number = indexDB.get(Bytes.of(TYPE_LATEST_BLOCK_NUMBER));
 
         if (number == null || number.length == 0) {
+            transactionFilter = BloomFilter.create(TRANSACTION_FILTER_MIN_CAPACITY,
+                    TRANSACTION_FILTER_FALSE_POSITIVE_RATE);
+            transactionFilterCapacity = TRANSACTION_FILTER_MIN_CAPACITY;
+            if (config.blockchainAccountIndex() != IndexMode.ON) {
+                setAccountIndexNumber(genesis.getNumber());
+            }
+            stateTrie.clear();
             initializeDb();
             return;
         }
 
         // load version 0 index
         latestBlock = getBlock(Bytes.toLong(number));
+        byte[] earliest = indexDB.get(Bytes.of(TYPE_EARLIEST_BLOCK_NUMBER));
+        earliestBlockNumber = (earliest == null) ? 0 : Bytes.toLong(earliest);
+        validatorSet = new ValidatorSet(loadValidators());
 
         // checks if the database needs to be upgraded
         if (getDatabaseVersion() == 0) {
@@ -169,6 +271,168 @@ public class BlockchainImpl implements Blockchain {
 
         // load version 1 index
         activatedForks = getActivatedForks();
+
+        byte[] next = indexDB.get(Bytes.of(TYPE_ACCOUNT_INDEX_NUMBER));
+        if (next != null) {
+            accountIndexNumber = Bytes.toLong(next);
+        } else if (config.blockchainAccountIndex() != IndexMode.ON) {
+            setAccountIndexNumber(latestBlock.getNumber() + 1);
+        }
+
+        loadStateTrie();
+        loadTransactionFilter();
+    }
+
+    /**
+     * Loads the state trie saved along with the latest block, or rebuilds it from
+     * the state if the saved one is missing or outdated.
+     */
+    private void loadStateTrie() {
+        if (stateTrie.getNumber() == latestBlock.getNumber()) {
+            logger.info("Loaded state trie: # entries = {}", stateTrie.size());
+            return;
+        }
+
+        long t1 = System.currentTimeMillis();
+        stateTrie.rebuild(dbFactory.getDB(DatabaseName.ACCOUNT), dbFactory.getDB(DatabaseName.DELEGATE),
+                dbFactory.getDB(DatabaseName.VOTE), latestBlock.getNumber());
+        long t2 = System.currentTimeMillis();
+        logger.info("Rebuilt state trie: # entries = {}, time = {} ms", stateTrie.size(), t2 - t1);
+    }
+
+    /**
+     * Loads the transaction filter saved by {@link #flush()}, or rebuilds it from
+     * the index if the saved one is missing, outdated or too full.
+     */
+    private void loadTransactionFilter() {
+        if (Files.exists(transactionFilterFile)) {
+            try {
+                SimpleDecoder dec = new SimpleDecoder(Files.readAllBytes(transactionFilterFile));
+                long number = dec.readLong();
+                long capacity = dec.readLong();
+                byte[] filter = dec.readBytes();
+                byte[] checksum = dec.readBytes();
+
+                // the saved filter is only valid until the next block
+                Files.delete(transactionFilterFile);
+
+                if (number == latestBlock.getNumber() && Arrays.equals(Hash.h256(filter), checksum)) {
+                    BloomFilter f = BloomFilter.fromBytes(filter);
+                    if (f.size() <= capacity / 2) {
+                        transactionFilter = f;
+                        transactionFilterCapacity = capacity;
+                        logger.info("Loaded transaction filter: # txs = {}", f.size());
+                        return;
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Failed to load the transaction filter", e);
+            }
+        }
+
+        long t1 = System.currentTimeMillis();
+        long capacity = TRANSACTION_FILTER_MIN_CAPACITY;
+        BloomFilter f;
+        while ((f = buildTransactionFilter(indexDB, capacity)) == null) {
+            capacity *= 4;
+        }
+        transactionFilter = f;
+        transactionFilterCapacity = capacity;
+        long t2 = System.currentTimeMillis();
+        logger.info("Rebuilt transaction filter: # txs = {}, time = {} ms", f.size(), t2 - t1);
+    }
+
+    /**
+     * Builds a filter of all the transaction hashes in the index.
+     *
+     * @param indexDB
+     *            the index, or a snapshot of it
+     * @param capacity
+     *            the number of transactions to size the filter for
+     * @return the filter, or null if the index holds more than half the capacity
+     */
+    private static BloomFilter buildTransactionFilter(Database indexDB, long capacity) {
+        BloomFilter f = BloomFilter.create(capacity, TRANSACTION_FILTER_FALSE_POSITIVE_RATE);
+        ClosableIterator<Entry<byte[], byte[]>> itr = indexDB.iterator(Bytes.of(TYPE_TRANSACTION_HASH));
+        try {
+            while (itr.hasNext()) {
+                byte[] key = itr.next().getKey();
+                if (key[0] != TYPE_TRANSACTION_HASH) {
+                    break;
+                }
+                f.put(Arrays.copyOfRange(key, 1, key.length));
+
+                // leave room for new transactions
+                if (f.size() > capacity / 2) {
+                    return null;
+                }
+            }
+        } finally {
+            itr.close();
+        }
+        return f;
+    }
+
+    /**
+     * Adds a transaction hash to the filter, and to the one being built if any.
+     *
+     * @param hash
+     */
+    private void putTransactionFilter(byte[] hash) {
+        transactionFilter.put(hash);
+        if (transactionFilterBacklog != null) {
+            transactionFilterBacklog.add(hash);
+        }
+    }
+
+    /**
+     * Starts building a filter 4 times larger in the background, once the
+     * current one holds more than half its capacity. Must be called when the
+     * index is consistent with the filter, i.e. after a block is indexed.
+     */
+    protected void growTransactionFilter() {
+        if (transactionFilterBacklog != null || transactionFilter.size() <= transactionFilterCapacity / 2) {
+            return;
+        }
+
+        List<byte[]> backlog = new ArrayList<>();
+        Database snapshot = indexDB.snapshot();
+        long minCapacity = transactionFilterCapacity * 4;
+        transactionFilterBacklog = backlog;
+
+        Thread t = new Thread(() -> {
+            try {
+                long t1 = System.currentTimeMillis();
+                long capacity = minCapacity;
+                BloomFilter f;
+                while ((f = buildTransactionFilter(snapshot, capacity)) == null) {
+                    capacity *= 4;
+                }
+
+                synchronized (this) {
+                    // unless the filter has been reset meanwhile
+                    if (transactionFilterBacklog == backlog) {
+                        backlog.forEach(f::put);
+                        transactionFilter = f;
+                        transactionFilterCapacity = capacity;
+                        transactionFilterBacklog = null;
+                    }
+                }
+                long t2 = System.currentTimeMillis();
+                logger.info("Grew transaction filter: # txs = {}, time = {} ms", f.size(), t2 - t1);
+            } catch (RuntimeException e) {
+                logger.warn("Failed to grow the transaction filter", e);
+                synchronized (this) {
+                    if (transactionFilterBacklog == backlog) {
+                        transactionFilterBacklog = null;
+                    }
+                }
+            } finally {
+                snapshot.close();
+            }
+        }, "transaction-filter");
+        t.setDaemon(true);
+        t.start();
     }
 
     private void initializeDb() {
@@ -201,7 +465,7 @@ public class BlockchainImpl implements Blockchain {
      */
     private void upgradeDb0(DatabaseFactory dbFactory) {
         // run the migration
-        new MigrationBlockDbVersion001().migrate(config, dbFactory);
+        new MigrationBlockDbVersion001(dbFactory).migrate();
 
         // reload this blockchain database
         openDb(dbFactory);
@@ -240,12 +504,14 @@ public class BlockchainImpl implements Blockchain {
 
     @Override
     public Block getBlock(long number) {
-        byte[] header = blockDB.get(Bytes.merge(TYPE_BLOCK_HEADER, Bytes.of(number)));
-        byte[] transactions = blockDB.get(Bytes.merge(TYPE_BLOCK_TRANSACTIONS, Bytes.of(number)));
-        byte[] results = blockDB.get(Bytes.merge(TYPE_BLOCK_RESULTS, Bytes.of(number)));
-        byte[] votes = blockDB.get(Bytes.merge(TYPE_BLOCK_VOTES, Bytes.of(number)));
-
-        return (header == null) ? null : Block.fromBytes(header, transactions, results, votes);
+        byte[] header = blockDB.get(Bytes.merge(TYPE_BLOCK_HEADER, number));
+        byte[] transactions = blockDB.get(Bytes.merge(TYPE_BLOCK_TRANSACTIONS, number));
+        byte[] results = blockDB.get(Bytes.merge(TYPE_BLOCK_RESULTS, number));
+        byte[] votes = blockDB.get(Bytes.merge(TYPE_BLOCK_VOTES, number));
+
+        // the body is missing if the block has been pruned
+        return (header == null || transactions == null || results == null) ? null
+                : Block.fromBytes(header, transactions, results, votes);
     }
 
     @Override
@@ -256,7 +522,7 @@ public class BlockchainImpl implements Blockchain {
 
     @Override
     public BlockHeader getBlockHeader(long number) {
-        byte[] header = blockDB.get(Bytes.merge(TYPE_BLOCK_HEADER, Bytes.of(number)));
+        byte[] header = blockDB.get(Bytes.merge(TYPE_BLOCK_HEADER, number));
         return (header == null) ? null : BlockHeader.fromBytes(header);
     }
 
@@ -268,7 +534,7 @@ public class BlockchainImpl implements Blockchain {
 
     @Override
     public boolean hasBlock(long number) {
-        return blockDB.get(Bytes.merge(TYPE_BLOCK_HEADER, Bytes.of(number))) != null;
+        return blockDB.get(Bytes.merge(TYPE_BLOCK_HEADER, number)) != null;
     }
 
     @Override
@@ -285,7 +551,10 @@ public class BlockchainImpl implements Blockchain {
             int start = dec.readInt();
             dec.readInt();
 
-            byte[] transactions = blockDB.get(Bytes.merge(TYPE_BLOCK_TRANSACTIONS, Bytes.of(number)));
+            byte[] transactions = blockDB.get(Bytes.merge(TYPE_BLOCK_TRANSACTIONS, number));
+            if (transactions == null) {
+                return null; // pruned
+            }
             dec = new SimpleDecoder(transactions, start);
             return Transaction.fromBytes(dec.readBytes());
         }
@@ -295,13 +564,17 @@ public class BlockchainImpl implements Blockchain {
 
     @Override
     public Transaction getCoinbaseTransaction(long blockNumber) {
-        return blockNumber == 0
+        byte[] hash = blockNumber == 0
                 ? null
-                : getTransaction(indexDB.get(Bytes.merge(TYPE_COINBASE_TRANSACTION_HASH, Bytes.of(blockNumber))));
+                : indexDB.get(Bytes.merge(TYPE_COINBASE_TRANSACTION_HASH, blockNumber));
+        return (hash == null) ? null : getTransaction(hash);
     }
 
     @Override
     public boolean hasTransaction(final byte[] hash) {
+        if (hash.length >= BloomFilter.MIN_KEY_LENGTH && !transactionFilter.mightContain(hash)) {
+            return false;
+        }
         return indexDB.get(Bytes.merge(TYPE_TRANSACTION_HASH, hash)) != null;
     }
 
@@ -319,7 +592,10 @@ public class BlockchainImpl implements Blockchain {
             dec.readInt();
             int start = dec.readInt();
 
-            byte[] results = blockDB.get(Bytes.merge(TYPE_BLOCK_RESULTS, Bytes.of(number)));
+            byte[] results = blockDB.get(Bytes.merge(TYPE_BLOCK_RESULTS, number));
+            if (results == null) {
+                return null; // pruned
+            }
             dec = new SimpleDecoder(results, start);
             return TransactionResult.fromBytes(dec.readBytes());
         }
@@ -330,7 +606,7 @@ public class BlockchainImpl implements Blockchain {
     @Override
     public long getTransactionBlockNumber(byte[] hash) {
         Transaction tx = getTransaction(hash);
-        if (tx.getType() == TransactionType.COINBASE) {
+        if (tx != null && tx.getType() == TransactionType.COINBASE) {
             return tx.getNonce();
         }
 
@@ -355,38 +631,86 @@ public class BlockchainImpl implements Blockchain {
         }
 
         // [1] update block
-        blockDB.put(Bytes.merge(TYPE_BLOCK_HEADER, Bytes.of(number)), block.toBytesHeader());
-        blockDB.put(Bytes.merge(TYPE_BLOCK_TRANSACTIONS, Bytes.of(number)), block.toBytesTransactions());
-        blockDB.put(Bytes.merge(TYPE_BLOCK_RESULTS, Bytes.of(number)), block.toBytesResults());
-        blockDB.put(Bytes.merge(TYPE_BLOCK_VOTES, Bytes.of(number)), block.toBytesVotes());
+        blockDB.updateBatch(Arrays.asList(
+                Pair.of(Bytes.merge(TYPE_BLOCK_HEADER, number), block.toBytesHeader()),
+                Pair.of(Bytes.merge(TYPE_BLOCK_TRANSACTIONS, number), block.toBytesTransactions()),
+                Pair.of(Bytes.merge(TYPE_BLOCK_RESULTS, number), block.toBytesResults()),
+                Pair.of(Bytes.merge(TYPE_BLOCK_VOTES, number), block.toBytesVotes())));
 
         indexDB.put(Bytes.merge(TYPE_BLOCK_HASH, hash), Bytes.of(number));
 
         // [2] update transaction indices
         List<Transaction> txs = block.getTransactions();
         List<Pair<Integer, Integer>> txIndices = block.getTransactionIndices();
-        Amount reward = config.getBlockReward(number);
 
         for (int i = 0; i < txs.size(); i++) {
             Transaction tx = txs.get(i);
-            reward = Amount.sum(reward, tx.getFee());
 
             SimpleEncoder enc = new SimpleEncoder();
             enc.writeLong(number);
             enc.writeInt(txIndices.get(i).getLeft());
             enc.writeInt(txIndices.get(i).getRight());
 
+            // the filter is updated first, so it never misses an indexed transaction
+            putTransactionFilter(tx.getHash());
             indexDB.put(Bytes.merge(TYPE_TRANSACTION_HASH, tx.getHash()), enc.toBytes());
+        }
+
+        // [3] update transaction_by_account index, unless it's behind
+        if (accountIndexNumber < 0) {
+            indexAccountTransactions(block);
+        }
+        growTransactionFilter();
+
+        if (number != genesis.getNumber() && config.blockchainValidatorStats()) {
+            // [4] update validator statistics
+            String primary = validatorSet.getPrimary(config, number, 0,
+                    activatedForks.containsKey(UNIFORM_DISTRIBUTION));
+            adjustValidatorStats(block.getCoinbase(), StatsType.FORGED, 1);
+            if (primary.equals(Hex.encode(block.getCoinbase()))) {
+                adjustValidatorStats(Hex.decode0x(primary), StatsType.HIT, 1);
+            } else {
+                adjustValidatorStats(Hex.decode0x(primary), StatsType.MISSED, 1);
+            }
+        }
+
+        // [5] update validator set
+        if (number % config.getValidatorUpdateInterval() == 0) {
+            updateValidators(block.getNumber());
+        }
+
+        // [6] update latest_block, after saving the state trie of the block
+        stateTrie.flush(number);
+        latestBlock = block;
+        indexDB.put(Bytes.of(TYPE_LATEST_BLOCK_NUMBER), Bytes.of(number));
+
+        // [7] expose the new block to readers, together with the state committed
+        // before it
+        updateSnapshot();
+
+        for (BlockchainListener listener : listeners) {
+            listener.onBlockAdded(block);
+        }
+    }
+
+    /**
+     * Adds the transactions of a block, and its coinbase transaction, to the
+     * transaction index of the accounts.
+     *
+     * @param block
+     */
+    private void indexAccountTransactions(Block block) {
+        Amount reward = config.getBlockReward(block.getNumber());
+        for (Transaction tx : block.getTransactions()) {
+            reward = Amount.sum(reward, tx.getFee());
 
-            // [3] update transaction_by_account index
             addTransactionToAccount(tx, tx.getFrom());
             if (!Arrays.equals(tx.getFrom(), tx.getTo())) {
                 addTransactionToAccount(tx, tx.getTo());
             }
         }
 
-        if (number != genesis.getNumber()) {
-            // [4] coinbase transaction
+        if (block.getNumber() != genesis.getNumber()) {
             Transaction tx = new Transaction(config.network(),
                     TransactionType.COINBASE,
                     block.getCoinbase(),
@@ -396,34 +720,43 @@ public class BlockchainImpl implements Blockchain {
                     block.getTimestamp(),
                     Bytes.EMPTY_BYTES);
             tx.sign(Constants.COINBASE_KEY);
+            putTransactionFilter(tx.getHash());
             indexDB.put(Bytes.merge(TYPE_TRANSACTION_HASH, tx.getHash()), tx.toBytes());
-            indexDB.put(Bytes.merge(TYPE_COINBASE_TRANSACTION_HASH, Bytes.of(block.getNumber())), tx.getHash());
+            indexDB.put(Bytes.merge(TYPE_COINBASE_TRANSACTION_HASH, block.getNumber()), tx.getHash());
             addTransactionToAccount(tx, block.getCoinbase());
+        }
+    }
 
-            // [5] update validator statistics
-            List<String> validators = getValidators();
-            String primary = config.getPrimaryValidator(validators, number, 0,
-                    activatedForks.containsKey(UNIFORM_DISTRIBUTION));
-            adjustValidatorStats(block.getCoinbase(), StatsType.FORGED, 1);
-            if (primary.equals(Hex.encode(block.getCoinbase()))) {
-                adjustValidatorStats(Hex.decode0x(primary), StatsType.HIT, 1);
-            } else {
-                adjustValidatorStats(Hex.decode0x(primary), StatsType.MISSED, 1);
+    @Override
+    public synchronized int indexBlocks(int max) {
+        if (accountIndexNumber < 0 || config.blockchainAccountIndex() == IndexMode.OFF) {
+            return 0;
+        }
+
+        long from = accountIndexNumber;
+        long to = Math.min(from + max, latestBlock.getNumber() + 1);
+        for (long i = from; i < to; i++) {
+            // the blocks being pruned are skipped, as they can't be indexed anyway
+            Block block = (i < earliestBlockNumber) ? null : getBlock(i);
+            if (block != null) {
+                indexAccountTransactions(block);
             }
+            setAccountIndexNumber(i + 1);
         }
+        growTransactionFilter();
 
-        // [6] update validator set
-        if (number % config.getValidatorUpdateInterval() == 0) {
-            updateValidators(block.getNumber());
+        // the index is maintained along with the blocks, once caught up
+        if (accountIndexNumber > latestBlock.getNumber() && config.blockchainAccountIndex() == IndexMode.ON) {
+            indexDB.delete(Bytes.of(TYPE_ACCOUNT_INDEX_NUMBER));
+            accountIndexNumber = -1;
         }
 
-        // [7] update latest_block
-        latestBlock = block;
-        indexDB.put(Bytes.of(TYPE_LATEST_BLOCK_NUMBER), Bytes.of(number));
+        return (int) (to - from);
+    }
 
-        for (BlockchainListener listener : listeners) {
-            listener.onBlockAdded(block);
-        }
+    private void setAccountIndexNumber(long number) {
+        indexDB.put(Bytes.of(TYPE_ACCOUNT_INDEX_NUMBER), Bytes.of(number));
+        accountIndexNumber = number;
     }
 
     /**
@@ -452,6 +785,264 @@ public class BlockchainImpl implements Blockchain {
         listeners.add(listener);
     }
 
+    @Override
+    public void removeListener(BlockchainListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public BlockchainSnapshot getSnapshot() {
+        return new Snapshot(this, retainLatestSnapshot());
+    }
+
+    private SnapshotHolder retainLatestSnapshot() {
+        while (true) {
+            SnapshotHolder holder = latestSnapshot.get();
+            // retry if it's being replaced and released concurrently
+            if (holder.retain()) {
+                return holder;
+            }
+        }
+    }
+
+    @Override
+    public byte[] getStateRoot() {
+        return latestSnapshot.get().stateRoot;
+    }
+
+    @Override
+    public StateSnapshot.Manifest exportState(Path file) throws IOException {
+        SnapshotHolder holder = retainLatestSnapshot();
+        try {
+            return exportState(holder, file);
+        } finally {
+            holder.release();
+        }
+    }
+
+    private StateSnapshot.Manifest exportState(SnapshotHolder holder, Path file) throws IOException {
+        Database indexDB = holder.databases.get(DatabaseName.INDEX);
+        Database blockDB = holder.databases.get(DatabaseName.BLOCK);
+        Block block = holder.latestBlock;
+
+        try (StateSnapshot.Writer writer = new StateSnapshot.Writer(file)) {
+            // [1] the whole state
+            for (DatabaseName name : new DatabaseName[] { DatabaseName.ACCOUNT, DatabaseName.DELEGATE,
+                    DatabaseName.VOTE }) {
+                ClosableIterator<Entry<byte[], byte[]>> itr = holder.databases.get(name).iterator();
+                try {
+                    while (itr.hasNext()) {
+                        Entry<byte[], byte[]> e = itr.next();
+                        writer.add(name, e.getKey(), e.getValue());
+                    }
+                } finally {
+                    itr.close();
+                }
+            }
+
+            // [2] the genesis and the latest block
+            for (long number : new long[] { genesis.getNumber(), block.getNumber() }) {
+                for (byte type : new byte[] { TYPE_BLOCK_HEADER, TYPE_BLOCK_TRANSACTIONS, TYPE_BLOCK_RESULTS,
+                        TYPE_BLOCK_VOTES }) {
+                    byte[] key = Bytes.merge(type, number);
+                    writer.add(DatabaseName.BLOCK, key, blockDB.get(key));
+                }
+            }
+            writer.add(DatabaseName.INDEX, Bytes.merge(TYPE_BLOCK_HASH, genesis.getHash()),
+                    Bytes.of(genesis.getNumber()));
+            writer.add(DatabaseName.INDEX, Bytes.merge(TYPE_BLOCK_HASH, block.getHash()), Bytes.of(block.getNumber()));
+
+            // [3] the validators and the forks
+            for (byte type : new byte[] { TYPE_VALIDATORS, TYPE_ACTIVATED_FORKS, TYPE_DATABASE_VERSION }) {
+                byte[] value = indexDB.get(Bytes.of(type));
+                if (value != null) {
+                    writer.add(DatabaseName.INDEX, Bytes.of(type), value);
+                }
+            }
+            ClosableIterator<Entry<byte[], byte[]>> itr = indexDB.iterator(Bytes.of(TYPE_VALIDATOR_STATS));
+            try {
+                while (itr.hasNext()) {
+                    Entry<byte[], byte[]> e = itr.next();
+                    if (e.getKey()[0] != TYPE_VALIDATOR_STATS) {
+                        break;
+                    }
+                    writer.add(DatabaseName.INDEX, e.getKey(), e.getValue());
+                }
+            } finally {
+                itr.close();
+            }
+
+            // [4] the latest block number, last so that it's imported last
+            writer.add(DatabaseName.INDEX, Bytes.of(TYPE_LATEST_BLOCK_NUMBER), Bytes.of(block.getNumber()));
+
+            return writer.finish(config.network().id(), block.getNumber(), block.getHash());
+        }
+    }
+
+    @Override
+    public synchronized void importState(StateSnapshot.Reader snapshot) throws IOException {
+        StateSnapshot.Manifest manifest = snapshot.getManifest();
+        if (latestBlock.getNumber() != genesis.getNumber()) {
+            throw new BlockchainException("State snapshots can only be imported into an empty blockchain");
+        }
+        if (manifest.getNetwork() != config.network().id()) {
+            throw new BlockchainException("The state snapshot belongs to another network");
+        }
+        snapshot.verify();
+
+        long t1 = System.currentTimeMillis();
+
+        // [1] clear the genesis state, which the snapshot includes
+        stateTrie.clear();
+        for (DatabaseName name : DatabaseName.values()) {
+            if (name == DatabaseName.TRIE) {
+                continue;
+            }
+            Database db = dbFactory.getDB(name);
+            List<Pair<byte[], byte[]>> deletes = new ArrayList<>();
+            ClosableIterator<Entry<byte[], byte[]>> itr = db.iterator();
+            try {
+                while (itr.hasNext()) {
+                    deletes.add(Pair.of(itr.next().getKey(), null));
+                }
+            } finally {
+                itr.close();
+            }
+            db.updateBatch(deletes);
+        }
+
+        // [2] write the chunks, one batch per database and chunk; the index last, as
+        // it holds the latest block number
+        for (int i = 0; i < manifest.getChunkCount(); i++) {
+            Map<DatabaseName, List<Pair<byte[], byte[]>>> batches = new EnumMap<>(DatabaseName.class);
+            for (StateSnapshot.Entry e : StateSnapshot.decodeChunk(snapshot.getChunk(i))) {
+                batches.computeIfAbsent(e.getDatabase(), k -> new ArrayList<>()).add(Pair.of(e.getKey(), e.getValue()));
+                if (isStateDatabase(e.getDatabase())) {
+                    stateTrie.update(e.getDatabase(), e.getKey(), e.getValue());
+                }
+            }
+            for (Entry<DatabaseName, List<Pair<byte[], byte[]>>> e : batches.entrySet()) {
+                if (e.getKey() != DatabaseName.INDEX) {
+                    dbFactory.getDB(e.getKey()).updateBatch(e.getValue());
+                }
+            }
+            if (batches.containsKey(DatabaseName.INDEX)) {
+                indexDB.updateBatch(batches.get(DatabaseName.INDEX));
+            }
+        }
+
+        // [3] check the imported blocks, and reload
+        byte[] number = indexDB.get(Bytes.of(TYPE_LATEST_BLOCK_NUMBER));
+        Block block = number == null ? null : getBlock(Bytes.toLong(number));
+        Block first = getBlock(genesis.getNumber());
+        if (block == null || block.getNumber() != manifest.getNumber()
+                || !Arrays.equals(block.getHash(), manifest.getBlockHash())
+                || first == null || !Arrays.equals(first.getHash(), genesis.getHash())) {
+            throw new BlockchainException("Inconsistent state snapshot, the database must be deleted");
+        }
+
+        stateTrie.flush(manifest.getNumber());
+
+        // the blocks before the snapshot are missing
+        indexDB.put(Bytes.of(TYPE_EARLIEST_BLOCK_NUMBER), Bytes.of(manifest.getNumber()));
+        earliestBlockNumber = manifest.getNumber();
+        accountIndexNumber = -1;
+        if (config.blockchainAccountIndex() != IndexMode.ON) {
+            setAccountIndexNumber(manifest.getNumber() + 1);
+        }
+
+        latestBlock = block;
+        validatorSet = new ValidatorSet(loadValidators());
+        activatedForks = getActivatedForks();
+        forkActivationMemoryCache.invalidateAll();
+        transactionFilter = BloomFilter.create(TRANSACTION_FILTER_MIN_CAPACITY, TRANSACTION_FILTER_FALSE_POSITIVE_RATE);
+        transactionFilterCapacity = TRANSACTION_FILTER_MIN_CAPACITY;
+        transactionFilterBacklog = null;
+        updateSnapshot();
+
+        long t2 = System.currentTimeMillis();
+        logger.info("Imported state snapshot: number = {}, # chunks = {}, time = {} ms", manifest.getNumber(),
+                manifest.getChunkCount(), t2 - t1);
+    }
+
+    @Override
+    public long getEarliestBlockNumber() {
+        return earliestBlockNumber;
+    }
+
+    @Override
+    public void pruneBlocks(long number) {
+        long from;
+        synchronized (this) {
+            from = Math.max(earliestBlockNumber, genesis.getNumber() + 1);
+            number = Math.min(number, latestBlock.getNumber());
+            if (number <= from) {
+                return;
+            }
+
+            // advertise the new range before deleting anything
+            indexDB.put(Bytes.of(TYPE_EARLIEST_BLOCK_NUMBER), Bytes.of(number));
+            earliestBlockNumber = number;
+        }
+
+        // keys are ordered by type and number, so the deletes are sequential
+        List<Pair<byte[], byte[]>> blocks = new ArrayList<>();
+        for (byte type : new byte[] { TYPE_BLOCK_TRANSACTIONS, TYPE_BLOCK_RESULTS, TYPE_BLOCK_VOTES }) {
+            for (long i = from; i < number; i++) {
+                blocks.add(Pair.of(Bytes.merge(type, i), null));
+            }
+        }
+        blockDB.updateBatch(blocks);
+
+        List<Pair<byte[], byte[]>> indexes = new ArrayList<>();
+        for (long i = from; i < number; i++) {
+            byte[] key = Bytes.merge(TYPE_COINBASE_TRANSACTION_HASH, i);
+            byte[] hash = indexDB.get(key);
+            if (hash != null) {
+                indexes.add(Pair.of(Bytes.merge(TYPE_TRANSACTION_HASH, hash), null));
+                indexes.add(Pair.of(key, null));
+            }
+        }
+        indexDB.updateBatch(indexes);
+    }
+
+    /**
+     * Takes a snapshot of all the databases, to be shared by the readers until the
+     * next block. It must be called when the databases are consistent, i.e. after
+     * a block is added along with its state.
+     */
+    protected void updateSnapshot() {
+        EnumMap<DatabaseName, Database> databases = new EnumMap<>(DatabaseName.class);
+        for (DatabaseName name : DatabaseName.values()) {
+            databases.put(name, dbFactory.getDB(name).snapshot());
+        }
+
+        SnapshotHolder prev = latestSnapshot.getAndSet(
+                new SnapshotHolder(databases, latestBlock, validatorSet, activatedForks, stateTrie.getRootHash()));
+        if (prev != null) {
+            prev.release();
+        }
+    }
+
+    @Override
+    public synchronized void flush() {
+        byte[] filter = transactionFilter.toBytes();
+        SimpleEncoder enc = new SimpleEncoder();
+        enc.writeLong(latestBlock.getNumber());
+        enc.writeLong(transactionFilterCapacity);
+        enc.writeBytes(filter);
+        enc.writeBytes(Hash.h256(filter));
+
+        Path tmp = transactionFilterFile.resolveSibling(TRANSACTION_FILTER_FILE + ".tmp");
+        try {
+            Files.write(tmp, enc.toBytes());
+            Files.move(tmp, transactionFilterFile, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Failed to save the transaction filter", e);
+        }
+    }
+
     @Override
     public int getTransactionCount(byte[] address) {
         byte[] cnt = indexDB.get(Bytes.merge(TYPE_ACCOUNT_TRANSACTION, address));
@@ -466,7 +1057,11 @@ public class BlockchainImpl implements Blockchain {
         for (int i = from; i < total && i < to; i++) {
             byte[] key = getNthTransactionIndexKey(address, i);
             byte[] value = indexDB.get(key);
-            list.add(getTransaction(value));
+            Transaction tx = getTransaction(value);
+            // skips pruned transactions
+            if (tx != null) {
+                list.add(tx);
+            }
         }
 
         return list;
@@ -474,6 +1069,20 @@ public class BlockchainImpl implements Blockchain {
 
     @Override
     public List<String> getValidators() {
+        return validatorSet.getValidators();
+    }
+
+    @Override
+    public ValidatorSet getValidatorSet() {
+        return validatorSet;
+    }
+
+    /**
+     * Reads the validators from the index.
+     *
+     * @return
+     */
+    private List<String> loadValidators() {
         List<String> validators = new ArrayList<>();
 
         byte[] v = indexDB.get(Bytes.of(TYPE_VALIDATORS));
@@ -517,6 +1126,7 @@ public class BlockchainImpl implements Blockchain {
             enc.writeString(v);
         }
         indexDB.put(Bytes.of(TYPE_VALIDATORS), enc.toBytes());
+        validatorSet = new ValidatorSet(validators);
     }
 
     /**
@@ -582,7 +1192,7 @@ public class BlockchainImpl implements Blockchain {
      * @return
      */
     protected byte[] getNthTransactionIndexKey(byte[] address, int n) {
-        return Bytes.merge(Bytes.of(TYPE_ACCOUNT_TRANSACTION), address, Bytes.of(n));
+        return Bytes.merge(TYPE_ACCOUNT_TRANSACTION, address, n);
     }
 
     @Override
@@ -799,11 +1409,18 @@ public class BlockchainImpl implements Blockchain {
      * lightweight version of
      * ${@link org.semux.consensus.SemuxBft#applyBlock(Block)} to migrate blocks
      * from an existing database to the latest schema.
+     * <p>
+     * The updates are kept in memory until {@link #commit()}: the state ones in
+     * the account and delegate states, the block and index ones in buffered
+     * databases.
      */
     private class MigrationBlockchain extends BlockchainImpl {
 
-        private MigrationBlockchain(Config config, DatabaseFactory dbFactory) {
+        private final BufferedDatabase.BufferedFactory buffers;
+
+        private MigrationBlockchain(Config config, BufferedDatabase.BufferedFactory dbFactory) {
             super(config, dbFactory);
+            this.buffers = dbFactory;
         }
 
         public void applyBlock(Block block) {
@@ -820,12 +1437,27 @@ public class BlockchainImpl implements Blockchain {
                 getAccountState().adjustAvailable(block.getCoinbase(), reward);
             }
 
-            // [2] commit the updates
+            // [2] add block to chain, which reads the uncommitted state
+            addBlock(block);
+        }
+
+        /**
+         * Writes all the updates, the index last as it holds the latest block.
+         */
+        public void commit() {
             getAccountState().commit();
             getDelegateState().commit();
+            buffers.flush();
+        }
 
-            // [3] add block to chain
-            addBlock(block);
+        @Override
+        protected void updateSnapshot() {
+            // nobody reads the blockchain being migrated
+        }
+
+        @Override
+        protected void growTransactionFilter() {
+            // the filter is rebuilt when the migrated database is opened
         }
     }
 
@@ -835,31 +1467,52 @@ public class BlockchainImpl implements Blockchain {
      * existing blockchain database to the created temporary blockchain database.
      * Once all blocks have been successfully migrated, the existing blockchain
      * database is replaced by the migrated temporary blockchain database.
+     * <p>
+     * The temporary database is kept if the migration is interrupted, and resumed
+     * from its latest block, unless it was interrupted while writing a
+     * checkpoint.
      */
-    private class MigrationBlockDbVersion001 implements Migration {
+    private class MigrationBlockDbVersion001 extends Migration<Block> {
 
-        private final PubSub pubSub = PubSubFactory.getDefault();
+        private static final int BATCH_SIZE = 1000;
+        private static final String CHECKPOINT_FILE = "checkpoint.pending";
 
-        @Override
-        public void migrate(Config config, DatabaseFactory dbFactory) {
+        private final DatabaseFactory dbFactory;
+        private final Path tempPath;
+        private final Path checkpointFile;
+
+        private LeveldbDatabase.LeveldbFactory tempDb;
+        private MigrationBlockchain migrationBlockchain;
+
+        private MigrationBlockDbVersion001(DatabaseFactory dbFactory) {
+            super(PubSubFactory.getDefault(), BATCH_SIZE);
+            this.dbFactory = dbFactory;
+            this.tempPath = dbFactory.getDataDir()
+                    .resolveSibling(dbFactory.getDataDir().getFileName().toString() + "_tmp");
+            this.checkpointFile = tempPath.resolve(CHECKPOINT_FILE);
+        }
+
+        public void migrate() {
             try {
                 logger.info("Upgrading the database... DO NOT CLOSE THE WALLET!");
 
-                // recreate block db in a temporary folder
-                String dbName = dbFactory.getDataDir().getFileName().toString();
-                Path tempPath = dbFactory
-                        .getDataDir()
-                        .resolveSibling(dbName + "_tmp_" + System.currentTimeMillis());
-                LeveldbDatabase.LeveldbFactory tempDb = new LeveldbDatabase.LeveldbFactory(tempPath.toFile());
-                MigrationBlockchain migrationBlockchain = new MigrationBlockchain(config, tempDb);
-                final long latestBlockNumber = getLatestBlockNumber();
-                for (long i = 1; i <= latestBlockNumber; i++) {
-                    migrationBlockchain.applyBlock(getBlock(i));
-                    if (i % 1000 == 0) {
-                        pubSub.publish(new BlockchainDatabaseUpgradingEvent(i, latestBlockNumber));
-                        logger.info("Loaded {} / {} blocks", i, latestBlockNumber);
-                    }
+                // recreate block db in a temporary folder, or resume
+                if (Files.exists(checkpointFile)) {
+                    logger.warn("The interrupted database upgrade can't be resumed, starting over");
+                    FileUtil.recursiveDelete(tempPath.toFile());
+                } else if (Files.exists(tempPath)) {
+                    logger.info("Resuming the interrupted database upgrade");
                 }
+                Files.createDirectories(tempPath);
+                tempDb = new LeveldbDatabase.LeveldbFactory(tempPath.toFile());
+
+                beginCheckpoint();
+                migrationBlockchain = new MigrationBlockchain(config, new BufferedDatabase.BufferedFactory(tempDb,
+                        DatabaseName.BLOCK, DatabaseName.INDEX));
+                migrationBlockchain.commit();
+                endCheckpoint();
+
+                run();
                 dbFactory.close();
                 tempDb.close();
 
@@ -874,9 +1527,194 @@ public class BlockchainImpl implements Blockchain {
                 dbFactory.open();
 
                 logger.info("Database upgraded to version 1.");
+            } catch (IOException | RuntimeException e) {
+                // the progress is kept, so that the upgrade resumes on the next start
+                if (tempDb != null) {
+                    tempDb.close();
+                }
+                throw new BlockchainException("Failed to run migration " + MigrationBlockDbVersion001.class, e);
+            }
+        }
+
+        @Override
+        protected long getCheckpoint() {
+            return migrationBlockchain.getLatestBlockNumber() + 1;
+        }
+
+        @Override
+        protected long getLast() {
+            return getLatestBlockNumber();
+        }
+
+        @Override
+        protected Block read(long number) {
+            return getBlock(number);
+        }
+
+        /**
+         * Checks that the block hasn't been corrupted on disk.
+         */
+        @Override
+        protected boolean verify(Block block) {
+            BlockHeader header = block.getHeader();
+            return header.validate()
+                    && Arrays.equals(MerkleUtil.computeTransactionsRoot(block.getTransactions()),
+                            header.getTransactionsRoot())
+                    && Arrays.equals(MerkleUtil.computeResultsRoot(block.getResults()), header.getResultsRoot());
+        }
+
+        @Override
+        protected void apply(Block block) {
+            migrationBlockchain.applyBlock(block);
+        }
+
+        @Override
+        protected void checkpoint(long next) {
+            try {
+                beginCheckpoint();
+                migrationBlockchain.commit();
+                endCheckpoint();
             } catch (IOException e) {
-                logger.error("Failed to run migration " + MigrationBlockDbVersion001.class, e);
+                throw new DatabaseException("Failed to write checkpoint " + next, e);
+            }
+        }
+
+        @Override
+        protected PubSubEvent createProgressEvent(long migrated, long last) {
+            return new BlockchainDatabaseUpgradingEvent(migrated, last);
+        }
+
+        /**
+         * Marks the temporary database as inconsistent until the checkpoint is
+         * written, as the databases can't be updated atomically.
+         */
+        private void beginCheckpoint() throws IOException {
+            if (!Files.exists(checkpointFile)) {
+                Files.createFile(checkpointFile);
+            }
+        }
+
+        private void endCheckpoint() throws IOException {
+            Files.delete(checkpointFile);
+        }
+    }
+
+    private static boolean isStateDatabase(DatabaseName name) {
+        return name == DatabaseName.ACCOUNT || name == DatabaseName.DELEGATE || name == DatabaseName.VOTE;
+    }
+
+    /**
+     * Database snapshots at a block, released once they are neither the latest nor
+     * in use by any reader.
+     */
+    private static class SnapshotHolder {
+        final Map<DatabaseName, Database> databases;
+        final Block latestBlock;
+        final ValidatorSet validatorSet;
+        final Map<ValidatorActivatedFork, ValidatorActivatedFork.Activation> activatedForks;
+        final byte[] stateRoot;
+
+        // one reference is held while this is the latest snapshot
+        final AtomicInteger references = new AtomicInteger(1);
+
+        SnapshotHolder(Map<DatabaseName, Database> databases, Block latestBlock, ValidatorSet validatorSet,
+                Map<ValidatorActivatedFork, ValidatorActivatedFork.Activation> activatedForks, byte[] stateRoot) {
+            this.databases = databases;
+            this.latestBlock = latestBlock;
+            this.validatorSet = validatorSet;
+            this.activatedForks = new HashMap<>(activatedForks);
+            this.stateRoot = stateRoot;
+        }
+
+        boolean retain() {
+            int n;
+            do {
+                n = references.get();
+                if (n == 0) {
+                    return false;
+                }
+            } while (!references.compareAndSet(n, n + 1));
+            return true;
+        }
+
+        void release() {
+            if (references.decrementAndGet() == 0) {
+                databases.values().forEach(Database::close);
             }
         }
     }
+
+    /**
+     * A read-only view of the blockchain, see {@link #getSnapshot()}.
+     */
+    private static class Snapshot extends BlockchainImpl implements BlockchainSnapshot {
+
+        private final SnapshotHolder holder;
+        private final AtomicBoolean isClosed = new AtomicBoolean(false);
+
+        Snapshot(BlockchainImpl chain, SnapshotHolder holder) {
+            super(chain, holder);
+            this.holder = holder;
+        }
+
+        @Override
+        public BlockchainSnapshot getSnapshot() {
+            if (isClosed.get() || !holder.retain()) {
+                throw new IllegalStateException("The snapshot has been closed");
+            }
+            return new Snapshot(this, holder);
+        }
+
+        @Override
+        public void close() {
+            if (isClosed.compareAndSet(false, true)) {
+                holder.release();
+            }
+        }
+
+        @Override
+        public byte[] getStateRoot() {
+            return holder.stateRoot;
+        }
+
+        @Override
+        public StateSnapshot.Manifest exportState(Path file) throws IOException {
+            return super.exportState(holder, file);
+        }
+
+        @Override
+        public void importState(StateSnapshot.Reader snapshot) {
+            throw new UnsupportedOperationException("Snapshots are read-only");
+        }
+
+        @Override
+        public void addBlock(Block block) {
+            throw new UnsupportedOperationException("Snapshots are read-only");
+        }
+
+        @Override
+        public void pruneBlocks(long number) {
+            throw new UnsupportedOperationException("Snapshots are read-only");
+        }
+
+        @Override
+        public int indexBlocks(int max) {
+            throw new UnsupportedOperationException("Snapshots are read-only");
+        }
+
+        @Override
+        public void addListener(BlockchainListener listener) {
+            throw new UnsupportedOperationException("Snapshots are read-only");
+        }
+
+        @Override
+        public void removeListener(BlockchainListener listener) {
+            throw new UnsupportedOperationException("Snapshots are read-only");
+        }
+
+        @Override
+        public void flush() {
+            throw new UnsupportedOperationException("Snapshots are read-only");
+        }
+    }
 }
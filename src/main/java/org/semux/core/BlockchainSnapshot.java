@@ -0,0 +1,21 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core;
+
+/**
+ * A read-only view of the blockchain at a given block, see
+ * {@link Blockchain#getSnapshot()}. Updating methods, such as
+ * {@link #addBlock(Block)}, are not supported.
+ */
+public interface BlockchainSnapshot extends Blockchain, AutoCloseable {
+
+    /**
+     * Releases this snapshot.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,202 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+import org.semux.util.SimpleDecoder;
+import org.semux.util.SimpleEncoder;
+
+/**
+ * A bootstrap file is a range of consecutive blocks, in their database
+ * encodings, which a node can import without connecting to the network.
+ * <p>
+ * File format: a header <code>[version, network, first block number]</code>,
+ * followed by one record per block, <code>[length, block, crc32]</code>, and
+ * a trailer <code>[0, number of blocks]</code>, so that a truncated file is
+ * never mistaken for a complete one.
+ */
+public class BootstrapFile {
+
+    private static final int VERSION = 0;
+
+    /**
+     * Max size of a block record, in bytes.
+     */
+    private static final int MAX_RECORD_SIZE = 64 * 1024 * 1024;
+
+    private BootstrapFile() {
+    }
+
+    /**
+     * Writes blocks into a bootstrap file, one by one.
+     */
+    public static class Writer implements Closeable {
+        private final DataOutputStream out;
+        private final long first;
+
+        private long count = 0;
+
+        public Writer(Path file, byte network, long first) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+            this.first = first;
+
+            out.writeInt(VERSION);
+            out.writeByte(network);
+            out.writeLong(first);
+        }
+
+        /**
+         * Appends a block, which must follow the previous one.
+         *
+         * @param block
+         * @throws IOException
+         */
+        public void write(Block block) throws IOException {
+            if (block.getNumber() != first + count) {
+                throw new IllegalArgumentException("Blocks must be written in order: expected " + (first + count)
+                        + ", got " + block.getNumber());
+            }
+
+            SimpleEncoder enc = new SimpleEncoder();
+            enc.writeBytes(block.toBytesHeader());
+            enc.writeBytes(block.toBytesTransactions());
+            enc.writeBytes(block.toBytesResults());
+            enc.writeBytes(block.toBytesVotes());
+            byte[] bytes = enc.toBytes();
+
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            out.writeInt((int) crc.getValue());
+            count++;
+        }
+
+        /**
+         * Writes the trailer, which completes the file.
+         *
+         * @return the number of blocks written
+         * @throws IOException
+         */
+        public long finish() throws IOException {
+            out.writeInt(0);
+            out.writeLong(count);
+            out.flush();
+
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Reads the blocks of a bootstrap file, one by one.
+     */
+    public static class Reader implements Closeable {
+        private final DataInputStream in;
+        private final byte network;
+        private final long first;
+
+        private long count = 0;
+        private boolean finished = false;
+
+        public Reader(Path file) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+
+            try {
+                int version = in.readInt();
+                if (version != VERSION) {
+                    throw new IOException("Unsupported bootstrap file version: " + version);
+                }
+                this.network = in.readByte();
+                this.first = in.readLong();
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+        }
+
+        public byte getNetwork() {
+            return network;
+        }
+
+        /**
+         * Returns the number of the first block.
+         *
+         * @return
+         */
+        public long getFirst() {
+            return first;
+        }
+
+        /**
+         * Reads the next block.
+         *
+         * @return the block, or null if all the blocks have been read
+         * @throws IOException
+         *             if the file is corrupted or truncated
+         */
+        public Block read() throws IOException {
+            if (finished) {
+                return null;
+            }
+
+            try {
+                int length = in.readInt();
+                if (length == 0) {
+                    if (in.readLong() != count) {
+                        throw new IOException("Bootstrap file trailer doesn't match the blocks");
+                    }
+                    finished = true;
+                    return null;
+                } else if (length < 0 || length > MAX_RECORD_SIZE) {
+                    throw new IOException("Invalid block record length: " + length);
+                }
+
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                CRC32 crc = new CRC32();
+                crc.update(bytes);
+                if (in.readInt() != (int) crc.getValue()) {
+                    throw new IOException("Corrupted block record: " + (first + count));
+                }
+
+                SimpleDecoder dec = new SimpleDecoder(bytes);
+                Block block = Block.fromBytes(dec.readBytes(), dec.readBytes(), dec.readBytes(), dec.readBytes());
+                if (block.getNumber() != first + count) {
+                    throw new IOException("Unexpected block: " + block.getNumber());
+                }
+                count++;
+
+                return block;
+            } catch (EOFException e) {
+                throw new IOException("Truncated bootstrap file", e);
+            } catch (RuntimeException e) {
+                throw new IOException("Invalid block record: " + (first + count), e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
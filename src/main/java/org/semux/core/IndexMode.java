@@ -0,0 +1,31 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core;
+
+/**
+ * How a secondary index of the blockchain, i.e. one which isn't needed to
+ * validate blocks, is maintained.
+ */
+public enum IndexMode {
+
+    /**
+     * Updated along with every block.
+     */
+    ON,
+
+    /**
+     * Caught up from the block database in the background, see
+     * {@link BlockIndexer}.
+     */
+    LAZY,
+
+    /**
+     * Not maintained. The blocks added meanwhile are indexed once the index is
+     * turned on again.
+     */
+    OFF
+}
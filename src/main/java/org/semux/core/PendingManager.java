@@ -10,18 +10,23 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import org.semux.Kernel;
 import org.semux.core.state.AccountState;
 import org.semux.core.state.DelegateState;
+import org.semux.net.Capability;
 import org.semux.net.Channel;
+import org.semux.net.msg.p2p.TransactionInventoryMessage;
 import org.semux.net.msg.p2p.TransactionMessage;
+import org.semux.net.msg.p2p.TransactionsMessage;
 import org.semux.util.ArrayUtil;
 import org.semux.util.ByteArray;
 import org.semux.util.Bytes;
@@ -58,6 +63,20 @@ public class PendingManager implements Runnable, BlockchainListener {
     private static final int TRANSACTIONS_MAX_SIZE = 16 * 1024;
     private static final int DELAYED_MAX_SIZE = 32 * 1024;
     private static final int PROCESSED_MAX_SIZE = 32 * 1024;
+    private static final int RELAYED_MAX_SIZE = 32 * 1024;
+    private static final int REQUESTED_MAX_SIZE = 32 * 1024;
+
+    /**
+     * How often the accepted transactions are announced to peers, in
+     * milliseconds.
+     */
+    private static final long RELAY_INTERVAL = 50;
+
+    /**
+     * How long a requested transaction is not requested again from another peer,
+     * in milliseconds.
+     */
+    private static final long REQUEST_TIMEOUT = 10_000;
 
     private final Kernel kernel;
     private AccountState pendingAS;
@@ -80,9 +99,29 @@ public class PendingManager implements Runnable, BlockchainListener {
     private final Cache<ByteArray, Transaction> processed = Caffeine.newBuilder().maximumSize(PROCESSED_MAX_SIZE)
             .build();
 
+    /**
+     * Transactions announced to peers, which they may request.
+     */
+    private final Cache<ByteArray, Transaction> relayed = Caffeine.newBuilder().maximumSize(RELAYED_MAX_SIZE)
+            .build();
+
+    /**
+     * Transactions requested from peers and not yet received.
+     */
+    private final Cache<ByteArray, Boolean> requested = Caffeine.newBuilder().maximumSize(REQUESTED_MAX_SIZE)
+            .expireAfterWrite(REQUEST_TIMEOUT, TimeUnit.MILLISECONDS).build();
+
+    /**
+     * Transactions accepted since the last relay.
+     */
+    private List<Transaction> toRelay = new ArrayList<>();
+
+    private final List<PendingManagerListener> listeners = new CopyOnWriteArrayList<>();
+
     private final ScheduledExecutorService exec;
 
     private ScheduledFuture<?> validateFuture;
+    private ScheduledFuture<?> relayFuture;
 
     private volatile boolean isRunning;
 
@@ -109,6 +148,8 @@ public class PendingManager implements Runnable, BlockchainListener {
              * the network load is heavy.
              */
             this.validateFuture = exec.scheduleAtFixedRate(this, 2, 2, TimeUnit.MILLISECONDS);
+            this.relayFuture = exec.scheduleAtFixedRate(this::relay, RELAY_INTERVAL, RELAY_INTERVAL,
+                    TimeUnit.MILLISECONDS);
 
             kernel.getBlockchain().addListener(this);
 
@@ -123,6 +164,7 @@ public class PendingManager implements Runnable, BlockchainListener {
     public synchronized void stop() {
         if (isRunning) {
             validateFuture.cancel(true);
+            relayFuture.cancel(true);
 
             logger.debug("Pending manager stopped");
             isRunning = false;
@@ -138,6 +180,24 @@ public class PendingManager implements Runnable, BlockchainListener {
         return isRunning;
     }
 
+    /**
+     * Registers a listener of the pending pool.
+     *
+     * @param listener
+     */
+    public void addListener(PendingManagerListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener of the pending pool.
+     *
+     * @param listener
+     */
+    public void removeListener(PendingManagerListener listener) {
+        listeners.remove(listener);
+    }
+
     /**
      * Returns a copy of the queue, for test purpose only.
      *
@@ -154,11 +214,76 @@ public class PendingManager implements Runnable, BlockchainListener {
      * @param tx
      */
     public synchronized void addTransaction(Transaction tx) {
-        if (queue.size() < QUEUE_MAX_SIZE && tx.validate(kernel.getConfig().network())) {
+        // skip the validation of transactions that have been processed already
+        if (queue.size() < QUEUE_MAX_SIZE
+                && processed.getIfPresent(ByteArray.of(tx.getHash())) == null
+                && tx.validate(kernel.getConfig().network())) {
             queue.add(tx);
         }
     }
 
+    /**
+     * Returns the hashes of the announced transactions which are unknown to this
+     * node and not being requested from another peer, and marks them as
+     * requested.
+     *
+     * @param hashes
+     *            announced transaction hashes
+     * @return the hashes to request
+     */
+    public List<byte[]> requestTransactions(List<byte[]> hashes) {
+        List<byte[]> unknown = new ArrayList<>();
+        for (byte[] hash : hashes) {
+            ByteArray key = ByteArray.of(hash);
+            if (processed.getIfPresent(key) == null
+                    && relayed.getIfPresent(key) == null
+                    && requested.asMap().putIfAbsent(key, Boolean.TRUE) == null) {
+                if (kernel.getBlockchain().hasTransaction(hash)) {
+                    requested.invalidate(key);
+                } else {
+                    unknown.add(hash);
+                }
+            }
+        }
+        return unknown;
+    }
+
+    /**
+     * Returns a transaction recently received or relayed by this node, which may
+     * or may not be in the pool.
+     *
+     * @param hash
+     * @return the transaction, or null if not known
+     */
+    public Transaction getTransaction(byte[] hash) {
+        ByteArray key = ByteArray.of(hash);
+        Transaction tx = processed.getIfPresent(key);
+        return tx != null ? tx : relayed.getIfPresent(key);
+    }
+
+    /**
+     * Returns the relayed transactions of the given hashes, limited by
+     * ${@link TransactionsMessage#MAX_SIZE}. Unknown hashes are ignored.
+     *
+     * @param hashes
+     * @return
+     */
+    public List<Transaction> getRelayedTransactions(List<byte[]> hashes) {
+        List<Transaction> txs = new ArrayList<>();
+        int size = 0;
+        for (byte[] hash : hashes) {
+            Transaction tx = relayed.getIfPresent(ByteArray.of(hash));
+            if (tx != null) {
+                size += tx.size();
+                if (size > TransactionsMessage.MAX_SIZE) {
+                    break;
+                }
+                txs.add(tx);
+            }
+        }
+        return txs;
+    }
+
     /**
      * Adds a transaction to the pool and waits until it's done.
      *
@@ -236,6 +361,12 @@ public class PendingManager implements Runnable, BlockchainListener {
         List<PendingTransaction> txs = new ArrayList<>(transactions);
         transactions.clear();
 
+        if (!txs.isEmpty()) {
+            for (PendingManagerListener listener : listeners) {
+                listener.onPendingTransactionsRemoved(txs);
+            }
+        }
+
         return txs;
     }
 
@@ -329,17 +460,13 @@ public class PendingManager implements Runnable, BlockchainListener {
                 transactions.add(pendingTransaction);
                 cnt++;
 
-                // relay transaction
+                for (PendingManagerListener listener : listeners) {
+                    listener.onPendingTransactionAdded(pendingTransaction);
+                }
+
+                // relay transaction, in the next batch
                 if (relay) {
-                    List<Channel> channels = kernel.getChannelManager().getActiveChannels();
-                    TransactionMessage msg = new TransactionMessage(tx);
-                    int[] indices = ArrayUtil.permutation(channels.size());
-                    for (int i = 0; i < indices.length && i < kernel.getConfig().netRelayRedundancy(); i++) {
-                        Channel c = channels.get(indices[i]);
-                        if (c.isActive()) {
-                            c.getMessageQueue().sendMessage(msg);
-                        }
-                    }
+                    toRelay.add(tx);
                 }
             } else {
                 // exit immediately if invalid
@@ -359,12 +486,59 @@ public class PendingManager implements Runnable, BlockchainListener {
         return new ProcessTransactionResult(cnt);
     }
 
+    /**
+     * Relays the transactions accepted since the last call. Peers supporting
+     * ${@link Capability#TX_INVENTORY} are sent the hashes only, and request the
+     * transactions they don't have; other peers are sent every transaction.
+     */
+    protected void relay() {
+        List<Transaction> txs;
+        synchronized (this) {
+            if (toRelay.isEmpty()) {
+                return;
+            }
+            txs = toRelay;
+            toRelay = new ArrayList<>();
+        }
+
+        List<byte[]> hashes = new ArrayList<>(txs.size());
+        for (Transaction tx : txs) {
+            relayed.put(ByteArray.of(tx.getHash()), tx);
+            hashes.add(tx.getHash());
+        }
+
+        List<TransactionInventoryMessage> inventories = new ArrayList<>();
+        for (int i = 0; i < hashes.size(); i += TransactionInventoryMessage.MAX_HASHES) {
+            inventories.add(new TransactionInventoryMessage(
+                    hashes.subList(i, Math.min(hashes.size(), i + TransactionInventoryMessage.MAX_HASHES))));
+        }
+        List<TransactionMessage> transactionMsgs = null;
+
+        List<Channel> channels = kernel.getChannelManager().getActiveChannels();
+        int[] indices = ArrayUtil.permutation(channels.size());
+        for (int i = 0; i < indices.length && i < kernel.getConfig().netRelayRedundancy(); i++) {
+            Channel c = channels.get(indices[i]);
+            if (!c.isActive()) {
+                continue;
+            }
+
+            if (c.getRemotePeer().getCapabilities().isSupported(Capability.TX_INVENTORY)) {
+                inventories.forEach(c.getMessageQueue()::sendMessage);
+            } else {
+                if (transactionMsgs == null) {
+                    transactionMsgs = txs.stream().map(TransactionMessage::new).collect(Collectors.toList());
+                }
+                transactionMsgs.forEach(c.getMessageQueue()::sendMessage);
+            }
+        }
+    }
+
     private ByteArray createKey(Transaction tx) {
-        return ByteArray.of(Bytes.merge(tx.getFrom(), Bytes.of(tx.getNonce())));
+        return createKey(tx.getFrom(), tx.getNonce());
     }
 
     private ByteArray createKey(byte[] acc, long nonce) {
-        return ByteArray.of(Bytes.merge(acc, Bytes.of(nonce)));
+        return ByteArray.of(Bytes.merge(acc, nonce));
     }
 
     /**
@@ -0,0 +1,29 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core;
+
+import java.util.List;
+
+import org.semux.core.PendingManager.PendingTransaction;
+
+public interface PendingManagerListener {
+
+    /**
+     * Callback when a transaction was added to the pending pool.
+     * 
+     * @param tx
+     */
+    void onPendingTransactionAdded(PendingTransaction tx);
+
+    /**
+     * Callback when transactions were removed from the pending pool, e.g. when the
+     * pool is reset on a new block.
+     * 
+     * @param txs
+     */
+    void onPendingTransactionsRemoved(List<PendingTransaction> txs);
+}
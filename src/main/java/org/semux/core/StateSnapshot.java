@@ -0,0 +1,380 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.semux.crypto.Hash;
+import org.semux.crypto.Hex;
+import org.semux.db.DatabaseName;
+import org.semux.util.SimpleDecoder;
+import org.semux.util.SimpleEncoder;
+
+/**
+ * A state snapshot is a copy of the account, delegate and vote databases at a
+ * given block, along with the few blocks and indexes an empty blockchain needs
+ * to resume syncing from that block.
+ * <p>
+ * The snapshot is split into chunks of about {@link #CHUNK_SIZE} bytes, each
+ * of which is checked against its hash in the manifest. The snapshot is
+ * identified by the hash of its manifest, its digest, so that a node which
+ * trusts a digest can download the chunks from any peer.
+ * <p>
+ * File format: a sequence of length-prefixed records, i.e. the chunks in
+ * order, followed by the manifest. A chunk is a sequence of
+ * <code>[database, key, value]</code> entries.
+ */
+public class StateSnapshot {
+
+    /**
+     * Name of the directory, under the data directory, where snapshots are
+     * saved.
+     */
+    public static final String DIR_NAME = "snapshots";
+
+    /**
+     * Target size of a chunk, in bytes.
+     */
+    public static final int CHUNK_SIZE = 1024 * 1024;
+
+    /**
+     * Max number of chunks of a snapshot.
+     */
+    public static final int MAX_CHUNKS = 64 * 1024;
+
+    private static final int VERSION = 0;
+    private static final String FILE_SUFFIX = ".snapshot";
+
+    private StateSnapshot() {
+    }
+
+    /**
+     * Returns the file of a snapshot in the given directory.
+     *
+     * @param dir
+     * @param digest
+     * @return
+     */
+    public static Path getFile(Path dir, byte[] digest) {
+        return dir.resolve(Hex.encode(digest) + FILE_SUFFIX);
+    }
+
+    /**
+     * Decodes the entries of a chunk.
+     *
+     * @param chunk
+     * @return
+     */
+    public static List<Entry> decodeChunk(byte[] chunk) {
+        List<Entry> entries = new ArrayList<>();
+        SimpleDecoder dec = new SimpleDecoder(chunk);
+        while (dec.getReadIndex() < chunk.length) {
+            int db = dec.readByte();
+            // the trie is computed from the state, not imported
+            if (db < 0 || db >= DatabaseName.values().length || DatabaseName.values()[db] == DatabaseName.TRIE) {
+                throw new IllegalArgumentException("Invalid database: " + db);
+            }
+            entries.add(new Entry(DatabaseName.values()[db], dec.readBytes(), dec.readBytes()));
+        }
+        return entries;
+    }
+
+    /**
+     * A database entry.
+     */
+    public static class Entry {
+        private final DatabaseName database;
+        private final byte[] key;
+        private final byte[] value;
+
+        public Entry(DatabaseName database, byte[] key, byte[] value) {
+            this.database = database;
+            this.key = key;
+            this.value = value;
+        }
+
+        public DatabaseName getDatabase() {
+            return database;
+        }
+
+        public byte[] getKey() {
+            return key;
+        }
+
+        public byte[] getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * Describes a snapshot: the block it was taken at and the hashes of its
+     * chunks.
+     */
+    public static class Manifest {
+        private final byte network;
+        private final long number;
+        private final byte[] blockHash;
+        private final List<byte[]> chunkHashes;
+
+        private final byte[] encoded;
+        private final byte[] digest;
+
+        public Manifest(byte network, long number, byte[] blockHash, List<byte[]> chunkHashes) {
+            this.network = network;
+            this.number = number;
+            this.blockHash = blockHash;
+            this.chunkHashes = Collections.unmodifiableList(new ArrayList<>(chunkHashes));
+
+            SimpleEncoder enc = new SimpleEncoder();
+            enc.writeInt(VERSION);
+            enc.writeByte(network);
+            enc.writeLong(number);
+            enc.writeBytes(blockHash);
+            enc.writeInt(chunkHashes.size());
+            for (byte[] hash : chunkHashes) {
+                enc.writeBytes(hash);
+            }
+            this.encoded = enc.toBytes();
+            this.digest = Hash.h256(encoded);
+        }
+
+        public static Manifest fromBytes(byte[] bytes) {
+            SimpleDecoder dec = new SimpleDecoder(bytes);
+            int version = dec.readInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported snapshot version: " + version);
+            }
+
+            byte network = dec.readByte();
+            long number = dec.readLong();
+            byte[] blockHash = dec.readBytes();
+            int n = dec.readInt();
+            if (n < 0 || n > MAX_CHUNKS) {
+                throw new IllegalArgumentException("Invalid number of chunks: " + n);
+            }
+            List<byte[]> chunkHashes = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                chunkHashes.add(dec.readBytes());
+            }
+
+            return new Manifest(network, number, blockHash, chunkHashes);
+        }
+
+        public byte[] toBytes() {
+            return encoded;
+        }
+
+        /**
+         * Returns the digest of this snapshot, i.e. the hash of this manifest.
+         *
+         * @return
+         */
+        public byte[] getDigest() {
+            return digest;
+        }
+
+        public byte getNetwork() {
+            return network;
+        }
+
+        public long getNumber() {
+            return number;
+        }
+
+        public byte[] getBlockHash() {
+            return blockHash;
+        }
+
+        public int getChunkCount() {
+            return chunkHashes.size();
+        }
+
+        /**
+         * Returns whether the given chunk matches its hash.
+         *
+         * @param index
+         * @param chunk
+         * @return
+         */
+        public boolean isValidChunk(int index, byte[] chunk) {
+            return index >= 0 && index < chunkHashes.size() && Arrays.equals(Hash.h256(chunk), chunkHashes.get(index));
+        }
+
+        @Override
+        public String toString() {
+            return "Manifest [number=" + number + ", # chunks = " + chunkHashes.size() + ", digest="
+                    + Hex.encode(digest) + "]";
+        }
+    }
+
+    /**
+     * Writes a snapshot into a file, either entry by entry or chunk by chunk.
+     */
+    public static class Writer implements Closeable {
+        private final DataOutputStream out;
+        private final List<byte[]> chunkHashes = new ArrayList<>();
+
+        private SimpleEncoder chunk = new SimpleEncoder();
+        private int chunkSize = 0;
+
+        public Writer(Path file) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+        }
+
+        /**
+         * Adds an entry, in the current chunk.
+         *
+         * @param database
+         * @param key
+         * @param value
+         * @throws IOException
+         */
+        public void add(DatabaseName database, byte[] key, byte[] value) throws IOException {
+            chunk.writeByte((byte) database.ordinal());
+            chunk.writeBytes(key);
+            chunk.writeBytes(value);
+            chunkSize += key.length + value.length;
+
+            if (chunkSize >= CHUNK_SIZE) {
+                addChunk(chunk.toBytes());
+                chunk = new SimpleEncoder();
+                chunkSize = 0;
+            }
+        }
+
+        /**
+         * Adds a whole chunk.
+         *
+         * @param bytes
+         * @throws IOException
+         */
+        public void addChunk(byte[] bytes) throws IOException {
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            chunkHashes.add(Hash.h256(bytes));
+        }
+
+        /**
+         * Writes the manifest, which completes the snapshot.
+         *
+         * @param network
+         * @param number
+         * @param blockHash
+         * @return
+         * @throws IOException
+         */
+        public Manifest finish(byte network, long number, byte[] blockHash) throws IOException {
+            if (chunkSize > 0) {
+                addChunk(chunk.toBytes());
+                chunk = new SimpleEncoder();
+                chunkSize = 0;
+            }
+
+            Manifest manifest = new Manifest(network, number, blockHash, chunkHashes);
+            byte[] bytes = manifest.toBytes();
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            out.flush();
+
+            return manifest;
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Reads a snapshot file, chunk by chunk.
+     */
+    public static class Reader implements Closeable {
+        private final RandomAccessFile file;
+        private final List<Long> offsets = new ArrayList<>();
+        private final Manifest manifest;
+
+        public Reader(Path path) throws IOException {
+            this.file = new RandomAccessFile(path.toFile(), "r");
+
+            try {
+                // index the records, the last of which is the manifest
+                long offset = 0;
+                long length = file.length();
+                while (offset < length) {
+                    offsets.add(offset);
+                    file.seek(offset);
+                    offset += 4 + Integer.toUnsignedLong(file.readInt());
+                }
+                if (offsets.isEmpty() || offset != length) {
+                    throw new IOException("Truncated snapshot file");
+                }
+
+                this.manifest = Manifest.fromBytes(readRecord(offsets.remove(offsets.size() - 1)));
+                if (manifest.getChunkCount() != offsets.size()) {
+                    throw new IOException("Snapshot chunks don't match the manifest");
+                }
+            } catch (IOException | RuntimeException e) {
+                file.close();
+                throw e instanceof IOException ? (IOException) e : new IOException("Invalid snapshot file", e);
+            }
+        }
+
+        public Manifest getManifest() {
+            return manifest;
+        }
+
+        /**
+         * Reads a chunk, and checks it against the manifest.
+         *
+         * @param index
+         * @return
+         * @throws IOException
+         *             if the chunk is corrupted
+         */
+        public synchronized byte[] getChunk(int index) throws IOException {
+            byte[] chunk = readRecord(offsets.get(index));
+            if (!manifest.isValidChunk(index, chunk)) {
+                throw new IOException("Corrupted snapshot chunk: " + index);
+            }
+            return chunk;
+        }
+
+        /**
+         * Checks all the chunks against the manifest.
+         *
+         * @throws IOException
+         *             if any chunk is corrupted
+         */
+        public void verify() throws IOException {
+            for (int i = 0; i < manifest.getChunkCount(); i++) {
+                getChunk(i);
+            }
+        }
+
+        private byte[] readRecord(long offset) throws IOException {
+            file.seek(offset);
+            byte[] bytes = new byte[file.readInt()];
+            file.readFully(bytes);
+            return bytes;
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            file.close();
+        }
+    }
+}
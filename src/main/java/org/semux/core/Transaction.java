@@ -43,6 +43,12 @@ public class Transaction {
 
     private Signature signature;
 
+    /**
+     * Wire encoding of this signed transaction, retained from decoding or
+     * computed on first use. Reset when the transaction is re-signed.
+     */
+    private byte[] bytes;
+
     /**
      * Create a new transaction.
      *
@@ -85,22 +91,27 @@ public class Transaction {
      * @param hash
      * @param encoded
      * @param signature
+     * @param bytes
+     *            the wire encoding the other fields are decoded from
      */
-    private Transaction(byte[] hash, byte[] encoded, byte[] signature) {
+    private Transaction(byte[] hash, byte[] encoded, byte[] signature, byte[] bytes) {
         this.hash = hash;
 
-        Transaction decodedTx = fromEncoded(encoded);
-        this.networkId = decodedTx.networkId;
-        this.type = decodedTx.type;
-        this.to = decodedTx.to;
-        this.value = decodedTx.value;
-        this.fee = decodedTx.fee;
-        this.nonce = decodedTx.nonce;
-        this.timestamp = decodedTx.timestamp;
-        this.data = decodedTx.data;
+        // decode the fields in place rather than through fromEncoded(), which would
+        // re-encode and re-hash the transaction
+        SimpleDecoder dec = new SimpleDecoder(encoded);
+        this.networkId = dec.readByte();
+        this.type = TransactionType.of(dec.readByte());
+        this.to = dec.readBytes();
+        this.value = dec.readAmount();
+        this.fee = dec.readAmount();
+        this.nonce = dec.readLong();
+        this.timestamp = dec.readLong();
+        this.data = dec.readBytes();
 
         this.encoded = encoded;
         this.signature = Signature.fromBytes(signature);
+        this.bytes = bytes;
     }
 
     /**
@@ -111,6 +122,7 @@ public class Transaction {
      */
     public Transaction sign(Key key) {
         this.signature = key.sign(this.hash);
+        this.bytes = null;
         return this;
     }
 
@@ -287,12 +299,17 @@ public class Transaction {
      * @return
      */
     public byte[] toBytes() {
-        SimpleEncoder enc = new SimpleEncoder();
-        enc.writeBytes(hash);
-        enc.writeBytes(encoded);
-        enc.writeBytes(signature.toBytes());
-
-        return enc.toBytes();
+        if (bytes == null) {
+            byte[] sig = signature.toBytes();
+            SimpleEncoder enc = new SimpleEncoder(SimpleEncoder.sizeOfBytes(hash.length)
+                    + SimpleEncoder.sizeOfBytes(encoded.length) + SimpleEncoder.sizeOfBytes(sig.length));
+            enc.writeBytes(hash);
+            enc.writeBytes(encoded);
+            enc.writeBytes(sig);
+            bytes = enc.toBytes();
+        }
+
+        return bytes;
     }
 
     /**
@@ -307,7 +324,9 @@ public class Transaction {
         byte[] encoded = dec.readBytes();
         byte[] signature = dec.readBytes();
 
-        return new Transaction(hash, encoded, signature);
+        // only retain the input when it is exactly the canonical encoding
+        boolean exact = dec.getReadIndex() == bytes.length;
+        return new Transaction(hash, encoded, signature, exact ? bytes : null);
     }
 
     /**
@@ -8,6 +8,7 @@ package org.semux.core;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.semux.Network;
@@ -104,17 +105,25 @@ public class TransactionResult {
     protected Error error;
 
     /**
-     * Create a transaction result.
+     * Wire encoding, retained from decoding or computed on first use. Reset by
+     * any mutation of the encoded fields.
+     */
+    protected byte[] bytes;
+
+    /**
+     * Create a transaction result. The output and the logs are copied, as the
+     * encoding is cached.
      * 
      * @param success
      * @param output
      * @param logs
+     *            the logs, or null if none
      */
     public TransactionResult(boolean success, byte[] output, List<byte[]> logs) {
         super();
         this.success = success;
-        this.returns = output;
-        this.logs = logs;
+        this.returns = output.clone();
+        this.logs = (logs == null) ? new ArrayList<>() : new ArrayList<>(logs);
     }
 
     /**
@@ -143,26 +152,42 @@ public class TransactionResult {
 
     public void setSuccess(boolean success) {
         this.success = success;
+        this.bytes = null;
     }
 
+    /**
+     * Returns the transaction returns, which must not be modified as the encoding
+     * is cached. Use {@link #setReturns(byte[])} instead.
+     *
+     * @return
+     */
     public byte[] getReturns() {
         return returns;
     }
 
     public void setReturns(byte[] returns) {
-        this.returns = returns;
+        this.returns = returns.clone();
+        this.bytes = null;
     }
 
+    /**
+     * Returns the transaction logs, as an unmodifiable list since the encoding is
+     * cached. Use {@link #addLog(byte[])} or {@link #setLogs(List)} instead.
+     *
+     * @return
+     */
     public List<byte[]> getLogs() {
-        return logs;
+        return Collections.unmodifiableList(logs);
     }
 
     public void setLogs(List<byte[]> logs) {
-        this.logs = logs;
+        this.logs = (logs == null) ? new ArrayList<>() : new ArrayList<>(logs);
+        this.bytes = null;
     }
 
     public void addLog(byte[] log) {
         this.logs.add(log);
+        this.bytes = null;
     }
 
     public Error getError() {
@@ -174,15 +199,23 @@ public class TransactionResult {
     }
 
     public byte[] toBytes() {
-        SimpleEncoder enc = new SimpleEncoder();
-        enc.writeBoolean(success);
-        enc.writeBytes(returns);
-        enc.writeInt(logs.size());
-        for (byte[] log : logs) {
-            enc.writeBytes(log);
+        if (bytes == null) {
+            int size = 1 + SimpleEncoder.sizeOfBytes(returns.length) + 4;
+            for (byte[] log : logs) {
+                size += SimpleEncoder.sizeOfBytes(log.length);
+            }
+
+            SimpleEncoder enc = new SimpleEncoder(size);
+            enc.writeBoolean(success);
+            enc.writeBytes(returns);
+            enc.writeInt(logs.size());
+            for (byte[] log : logs) {
+                enc.writeBytes(log);
+            }
+            bytes = enc.toBytes();
         }
 
-        return enc.toBytes();
+        return bytes;
     }
 
     public static TransactionResult fromBytes(byte[] bytes) {
@@ -195,7 +228,11 @@ public class TransactionResult {
             logs.add(dec.readBytes());
         }
 
-        return new TransactionResult(valid, returns, logs);
+        TransactionResult result = new TransactionResult(valid, returns, logs);
+        if (dec.getReadIndex() == bytes.length) {
+            result.bytes = bytes;
+        }
+        return result;
     }
 
     @Override
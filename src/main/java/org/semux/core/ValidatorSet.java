@@ -0,0 +1,159 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang3.tuple.ImmutableTriple;
+import org.semux.config.Config;
+import org.semux.crypto.Hex;
+import org.semux.crypto.Key;
+import org.semux.util.ByteArray;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * An immutable set of validators, in the order of the validator list, with
+ * constant-time membership checks by address or by signature.
+ * <p>
+ * Signatures are matched by their public key, so that the address of a
+ * validator, a hash of its public key, is computed once per set only. The
+ * primary validators of recent heights and views are cached as well.
+ */
+public class ValidatorSet {
+
+    /**
+     * Number of <code>(height, view) -> primary validator</code> entries cached.
+     */
+    private static final int PRIMARY_CACHE_SIZE = 1024;
+
+    private final List<String> validators;
+    private final Set<String> addressStrings;
+    private final Set<ByteArray> addresses;
+    private final int twoThirds;
+
+    // the public keys of the validators which have been seen so far
+    private final Set<ByteArray> publicKeys = ConcurrentHashMap.newKeySet();
+
+    private final Cache<ImmutableTriple<Long, Integer, Boolean>, String> primaries = Caffeine.newBuilder()
+            .maximumSize(PRIMARY_CACHE_SIZE)
+            .build();
+
+    /**
+     * Creates a validator set.
+     *
+     * @param validators
+     *            the addresses of the validators, in hex
+     */
+    public ValidatorSet(List<String> validators) {
+        this.validators = Collections.unmodifiableList(new ArrayList<>(validators));
+        this.addressStrings = new HashSet<>(validators);
+        this.addresses = new HashSet<>();
+        for (String v : validators) {
+            addresses.add(ByteArray.of(Hex.decode0x(v)));
+        }
+        this.twoThirds = (int) Math.ceil(validators.size() * 2.0 / 3.0);
+    }
+
+    /**
+     * Returns the addresses of the validators, in hex.
+     *
+     * @return an unmodifiable list
+     */
+    public List<String> getValidators() {
+        return validators;
+    }
+
+    /**
+     * Returns the address of the i-th validator, in hex.
+     *
+     * @param i
+     * @return
+     */
+    public String get(int i) {
+        return validators.get(i);
+    }
+
+    /**
+     * Returns the number of validators.
+     *
+     * @return
+     */
+    public int size() {
+        return validators.size();
+    }
+
+    /**
+     * Returns the number of votes needed for a 2/3 majority.
+     *
+     * @return
+     */
+    public int getTwoThirds() {
+        return twoThirds;
+    }
+
+    /**
+     * Returns whether an address, in hex, is a validator.
+     *
+     * @param address
+     * @return
+     */
+    public boolean contains(String address) {
+        return addressStrings.contains(address);
+    }
+
+    /**
+     * Returns whether an address is a validator.
+     *
+     * @param address
+     * @return
+     */
+    public boolean contains(byte[] address) {
+        return addresses.contains(ByteArray.of(address));
+    }
+
+    /**
+     * Returns whether a signature is made by a validator. The signature itself is
+     * not verified.
+     *
+     * @param sig
+     * @return
+     */
+    public boolean contains(Key.Signature sig) {
+        ByteArray publicKey = ByteArray.of(sig.getA());
+        if (publicKeys.contains(publicKey)) {
+            return true;
+        }
+
+        if (contains(sig.getAddress())) {
+            publicKeys.add(publicKey);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the primary validator of a view, see
+     * {@link Config#getPrimaryValidator(List, long, int, boolean)}.
+     *
+     * @param config
+     * @param height
+     * @param view
+     * @param uniformDist
+     * @return the address of the primary validator, in hex
+     */
+    public String getPrimary(Config config, long height, int view, boolean uniformDist) {
+        return primaries.get(ImmutableTriple.of(height, view, uniformDist),
+                k -> config.getPrimaryValidator(validators, height, view, uniformDist));
+    }
+}
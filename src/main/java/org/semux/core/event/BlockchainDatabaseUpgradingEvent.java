@@ -6,9 +6,9 @@
  */
 package org.semux.core.event;
 
-import org.semux.event.PubSubEvent;
+import org.semux.event.CoalescablePubSubEvent;
 
-public class BlockchainDatabaseUpgradingEvent implements PubSubEvent {
+public class BlockchainDatabaseUpgradingEvent implements CoalescablePubSubEvent {
 
     public final Long loaded;
 
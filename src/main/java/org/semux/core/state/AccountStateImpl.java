@@ -8,12 +8,16 @@ package org.semux.core.state;
 
 import static org.semux.core.Amount.sum;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.semux.core.Amount;
 import org.semux.db.Database;
+import org.semux.db.DatabaseName;
 import org.semux.util.ByteArray;
 import org.semux.util.Bytes;
 
@@ -35,6 +39,7 @@ public class AccountStateImpl implements AccountState {
     protected static final byte TYPE_STORAGE = 2;
 
     protected Database accountDB;
+    protected StateTrie trie;
     protected AccountStateImpl prev;
 
     /**
@@ -51,6 +56,18 @@ public class AccountStateImpl implements AccountState {
         this.accountDB = accountDB;
     }
 
+    /**
+     * Create an {@link AccountState} that work directly on a database, and keeps
+     * the given trie up to date.
+     *
+     * @param accountDB
+     * @param trie
+     */
+    public AccountStateImpl(Database accountDB, StateTrie trie) {
+        this.accountDB = accountDB;
+        this.trie = trie;
+    }
+
     /**
      * Create an {@link AccountState} based on a previous AccountState.
      * 
@@ -62,14 +79,24 @@ public class AccountStateImpl implements AccountState {
 
     @Override
     public Account getAccount(byte[] address) {
-        ByteArray k = getKey(TYPE_ACCOUNT, address);
+        return getAccount(getKey(TYPE_ACCOUNT, address), address);
+    }
+
+    /**
+     * Looks up an account by its key, which is shared with the previous states.
+     *
+     * @param k
+     * @param address
+     * @return
+     */
+    protected Account getAccount(ByteArray k, byte[] address) {
         Amount noAmount = Amount.ZERO;
 
         if (updates.containsKey(k)) {
             byte[] v = updates.get(k);
             return v == null ? new Account(address, noAmount, noAmount, 0) : Account.fromBytes(address, v);
         } else if (prev != null) {
-            return prev.getAccount(address);
+            return prev.getAccount(k, address);
         } else {
             byte[] v = accountDB.get(k.getData());
             return v == null ? new Account(address, noAmount, noAmount, 0) : Account.fromBytes(address, v);
@@ -80,7 +107,7 @@ public class AccountStateImpl implements AccountState {
     public void increaseNonce(byte[] address) {
         ByteArray k = getKey(TYPE_ACCOUNT, address);
 
-        Account acc = getAccount(address);
+        Account acc = getAccount(k, address);
         acc.setNonce(acc.getNonce() + 1);
         updates.put(k, acc.toBytes());
     }
@@ -89,7 +116,7 @@ public class AccountStateImpl implements AccountState {
     public void adjustAvailable(byte[] address, Amount delta) {
         ByteArray k = getKey(TYPE_ACCOUNT, address);
 
-        Account acc = getAccount(address);
+        Account acc = getAccount(k, address);
         acc.setAvailable(sum(acc.getAvailable(), delta));
         updates.put(k, acc.toBytes());
     }
@@ -98,7 +125,7 @@ public class AccountStateImpl implements AccountState {
     public void adjustLocked(byte[] address, Amount delta) {
         ByteArray k = getKey(TYPE_ACCOUNT, address);
 
-        Account acc = getAccount(address);
+        Account acc = getAccount(k, address);
         acc.setLocked(sum(acc.getLocked(), delta));
         updates.put(k, acc.toBytes());
     }
@@ -137,13 +164,15 @@ public class AccountStateImpl implements AccountState {
     public void commit() {
         synchronized (updates) {
             if (prev == null) {
+                // written in a single batch
+                List<Pair<byte[], byte[]>> batch = new ArrayList<>(updates.size());
                 for (Map.Entry<ByteArray, byte[]> entry : updates.entrySet()) {
-                    if (entry.getValue() == null) {
-                        accountDB.delete(entry.getKey().getData());
-                    } else {
-                        accountDB.put(entry.getKey().getData(), entry.getValue());
+                    batch.add(Pair.of(entry.getKey().getData(), entry.getValue()));
+                    if (trie != null) {
+                        trie.update(DatabaseName.ACCOUNT, entry.getKey().getData(), entry.getValue());
                     }
                 }
+                accountDB.updateBatch(batch);
             } else {
                 for (Entry<ByteArray, byte[]> e : updates.entrySet()) {
                     prev.updates.put(e.getKey(), e.getValue());
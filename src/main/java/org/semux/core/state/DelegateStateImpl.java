@@ -19,9 +19,11 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.semux.core.Amount;
 import org.semux.core.Blockchain;
 import org.semux.db.Database;
+import org.semux.db.DatabaseName;
 import org.semux.util.ByteArray;
 import org.semux.util.Bytes;
 import org.semux.util.ClosableIterator;
@@ -55,6 +57,7 @@ public class DelegateStateImpl implements DelegateState {
 
     protected Database delegateDB;
     protected Database voteDB;
+    protected StateTrie trie;
     protected DelegateStateImpl prev;
 
     /**
@@ -79,6 +82,19 @@ public class DelegateStateImpl implements DelegateState {
         this.voteDB = voteDB;
     }
 
+    /**
+     * Create a DelegateState that work directly on a database, and keeps the
+     * given trie up to date.
+     *
+     * @param delegateDB
+     * @param voteDB
+     * @param trie
+     */
+    public DelegateStateImpl(Blockchain chain, Database delegateDB, Database voteDB, StateTrie trie) {
+        this(chain, delegateDB, voteDB);
+        this.trie = trie;
+    }
+
     /**
      * Create an DelegateState based on a previous DelegateState.
      * 
@@ -148,13 +164,22 @@ public class DelegateStateImpl implements DelegateState {
 
     @Override
     public Delegate getDelegateByName(byte[] name) {
-        ByteArray k = ByteArray.of(name);
+        return getDelegateByName(ByteArray.of(name));
+    }
 
+    /**
+     * Get a delegate by its name.
+     *
+     * @param k
+     *            the name, which is shared with the previous states.
+     * @return
+     */
+    protected Delegate getDelegateByName(ByteArray k) {
         if (delegateUpdates.containsKey(k)) {
             byte[] v = delegateUpdates.get(k);
             return v == null ? null : getDelegateByAddress(v);
         } else if (prev != null) {
-            return prev.getDelegateByName(name);
+            return prev.getDelegateByName(k);
         } else {
             byte[] v = delegateDB.get(k.getData());
             return v == null ? null : getDelegateByAddress(v);
@@ -163,13 +188,22 @@ public class DelegateStateImpl implements DelegateState {
 
     @Override
     public Delegate getDelegateByAddress(byte[] address) {
-        ByteArray k = ByteArray.of(address);
+        return getDelegateByAddress(ByteArray.of(address));
+    }
 
+    /**
+     * Get a delegate by its address.
+     *
+     * @param k
+     *            the address, which is shared with the previous states.
+     * @return
+     */
+    protected Delegate getDelegateByAddress(ByteArray k) {
         if (delegateUpdates.containsKey(k)) {
             byte[] v = delegateUpdates.get(k);
             return v == null ? null : Delegate.fromBytes(k.getData(), v);
         } else if (prev != null) {
-            return prev.getDelegateByAddress(address);
+            return prev.getDelegateByAddress(k);
         } else {
             byte[] v = delegateDB.get(k.getData());
             return v == null ? null : Delegate.fromBytes(k.getData(), v);
@@ -205,13 +239,14 @@ public class DelegateStateImpl implements DelegateState {
     public void commit() {
         synchronized (delegateUpdates) {
             if (prev == null) {
+                List<Pair<byte[], byte[]>> batch = new ArrayList<>(delegateUpdates.size());
                 for (Map.Entry<ByteArray, byte[]> entry : delegateUpdates.entrySet()) {
-                    if (entry.getValue() == null) {
-                        delegateDB.delete(entry.getKey().getData());
-                    } else {
-                        delegateDB.put(entry.getKey().getData(), entry.getValue());
+                    batch.add(Pair.of(entry.getKey().getData(), entry.getValue()));
+                    if (trie != null) {
+                        trie.update(DatabaseName.DELEGATE, entry.getKey().getData(), entry.getValue());
                     }
                 }
+                delegateDB.updateBatch(batch);
             } else {
                 for (Entry<ByteArray, byte[]> e : delegateUpdates.entrySet()) {
                     prev.delegateUpdates.put(e.getKey(), e.getValue());
@@ -223,13 +258,14 @@ public class DelegateStateImpl implements DelegateState {
 
         synchronized (voteUpdates) {
             if (prev == null) {
+                List<Pair<byte[], byte[]>> batch = new ArrayList<>(voteUpdates.size());
                 for (Map.Entry<ByteArray, byte[]> entry : voteUpdates.entrySet()) {
-                    if (entry.getValue() == null) {
-                        voteDB.delete(entry.getKey().getData());
-                    } else {
-                        voteDB.put(entry.getKey().getData(), entry.getValue());
+                    batch.add(Pair.of(entry.getKey().getData(), entry.getValue()));
+                    if (trie != null) {
+                        trie.update(DatabaseName.VOTE, entry.getKey().getData(), entry.getValue());
                     }
                 }
+                voteDB.updateBatch(batch);
             } else {
                 for (Entry<ByteArray, byte[]> e : voteUpdates.entrySet()) {
                     prev.voteUpdates.put(e.getKey(), e.getValue());
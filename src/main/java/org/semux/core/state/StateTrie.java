@@ -0,0 +1,531 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core.state;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.semux.crypto.Hash;
+import org.semux.crypto.Hex;
+import org.semux.db.Database;
+import org.semux.db.DatabaseName;
+import org.semux.util.Bytes;
+import org.semux.util.ClosableIterator;
+import org.semux.util.SimpleDecoder;
+import org.semux.util.SimpleEncoder;
+
+/**
+ * An authenticated structure over the account, delegate and vote databases: a
+ * binary Patricia trie whose root hash commits to every entry of the state.
+ * <p>
+ * Entries are keyed by the hash of their database and key, which keeps the
+ * trie balanced, about log2(n) levels deep. Every node caches its hash, so that
+ * updating k entries costs O(k log n) hashes when the root is next computed.
+ * The root doesn't depend on the order of the updates.
+ * <p>
+ * <pre>
+ * leaf hash = h256(0x00, key_hash, h256(value))
+ * branch hash = h256(0x01, left_hash, right_hash)
+ * </pre>
+ * <p>
+ * If a database is given, the nodes are stored in it, keyed by their position
+ * in the trie, and loaded on demand: only the top levels stay in memory once
+ * the changes are written. The root is saved along with the block it belongs
+ * to by {@link #flush(long)}, and dropped by the next update, so that a trie
+ * which missed some updates is never mistaken for an up-to-date one.
+ */
+public class StateTrie {
+
+    private static final byte LEAF = 0x00;
+    private static final byte BRANCH = 0x01;
+    private static final byte[] ROOT_KEY = { 0x02 };
+
+    private static final int LEAF_ID_LENGTH = 1 + 32;
+    private static final int BRANCH_ID_LENGTH = 2 + 32;
+    private static final int HASH_LENGTH = 32;
+
+    /**
+     * The levels of nodes kept in memory after the changes are written.
+     */
+    private static final int CACHE_DEPTH = 16;
+
+    /**
+     * The number of updates after which the changes are written, even though the
+     * trie isn't flushed yet.
+     */
+    private static final int MAX_PENDING_UPDATES = 100_000;
+
+    private final Database db;
+
+    private Node root;
+    private int size;
+    private long number = -1;
+
+    // the nodes removed since the changes were last written
+    private final List<byte[]> removed = new ArrayList<>();
+    private int pendingUpdates;
+
+    /**
+     * Creates an empty trie, kept in memory.
+     */
+    public StateTrie() {
+        this(null);
+    }
+
+    /**
+     * Creates a trie stored in the given database, and loads its root if saved.
+     *
+     * @param db
+     *            the database of the nodes, or null to keep them in memory
+     */
+    public StateTrie(Database db) {
+        this.db = db;
+
+        byte[] bytes = (db == null) ? null : db.get(ROOT_KEY);
+        if (bytes != null) {
+            SimpleDecoder dec = new SimpleDecoder(bytes);
+            number = dec.readLong();
+            size = dec.readInt();
+            byte[] ref = dec.readBytes();
+            root = (ref.length == 0) ? null : readRef(ref, 0);
+        }
+    }
+
+    /**
+     * Rebuilds the trie from the given databases, and flushes it.
+     *
+     * @param accountDB
+     * @param delegateDB
+     * @param voteDB
+     * @param number
+     *            the block the state belongs to
+     */
+    public synchronized void rebuild(Database accountDB, Database delegateDB, Database voteDB, long number) {
+        clear();
+        putAll(DatabaseName.ACCOUNT, accountDB);
+        putAll(DatabaseName.DELEGATE, delegateDB);
+        putAll(DatabaseName.VOTE, voteDB);
+        flush(number);
+    }
+
+    private void putAll(DatabaseName name, Database db) {
+        ClosableIterator<Entry<byte[], byte[]>> itr = db.iterator();
+        try {
+            while (itr.hasNext()) {
+                Entry<byte[], byte[]> e = itr.next();
+                update(name, e.getKey(), e.getValue());
+            }
+        } finally {
+            itr.close();
+        }
+    }
+
+    /**
+     * Removes all the entries, including the stored nodes.
+     */
+    public synchronized void clear() {
+        root = null;
+        size = 0;
+        number = -1;
+        removed.clear();
+        pendingUpdates = 0;
+
+        if (db != null) {
+            // the root first, which refers to the other nodes
+            db.delete(ROOT_KEY);
+
+            List<Pair<byte[], byte[]>> batch = new ArrayList<>();
+            ClosableIterator<Entry<byte[], byte[]>> itr = db.iterator();
+            try {
+                while (itr.hasNext()) {
+                    batch.add(Pair.of(itr.next().getKey(), null));
+                    if (batch.size() >= MAX_PENDING_UPDATES) {
+                        db.updateBatch(batch);
+                        batch.clear();
+                    }
+                }
+            } finally {
+                itr.close();
+            }
+            db.updateBatch(batch);
+        }
+    }
+
+    /**
+     * Updates an entry.
+     *
+     * @param name
+     *            the database of the entry
+     * @param key
+     * @param value
+     *            the new value, or null if deleted
+     */
+    public synchronized void update(DatabaseName name, byte[] key, byte[] value) {
+        if (number >= 0) {
+            // the saved root is outdated until the next flush
+            db.delete(ROOT_KEY);
+            number = -1;
+        }
+
+        byte[] k = Hash.h256(Bytes.merge((byte) name.ordinal(), key));
+        if (value == null) {
+            root = remove(root, k);
+        } else {
+            root = insert(root, k, Hash.h256(value));
+        }
+
+        if (db != null && ++pendingUpdates >= MAX_PENDING_UPDATES) {
+            db.updateBatch(writeNodes());
+        }
+    }
+
+    /**
+     * Writes the changes and saves the root, along with the block it belongs to.
+     * Does nothing if the trie is kept in memory.
+     *
+     * @param number
+     */
+    public synchronized void flush(long number) {
+        if (db == null) {
+            return;
+        }
+
+        List<Pair<byte[], byte[]>> batch = writeNodes();
+        SimpleEncoder enc = new SimpleEncoder();
+        enc.writeLong(number);
+        enc.writeInt(size);
+        enc.writeBytes(root == null ? Bytes.EMPTY_BYTES : Bytes.merge(root.getId(), root.getHash()));
+        batch.add(Pair.of(ROOT_KEY, enc.toBytes()));
+        db.updateBatch(batch);
+
+        this.number = number;
+    }
+
+    /**
+     * Returns the block of the saved root, or -1 if it's missing or outdated.
+     *
+     * @return
+     */
+    public synchronized long getNumber() {
+        return number;
+    }
+
+    /**
+     * Returns the root hash, or {@link Bytes#EMPTY_HASH} if the trie is empty.
+     *
+     * @return
+     */
+    public synchronized byte[] getRootHash() {
+        return root == null ? Bytes.EMPTY_HASH : root.getHash();
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns the batch which deletes the removed nodes and writes the changed
+     * ones, and unloads the nodes below {@link #CACHE_DEPTH}.
+     */
+    private List<Pair<byte[], byte[]>> writeNodes() {
+        List<Pair<byte[], byte[]>> batch = new ArrayList<>();
+        for (byte[] id : removed) {
+            batch.add(Pair.of(id, null));
+        }
+        removed.clear();
+        pendingUpdates = 0;
+
+        if (root != null) {
+            root = write(root, 0, batch);
+        }
+        return batch;
+    }
+
+    private Node write(Node node, int depth, List<Pair<byte[], byte[]>> batch) {
+        if (node instanceof Stub) {
+            return node;
+        }
+
+        if (node instanceof Branch) {
+            Branch branch = (Branch) node;
+            branch.left = write(branch.left, depth + 1, batch);
+            branch.right = write(branch.right, depth + 1, batch);
+        }
+        if (node.dirty) {
+            batch.add(Pair.of(node.getId(), node.toBytes()));
+            node.dirty = false;
+        }
+        return depth >= CACHE_DEPTH ? new Stub(node.getId(), node.getHash()) : node;
+    }
+
+    /**
+     * Loads the node a stub refers to.
+     */
+    private Node resolve(Node node) {
+        if (!(node instanceof Stub)) {
+            return node;
+        }
+
+        byte[] id = ((Stub) node).id;
+        byte[] bytes = db.get(id);
+        if (bytes == null) {
+            throw new IllegalStateException("Missing state trie node: " + Hex.encode(id));
+        }
+
+        Node n;
+        if (id[0] == LEAF) {
+            n = new Leaf(Arrays.copyOfRange(id, 1, id.length), bytes);
+        } else {
+            Stub left = readRef(bytes, 0);
+            Stub right = readRef(bytes, left.id.length + HASH_LENGTH);
+            n = new Branch(id[1] & 0xff, Arrays.copyOfRange(id, 2, id.length), left, right);
+        }
+        n.hash = node.hash;
+        n.dirty = false;
+        return n;
+    }
+
+    private static Stub readRef(byte[] bytes, int offset) {
+        int length = (bytes[offset] == LEAF) ? LEAF_ID_LENGTH : BRANCH_ID_LENGTH;
+        return new Stub(Arrays.copyOfRange(bytes, offset, offset + length),
+                Arrays.copyOfRange(bytes, offset + length, offset + length + HASH_LENGTH));
+    }
+
+    private Node insert(Node node, byte[] key, byte[] valueHash) {
+        if (node == null) {
+            size++;
+            return new Leaf(key, valueHash);
+        }
+
+        node = resolve(node);
+        if (node instanceof Leaf) {
+            Leaf leaf = (Leaf) node;
+            int diff = firstDiff(leaf.key, key);
+            if (diff < 0) {
+                if (!Arrays.equals(leaf.valueHash, valueHash)) {
+                    leaf.valueHash = valueHash;
+                    leaf.invalidate();
+                }
+                return leaf;
+            }
+            return fork(leaf, key, valueHash, diff);
+        }
+
+        Branch branch = (Branch) node;
+        int diff = firstDiff(branch.prefix, key);
+        if (diff >= 0 && diff < branch.bit) {
+            // the key doesn't belong to this subtree
+            return fork(branch, key, valueHash, diff);
+        }
+
+        if (bit(key, branch.bit)) {
+            branch.right = insert(branch.right, key, valueHash);
+        } else {
+            branch.left = insert(branch.left, key, valueHash);
+        }
+        branch.invalidate();
+        return branch;
+    }
+
+    private Node fork(Node node, byte[] key, byte[] valueHash, int diff) {
+        size++;
+        Leaf leaf = new Leaf(key, valueHash);
+        return bit(key, diff) ? new Branch(diff, key, node, leaf) : new Branch(diff, key, leaf, node);
+    }
+
+    private Node remove(Node node, byte[] key) {
+        if (node == null) {
+            return null;
+        }
+
+        node = resolve(node);
+        if (node instanceof Leaf) {
+            if (Arrays.equals(((Leaf) node).key, key)) {
+                size--;
+                onRemoved(node);
+                return null;
+            }
+            return node;
+        }
+
+        Branch branch = (Branch) node;
+        int prevSize = size;
+        if (bit(key, branch.bit)) {
+            branch.right = remove(branch.right, key);
+        } else {
+            branch.left = remove(branch.left, key);
+        }
+        if (size == prevSize) {
+            return branch;
+        }
+
+        // a branch with one child is replaced by the child
+        if (branch.left == null) {
+            onRemoved(branch);
+            return branch.right;
+        } else if (branch.right == null) {
+            onRemoved(branch);
+            return branch.left;
+        }
+        branch.invalidate();
+        return branch;
+    }
+
+    private void onRemoved(Node node) {
+        if (db != null) {
+            removed.add(node.getId());
+        }
+    }
+
+    /**
+     * Returns the index of the first bit which differs, or -1 if equal.
+     */
+    private static int firstDiff(byte[] a, byte[] b) {
+        for (int i = 0; i < a.length; i++) {
+            int x = (a[i] ^ b[i]) & 0xff;
+            if (x != 0) {
+                return i * 8 + Integer.numberOfLeadingZeros(x) - 24;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean bit(byte[] bytes, int i) {
+        return (bytes[i >>> 3] & (0x80 >>> (i & 7))) != 0;
+    }
+
+    /**
+     * Clears the bits from the given one.
+     */
+    private static byte[] mask(byte[] bytes, int bit) {
+        byte[] masked = new byte[bytes.length];
+        System.arraycopy(bytes, 0, masked, 0, bit >>> 3);
+        if ((bit & 7) != 0) {
+            masked[bit >>> 3] = (byte) (bytes[bit >>> 3] & (0xff << (8 - (bit & 7))));
+        }
+        return masked;
+    }
+
+    private abstract static class Node {
+        // cached hash, or null if outdated
+        byte[] hash;
+        // changed since last written
+        boolean dirty = true;
+
+        void invalidate() {
+            hash = null;
+            dirty = true;
+        }
+
+        /**
+         * Returns the position of this node, which is its key in the database.
+         */
+        abstract byte[] getId();
+
+        abstract byte[] getHash();
+
+        abstract byte[] toBytes();
+    }
+
+    private static final class Leaf extends Node {
+        final byte[] key;
+        byte[] valueHash;
+
+        Leaf(byte[] key, byte[] valueHash) {
+            this.key = key;
+            this.valueHash = valueHash;
+        }
+
+        @Override
+        byte[] getId() {
+            return Bytes.merge(LEAF, key);
+        }
+
+        @Override
+        byte[] getHash() {
+            if (hash == null) {
+                hash = Hash.h256(Bytes.merge(new byte[] { LEAF }, key, valueHash));
+            }
+            return hash;
+        }
+
+        @Override
+        byte[] toBytes() {
+            return valueHash;
+        }
+    }
+
+    private static final class Branch extends Node {
+        // the bit where the children differ
+        final int bit;
+        // the bits shared by the keys of this subtree, followed by zeros
+        final byte[] prefix;
+        Node left;
+        Node right;
+
+        Branch(int bit, byte[] prefix, Node left, Node right) {
+            this.bit = bit;
+            this.prefix = mask(prefix, bit);
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        byte[] getId() {
+            return Bytes.merge(new byte[] { BRANCH, (byte) bit }, prefix);
+        }
+
+        @Override
+        byte[] getHash() {
+            if (hash == null) {
+                hash = Hash.h256(Bytes.merge(new byte[] { BRANCH }, left.getHash(), right.getHash()));
+            }
+            return hash;
+        }
+
+        @Override
+        byte[] toBytes() {
+            return Bytes.merge(left.getId(), left.getHash(), right.getId(), right.getHash());
+        }
+    }
+
+    /**
+     * A node which isn't loaded yet.
+     */
+    private static final class Stub extends Node {
+        final byte[] id;
+
+        Stub(byte[] id, byte[] hash) {
+            this.id = id;
+            this.hash = hash;
+            this.dirty = false;
+        }
+
+        @Override
+        byte[] getId() {
+            return id;
+        }
+
+        @Override
+        byte[] getHash() {
+            return hash;
+        }
+
+        @Override
+        byte[] toBytes() {
+            throw new UnsupportedOperationException("Stubs aren't written");
+        }
+    }
+}
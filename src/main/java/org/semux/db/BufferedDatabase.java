@@ -0,0 +1,206 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.db;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.semux.util.ByteArray;
+import org.semux.util.ClosableIterator;
+
+/**
+ * A database which keeps the updates in memory, and writes them into the
+ * underlying database in a single batch when flushed.
+ * <p>
+ * Reads see the buffered updates. Iterators and snapshots are only supported
+ * when there is no buffered update.
+ */
+public class BufferedDatabase implements Database {
+
+    private final Database db;
+
+    /**
+     * Buffered updates, or deletes if the value is null.
+     */
+    private final Map<ByteArray, byte[]> updates = new HashMap<>();
+
+    public BufferedDatabase(Database db) {
+        this.db = db;
+    }
+
+    @Override
+    public synchronized byte[] get(byte[] key) {
+        ByteArray k = ByteArray.of(key);
+        return updates.containsKey(k) ? updates.get(k) : db.get(key);
+    }
+
+    @Override
+    public synchronized void put(byte[] key, byte[] value) {
+        updates.put(ByteArray.of(key), value);
+    }
+
+    @Override
+    public synchronized void delete(byte[] key) {
+        updates.put(ByteArray.of(key), null);
+    }
+
+    @Override
+    public synchronized void updateBatch(List<Pair<byte[], byte[]>> pairs) {
+        for (Pair<byte[], byte[]> p : pairs) {
+            updates.put(ByteArray.of(p.getLeft()), p.getRight());
+        }
+    }
+
+    /**
+     * Writes the buffered updates into the underlying database.
+     */
+    public synchronized void flush() {
+        if (updates.isEmpty()) {
+            return;
+        }
+
+        List<Pair<byte[], byte[]>> batch = new ArrayList<>(updates.size());
+        for (Entry<ByteArray, byte[]> e : updates.entrySet()) {
+            batch.add(Pair.of(e.getKey().getData(), e.getValue()));
+        }
+        db.updateBatch(batch);
+        updates.clear();
+    }
+
+    /**
+     * Returns the number of buffered updates.
+     *
+     * @return
+     */
+    public synchronized int size() {
+        return updates.size();
+    }
+
+    /**
+     * Discards the buffered updates.
+     */
+    public synchronized void discard() {
+        updates.clear();
+    }
+
+    @Override
+    public synchronized ClosableIterator<Entry<byte[], byte[]>> iterator() {
+        checkFlushed();
+        return db.iterator();
+    }
+
+    @Override
+    public synchronized ClosableIterator<Entry<byte[], byte[]>> iterator(byte[] prefix) {
+        checkFlushed();
+        return db.iterator(prefix);
+    }
+
+    @Override
+    public synchronized Database snapshot() {
+        checkFlushed();
+        return db.snapshot();
+    }
+
+    private void checkFlushed() {
+        if (!updates.isEmpty()) {
+            throw new UnsupportedOperationException("The database has buffered updates");
+        }
+    }
+
+    /**
+     * Closes the underlying database. The buffered updates are discarded.
+     */
+    @Override
+    public synchronized void close() {
+        updates.clear();
+        db.close();
+    }
+
+    @Override
+    public synchronized void destroy() {
+        updates.clear();
+        db.destroy();
+    }
+
+    @Override
+    public Path getDataDir() {
+        return db.getDataDir();
+    }
+
+    /**
+     * A factory which buffers the updates of some of the databases of another
+     * factory, until flushed.
+     */
+    public static class BufferedFactory implements DatabaseFactory {
+
+        private final DatabaseFactory factory;
+        private final Map<DatabaseName, BufferedDatabase> databases = new LinkedHashMap<>();
+
+        /**
+         * Creates a factory.
+         *
+         * @param factory
+         *            the underlying factory
+         * @param names
+         *            the databases to buffer, in the order they are flushed
+         */
+        public BufferedFactory(DatabaseFactory factory, DatabaseName... names) {
+            this.factory = factory;
+            for (DatabaseName name : names) {
+                databases.put(name, new BufferedDatabase(factory.getDB(name)));
+            }
+        }
+
+        @Override
+        public Database getDB(DatabaseName name) {
+            BufferedDatabase db = databases.get(name);
+            return db == null ? factory.getDB(name) : db;
+        }
+
+        /**
+         * Writes the buffered updates of all the databases, in order.
+         */
+        public void flush() {
+            for (BufferedDatabase db : databases.values()) {
+                db.flush();
+            }
+        }
+
+        @Override
+        public void open() throws IOException {
+            factory.open();
+        }
+
+        /**
+         * Closes the underlying factory. The buffered updates are discarded.
+         */
+        @Override
+        public void close() {
+            for (BufferedDatabase db : databases.values()) {
+                db.discard();
+            }
+            factory.close();
+        }
+
+        @Override
+        public Path getDataDir() {
+            return factory.getDataDir();
+        }
+
+        @Override
+        public void moveTo(Path path) throws IOException {
+            factory.moveTo(path);
+        }
+    }
+}
@@ -72,6 +72,17 @@ public interface Database {
      */
     ClosableIterator<Entry<byte[], byte[]>> iterator(byte[] prefix);
 
+    /**
+     * Returns a read-only view of the current content of this database, which is
+     * not affected by later updates. Updating the view is not supported.<br>
+     * <br>
+     * NOTE: be sure to close the view after use, as it holds back the cleanup of
+     * overwritten data.
+     *
+     * @return
+     */
+    Database snapshot();
+
     /**
      * Closes the database.
      */
@@ -31,5 +31,10 @@ public enum DatabaseName {
     /**
      * Delegate vote data.
      */
-    VOTE
+    VOTE,
+
+    /**
+     * State trie nodes, derived from the account, delegate and vote data.
+     */
+    TRIE
 }
\ No newline at end of file
@@ -15,6 +15,8 @@ import java.util.EnumMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.commons.lang3.tuple.Pair;
@@ -23,6 +25,8 @@ import org.iq80.leveldb.CompressionType;
 import org.iq80.leveldb.DB;
 import org.iq80.leveldb.DBIterator;
 import org.iq80.leveldb.Options;
+import org.iq80.leveldb.ReadOptions;
+import org.iq80.leveldb.Snapshot;
 import org.iq80.leveldb.WriteBatch;
 import org.semux.db.exception.DatabaseException;
 import org.semux.util.ClosableIterator;
@@ -39,6 +43,11 @@ public class LeveldbDatabase implements Database {
     private DB db;
     private boolean isOpened;
 
+    /**
+     * Snapshots not closed yet, which are released when the database is closed.
+     */
+    private final Set<LeveldbSnapshot> snapshots = ConcurrentHashMap.newKeySet();
+
     public LeveldbDatabase(File file) {
         this.file = file;
 
@@ -147,9 +156,17 @@ public class LeveldbDatabase implements Database {
     }
 
     @Override
-    public void close() {
+    public LeveldbSnapshot snapshot() {
+        LeveldbSnapshot snapshot = new LeveldbSnapshot(db.getSnapshot());
+        snapshots.add(snapshot);
+        return snapshot;
+    }
+
+    @Override
+    public synchronized void close() {
         try {
             if (isOpened) {
+                snapshots.forEach(LeveldbSnapshot::close);
                 db.close();
                 isOpened = false;
             }
@@ -176,9 +193,13 @@ public class LeveldbDatabase implements Database {
 
     @Override
     public ClosableIterator<Entry<byte[], byte[]>> iterator(byte[] prefix) {
+        return iterator(prefix, new ReadOptions());
+    }
+
+    private ClosableIterator<Entry<byte[], byte[]>> iterator(byte[] prefix, ReadOptions options) {
 
         return new ClosableIterator<Entry<byte[], byte[]>>() {
-            final DBIterator itr = db.iterator();
+            final DBIterator itr = db.iterator(options);
 
             private ClosableIterator<Entry<byte[], byte[]>> initialize() {
                 if (prefix != null) {
@@ -210,6 +231,92 @@ public class LeveldbDatabase implements Database {
         }.initialize();
     }
 
+    /**
+     * A LevelDB snapshot, which is a consistent read-only view of the database.
+     */
+    public class LeveldbSnapshot implements Database {
+
+        private final Snapshot snapshot;
+        private final ReadOptions options;
+        private volatile boolean isClosed;
+
+        private LeveldbSnapshot(Snapshot snapshot) {
+            this.snapshot = snapshot;
+            this.options = new ReadOptions().snapshot(snapshot);
+        }
+
+        @Override
+        public byte[] get(byte[] key) {
+            checkNotClosed();
+            return db.get(key, options);
+        }
+
+        @Override
+        public void put(byte[] key, byte[] value) {
+            throw new UnsupportedOperationException("Snapshots are read-only");
+        }
+
+        @Override
+        public void delete(byte[] key) {
+            throw new UnsupportedOperationException("Snapshots are read-only");
+        }
+
+        @Override
+        public void updateBatch(List<Pair<byte[], byte[]>> pairs) {
+            throw new UnsupportedOperationException("Snapshots are read-only");
+        }
+
+        @Override
+        public ClosableIterator<Entry<byte[], byte[]>> iterator() {
+            return iterator(null);
+        }
+
+        @Override
+        public ClosableIterator<Entry<byte[], byte[]>> iterator(byte[] prefix) {
+            checkNotClosed();
+            return LeveldbDatabase.this.iterator(prefix, options);
+        }
+
+        @Override
+        public Database snapshot() {
+            throw new UnsupportedOperationException("Snapshots can not be nested");
+        }
+
+        /**
+         * Releases this snapshot. It's a no-op if already released.
+         */
+        @Override
+        public void close() {
+            synchronized (LeveldbDatabase.this) {
+                if (!isClosed) {
+                    isClosed = true;
+                    snapshots.remove(this);
+                    try {
+                        snapshot.close();
+                    } catch (IOException e) {
+                        logger.error("Failed to release snapshot: {}", file, e);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void destroy() {
+            throw new UnsupportedOperationException("Snapshots can not be destroyed");
+        }
+
+        @Override
+        public Path getDataDir() {
+            return file.toPath();
+        }
+
+        private void checkNotClosed() {
+            if (isClosed) {
+                throw new DatabaseException("The snapshot has been closed");
+            }
+        }
+    }
+
     public static class LeveldbFactory implements DatabaseFactory {
 
         private final EnumMap<DatabaseName, Database> databases = new EnumMap<>(DatabaseName.class);
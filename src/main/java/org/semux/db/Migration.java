@@ -6,9 +6,174 @@
  */
 package org.semux.db;
 
-import org.semux.config.Config;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
-public interface Migration {
+import org.semux.db.exception.DatabaseException;
+import org.semux.event.PubSub;
+import org.semux.event.PubSubEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-    void migrate(Config config, DatabaseFactory dbFactory);
+/**
+ * A database migration, which processes a range of numbered items, e.g.
+ * blocks, in order.
+ * <p>
+ * The migration is a pipeline: while a batch of items is being applied, the
+ * next one is read and verified in parallel. The updates of a batch are written
+ * at a checkpoint, together with the progress, so that an interrupted migration
+ * resumes from the last checkpoint instead of the first item.
+ *
+ * @param <T>
+ *            the type of the items
+ */
+public abstract class Migration<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(Migration.class);
+
+    private final PubSub pubSub;
+    private final int batchSize;
+
+    /**
+     * Creates a migration.
+     *
+     * @param pubSub
+     *            the pubsub to report the progress to
+     * @param batchSize
+     *            the number of items between two checkpoints
+     */
+    protected Migration(PubSub pubSub, int batchSize) {
+        this.pubSub = pubSub;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Returns the next item to migrate, as recorded by the last checkpoint.
+     *
+     * @return
+     */
+    protected abstract long getCheckpoint();
+
+    /**
+     * Returns the last item to migrate.
+     *
+     * @return
+     */
+    protected abstract long getLast();
+
+    /**
+     * Reads an item. It's called from multiple threads.
+     *
+     * @param number
+     * @return the item, or null if it doesn't exist
+     */
+    protected abstract T read(long number);
+
+    /**
+     * Checks an item before it's applied. It's called from multiple threads.
+     *
+     * @param item
+     * @return
+     */
+    protected boolean verify(T item) {
+        return true;
+    }
+
+    /**
+     * Applies an item. The updates may be kept in memory until the next
+     * checkpoint.
+     *
+     * @param item
+     */
+    protected abstract void apply(T item);
+
+    /**
+     * Writes the updates of the items applied since the previous checkpoint, and
+     * records the progress.
+     *
+     * @param next
+     *            the next item to migrate
+     */
+    protected abstract void checkpoint(long next);
+
+    /**
+     * Creates the event which reports the progress.
+     *
+     * @param migrated
+     *            the last item migrated
+     * @param last
+     *            the last item to migrate
+     * @return
+     */
+    protected abstract PubSubEvent createProgressEvent(long migrated, long last);
+
+    /**
+     * Migrates all the items from the last checkpoint.
+     *
+     * @return the number of items migrated
+     * @throws DatabaseException
+     *             if an item is missing or invalid; the items before its batch
+     *             are kept
+     */
+    public long run() {
+        long first = getCheckpoint();
+        long last = getLast();
+        if (first > last) {
+            return 0;
+        }
+        logger.info("Migrating items [{}, {}]", first, last);
+
+        long t1 = System.currentTimeMillis();
+        CompletableFuture<List<T>> batch = readAsync(first, Math.min(first + batchSize - 1, last));
+        for (long from = first; from <= last; from += batchSize) {
+            long to = Math.min(from + batchSize - 1, last);
+            List<T> items = join(batch);
+
+            if (to < last) {
+                batch = readAsync(to + 1, Math.min(to + batchSize, last));
+            }
+
+            for (T item : items) {
+                apply(item);
+            }
+            checkpoint(to + 1);
+
+            pubSub.publish(createProgressEvent(to, last));
+            logger.info("Migrated {} / {}", to, last);
+        }
+
+        long t2 = System.currentTimeMillis();
+        logger.info("Migrated items: # = {}, time = {} ms", last - first + 1, t2 - t1);
+        return last - first + 1;
+    }
+
+    /**
+     * Reads and verifies a range of items in parallel.
+     *
+     * @param from
+     * @param to
+     *            the last item, inclusive
+     * @return the items, in order
+     */
+    private CompletableFuture<List<T>> readAsync(long from, long to) {
+        return CompletableFuture.supplyAsync(() -> LongStream.rangeClosed(from, to).parallel().mapToObj(i -> {
+            T item = read(i);
+            if (item == null || !verify(item)) {
+                throw new DatabaseException("Missing or invalid item: " + i);
+            }
+            return item;
+        }).collect(Collectors.toList()));
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw (e.getCause() instanceof DatabaseException) ? (DatabaseException) e.getCause()
+                    : new DatabaseException(e.getCause());
+        }
+    }
 }
@@ -0,0 +1,15 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.event;
+
+/**
+ * An event which is superseded by a newer event of the same class, such as a
+ * progress update. When a subscriber falls behind, only the latest pending
+ * event of each coalescable class is delivered to it.
+ */
+public interface CoalescablePubSubEvent extends PubSubEvent {
+}
@@ -6,10 +6,19 @@
  */
 package org.semux.event;
 
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
 
 import org.semux.util.exception.UnreachableException;
 import org.slf4j.Logger;
@@ -19,36 +28,72 @@ import org.slf4j.LoggerFactory;
  * PubSub is a a communication channel between different components of Semux
  * wallet. Instances of PubSub should only be created using
  * {@link PubSubFactory}.
+ * <p>
+ * Every subscriber has its own lane: a bounded, lock-free queue which is
+ * drained by a shared pool of threads, one batch at a time. Events are
+ * delivered to each subscriber in the order they were published, while a slow
+ * subscriber only delays itself. When a lane is full, new events for that
+ * subscriber are dropped, except {@link CoalescablePubSubEvent}s, which replace
+ * the pending event of the same class instead of taking up more room.
  */
 public class PubSub {
 
     private static final Logger logger = LoggerFactory.getLogger(PubSub.class);
 
+    /**
+     * Default max number of pending events of each subscriber.
+     */
+    public static final int DEFAULT_LANE_CAPACITY = 4096;
+
+    /**
+     * Max number of events delivered in one go, before yielding the thread to
+     * other subscribers.
+     */
+    private static final int MAX_BATCH_SIZE = 64;
+
+    private static final int MAX_THREADS = 4;
+
     private final String name;
 
-    private final LinkedBlockingQueue<PubSubEvent> queue;
+    private final int laneCapacity;
+
+    /**
+     * [event] => [list of lanes]
+     */
+    private final ConcurrentHashMap<Class<? extends PubSubEvent>, CopyOnWriteArrayList<Lane>> subscribers;
 
     /**
-     * [event] => [list of subscribers]
+     * [subscriber] => [lane]
      */
-    private final ConcurrentHashMap<Class<? extends PubSubEvent>, ConcurrentLinkedQueue<PubSubSubscriber>> subscribers;
+    private final ConcurrentHashMap<PubSubSubscriber, Lane> lanes;
 
-    private Thread eventProcessingThread;
+    private ThreadPoolExecutor executor;
 
     private final AtomicBoolean isRunning;
 
+    private final AtomicLong publishedEvents = new AtomicLong(0);
+    private final AtomicLong dispatchedEvents = new AtomicLong(0);
+    private final AtomicLong droppedEvents = new AtomicLong(0);
+    private final AtomicLong totalDispatchLatency = new AtomicLong(0);
+    private final LongAccumulator maxDispatchLatency = new LongAccumulator(Math::max, 0);
+
     protected PubSub(String name) {
+        this(name, DEFAULT_LANE_CAPACITY);
+    }
+
+    protected PubSub(String name, int laneCapacity) {
         this.name = name;
-        queue = new LinkedBlockingQueue<>();
+        this.laneCapacity = laneCapacity;
         subscribers = new ConcurrentHashMap<>();
+        lanes = new ConcurrentHashMap<>();
         isRunning = new AtomicBoolean(false);
     }
 
     /**
-     * Add an event to {@link this#queue}.
+     * Dispatches an event to the subscribers of its class.
      *
      * @param event
-     *            the event to be subscribed.
+     *            the event to be published.
      * @return whether the event is successfully added.
      */
     public boolean publish(PubSubEvent event) {
@@ -58,8 +103,15 @@ public class PubSub {
             return false;
         }
 
-        return queue
-                .add(event);
+        publishedEvents.incrementAndGet();
+        CopyOnWriteArrayList<Lane> q = subscribers.get(event.getClass());
+        if (q != null) {
+            long now = System.nanoTime();
+            for (Lane lane : q) {
+                lane.offer(event, now);
+            }
+        }
+        return true;
     }
 
     /**
@@ -72,10 +124,13 @@ public class PubSub {
      */
     @SafeVarargs
     public final void subscribe(PubSubSubscriber subscriber, Class<? extends PubSubEvent>... eventClss) {
+        Lane lane = lanes.computeIfAbsent(subscriber, Lane::new);
         for (Class<? extends PubSubEvent> eventCls : eventClss) {
-            subscribers
-                    .computeIfAbsent(eventCls, k -> new ConcurrentLinkedQueue<>())
-                    .add(subscriber);
+            if (lane.eventClasses.add(eventCls)) {
+                subscribers
+                        .computeIfAbsent(eventCls, k -> new CopyOnWriteArrayList<>())
+                        .add(lane);
+            }
         }
     }
 
@@ -89,12 +144,19 @@ public class PubSub {
      * @return whether the event is successfully unsubscribed.
      */
     public boolean unsubscribe(PubSubSubscriber subscriber, Class<? extends PubSubEvent> event) {
-        ConcurrentLinkedQueue<?> q = subscribers.get(event);
-        if (q != null) {
-            return q.remove(subscriber);
-        } else {
+        Lane lane = lanes.get(subscriber);
+        if (lane == null || !lane.eventClasses.remove(event)) {
             return false;
         }
+
+        CopyOnWriteArrayList<Lane> q = subscribers.get(event);
+        if (q != null) {
+            q.remove(lane);
+        }
+        if (lane.eventClasses.isEmpty()) {
+            lanes.remove(subscriber, lane);
+        }
+        return true;
     }
 
     /**
@@ -104,11 +166,15 @@ public class PubSub {
      *            the subscriber.
      */
     public void unsubscribeAll(final PubSubSubscriber subscriber) {
-        subscribers.values().forEach(q -> q.remove(subscriber));
+        Lane lane = lanes.remove(subscriber);
+        if (lane != null) {
+            lane.eventClasses.clear();
+            subscribers.values().forEach(q -> q.remove(lane));
+        }
     }
 
     /**
-     * Start the {@link this#eventProcessingThread}.
+     * Start dispatching events.
      *
      * @throws UnreachableException
      *             this method should only be called for once, otherwise an
@@ -119,57 +185,218 @@ public class PubSub {
             throw new UnreachableException("PubSub service can be started for only once");
         }
 
-        eventProcessingThread = new EventProcessingThread();
-        eventProcessingThread.start();
+        ThreadFactory factory = new ThreadFactory() {
+            final AtomicInteger cnt = new AtomicInteger(0);
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "pubsub-event-processing-" + name + "-" + cnt.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            }
+        };
+        executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), factory);
+        executor.allowCoreThreadTimeOut(true);
         logger.info("PubSub service started");
     }
 
     /**
-     * Stop the {@link this#eventProcessingThread}.
+     * Stop dispatching events. Pending events are discarded.
      */
     public synchronized void stop() {
-        eventProcessingThread.interrupt();
-        logger.info("PubSub service stopped");
+        if (isRunning.compareAndSet(true, false)) {
+            executor.shutdownNow();
+            lanes.values().forEach(Lane::clear);
+        }
+        logger.info("PubSub service stopped: published = {}, dispatched = {}, dropped = {}, max latency = {} ms",
+                getPublishedEvents(), getDispatchedEvents(), getDroppedEvents(),
+                TimeUnit.NANOSECONDS.toMillis(getMaxDispatchLatency()));
+    }
+
+    /**
+     * Returns the number of published events.
+     *
+     * @return
+     */
+    public long getPublishedEvents() {
+        return publishedEvents.get();
     }
 
     /**
-     * This thread will be continuously polling for new events until PubSub is
-     * stopped.
+     * Returns the number of events delivered to subscribers; an event is counted
+     * once per subscriber.
+     *
+     * @return
      */
-    private class EventProcessingThread extends Thread {
+    public long getDispatchedEvents() {
+        return dispatchedEvents.get();
+    }
 
-        private EventProcessingThread() {
-            super("pubsub-event-processing-" + name);
+    /**
+     * Returns the number of events dropped because a subscriber's lane was full.
+     *
+     * @return
+     */
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    /**
+     * Returns the number of events waiting to be delivered, over all subscribers.
+     *
+     * @return
+     */
+    public int getBacklog() {
+        return lanes.values().stream().mapToInt(lane -> lane.size.get()).sum();
+    }
+
+    /**
+     * Returns the average time between publishing and delivering an event, in
+     * nanoseconds.
+     *
+     * @return
+     */
+    public long getAverageDispatchLatency() {
+        long dispatched = dispatchedEvents.get();
+        return dispatched == 0 ? 0 : totalDispatchLatency.get() / dispatched;
+    }
+
+    /**
+     * Returns the max time between publishing and delivering an event, in
+     * nanoseconds.
+     *
+     * @return
+     */
+    public long getMaxDispatchLatency() {
+        return maxDispatchLatency.get();
+    }
+
+    /**
+     * A queued event. For coalescable events, the queue only holds a placeholder
+     * and the latest event is kept in {@link Lane#coalesced}.
+     */
+    private static class Envelope {
+        final PubSubEvent event;
+        final Class<? extends PubSubEvent> coalescedClass;
+        final long publishedAt;
+
+        Envelope(PubSubEvent event, Class<? extends PubSubEvent> coalescedClass, long publishedAt) {
+            this.event = event;
+            this.coalescedClass = coalescedClass;
+            this.publishedAt = publishedAt;
+        }
+    }
+
+    /**
+     * The pending events of a subscriber.
+     */
+    private class Lane implements Runnable {
+
+        final PubSubSubscriber subscriber;
+
+        final Set<Class<? extends PubSubEvent>> eventClasses = ConcurrentHashMap.newKeySet();
+
+        final ConcurrentLinkedQueue<Envelope> queue = new ConcurrentLinkedQueue<>();
+
+        final AtomicInteger size = new AtomicInteger(0);
+
+        /**
+         * [event class] => [latest pending event]
+         */
+        final ConcurrentHashMap<Class<? extends PubSubEvent>, Envelope> coalesced = new ConcurrentHashMap<>();
+
+        final AtomicBoolean isScheduled = new AtomicBoolean(false);
+
+        Lane(PubSubSubscriber subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        void offer(PubSubEvent event, long now) {
+            if (event instanceof CoalescablePubSubEvent) {
+                Class<? extends PubSubEvent> cls = event.getClass();
+                boolean[] isNew = { false };
+                coalesced.compute(cls, (k, v) -> {
+                    // keep the time of the first superseded event for latency stats
+                    isNew[0] = v == null;
+                    return new Envelope(event, cls, v == null ? now : v.publishedAt);
+                });
+                if (isNew[0]) {
+                    size.incrementAndGet();
+                    queue.add(new Envelope(null, cls, now));
+                }
+            } else {
+                if (size.incrementAndGet() > laneCapacity) {
+                    size.decrementAndGet();
+                    droppedEvents.incrementAndGet();
+                    logger.debug("Event dropped, the subscriber is too slow: {}", event.getClass().getSimpleName());
+                    return;
+                }
+                queue.add(new Envelope(event, null, now));
+            }
+
+            schedule();
+        }
+
+        void schedule() {
+            if (isScheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    // stopped
+                    isScheduled.set(false);
+                }
+            }
+        }
+
+        void clear() {
+            queue.clear();
+            coalesced.clear();
+            size.set(0);
+            // the task may have been discarded by the executor, schedule it again
+            isScheduled.set(false);
         }
 
         @Override
         public void run() {
-            while (!isInterrupted()) {
-                final PubSubEvent event;
-                try {
-                    event = queue.take();
-                } catch (InterruptedException e) {
-                    interrupt();
-                    return;
+            for (int i = 0; i < MAX_BATCH_SIZE; i++) {
+                Envelope envelope = queue.poll();
+                if (envelope == null) {
+                    break;
                 }
+                size.decrementAndGet();
 
-                ConcurrentLinkedQueue<PubSubSubscriber> q = subscribers.get(event.getClass());
-                if (q != null) {
-                    for (PubSubSubscriber subscriber : q) {
-                        try {
-                            subscriber.onPubSubEvent(event);
-                        } catch (Exception e) {
-                            logger.error("Event processing error", e);
-                        }
+                if (envelope.event == null) {
+                    envelope = coalesced.remove(envelope.coalescedClass);
+                    if (envelope == null) {
+                        continue;
                     }
                 }
+                deliver(envelope);
+            }
+
+            isScheduled.set(false);
+            if (!queue.isEmpty()) {
+                schedule();
             }
         }
 
-        @Override
-        public void interrupt() {
-            super.interrupt();
-            isRunning.set(false);
+        private void deliver(Envelope envelope) {
+            // the subscriber may have unsubscribed after the event was queued
+            if (!eventClasses.contains(envelope.event.getClass())) {
+                return;
+            }
+
+            long latency = System.nanoTime() - envelope.publishedAt;
+            dispatchedEvents.incrementAndGet();
+            totalDispatchLatency.addAndGet(latency);
+            maxDispatchLatency.accumulate(latency);
+
+            try {
+                subscriber.onPubSubEvent(envelope.event);
+            } catch (Exception e) {
+                logger.error("Event processing error", e);
+            }
         }
     }
 }
@@ -31,7 +31,9 @@ import org.semux.config.Constants;
 import org.semux.config.exception.ConfigException;
 import org.semux.core.Block;
 import org.semux.core.Blockchain;
+import org.semux.core.BlockchainSnapshot;
 import org.semux.core.Transaction;
+import org.semux.core.ValidatorSet;
 import org.semux.core.Wallet;
 import org.semux.core.event.WalletLoadingEvent;
 import org.semux.core.state.Account;
@@ -399,13 +401,19 @@ public class SemuxGui extends Launcher {
     }
 
     /**
-     * Update the model.
+     * Update the model, from a snapshot of the blockchain so that the accounts,
+     * transactions and delegates are all consistent with the latest block.
      */
     public void updateModel() {
-        Blockchain chain = kernel.getBlockchain();
+        try (BlockchainSnapshot chain = kernel.getBlockchain().getSnapshot()) {
+            updateModel(chain);
+        }
+    }
+
+    private void updateModel(Blockchain chain) {
         AccountState as = chain.getAccountState();
         DelegateState ds = chain.getDelegateState();
-        Block block = kernel.getBlockchain().getLatestBlock();
+        Block block = chain.getLatestBlock();
 
         // update latest block and coinbase delegate status
         model.setSyncProgress(kernel.getSyncManager().getProgress());
@@ -413,7 +421,7 @@ public class SemuxGui extends Launcher {
 
         // update coinbase
         boolean isDelegate = ds.getDelegateByAddress(kernel.getCoinbase().toAddress()) != null;
-        boolean isValidator = chain.getValidators().contains(kernel.getCoinbase().toAddressString());
+        boolean isValidator = chain.getValidatorSet().contains(kernel.getCoinbase().toAddress());
         model.setCoinbase(kernel.getCoinbase());
         model.setStatus(isValidator ? Status.VALIDATOR : (isDelegate ? Status.DELEGATE : Status.NORMAL));
 
@@ -441,7 +449,7 @@ public class SemuxGui extends Launcher {
 
         // update delegates
         List<WalletDelegate> wds = new ArrayList<>();
-        List<String> validators = chain.getValidators();
+        ValidatorSet validators = chain.getValidatorSet();
         Map<String, Integer> validatorPositionMap = IntStream
                 .range(0, validators.size())
                 .boxed()
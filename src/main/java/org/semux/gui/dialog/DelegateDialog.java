@@ -16,7 +16,7 @@ import javax.swing.JLabel;
 import javax.swing.JTextArea;
 import javax.swing.LayoutStyle.ComponentPlacement;
 
-import org.semux.core.Block;
+import org.semux.core.BlockHeader;
 import org.semux.crypto.Hex;
 import org.semux.gui.SemuxGui;
 import org.semux.gui.SwingUtil;
@@ -30,7 +30,7 @@ public class DelegateDialog extends JDialog {
     public DelegateDialog(SemuxGui gui, JFrame parent, WalletDelegate d) {
         super(null, GuiMessages.get("Delegate"), Dialog.ModalityType.MODELESS);
         setName("DelegateDialog");
-        Block block = gui.getKernel().getBlockchain().getBlock(d.getRegisteredAt());
+        BlockHeader header = gui.getKernel().getBlockchain().getBlockHeader(d.getRegisteredAt());
 
         JLabel lblName = new JLabel(GuiMessages.get("Name") + ":");
         JLabel lblAddress = new JLabel(GuiMessages.get("Address") + ":");
@@ -44,7 +44,7 @@ public class DelegateDialog extends JDialog {
 
         JTextArea name = SwingUtil.textAreaWithCopyPopup(d.getNameString());
         JTextArea address = SwingUtil.textAreaWithCopyPopup(Hex.encode0x(d.getAddress()));
-        JLabel registeredAt = new JLabel(SwingUtil.formatTimestamp(block.getTimestamp()));
+        JLabel registeredAt = new JLabel(SwingUtil.formatTimestamp(header.getTimestamp()));
         JLabel votes = new JLabel(SwingUtil.formatVote(d.getVotes()));
         votes.setName("votes");
         JLabel votesFromMe = new JLabel(SwingUtil.formatVote(d.getVotesFromMe()));
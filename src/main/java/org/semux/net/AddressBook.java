@@ -0,0 +1,318 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.semux.crypto.Hash;
+import org.semux.net.NodeManager.Node;
+import org.semux.util.SimpleDecoder;
+import org.semux.util.SimpleEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The known nodes of the network and their connection history, which is saved
+ * across restarts so that a node can reconnect to good peers right away,
+ * instead of starting over from the seed nodes.
+ * <p>
+ * Nodes are ranked by their rate of successful handshakes and their connect
+ * latency. Nodes which keep failing are retried less and less often, and nodes
+ * which failed the handshake are banned for a while.
+ */
+public class AddressBook {
+
+    private static final Logger logger = LoggerFactory.getLogger(AddressBook.class);
+
+    /**
+     * Max number of nodes in the book.
+     */
+    public static final int MAX_SIZE = 4096;
+
+    /**
+     * Wait time before reconnecting to a node, doubled for each consecutive
+     * failure.
+     */
+    private static final long RECONNECT_WAIT = 2L * 60L * 1000L;
+    private static final int MAX_BACKOFF_EXPONENT = 6;
+
+    private static final int VERSION = 0;
+
+    private final Map<Node, Entry> entries = new HashMap<>();
+
+    /**
+     * Adds a node to this book, if not known yet. When the book is full, the
+     * lowest ranked node is evicted.
+     *
+     * @param node
+     * @return true if the node is new, otherwise false
+     */
+    public synchronized boolean add(Node node) {
+        if (entries.containsKey(node)) {
+            return false;
+        }
+
+        if (entries.size() >= MAX_SIZE) {
+            entries.entrySet().stream()
+                    .min(Comparator.comparingDouble(e -> e.getValue().getScore()))
+                    .ifPresent(e -> entries.remove(e.getKey()));
+        }
+        entries.put(node, new Entry());
+        return true;
+    }
+
+    /**
+     * Returns whether the given node is known.
+     *
+     * @param node
+     * @return
+     */
+    public synchronized boolean contains(Node node) {
+        return entries.containsKey(node);
+    }
+
+    /**
+     * Returns all the known nodes.
+     *
+     * @return
+     */
+    public synchronized List<Node> getNodes() {
+        return new ArrayList<>(entries.keySet());
+    }
+
+    /**
+     * Returns the number of known nodes.
+     *
+     * @return
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Picks the best ranked nodes to connect to, among the nodes which are neither
+     * banned nor waiting to be retried, and marks them as attempted.
+     *
+     * @param n
+     *            max number of nodes
+     * @param filter
+     *            the condition the nodes must meet
+     * @return
+     */
+    public synchronized List<Node> pick(int n, Predicate<Node> filter) {
+        long now = System.currentTimeMillis();
+
+        List<Node> nodes = entries.entrySet().stream()
+                .filter(e -> e.getValue().isConnectable(now) && filter.test(e.getKey()))
+                .sorted(Comparator.comparingDouble((Map.Entry<Node, Entry> e) -> e.getValue().getScore()).reversed())
+                .limit(n)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+        nodes.forEach(node -> entries.get(node).lastAttempt = now);
+
+        return nodes;
+    }
+
+    /**
+     * Records the connect latency of a node, in milliseconds.
+     *
+     * @param node
+     * @param latency
+     */
+    public synchronized void onConnected(Node node, long latency) {
+        Entry e = entries.get(node);
+        if (e != null) {
+            e.latency = e.latency < 0 ? latency : (3 * e.latency + latency) / 4;
+        }
+    }
+
+    /**
+     * Records a successful handshake with a node.
+     *
+     * @param node
+     */
+    public synchronized void onSuccess(Node node) {
+        Entry e = entries.get(node);
+        if (e != null) {
+            e.successes++;
+            e.consecutiveFailures = 0;
+            e.lastSuccess = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Records a failed connection to a node.
+     *
+     * @param node
+     */
+    public synchronized void onFailure(Node node) {
+        Entry e = entries.get(node);
+        if (e != null) {
+            e.failures++;
+            e.consecutiveFailures++;
+        }
+    }
+
+    /**
+     * Bans a node for the given time, in milliseconds.
+     *
+     * @param node
+     * @param duration
+     */
+    public synchronized void ban(Node node, long duration) {
+        Entry e = entries.get(node);
+        if (e != null) {
+            e.bannedUntil = System.currentTimeMillis() + duration;
+        }
+    }
+
+    /**
+     * Returns whether the given node is banned.
+     *
+     * @param node
+     * @return
+     */
+    public synchronized boolean isBanned(Node node) {
+        Entry e = entries.get(node);
+        return e != null && e.bannedUntil > System.currentTimeMillis();
+    }
+
+    /**
+     * Saves this book into a file.
+     *
+     * @param file
+     */
+    public void save(Path file) {
+        SimpleEncoder enc = new SimpleEncoder();
+        synchronized (this) {
+            enc.writeInt(entries.size());
+            for (Map.Entry<Node, Entry> e : entries.entrySet()) {
+                enc.writeString(e.getKey().getIp());
+                enc.writeInt(e.getKey().getPort());
+                e.getValue().encode(enc);
+            }
+        }
+        byte[] body = enc.toBytes();
+
+        enc = new SimpleEncoder();
+        enc.writeInt(VERSION);
+        enc.writeBytes(body);
+        enc.writeBytes(Hash.h256(body));
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.write(tmp, enc.toBytes());
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Failed to save the address book", e);
+        }
+    }
+
+    /**
+     * Loads a book from the given file, or creates an empty one if the file is
+     * missing or corrupted.
+     *
+     * @param file
+     * @return
+     */
+    public static AddressBook load(Path file) {
+        AddressBook book = new AddressBook();
+        if (!Files.exists(file)) {
+            return book;
+        }
+
+        try {
+            SimpleDecoder dec = new SimpleDecoder(Files.readAllBytes(file));
+            int version = dec.readInt();
+            byte[] body = dec.readBytes();
+            byte[] checksum = dec.readBytes();
+            if (version != VERSION || !Arrays.equals(Hash.h256(body), checksum)) {
+                logger.warn("Discarded an invalid address book");
+                return book;
+            }
+
+            dec = new SimpleDecoder(body);
+            int size = dec.readInt();
+            for (int i = 0; i < size && book.entries.size() < MAX_SIZE; i++) {
+                Node node = new Node(dec.readString(), dec.readInt());
+                book.entries.put(node, Entry.decode(dec));
+            }
+            logger.info("Loaded address book: # nodes = {}", book.entries.size());
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to load the address book", e);
+            book.entries.clear();
+        }
+
+        return book;
+    }
+
+    /**
+     * The connection history of a node.
+     */
+    private static class Entry {
+        long successes;
+        long failures;
+        int consecutiveFailures;
+
+        // connect latency in milliseconds, or -1 if unknown
+        long latency = -1;
+
+        long lastSuccess;
+        long bannedUntil;
+
+        // not persisted, so that a restarted node reconnects immediately
+        long lastAttempt;
+
+        boolean isConnectable(long now) {
+            long wait = RECONNECT_WAIT << Math.min(consecutiveFailures, MAX_BACKOFF_EXPONENT);
+            return bannedUntil <= now && (lastAttempt == 0 || lastAttempt + wait < now);
+        }
+
+        /**
+         * Returns the rank of this node, from 0 to 1. Unknown nodes are ranked in
+         * the middle.
+         *
+         * @return
+         */
+        double getScore() {
+            double successRate = (successes + 1.0) / (successes + failures + 2.0);
+            double speed = latency < 0 ? 0.5 : 1000.0 / (1000.0 + latency);
+            return successRate * speed;
+        }
+
+        void encode(SimpleEncoder enc) {
+            enc.writeLong(successes);
+            enc.writeLong(failures);
+            enc.writeInt(consecutiveFailures);
+            enc.writeLong(latency);
+            enc.writeLong(lastSuccess);
+            enc.writeLong(bannedUntil);
+        }
+
+        static Entry decode(SimpleDecoder dec) {
+            Entry e = new Entry();
+            e.successes = dec.readLong();
+            e.failures = dec.readLong();
+            e.consecutiveFailures = dec.readInt();
+            e.latency = dec.readLong();
+            e.lastSuccess = dec.readLong();
+            e.bannedUntil = dec.readLong();
+            return e;
+        }
+    }
+}
@@ -24,11 +24,34 @@ public enum Capability {
     /**
      * A mandatory capability of Semux testnet.
      */
-    SEM_TESTNET;
+    SEM_TESTNET,
 
-    // TODO: BATCH_SYNC
+    /**
+     * Announces new transactions by hash and serves them in batches, see
+     * ${@link org.semux.net.msg.MessageCode#TRANSACTION_INVENTORY}. Peers without
+     * this capability are sent every transaction in full.
+     */
+    TX_INVENTORY,
 
-    // TODO: FAST_SYNC
+    /**
+     * Accepts proposals with transaction hashes only, see
+     * ${@link org.semux.net.msg.MessageCode#BFT_COMPACT_PROPOSAL}.
+     */
+    COMPACT_PROPOSAL,
+
+    /**
+     * Serves state snapshots, see
+     * ${@link org.semux.net.msg.MessageCode#GET_STATE_SNAPSHOT}.
+     */
+    FAST_SYNC,
+
+    /**
+     * Serves block headers, see
+     * ${@link org.semux.net.msg.MessageCode#GET_BLOCK_HEADER}.
+     */
+    BLOCK_HEADERS;
+
+    // TODO: BATCH_SYNC
 
     // TODO: DAPP
 
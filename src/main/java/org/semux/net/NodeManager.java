@@ -9,13 +9,13 @@ package org.semux.net;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.nio.file.Path;
 import java.util.Collection;
-import java.util.Deque;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -31,9 +31,10 @@ import org.semux.config.Constants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
-
+/**
+ * Node manager, which maintains the address book and keeps the node connected
+ * to the best known peers.
+ */
 public class NodeManager {
 
     private static final Logger logger = LoggerFactory.getLogger(NodeManager.class);
@@ -47,9 +48,14 @@ public class NodeManager {
         }
     };
 
-    private static final long MAX_QUEUE_SIZE = 1024;
-    private static final int LRU_CACHE_SIZE = 1024;
-    private static final long RECONNECT_WAIT = 2L * 60L * 1000L;
+    public static final String ADDRESS_BOOK_FILE = "nodes.dat";
+
+    /**
+     * Max number of connections attempted at once.
+     */
+    private static final int MAX_PARALLEL_CONNECTS = 16;
+
+    private static final long BAN_TIME = 60L * 60L * 1000L;
 
     private final Kernel kernel;
     private final Config config;
@@ -57,9 +63,13 @@ public class NodeManager {
     private final ChannelManager channelMgr;
     private final PeerClient client;
 
-    private final Deque<Node> deque = new ConcurrentLinkedDeque<>();
+    /**
+     * Nodes being connected to.
+     */
+    private final Set<Node> connecting = ConcurrentHashMap.newKeySet();
 
-    private final Cache<Node, Long> lastConnect = Caffeine.newBuilder().maximumSize(LRU_CACHE_SIZE).build();
+    private final Path addressBookFile;
+    private volatile AddressBook addressBook = new AddressBook();
 
     private final ScheduledExecutorService exec;
     private ScheduledFuture<?> connectFuture;
@@ -79,6 +89,8 @@ public class NodeManager {
         this.channelMgr = kernel.getChannelManager();
         this.client = kernel.getClient();
 
+        this.addressBookFile = config.databaseDir().toPath().resolve(ADDRESS_BOOK_FILE);
+
         this.exec = Executors.newSingleThreadScheduledExecutor(factory);
     }
 
@@ -87,6 +99,9 @@ public class NodeManager {
      */
     public synchronized void start() {
         if (!isRunning) {
+            AddressBook book = AddressBook.load(addressBookFile);
+            addressBook.getNodes().forEach(book::add);
+            addressBook = book;
             addNodes(config.p2pSeedNodes());
 
             // every 0.5 seconds
@@ -106,6 +121,7 @@ public class NodeManager {
         if (isRunning) {
             connectFuture.cancel(true);
             fetchFuture.cancel(false);
+            addressBook.save(addressBookFile);
 
             isRunning = false;
             logger.info("Node manager stopped");
@@ -122,19 +138,16 @@ public class NodeManager {
     }
 
     /**
-     * Add a node to the connection queue.
+     * Add a node to the address book.
      * 
      * @param node
      */
     public void addNode(Node node) {
-        deque.addFirst(node);
-        while (queueSize() > MAX_QUEUE_SIZE) {
-            deque.removeLast();
-        }
+        addressBook.add(node);
     }
 
     /**
-     * Add a collection of nodes to the connection queue.
+     * Add a collection of nodes to the address book.
      * 
      * @param nodes
      */
@@ -145,12 +158,54 @@ public class NodeManager {
     }
 
     /**
-     * Get the connection queue size.
+     * Get the number of known nodes.
      * 
      * @return
      */
     public int queueSize() {
-        return deque.size();
+        return addressBook.size();
+    }
+
+    /**
+     * Returns the address book.
+     *
+     * @return
+     */
+    public AddressBook getAddressBook() {
+        return addressBook;
+    }
+
+    /**
+     * When the handshake with an outbound peer is done.
+     *
+     * @param node
+     *            the node connected to
+     */
+    public void onHandshakeDone(Node node) {
+        addressBook.onSuccess(node);
+    }
+
+    /**
+     * When the handshake with an outbound peer has failed, because the peer is
+     * on another network or misbehaves. The node is banned for a while.
+     *
+     * @param node
+     *            the node connected to
+     */
+    public void onHandshakeFailed(Node node) {
+        addressBook.onFailure(node);
+        addressBook.ban(node, BAN_TIME);
+    }
+
+    /**
+     * When an outbound peer has closed the connection, or timed out, before the
+     * handshake was done.
+     *
+     * @param node
+     *            the node connected to
+     */
+    public void onHandshakeAborted(Node node) {
+        addressBook.onFailure(node);
     }
 
     /**
@@ -192,25 +247,38 @@ public class NodeManager {
     }
 
     /**
-     * Connect to a node in the queue.
+     * Connect to the best ranked nodes in the address book, several at once, until
+     * the max number of outbound connections is reached.
      */
     protected void doConnect() {
-        Set<InetSocketAddress> activeAddresses = channelMgr.getActiveAddresses();
-        Node node;
+        // connects not registered with the channel manager yet
+        int pending = (int) connecting.stream().filter(node -> !channelMgr.isConnected(node.toAddress())).count();
 
-        while ((node = deque.pollFirst()) != null && channelMgr.size() < config.netMaxOutboundConnections()) {
-            Long lastTouch = lastConnect.getIfPresent(node);
-            long now = System.currentTimeMillis();
+        int slots = Math.min(config.netMaxOutboundConnections() - channelMgr.size() - pending,
+                MAX_PARALLEL_CONNECTS - connecting.size());
+        if (slots <= 0) {
+            return;
+        }
 
-            if (!client.getNode().equals(node)
-                    && !activeAddresses.contains(node.toAddress())
-                    && (lastTouch == null || lastTouch + RECONNECT_WAIT < now)) {
+        Set<InetSocketAddress> activeAddresses = channelMgr.getActiveAddresses();
+        Node self = client.getNode();
+        List<Node> nodes = addressBook.pick(slots, node -> !self.equals(node)
+                && !connecting.contains(node)
+                && !activeAddresses.contains(node.toAddress())
+                && channelMgr.isAcceptable(node.toAddress()));
 
-                SemuxChannelInitializer ci = new SemuxChannelInitializer(kernel, node);
-                client.connect(node, ci);
-                lastConnect.put(node, now);
-                break;
-            }
+        for (Node node : nodes) {
+            long start = System.currentTimeMillis();
+            SemuxChannelInitializer ci = new SemuxChannelInitializer(kernel, node);
+            connecting.add(node);
+            client.connect(node, ci).addListener(future -> {
+                connecting.remove(node);
+                if (future.isSuccess()) {
+                    addressBook.onConnected(node, System.currentTimeMillis() - start);
+                } else {
+                    addressBook.onFailure(node);
+                }
+            });
         }
     }
 
@@ -219,6 +287,7 @@ public class NodeManager {
      */
     protected void doFetch() {
         addNodes(getSeedNodes(config.network()));
+        addressBook.save(addressBookFile);
     }
 
     /**
@@ -33,6 +33,12 @@ public class Peer {
      */
     private long latency;
 
+    /**
+     * The earliest block the peer serves, as advertised in its handshake and PONG
+     * messages.
+     */
+    private long earliestBlockNumber;
+
     /**
      * Set of capabilities the peer supports
      */
@@ -134,6 +140,24 @@ public class Peer {
         this.latestBlockNumber = number;
     }
 
+    /**
+     * Returns the earliest block the peer serves; older blocks have been pruned.
+     *
+     * @return
+     */
+    public long getEarliestBlockNumber() {
+        return earliestBlockNumber;
+    }
+
+    /**
+     * Sets the earliestBlockNumber.
+     *
+     * @param number
+     */
+    public void setEarliestBlockNumber(long number) {
+        this.earliestBlockNumber = number;
+    }
+
     /**
      * Returns peer latency.
      * 
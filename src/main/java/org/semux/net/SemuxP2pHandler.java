@@ -29,6 +29,7 @@ import org.semux.core.Blockchain;
 import org.semux.core.Consensus;
 import org.semux.core.PendingManager;
 import org.semux.core.SyncManager;
+import org.semux.core.Transaction;
 import org.semux.net.NodeManager.Node;
 import org.semux.net.msg.Message;
 import org.semux.net.msg.MessageQueue;
@@ -36,16 +37,20 @@ import org.semux.net.msg.MessageWrapper;
 import org.semux.net.msg.ReasonCode;
 import org.semux.net.msg.consensus.BlockHeaderMessage;
 import org.semux.net.msg.consensus.BlockMessage;
+import org.semux.net.msg.consensus.BlockNotFoundMessage;
 import org.semux.net.msg.consensus.GetBlockHeaderMessage;
 import org.semux.net.msg.consensus.GetBlockMessage;
 import org.semux.net.msg.consensus.NewHeightMessage;
 import org.semux.net.msg.p2p.DisconnectMessage;
 import org.semux.net.msg.p2p.GetNodesMessage;
+import org.semux.net.msg.p2p.GetTransactionsMessage;
 import org.semux.net.msg.p2p.HelloMessage;
 import org.semux.net.msg.p2p.NodesMessage;
 import org.semux.net.msg.p2p.PingMessage;
 import org.semux.net.msg.p2p.PongMessage;
+import org.semux.net.msg.p2p.TransactionInventoryMessage;
 import org.semux.net.msg.p2p.TransactionMessage;
+import org.semux.net.msg.p2p.TransactionsMessage;
 import org.semux.net.msg.p2p.WorldMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -70,6 +75,11 @@ public class SemuxP2pHandler extends SimpleChannelInboundHandler<Message> {
                 }
             });
 
+    /**
+     * Time an outbound peer has to complete the handshake, in milliseconds.
+     */
+    private static final long HANDSHAKE_TIMEOUT = 10_000L;
+
     private final Channel channel;
     private final Config config;
     private final Blockchain chain;
@@ -82,9 +92,11 @@ public class SemuxP2pHandler extends SimpleChannelInboundHandler<Message> {
     private final MessageQueue msgQueue;
 
     private boolean isHandshakeDone;
+    private boolean isHandshakeFailed;
 
     private ScheduledFuture<?> getNodes = null;
     private ScheduledFuture<?> pingPong = null;
+    private ScheduledFuture<?> handshakeTimeout = null;
 
     /**
      * Creates a new P2P handler.
@@ -125,8 +137,17 @@ public class SemuxP2pHandler extends SimpleChannelInboundHandler<Message> {
         if (!channel.isInbound()) {
             Peer peer = new Peer(client.getIp(), client.getPort(), config.networkVersion(), config.getClientId(),
                     client.getPeerId(), chain.getLatestBlockNumber(), config.capabilitySet());
+            peer.setEarliestBlockNumber(chain.getEarliestBlockNumber());
             HelloMessage msg = new HelloMessage(peer, client.getCoinbase());
             msgQueue.sendMessage(msg);
+
+            // close the channel if the peer doesn't reply in time
+            handshakeTimeout = ctx.executor().schedule(() -> {
+                if (!isHandshakeDone) {
+                    logger.debug("Handshake timeout, remoteIP = {}", channel.getRemoteIp());
+                    ctx.close();
+                }
+            }, HANDSHAKE_TIMEOUT, TimeUnit.MILLISECONDS);
         }
     }
 
@@ -134,6 +155,11 @@ public class SemuxP2pHandler extends SimpleChannelInboundHandler<Message> {
     public void channelInactive(ChannelHandlerContext ctx) throws Exception {
         logger.debug("P2P handler inactive, cid = {}", channel.getId());
 
+        // an outbound peer which went away before the handshake counts as a failure
+        if (!channel.isInbound() && !isHandshakeDone && !isHandshakeFailed) {
+            nodeMgr.onHandshakeAborted(new Node(channel.getRemoteAddress()));
+        }
+
         stopTimers();
     }
 
@@ -154,8 +180,12 @@ public class SemuxP2pHandler extends SimpleChannelInboundHandler<Message> {
         switch (msg.getCode()) {
         /* p2p */
         case DISCONNECT: {
+            ReasonCode reason = ((DisconnectMessage) msg).getReason();
             logger.debug("Received DISCONNECT message: reason = {}, remoteIP = {}",
-                    ((DisconnectMessage) msg).getReason(), channel.getRemoteIp());
+                    reason, channel.getRemoteIp());
+            if (!channel.isInbound() && !isHandshakeDone && reason == ReasonCode.INCOMPATIBLE_PROTOCOL) {
+                onHandshakeFailed();
+            }
             stopTimers();
             ctx.close();
             break;
@@ -170,7 +200,7 @@ public class SemuxP2pHandler extends SimpleChannelInboundHandler<Message> {
             } else if (client.getPeerId().equals(peer.getPeerId()) || channelMgr.isActivePeer(peer.getPeerId())) {
                 error = ReasonCode.DUPLICATED_PEER_ID;
 
-            } else if (chain.getValidators().contains(peer.getPeerId()) // validator
+            } else if (chain.getValidatorSet().contains(peer.getPeerId()) // validator
                     && channelMgr.isActiveIP(channel.getRemoteIp()) // connected
                     && config.network() == Network.MAINNET) { // main net
                 error = ReasonCode.VALIDATOR_IP_LIMITED;
@@ -186,6 +216,7 @@ public class SemuxP2pHandler extends SimpleChannelInboundHandler<Message> {
                 // reply with a WORLD message
                 peer = new Peer(client.getIp(), client.getPort(), config.networkVersion(), config.getClientId(),
                         client.getPeerId(), chain.getLatestBlockNumber(), config.capabilitySet());
+                peer.setEarliestBlockNumber(chain.getEarliestBlockNumber());
                 WorldMessage worldMsg = new WorldMessage(peer, client.getCoinbase());
                 msgQueue.sendMessage(worldMsg);
 
@@ -201,24 +232,27 @@ public class SemuxP2pHandler extends SimpleChannelInboundHandler<Message> {
             WorldMessage worldMsg = (WorldMessage) msg;
 
             if (!isValid(worldMsg)) {
+                onHandshakeFailed();
                 msgQueue.disconnect(ReasonCode.INVALID_HANDSHAKE);
                 break;
             }
 
             if (!isSupported(worldMsg.getPeer())) {
+                onHandshakeFailed();
                 msgQueue.disconnect(ReasonCode.INCOMPATIBLE_PROTOCOL);
                 break;
             }
 
             Peer peer = worldMsg.getPeer();
             channelMgr.onChannelActive(channel, peer);
+            nodeMgr.onHandshakeDone(new Node(channel.getRemoteAddress()));
 
             // handshake done
             onHandshakeDone(peer);
             break;
         }
         case PING: {
-            PongMessage pong = new PongMessage();
+            PongMessage pong = new PongMessage(chain.getEarliestBlockNumber());
             msgQueue.sendMessage(pong);
             break;
         }
@@ -227,6 +261,9 @@ public class SemuxP2pHandler extends SimpleChannelInboundHandler<Message> {
                 long latency = System.currentTimeMillis() - mr.getLastTimestamp();
                 channel.getRemotePeer().setLatency(latency);
             }
+            if (isHandshakeDone) {
+                channel.getRemotePeer().setEarliestBlockNumber(((PongMessage) msg).getEarliestBlockNumber());
+            }
             break;
         }
         case GET_NODES: {
@@ -250,13 +287,46 @@ public class SemuxP2pHandler extends SimpleChannelInboundHandler<Message> {
             pendingMgr.addTransaction(transactionMsg.getTransaction());
             break;
         }
+        case TRANSACTION_INVENTORY: {
+            TransactionInventoryMessage inventoryMsg = (TransactionInventoryMessage) msg;
+            if (isHandshakeDone && inventoryMsg.validate()) {
+                List<byte[]> hashes = pendingMgr.requestTransactions(inventoryMsg.getHashes());
+                if (!hashes.isEmpty()) {
+                    msgQueue.sendMessage(new GetTransactionsMessage(hashes));
+                }
+            }
+            break;
+        }
+        case GET_TRANSACTIONS: {
+            GetTransactionsMessage getTransactionsMsg = (GetTransactionsMessage) msg;
+            if (isHandshakeDone && getTransactionsMsg.validate()) {
+                List<Transaction> txs = pendingMgr.getRelayedTransactions(getTransactionsMsg.getHashes());
+                if (!txs.isEmpty()) {
+                    msgQueue.sendMessage(new TransactionsMessage(txs));
+                }
+            }
+            break;
+        }
+        case TRANSACTIONS: {
+            TransactionsMessage transactionsMsg = (TransactionsMessage) msg;
+            if (transactionsMsg.validate()) {
+                transactionsMsg.getTransactions().forEach(pendingMgr::addTransaction);
+            }
+            break;
+        }
 
         /* sync */
         case GET_BLOCK: {
             if (isHandshakeDone) {
                 GetBlockMessage m = (GetBlockMessage) msg;
                 Block block = chain.getBlock(m.getNumber());
-                channel.getMessageQueue().sendMessage(new BlockMessage(block));
+                // the block may be unknown or pruned
+                if (block != null) {
+                    channel.getMessageQueue().sendMessage(new BlockMessage(block));
+                } else {
+                    channel.getMessageQueue().sendMessage(new BlockNotFoundMessage(m.getNumber(),
+                            chain.getEarliestBlockNumber(), chain.getLatestBlockNumber()));
+                }
             }
             break;
         }
@@ -270,11 +340,19 @@ public class SemuxP2pHandler extends SimpleChannelInboundHandler<Message> {
             if (isHandshakeDone) {
                 GetBlockHeaderMessage m = (GetBlockHeaderMessage) msg;
                 BlockHeader header = chain.getBlockHeader(m.getNumber());
-                channel.getMessageQueue().sendMessage(new BlockHeaderMessage(header));
+                if (header != null) {
+                    channel.getMessageQueue().sendMessage(new BlockHeaderMessage(header));
+                } else {
+                    channel.getMessageQueue().sendMessage(new BlockNotFoundMessage(m.getNumber(),
+                            chain.getEarliestBlockNumber(), chain.getLatestBlockNumber()));
+                }
             }
             break;
         }
-        case BLOCK_HEADER: {
+        case BLOCK_HEADER:
+        case BLOCK_NOT_FOUND:
+        case GET_STATE_SNAPSHOT:
+        case STATE_SNAPSHOT: {
             if (isHandshakeDone) {
                 sync.onMessage(channel, msg);
             }
@@ -285,7 +363,10 @@ public class SemuxP2pHandler extends SimpleChannelInboundHandler<Message> {
         case BFT_NEW_HEIGHT:
         case BFT_NEW_VIEW:
         case BFT_PROPOSAL:
-        case BFT_VOTE: {
+        case BFT_VOTE:
+        case BFT_COMPACT_PROPOSAL:
+        case BFT_GET_PROPOSAL_TRANSACTIONS:
+        case BFT_PROPOSAL_TRANSACTIONS: {
             if (isHandshakeDone) {
                 consensus.onMessage(channel, msg);
             }
@@ -344,6 +425,14 @@ public class SemuxP2pHandler extends SimpleChannelInboundHandler<Message> {
         }
     }
 
+    /**
+     * When the handshake with an outbound peer has failed.
+     */
+    private void onHandshakeFailed() {
+        nodeMgr.onHandshakeFailed(new Node(channel.getRemoteAddress()));
+        isHandshakeFailed = true;
+    }
+
     /**
      * Returns whether the p2p version is supported.
      *
@@ -376,6 +465,11 @@ public class SemuxP2pHandler extends SimpleChannelInboundHandler<Message> {
             pingPong = null;
         }
 
+        if (handshakeTimeout != null) {
+            handshakeTimeout.cancel(false);
+            handshakeTimeout = null;
+        }
+
         msgQueue.deactivate();
     }
 }
@@ -6,6 +6,7 @@
  */
 package org.semux.net.filter;
 
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
 import java.util.regex.Matcher;
@@ -47,6 +48,12 @@ public class FilterRule implements IpFilterRule {
     @JsonProperty("type")
     private final IpFilterRuleType ruleType;
 
+    /**
+     * The network address and the number of its significant bits.
+     */
+    private final byte[] network;
+    private final int prefixLength;
+
     /**
      * FilterRule constructor decides on the type of IpFilterRule based the provided
      * address parameter.
@@ -77,11 +84,14 @@ public class FilterRule implements IpFilterRule {
             throw new IllegalArgumentException(String.format("%s is not a valid ip address", address));
         }
 
+        network = InetAddress.getByName(address).getAddress();
         if (matcher.group("cidrPrefix") != null) {
             int cidrPrefix = Integer.parseInt(matcher.group("cidrPrefix"));
             ipFilterRule = new IpSubnetFilterRule(address, cidrPrefix, ruleType);
+            prefixLength = cidrPrefix;
         } else {
             ipFilterRule = new SingleIpFilterRule(address, ruleType);
+            prefixLength = network.length * 8;
         }
     }
 
@@ -95,6 +105,14 @@ public class FilterRule implements IpFilterRule {
         return ruleType;
     }
 
+    byte[] getNetwork() {
+        return network;
+    }
+
+    int getPrefixLength() {
+        return prefixLength;
+    }
+
     @Override
     public boolean equals(Object object) {
         if (!(object instanceof FilterRule))
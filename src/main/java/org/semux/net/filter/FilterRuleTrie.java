@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.filter;
+
+import java.net.InetAddress;
+
+/**
+ * A binary prefix trie of filter rules, one for IPv4 and one for IPv6, which
+ * finds the first matching rule of an address in O(address bits), whatever the
+ * number of rules.
+ * <p>
+ * Every rule is stored at the node of its network prefix, with a priority
+ * reflecting its position in the rule list; the first matching rule is the one
+ * with the lowest priority along the path of the address. Rules can be added
+ * at the front or the rear at any time, without renumbering the others.
+ * <p>
+ * Writes must be synchronized externally, while lookups are lock-free.
+ */
+final class FilterRuleTrie {
+
+    private final Node ip4 = new Node();
+    private final Node ip6 = new Node();
+
+    private long nextFront = -1;
+    private long nextRear = 0;
+
+    /**
+     * Adds a rule, which takes precedence over all the existing rules.
+     *
+     * @param rule
+     */
+    void addFirst(FilterRule rule) {
+        insert(rule, nextFront--);
+    }
+
+    /**
+     * Adds a rule, which gives way to all the existing rules.
+     *
+     * @param rule
+     */
+    void addLast(FilterRule rule) {
+        insert(rule, nextRear++);
+    }
+
+    /**
+     * Returns the first rule matching the given address.
+     *
+     * @param address
+     * @return the rule, or null if none matches
+     */
+    FilterRule match(InetAddress address) {
+        byte[] bytes = address.getAddress();
+        Node node = bytes.length == 4 ? ip4 : ip6;
+
+        Entry best = node.entry;
+        for (int i = 0; i < bytes.length * 8; i++) {
+            node = bit(bytes, i) ? node.one : node.zero;
+            if (node == null) {
+                break;
+            }
+
+            Entry e = node.entry;
+            if (e != null && (best == null || e.priority < best.priority)) {
+                best = e;
+            }
+        }
+
+        return best == null ? null : best.rule;
+    }
+
+    private void insert(FilterRule rule, long priority) {
+        byte[] network = rule.getNetwork();
+        Node node = network.length == 4 ? ip4 : ip6;
+
+        for (int i = 0; i < rule.getPrefixLength(); i++) {
+            if (bit(network, i)) {
+                if (node.one == null) {
+                    node.one = new Node();
+                }
+                node = node.one;
+            } else {
+                if (node.zero == null) {
+                    node.zero = new Node();
+                }
+                node = node.zero;
+            }
+        }
+
+        // only the first rule of a prefix can ever match
+        if (node.entry == null || priority < node.entry.priority) {
+            node.entry = new Entry(rule, priority);
+        }
+    }
+
+    private static boolean bit(byte[] bytes, int i) {
+        return (bytes[i >>> 3] & (0x80 >>> (i & 7))) != 0;
+    }
+
+    private static final class Node {
+        volatile Node zero;
+        volatile Node one;
+        volatile Entry entry;
+    }
+
+    private static final class Entry {
+        final FilterRule rule;
+        final long priority;
+
+        Entry(FilterRule rule, long priority) {
+            this.rule = rule;
+            this.priority = priority;
+        }
+    }
+}
@@ -12,8 +12,9 @@ import java.net.UnknownHostException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.semux.net.filter.exception.IpFilterJsonParseException;
@@ -78,8 +79,15 @@ public class SemuxIpFilter {
      */
     private final CopyOnWriteArrayList<FilterRule> rules;
 
+    /**
+     * The index of the rules, used for matching. It's kept in sync with the rule
+     * list by the synchronized update methods.
+     */
+    private volatile FilterRuleTrie trie = new FilterRuleTrie();
+
     public SemuxIpFilter(List<FilterRule> rules) {
-        this.rules = new CopyOnWriteArrayList<>(rules);
+        this.rules = new CopyOnWriteArrayList<>();
+        appendRules(rules);
     }
 
     public SemuxIpFilter() {
@@ -87,25 +95,24 @@ public class SemuxIpFilter {
     }
 
     public List<FilterRule> getRules() {
-        return rules;
+        return Collections.unmodifiableList(rules);
     }
 
     /**
-     * isAcceptable method matches supplied address against defined rules
-     * sequentially and returns a result based on the first matched rule's type
+     * isAcceptable method matches supplied address against defined rules and
+     * returns a result based on the first matched rule's type
      *
      * @param address
      *            an address which will be matched against defined rules
      * @return whether the address is blocked or not
      */
     public boolean isAcceptable(InetSocketAddress address) {
-        return rules.stream().filter(rule -> rule != null && rule.matches(address)).findFirst().flatMap(rule -> {
-            if (rule.ruleType() == IpFilterRuleType.ACCEPT) {
-                return Optional.of(true);
-            } else {
-                return Optional.of(false);
-            }
-        }).orElse(true);
+        if (address.getAddress() == null) {
+            return true;
+        }
+
+        FilterRule rule = trie.match(address.getAddress());
+        return rule == null || rule.ruleType() == IpFilterRuleType.ACCEPT;
     }
 
     /**
@@ -118,9 +125,7 @@ public class SemuxIpFilter {
     public void blacklistIp(String ip) throws UnknownHostException {
         // prepend a REJECT IP rule to the rules list to ensure that the IP will be
         // blocked
-        FilterRule rule = new FilterRule(ip, IpFilterRuleType.REJECT);
-        rules.remove(rule); // remove duplicated rule
-        rules.add(0, rule); // prepend rule
+        prependRule(new FilterRule(ip, IpFilterRuleType.REJECT));
         logger.info("Blacklisted IP {}", ip);
     }
 
@@ -134,9 +139,7 @@ public class SemuxIpFilter {
     public void whitelistIp(String ip) throws UnknownHostException {
         // prepend an ACCEPT IP rule to the rules list to ensure that the IP will be
         // accepted
-        FilterRule rule = new FilterRule(ip, IpFilterRuleType.ACCEPT);
-        rules.remove(rule); // remove duplicated rule
-        rules.add(0, rule); // prepend rule
+        prependRule(new FilterRule(ip, IpFilterRuleType.ACCEPT));
         logger.info("Whitelisted IP {}", ip);
     }
 
@@ -146,15 +149,47 @@ public class SemuxIpFilter {
      * @param rule
      *            The rule to be appended
      */
-    public void appendRule(FilterRule rule) {
+    public synchronized void appendRule(FilterRule rule) {
         rules.add(rule);
+        if (rule != null) {
+            trie.addLast(rule);
+        }
+    }
+
+    /**
+     * Append a batch of rules to the rear of rules list, in order
+     *
+     * @param rules
+     *            The rules to be appended
+     */
+    public synchronized void appendRules(Collection<FilterRule> rules) {
+        this.rules.addAll(rules);
+        for (FilterRule rule : rules) {
+            if (rule != null) {
+                trie.addLast(rule);
+            }
+        }
     }
 
     /**
      * Remove all rules
      */
-    public void purgeRules() {
+    public synchronized void purgeRules() {
         rules.clear();
+        trie = new FilterRuleTrie();
+    }
+
+    /**
+     * Prepend a rule to the rules list, replacing the duplicated rule if any. The
+     * duplicate is shadowed in the index by the new rule, which has the same
+     * prefix and takes precedence.
+     *
+     * @param rule
+     */
+    private synchronized void prependRule(FilterRule rule) {
+        rules.remove(rule); // remove duplicated rule
+        rules.add(0, rule); // prepend rule
+        trie.addFirst(rule);
     }
 
     /**
@@ -67,6 +67,16 @@ public abstract class Message {
         return responseMessageClass;
     }
 
+    /**
+     * Returns whether a message answers this one.
+     *
+     * @param msg
+     * @return
+     */
+    public boolean isAnsweredBy(Message msg) {
+        return responseMessageClass != null && msg.getClass() == responseMessageClass;
+    }
+
     /**
      * Return the message name.
      */
@@ -52,6 +52,21 @@ public enum MessageCode {
      */
     TRANSACTION(0x07),
 
+    /**
+     * [0x08] Announce the hashes of new transactions.
+     */
+    TRANSACTION_INVENTORY(0x08),
+
+    /**
+     * [0x09] Request transactions by hash.
+     */
+    GET_TRANSACTIONS(0x09),
+
+    /**
+     * [0x0a] Response to a GET_TRANSACTIONS message.
+     */
+    TRANSACTIONS(0x0a),
+
     // =======================================
     // [0x30, 0x3f] Reserved for sync
     // =======================================
@@ -76,6 +91,22 @@ public enum MessageCode {
      */
     BLOCK_HEADER(0x33),
 
+    /**
+     * [0x34] Request the manifest or a chunk of a state snapshot.
+     */
+    GET_STATE_SNAPSHOT(0x34),
+
+    /**
+     * [0x35] Response to a GET_STATE_SNAPSHOT message.
+     */
+    STATE_SNAPSHOT(0x35),
+
+    /**
+     * [0x36] Response to a GET_BLOCK or GET_BLOCK_HEADER message for a missing
+     * block.
+     */
+    BLOCK_NOT_FOUND(0x36),
+
     // =======================================
     // [0x40, 0x4f] Reserved for BFT
     // =======================================
@@ -98,7 +129,22 @@ public enum MessageCode {
     /**
      * [0x43] BFT vote message.
      */
-    BFT_VOTE(0x43);
+    BFT_VOTE(0x43),
+
+    /**
+     * [0x44] BFT proposal message, with transaction hashes only.
+     */
+    BFT_COMPACT_PROPOSAL(0x44),
+
+    /**
+     * [0x45] Request the missing transactions of a compact proposal.
+     */
+    BFT_GET_PROPOSAL_TRANSACTIONS(0x45),
+
+    /**
+     * [0x46] Response to a BFT_GET_PROPOSAL_TRANSACTIONS message.
+     */
+    BFT_PROPOSAL_TRANSACTIONS(0x46);
 
     private static final MessageCode[] map = new MessageCode[256];
     static {
@@ -9,19 +9,28 @@ package org.semux.net.msg;
 import org.semux.crypto.Hex;
 import org.semux.net.msg.consensus.BlockHeaderMessage;
 import org.semux.net.msg.consensus.BlockMessage;
+import org.semux.net.msg.consensus.BlockNotFoundMessage;
+import org.semux.net.msg.consensus.CompactProposalMessage;
 import org.semux.net.msg.consensus.GetBlockHeaderMessage;
 import org.semux.net.msg.consensus.GetBlockMessage;
+import org.semux.net.msg.consensus.GetProposalTransactionsMessage;
+import org.semux.net.msg.consensus.GetStateSnapshotMessage;
 import org.semux.net.msg.consensus.NewHeightMessage;
 import org.semux.net.msg.consensus.NewViewMessage;
 import org.semux.net.msg.consensus.ProposalMessage;
+import org.semux.net.msg.consensus.ProposalTransactionsMessage;
+import org.semux.net.msg.consensus.StateSnapshotMessage;
 import org.semux.net.msg.consensus.VoteMessage;
 import org.semux.net.msg.p2p.DisconnectMessage;
 import org.semux.net.msg.p2p.GetNodesMessage;
+import org.semux.net.msg.p2p.GetTransactionsMessage;
 import org.semux.net.msg.p2p.HelloMessage;
 import org.semux.net.msg.p2p.NodesMessage;
 import org.semux.net.msg.p2p.PingMessage;
 import org.semux.net.msg.p2p.PongMessage;
+import org.semux.net.msg.p2p.TransactionInventoryMessage;
 import org.semux.net.msg.p2p.TransactionMessage;
+import org.semux.net.msg.p2p.TransactionsMessage;
 import org.semux.net.msg.p2p.WorldMessage;
 import org.semux.util.Bytes;
 import org.semux.util.exception.UnreachableException;
@@ -62,6 +71,12 @@ public class MessageFactory {
                 return new NodesMessage(encoded);
             case TRANSACTION:
                 return new TransactionMessage(encoded);
+            case TRANSACTION_INVENTORY:
+                return new TransactionInventoryMessage(encoded);
+            case GET_TRANSACTIONS:
+                return new GetTransactionsMessage(encoded);
+            case TRANSACTIONS:
+                return new TransactionsMessage(encoded);
 
             case GET_BLOCK:
                 return new GetBlockMessage(encoded);
@@ -71,6 +86,12 @@ public class MessageFactory {
                 return new GetBlockHeaderMessage(encoded);
             case BLOCK_HEADER:
                 return new BlockHeaderMessage(encoded);
+            case GET_STATE_SNAPSHOT:
+                return new GetStateSnapshotMessage(encoded);
+            case STATE_SNAPSHOT:
+                return new StateSnapshotMessage(encoded);
+            case BLOCK_NOT_FOUND:
+                return new BlockNotFoundMessage(encoded);
 
             case BFT_NEW_HEIGHT:
                 return new NewHeightMessage(encoded);
@@ -80,6 +101,12 @@ public class MessageFactory {
                 return new ProposalMessage(encoded);
             case BFT_VOTE:
                 return new VoteMessage(encoded);
+            case BFT_COMPACT_PROPOSAL:
+                return new CompactProposalMessage(encoded);
+            case BFT_GET_PROPOSAL_TRANSACTIONS:
+                return new GetProposalTransactionsMessage(encoded);
+            case BFT_PROPOSAL_TRANSACTIONS:
+                return new ProposalTransactionsMessage(encoded);
 
             default:
                 throw new UnreachableException();
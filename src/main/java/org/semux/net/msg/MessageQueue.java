@@ -153,7 +153,7 @@ public class MessageQueue {
             MessageWrapper mw = requests.peek();
             Message m = mw.getMessage();
 
-            if (m.getResponseMessageClass() != null && msg.getClass() == m.getResponseMessageClass()) {
+            if (m.isAnsweredBy(msg)) {
                 mw.answer();
                 return mw;
             }
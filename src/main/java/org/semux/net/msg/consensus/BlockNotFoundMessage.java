@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg.consensus;
+
+import org.semux.net.msg.Message;
+import org.semux.net.msg.MessageCode;
+import org.semux.util.SimpleDecoder;
+import org.semux.util.SimpleEncoder;
+
+/**
+ * Response to a {@link GetBlockMessage} or a {@link GetBlockHeaderMessage} for
+ * a block the peer doesn't have, with the range of blocks it serves.
+ */
+public class BlockNotFoundMessage extends Message {
+
+    private final long number;
+    private final long earliestBlockNumber;
+    private final long latestBlockNumber;
+
+    /**
+     * Create a BLOCK_NOT_FOUND message.
+     *
+     * @param number
+     *            the requested block
+     * @param earliestBlockNumber
+     *            the earliest block this node serves
+     * @param latestBlockNumber
+     *            the latest block of this node
+     */
+    public BlockNotFoundMessage(long number, long earliestBlockNumber, long latestBlockNumber) {
+        super(MessageCode.BLOCK_NOT_FOUND, null);
+
+        this.number = number;
+        this.earliestBlockNumber = earliestBlockNumber;
+        this.latestBlockNumber = latestBlockNumber;
+
+        SimpleEncoder enc = new SimpleEncoder();
+        enc.writeLong(number);
+        enc.writeLong(earliestBlockNumber);
+        enc.writeLong(latestBlockNumber);
+        this.encoded = enc.toBytes();
+    }
+
+    /**
+     * Parse a BLOCK_NOT_FOUND message from byte array.
+     *
+     * @param encoded
+     */
+    public BlockNotFoundMessage(byte[] encoded) {
+        super(MessageCode.BLOCK_NOT_FOUND, null);
+
+        SimpleDecoder dec = new SimpleDecoder(encoded);
+        this.number = dec.readLong();
+        this.earliestBlockNumber = dec.readLong();
+        this.latestBlockNumber = dec.readLong();
+
+        this.encoded = encoded;
+    }
+
+    public long getNumber() {
+        return number;
+    }
+
+    public long getEarliestBlockNumber() {
+        return earliestBlockNumber;
+    }
+
+    public long getLatestBlockNumber() {
+        return latestBlockNumber;
+    }
+
+    @Override
+    public String toString() {
+        return "BlockNotFoundMessage [number=" + number + ", earliestBlockNumber=" + earliestBlockNumber
+                + ", latestBlockNumber=" + latestBlockNumber + "]";
+    }
+}
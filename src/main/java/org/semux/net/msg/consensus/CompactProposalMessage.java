@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg.consensus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.semux.consensus.Proof;
+import org.semux.consensus.Proposal;
+import org.semux.core.BlockHeader;
+import org.semux.core.Transaction;
+import org.semux.crypto.Key.Signature;
+import org.semux.net.msg.Message;
+import org.semux.net.msg.MessageCode;
+import org.semux.util.SimpleDecoder;
+import org.semux.util.SimpleEncoder;
+
+/**
+ * A proposal with the hashes of its transactions instead of the transactions.
+ * The receiver rebuilds the proposal from the transactions it already has, and
+ * requests the missing ones with a {@link GetProposalTransactionsMessage}.
+ */
+public class CompactProposalMessage extends Message {
+
+    private final Proof proof;
+    private final BlockHeader blockHeader;
+    private final List<byte[]> transactionHashes;
+    private final Signature signature;
+
+    public CompactProposalMessage(Proposal proposal) {
+        super(MessageCode.BFT_COMPACT_PROPOSAL, null);
+        this.proof = proposal.getProof();
+        this.blockHeader = proposal.getBlockHeader();
+        this.transactionHashes = new ArrayList<>();
+        this.signature = proposal.getSignature();
+
+        SimpleEncoder enc = new SimpleEncoder();
+        enc.writeBytes(proof.toBytes());
+        enc.writeBytes(blockHeader.toBytes());
+        enc.writeInt(proposal.getTransactions().size());
+        for (Transaction tx : proposal.getTransactions()) {
+            transactionHashes.add(tx.getHash());
+            enc.writeBytes(tx.getHash());
+        }
+        enc.writeBytes(signature.toBytes());
+        this.encoded = enc.toBytes();
+    }
+
+    public CompactProposalMessage(byte[] encoded) {
+        super(MessageCode.BFT_COMPACT_PROPOSAL, null);
+        this.encoded = encoded;
+
+        SimpleDecoder dec = new SimpleDecoder(encoded);
+        this.proof = Proof.fromBytes(dec.readBytes());
+        this.blockHeader = BlockHeader.fromBytes(dec.readBytes());
+        int n = dec.readInt();
+        if (n < 0 || n > (encoded.length - dec.getReadIndex()) / SimpleEncoder.sizeOfBytes(32)) {
+            throw new IllegalArgumentException("Invalid number of transactions: " + n);
+        }
+        this.transactionHashes = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            transactionHashes.add(dec.readBytes());
+        }
+        this.signature = Signature.fromBytes(dec.readBytes());
+    }
+
+    /**
+     * Rebuilds the proposal, given its transactions in order. The returned
+     * proposal still needs to be validated.
+     *
+     * @param transactions
+     * @return
+     */
+    public Proposal toProposal(List<Transaction> transactions) {
+        return new Proposal(proof, blockHeader, transactions, signature);
+    }
+
+    public long getHeight() {
+        return proof.getHeight();
+    }
+
+    public int getView() {
+        return proof.getView();
+    }
+
+    public BlockHeader getBlockHeader() {
+        return blockHeader;
+    }
+
+    public List<byte[]> getTransactionHashes() {
+        return transactionHashes;
+    }
+
+    @Override
+    public String toString() {
+        return "BFTCompactProposalMessage [height=" + getHeight() + ", view = " + getView() + ", # txs = "
+                + transactionHashes.size() + "]";
+    }
+}
@@ -29,6 +29,12 @@ public class GetBlockMessage extends Message {
         return number;
     }
 
+    @Override
+    public boolean isAnsweredBy(Message msg) {
+        return super.isAnsweredBy(msg)
+                || (msg instanceof BlockNotFoundMessage && ((BlockNotFoundMessage) msg).getNumber() == number);
+    }
+
     @Override
     public String toString() {
         return "GetBlockMessage [number=" + number + "]";
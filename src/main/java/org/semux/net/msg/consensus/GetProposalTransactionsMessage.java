@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg.consensus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.semux.net.msg.Message;
+import org.semux.net.msg.MessageCode;
+import org.semux.util.SimpleDecoder;
+import org.semux.util.SimpleEncoder;
+
+/**
+ * Requests the transactions of a compact proposal which are missing locally, by
+ * their index in the block.
+ */
+public class GetProposalTransactionsMessage extends Message {
+
+    private final byte[] blockHash;
+    private final List<Integer> indices;
+
+    public GetProposalTransactionsMessage(byte[] blockHash, List<Integer> indices) {
+        super(MessageCode.BFT_GET_PROPOSAL_TRANSACTIONS, null);
+        this.blockHash = blockHash;
+        this.indices = indices;
+
+        SimpleEncoder enc = new SimpleEncoder();
+        enc.writeBytes(blockHash);
+        enc.writeInt(indices.size());
+        for (int index : indices) {
+            enc.writeInt(index);
+        }
+        this.encoded = enc.toBytes();
+    }
+
+    public GetProposalTransactionsMessage(byte[] encoded) {
+        super(MessageCode.BFT_GET_PROPOSAL_TRANSACTIONS, null);
+        this.encoded = encoded;
+
+        SimpleDecoder dec = new SimpleDecoder(encoded);
+        this.blockHash = dec.readBytes();
+        int n = dec.readInt();
+        if (n < 0 || n > (encoded.length - dec.getReadIndex()) / 4) {
+            throw new IllegalArgumentException("Invalid number of indices: " + n);
+        }
+        this.indices = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            indices.add(dec.readInt());
+        }
+    }
+
+    public byte[] getBlockHash() {
+        return blockHash;
+    }
+
+    public List<Integer> getIndices() {
+        return indices;
+    }
+
+    @Override
+    public String toString() {
+        return "BFTGetProposalTransactionsMessage [# txs = " + indices.size() + "]";
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg.consensus;
+
+import org.semux.crypto.Hex;
+import org.semux.net.msg.Message;
+import org.semux.net.msg.MessageCode;
+import org.semux.util.SimpleDecoder;
+import org.semux.util.SimpleEncoder;
+
+/**
+ * Requests a chunk of a state snapshot, or its manifest.
+ */
+public class GetStateSnapshotMessage extends Message {
+
+    /**
+     * The index which stands for the manifest.
+     */
+    public static final int MANIFEST = -1;
+
+    private final byte[] digest;
+    private final int index;
+
+    public GetStateSnapshotMessage(byte[] digest, int index) {
+        super(MessageCode.GET_STATE_SNAPSHOT, StateSnapshotMessage.class);
+        this.digest = digest;
+        this.index = index;
+
+        SimpleEncoder enc = new SimpleEncoder();
+        enc.writeBytes(digest);
+        enc.writeInt(index);
+        this.encoded = enc.toBytes();
+    }
+
+    public GetStateSnapshotMessage(byte[] encoded) {
+        super(MessageCode.GET_STATE_SNAPSHOT, StateSnapshotMessage.class);
+        this.encoded = encoded;
+
+        SimpleDecoder dec = new SimpleDecoder(encoded);
+        this.digest = dec.readBytes();
+        this.index = dec.readInt();
+    }
+
+    public byte[] getDigest() {
+        return digest;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return "GetStateSnapshotMessage [digest=" + Hex.encode(digest) + ", index=" + index + "]";
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg.consensus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.semux.core.Transaction;
+import org.semux.net.msg.Message;
+import org.semux.net.msg.MessageCode;
+import org.semux.util.SimpleDecoder;
+import org.semux.util.SimpleEncoder;
+
+/**
+ * Response to a {@link GetProposalTransactionsMessage}, with the requested
+ * transactions in the requested order, or no transactions if the proposal isn't
+ * found.
+ */
+public class ProposalTransactionsMessage extends Message {
+
+    private final byte[] blockHash;
+    private final List<Transaction> transactions;
+
+    public ProposalTransactionsMessage(byte[] blockHash, List<Transaction> transactions) {
+        super(MessageCode.BFT_PROPOSAL_TRANSACTIONS, null);
+        this.blockHash = blockHash;
+        this.transactions = transactions;
+
+        SimpleEncoder enc = new SimpleEncoder();
+        enc.writeBytes(blockHash);
+        enc.writeInt(transactions.size());
+        for (Transaction tx : transactions) {
+            enc.writeBytes(tx.toBytes());
+        }
+        this.encoded = enc.toBytes();
+    }
+
+    public ProposalTransactionsMessage(byte[] encoded) {
+        super(MessageCode.BFT_PROPOSAL_TRANSACTIONS, null);
+        this.encoded = encoded;
+
+        SimpleDecoder dec = new SimpleDecoder(encoded);
+        this.blockHash = dec.readBytes();
+        int n = dec.readInt();
+        // each transaction takes one byte at least
+        if (n < 0 || n > encoded.length - dec.getReadIndex()) {
+            throw new IllegalArgumentException("Invalid number of transactions: " + n);
+        }
+        this.transactions = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            transactions.add(Transaction.fromBytes(dec.readBytes()));
+        }
+    }
+
+    public byte[] getBlockHash() {
+        return blockHash;
+    }
+
+    public List<Transaction> getTransactions() {
+        return transactions;
+    }
+
+    @Override
+    public String toString() {
+        return "BFTProposalTransactionsMessage [# txs = " + transactions.size() + "]";
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg.consensus;
+
+import org.semux.crypto.Hex;
+import org.semux.net.msg.Message;
+import org.semux.net.msg.MessageCode;
+import org.semux.util.SimpleDecoder;
+import org.semux.util.SimpleEncoder;
+
+/**
+ * Response to a {@link GetStateSnapshotMessage}. The data is empty if the peer
+ * doesn't have the snapshot.
+ */
+public class StateSnapshotMessage extends Message {
+
+    private final byte[] digest;
+    private final int index;
+    private final byte[] data;
+
+    public StateSnapshotMessage(byte[] digest, int index, byte[] data) {
+        super(MessageCode.STATE_SNAPSHOT, null);
+        this.digest = digest;
+        this.index = index;
+        this.data = data;
+
+        SimpleEncoder enc = new SimpleEncoder();
+        enc.writeBytes(digest);
+        enc.writeInt(index);
+        enc.writeBytes(data);
+        this.encoded = enc.toBytes();
+    }
+
+    public StateSnapshotMessage(byte[] encoded) {
+        super(MessageCode.STATE_SNAPSHOT, null);
+        this.encoded = encoded;
+
+        SimpleDecoder dec = new SimpleDecoder(encoded);
+        this.digest = dec.readBytes();
+        this.index = dec.readInt();
+        this.data = dec.readBytes();
+    }
+
+    public byte[] getDigest() {
+        return digest;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    @Override
+    public String toString() {
+        return "StateSnapshotMessage [digest=" + Hex.encode(digest) + ", index=" + index + ", size=" + data.length
+                + "]";
+    }
+}
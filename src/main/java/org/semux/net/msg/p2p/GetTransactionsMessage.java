@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg.p2p;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.semux.crypto.Hash;
+import org.semux.net.msg.Message;
+import org.semux.net.msg.MessageCode;
+import org.semux.util.SimpleDecoder;
+import org.semux.util.SimpleEncoder;
+
+/**
+ * Requests the transactions of the given hashes, in response to a
+ * {@link TransactionInventoryMessage}. The peer replies with a
+ * {@link TransactionsMessage} containing the ones it still has.
+ */
+public class GetTransactionsMessage extends Message {
+
+    public static final int MAX_HASHES = 1024;
+
+    private final List<byte[]> hashes;
+
+    /**
+     * Create a GET_TRANSACTIONS message.
+     *
+     * @param hashes
+     */
+    public GetTransactionsMessage(List<byte[]> hashes) {
+        super(MessageCode.GET_TRANSACTIONS, null);
+
+        this.hashes = hashes;
+
+        SimpleEncoder enc = new SimpleEncoder();
+        enc.writeInt(hashes.size());
+        for (byte[] hash : hashes) {
+            enc.writeBytes(hash);
+        }
+        this.encoded = enc.toBytes();
+    }
+
+    /**
+     * Parse a GET_TRANSACTIONS message from byte array.
+     *
+     * @param encoded
+     */
+    public GetTransactionsMessage(byte[] encoded) {
+        super(MessageCode.GET_TRANSACTIONS, null);
+
+        this.encoded = encoded;
+
+        hashes = new ArrayList<>();
+        SimpleDecoder dec = new SimpleDecoder(encoded);
+        int n = dec.readInt();
+        for (int i = 0; i < n && i <= MAX_HASHES; i++) {
+            hashes.add(dec.readBytes());
+        }
+    }
+
+    public boolean validate() {
+        return hashes != null && hashes.size() <= MAX_HASHES
+                && hashes.stream().allMatch(h -> h.length == Hash.HASH_LEN);
+    }
+
+    public List<byte[]> getHashes() {
+        return hashes;
+    }
+
+    @Override
+    public String toString() {
+        return "GetTransactionsMessage [# hashes =" + hashes.size() + "]";
+    }
+}
@@ -39,6 +39,7 @@ public class HelloMessage extends Message {
         enc.writeLong(timestamp);
         this.signature = coinbase.sign(enc.toBytes());
         enc.writeBytes(signature.toBytes());
+        enc.writeLong(peer.getEarliestBlockNumber());
 
         this.encoded = enc.toBytes();
     }
@@ -55,6 +56,10 @@ public class HelloMessage extends Message {
         this.peer = Peer.fromBytes(dec.readBytes());
         this.timestamp = dec.readLong();
         this.signature = Signature.fromBytes(dec.readBytes());
+        // older clients don't send it, and ignore it
+        if (dec.getReadIndex() < encoded.length) {
+            peer.setEarliestBlockNumber(dec.readLong());
+        }
 
         this.encoded = encoded;
     }
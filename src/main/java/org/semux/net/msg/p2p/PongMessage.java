@@ -14,17 +14,23 @@ import org.semux.util.SimpleEncoder;
 public class PongMessage extends Message {
 
     private final long timestamp;
+    private final long earliestBlockNumber;
 
     /**
      * Create a PONG message.
+     *
+     * @param earliestBlockNumber
+     *            the earliest block this node serves
      */
-    public PongMessage() {
+    public PongMessage(long earliestBlockNumber) {
         super(MessageCode.PONG, null);
 
         this.timestamp = System.currentTimeMillis();
+        this.earliestBlockNumber = earliestBlockNumber;
 
         SimpleEncoder enc = new SimpleEncoder();
         enc.writeLong(timestamp);
+        enc.writeLong(earliestBlockNumber);
         this.encoded = enc.toBytes();
     }
 
@@ -38,12 +44,18 @@ public class PongMessage extends Message {
 
         SimpleDecoder dec = new SimpleDecoder(encoded);
         this.timestamp = dec.readLong();
+        // older clients don't send it, and ignore it
+        this.earliestBlockNumber = dec.getReadIndex() < encoded.length ? dec.readLong() : 0;
 
         this.encoded = encoded;
     }
 
+    public long getEarliestBlockNumber() {
+        return earliestBlockNumber;
+    }
+
     @Override
     public String toString() {
-        return "PongMessage [timestamp=" + timestamp + "]";
+        return "PongMessage [timestamp=" + timestamp + ", earliestBlockNumber=" + earliestBlockNumber + "]";
     }
 }
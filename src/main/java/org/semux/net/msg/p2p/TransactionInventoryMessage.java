@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg.p2p;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.semux.crypto.Hash;
+import org.semux.net.msg.Message;
+import org.semux.net.msg.MessageCode;
+import org.semux.util.SimpleDecoder;
+import org.semux.util.SimpleEncoder;
+
+/**
+ * Announces the hashes of transactions that the sender has accepted into its
+ * pending pool. Peers reply with a {@link GetTransactionsMessage} for the ones
+ * they don't know yet.
+ */
+public class TransactionInventoryMessage extends Message {
+
+    public static final int MAX_HASHES = 1024;
+
+    private final List<byte[]> hashes;
+
+    /**
+     * Create a TRANSACTION_INVENTORY message.
+     *
+     * @param hashes
+     */
+    public TransactionInventoryMessage(List<byte[]> hashes) {
+        super(MessageCode.TRANSACTION_INVENTORY, null);
+
+        this.hashes = hashes;
+
+        SimpleEncoder enc = new SimpleEncoder();
+        enc.writeInt(hashes.size());
+        for (byte[] hash : hashes) {
+            enc.writeBytes(hash);
+        }
+        this.encoded = enc.toBytes();
+    }
+
+    /**
+     * Parse a TRANSACTION_INVENTORY message from byte array.
+     *
+     * @param encoded
+     */
+    public TransactionInventoryMessage(byte[] encoded) {
+        super(MessageCode.TRANSACTION_INVENTORY, null);
+
+        this.encoded = encoded;
+
+        hashes = new ArrayList<>();
+        SimpleDecoder dec = new SimpleDecoder(encoded);
+        int n = dec.readInt();
+        for (int i = 0; i < n && i <= MAX_HASHES; i++) {
+            hashes.add(dec.readBytes());
+        }
+    }
+
+    public boolean validate() {
+        return hashes != null && hashes.size() <= MAX_HASHES
+                && hashes.stream().allMatch(h -> h.length == Hash.HASH_LEN);
+    }
+
+    public List<byte[]> getHashes() {
+        return hashes;
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionInventoryMessage [# hashes =" + hashes.size() + "]";
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg.p2p;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.semux.core.Transaction;
+import org.semux.net.msg.Message;
+import org.semux.net.msg.MessageCode;
+import org.semux.util.SimpleDecoder;
+import org.semux.util.SimpleEncoder;
+
+/**
+ * A batch of transactions, in response to a {@link GetTransactionsMessage}.
+ */
+public class TransactionsMessage extends Message {
+
+    public static final int MAX_TRANSACTIONS = 1024;
+
+    /**
+     * Max total size of the transactions in a batch, in bytes.
+     */
+    public static final int MAX_SIZE = 1024 * 1024;
+
+    private final List<Transaction> transactions;
+
+    /**
+     * Create a TRANSACTIONS message.
+     *
+     * @param transactions
+     */
+    public TransactionsMessage(List<Transaction> transactions) {
+        super(MessageCode.TRANSACTIONS, null);
+
+        this.transactions = transactions;
+
+        SimpleEncoder enc = new SimpleEncoder();
+        enc.writeInt(transactions.size());
+        for (Transaction tx : transactions) {
+            enc.writeBytes(tx.toBytes());
+        }
+        this.encoded = enc.toBytes();
+    }
+
+    /**
+     * Parse a TRANSACTIONS message from byte array.
+     *
+     * @param encoded
+     */
+    public TransactionsMessage(byte[] encoded) {
+        super(MessageCode.TRANSACTIONS, null);
+
+        this.encoded = encoded;
+
+        transactions = new ArrayList<>();
+        SimpleDecoder dec = new SimpleDecoder(encoded);
+        int n = dec.readInt();
+        for (int i = 0; i < n && i <= MAX_TRANSACTIONS; i++) {
+            transactions.add(Transaction.fromBytes(dec.readBytes()));
+        }
+    }
+
+    public boolean validate() {
+        return transactions != null && transactions.size() <= MAX_TRANSACTIONS;
+    }
+
+    public List<Transaction> getTransactions() {
+        return transactions;
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionsMessage [# txs =" + transactions.size() + "]";
+    }
+}
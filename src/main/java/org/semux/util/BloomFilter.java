@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.util;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A Bloom filter of cryptographic hashes, such as transaction hashes. As the
+ * keys are already uniformly distributed, the bit positions are derived from
+ * the key bytes directly, without hashing them again.
+ * <p>
+ * The filter never returns a false negative, including for concurrent readers:
+ * an element is visible to {@link #mightContain(byte[])} as soon as
+ * {@link #put(byte[])} returns.
+ */
+public class BloomFilter {
+
+    /**
+     * Min length of the keys, in bytes.
+     */
+    public static final int MIN_KEY_LENGTH = 16;
+
+    private final long numBits;
+    private final int numHashFunctions;
+    private final AtomicLongArray words;
+    private final AtomicLong size;
+
+    private BloomFilter(long numBits, int numHashFunctions, AtomicLongArray words, long size) {
+        this.numBits = numBits;
+        this.numHashFunctions = numHashFunctions;
+        this.words = words;
+        this.size = new AtomicLong(size);
+    }
+
+    /**
+     * Creates an empty filter.
+     *
+     * @param expectedInsertions
+     *            the number of elements the filter is sized for
+     * @param falsePositiveRate
+     *            the false positive rate once the filter holds
+     *            <code>expectedInsertions</code> elements
+     * @return
+     */
+    public static BloomFilter create(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid filter parameters");
+        }
+
+        double ln2 = Math.log(2);
+        long numBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (ln2 * ln2));
+        int numWords = (int) Math.min(Integer.MAX_VALUE, (numBits + 63) / 64);
+        int numHashFunctions = Math.max(1, (int) Math.round((double) numBits / expectedInsertions * ln2));
+
+        return new BloomFilter(numWords * 64L, numHashFunctions, new AtomicLongArray(numWords), 0);
+    }
+
+    /**
+     * Adds a key to this filter.
+     *
+     * @param key
+     */
+    public void put(byte[] key) {
+        long h1 = hash(key, 0);
+        long h2 = hash(key, 8);
+        for (int i = 0; i < numHashFunctions; i++) {
+            long index = Math.floorMod(h1 + i * h2, numBits);
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+
+            long value = words.get(word);
+            while ((value & mask) == 0 && !words.compareAndSet(word, value, value | mask)) {
+                value = words.get(word);
+            }
+        }
+        size.incrementAndGet();
+    }
+
+    /**
+     * Returns whether the key might have been added to this filter; false means
+     * the key has definitely not been added.
+     *
+     * @param key
+     * @return
+     */
+    public boolean mightContain(byte[] key) {
+        long h1 = hash(key, 0);
+        long h2 = hash(key, 8);
+        for (int i = 0; i < numHashFunctions; i++) {
+            long index = Math.floorMod(h1 + i * h2, numBits);
+            if ((words.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of keys added to this filter.
+     *
+     * @return
+     */
+    public long size() {
+        return size.get();
+    }
+
+    /**
+     * Returns the size of this filter, in bits.
+     *
+     * @return
+     */
+    public long bitSize() {
+        return numBits;
+    }
+
+    public byte[] toBytes() {
+        ByteBuffer buf = ByteBuffer.allocate(8 + 4 + 8 + words.length() * 8);
+        buf.putLong(numBits);
+        buf.putInt(numHashFunctions);
+        buf.putLong(size.get());
+        for (int i = 0; i < words.length(); i++) {
+            buf.putLong(words.get(i));
+        }
+        return buf.array();
+    }
+
+    public static BloomFilter fromBytes(byte[] bytes) {
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        long numBits = buf.getLong();
+        int numHashFunctions = buf.getInt();
+        long size = buf.getLong();
+        if (numBits <= 0 || numBits % 64 != 0 || numHashFunctions <= 0 || buf.remaining() != numBits / 8) {
+            throw new IllegalArgumentException("Invalid filter encoding");
+        }
+
+        AtomicLongArray words = new AtomicLongArray((int) (numBits / 64));
+        for (int i = 0; i < words.length(); i++) {
+            words.set(i, buf.getLong());
+        }
+        return new BloomFilter(numBits, numHashFunctions, words, size);
+    }
+
+    private static long hash(byte[] key, int offset) {
+        if (key.length < MIN_KEY_LENGTH) {
+            throw new IllegalArgumentException("Key must be at least " + MIN_KEY_LENGTH + " bytes");
+        }
+
+        long h = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            h = (h << 8) | (key[i] & 0xff);
+        }
+        return h;
+    }
+}
@@ -16,14 +16,15 @@ import com.fasterxml.jackson.databind.KeyDeserializer;
 
 public class ByteArray implements Comparable<ByteArray> {
     private final byte[] data;
-    private final int hash;
+
+    // cached hash code, computed on first use as most keys are never hashed
+    private int hash;
 
     public ByteArray(byte[] data) {
         if (data == null) {
             throw new IllegalArgumentException("Input data can not be null");
         }
         this.data = data;
-        this.hash = Arrays.hashCode(data);
     }
 
     public static ByteArray of(byte[] data) {
@@ -45,7 +46,12 @@ public class ByteArray implements Comparable<ByteArray> {
 
     @Override
     public int hashCode() {
-        return hash;
+        int h = hash;
+        if (h == 0) {
+            h = Arrays.hashCode(data);
+            hash = h;
+        }
+        return h;
     }
 
     @Override
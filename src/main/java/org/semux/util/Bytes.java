@@ -134,6 +134,56 @@ public class Bytes {
         return res;
     }
 
+    /**
+     * Merge a byte and a long integer, e.g. a key type and a block number, into
+     * one array without intermediate arrays.
+     *
+     * @param b1
+     * @param l
+     * @return
+     */
+    public static byte[] merge(byte b1, long l) {
+        byte[] res = new byte[1 + 8];
+        res[0] = b1;
+        putLong(res, 1, l);
+
+        return res;
+    }
+
+    /**
+     * Merge a byte array and a long integer into one array without intermediate
+     * arrays.
+     *
+     * @param b1
+     * @param l
+     * @return
+     */
+    public static byte[] merge(byte[] b1, long l) {
+        byte[] res = new byte[b1.length + 8];
+        System.arraycopy(b1, 0, res, 0, b1.length);
+        putLong(res, b1.length, l);
+
+        return res;
+    }
+
+    /**
+     * Merge a byte, a byte array and an integer, e.g. a key type, an address and
+     * an index, into one array without intermediate arrays.
+     *
+     * @param b1
+     * @param b2
+     * @param i
+     * @return
+     */
+    public static byte[] merge(byte b1, byte[] b2, int i) {
+        byte[] res = new byte[1 + b2.length + 4];
+        res[0] = b1;
+        System.arraycopy(b2, 0, res, 1, b2.length);
+        putInt(res, 1 + b2.length, i);
+
+        return res;
+    }
+
     /**
      * Convert string into an byte array.
      *
@@ -179,10 +229,7 @@ public class Bytes {
      */
     public static byte[] of(int i) {
         byte[] bytes = new byte[4];
-        bytes[0] = (byte) ((i >> 24) & 0xff);
-        bytes[1] = (byte) ((i >> 16) & 0xff);
-        bytes[2] = (byte) ((i >> 8) & 0xff);
-        bytes[3] = (byte) (i & 0xff);
+        putInt(bytes, 0, i);
         return bytes;
     }
 
@@ -194,17 +241,28 @@ public class Bytes {
      */
     public static byte[] of(long i) {
         byte[] bytes = new byte[8];
-        bytes[0] = (byte) ((i >> 56) & 0xff);
-        bytes[1] = (byte) ((i >> 48) & 0xff);
-        bytes[2] = (byte) ((i >> 40) & 0xff);
-        bytes[3] = (byte) ((i >> 32) & 0xff);
-        bytes[4] = (byte) ((i >> 24) & 0xff);
-        bytes[5] = (byte) ((i >> 16) & 0xff);
-        bytes[6] = (byte) ((i >> 8) & 0xff);
-        bytes[7] = (byte) (i & 0xff);
+        putLong(bytes, 0, i);
         return bytes;
     }
 
+    private static void putInt(byte[] bytes, int offset, int i) {
+        bytes[offset] = (byte) ((i >> 24) & 0xff);
+        bytes[offset + 1] = (byte) ((i >> 16) & 0xff);
+        bytes[offset + 2] = (byte) ((i >> 8) & 0xff);
+        bytes[offset + 3] = (byte) (i & 0xff);
+    }
+
+    private static void putLong(byte[] bytes, int offset, long i) {
+        bytes[offset] = (byte) ((i >> 56) & 0xff);
+        bytes[offset + 1] = (byte) ((i >> 48) & 0xff);
+        bytes[offset + 2] = (byte) ((i >> 40) & 0xff);
+        bytes[offset + 3] = (byte) ((i >> 32) & 0xff);
+        bytes[offset + 4] = (byte) ((i >> 24) & 0xff);
+        bytes[offset + 5] = (byte) ((i >> 16) & 0xff);
+        bytes[offset + 6] = (byte) ((i >> 8) & 0xff);
+        bytes[offset + 7] = (byte) (i & 0xff);
+    }
+
     /**
      * Convert byte array into string.
      *
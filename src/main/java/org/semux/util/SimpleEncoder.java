@@ -6,46 +6,64 @@
  */
 package org.semux.util;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.util.Arrays;
 
 import org.semux.core.Amount;
-import org.semux.util.exception.SimpleCodecException;
 
 public class SimpleEncoder {
-    private final ByteArrayOutputStream out;
 
-    public SimpleEncoder(byte[] toAppend) {
-        this.out = new ByteArrayOutputStream();
-        try {
-            out.write(toAppend);
-        } catch (IOException e) {
-            throw new SimpleCodecException(e);
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private byte[] buf;
+    private int count;
+
+    /**
+     * Creates an encoder with the given initial capacity. Presizing the buffer
+     * avoids re-allocation when the output size is known or can be estimated.
+     *
+     * @param capacity
+     *            the initial buffer capacity, in bytes
+     */
+    public SimpleEncoder(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity can't be negative: " + capacity);
         }
+        this.buf = new byte[capacity];
+        this.count = 0;
+    }
+
+    public SimpleEncoder(byte[] toAppend) {
+        this(Math.max(DEFAULT_CAPACITY, toAppend.length * 2));
+        System.arraycopy(toAppend, 0, buf, 0, toAppend.length);
+        this.count = toAppend.length;
     }
 
     public SimpleEncoder() {
-        this(Bytes.EMPTY_BYTES);
+        this(DEFAULT_CAPACITY);
     }
 
     public void writeBoolean(boolean b) {
-        out.write(b ? 1 : 0);
+        ensureCapacity(1);
+        buf[count++] = (byte) (b ? 1 : 0);
     }
 
     public void writeByte(byte b) {
-        out.write(b);
+        ensureCapacity(1);
+        buf[count++] = b;
     }
 
     public void writeShort(short s) {
-        out.write(0xFF & (s >>> 8));
-        out.write(0xFF & s);
+        ensureCapacity(2);
+        buf[count++] = (byte) (s >>> 8);
+        buf[count++] = (byte) s;
     }
 
     public void writeInt(int i) {
-        out.write(0xFF & (i >>> 24));
-        out.write(0xFF & (i >>> 16));
-        out.write(0xFF & (i >>> 8));
-        out.write(0xFF & i);
+        ensureCapacity(4);
+        buf[count++] = (byte) (i >>> 24);
+        buf[count++] = (byte) (i >>> 16);
+        buf[count++] = (byte) (i >>> 8);
+        buf[count++] = (byte) i;
     }
 
     public void writeLong(long l) {
@@ -67,11 +85,9 @@ public class SimpleEncoder {
             writeInt(bytes.length);
         }
 
-        try {
-            out.write(bytes);
-        } catch (IOException e) {
-            throw new SimpleCodecException(e);
-        }
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buf, count, bytes.length);
+        count += bytes.length;
     }
 
     public void writeBytes(byte[] bytes) {
@@ -83,16 +99,36 @@ public class SimpleEncoder {
     }
 
     public byte[] toBytes() {
-        return out.toByteArray();
+        return Arrays.copyOf(buf, count);
     }
 
     public int getWriteIndex() {
-        return out.size();
+        return count;
+    }
+
+    /**
+     * Returns the number of bytes needed to encode a byte array of the given
+     * length with {@link #writeBytes(byte[])}, including the size prefix.
+     *
+     * @param length
+     *            the byte array length
+     * @return the encoded size
+     */
+    public static int sizeOfBytes(int length) {
+        if (length < 0x80) {
+            return 1 + length;
+        } else if (length < 0x4000) {
+            return 2 + length;
+        } else if (length < 0x200000) {
+            return 3 + length;
+        } else {
+            return 4 + length;
+        }
     }
 
     /**
      * Writes a size into the output byte array.
-     * 
+     *
      * @param size
      * @throws IllegalArgumentException
      *             when the input size is negative
@@ -104,19 +140,32 @@ public class SimpleEncoder {
             throw new IllegalArgumentException("Size can't be larger than 0x0FFFFFFF: " + size);
         }
 
-        int[] buf = new int[4];
-        int i = buf.length;
+        int[] tmp = new int[4];
+        int i = tmp.length;
         do {
-            buf[--i] = size & 0x7f;
+            tmp[--i] = size & 0x7f;
             size >>>= 7;
         } while (size > 0);
 
-        while (i < buf.length) {
-            if (i != buf.length - 1) {
-                out.write((byte) (buf[i++] | 0x80));
+        ensureCapacity(tmp.length - i);
+        while (i < tmp.length) {
+            if (i != tmp.length - 1) {
+                buf[count++] = (byte) (tmp[i++] | 0x80);
             } else {
-                out.write((byte) buf[i++]);
+                buf[count++] = (byte) tmp[i++];
             }
         }
     }
+
+    /**
+     * Grows the underlying buffer, if needed, to hold n more bytes.
+     *
+     * @param n
+     */
+    private void ensureCapacity(int n) {
+        int required = count + n;
+        if (required > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(required, buf.length << 1));
+        }
+    }
 }
@@ -7,11 +7,15 @@
 package org.semux.api;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.powermock.reflect.Whitebox;
 import org.semux.rules.KernelRule;
 
 public class SemuxApiServiceTest {
@@ -42,4 +46,20 @@ public class SemuxApiServiceTest {
         assertEquals("http://127.0.0.1:51710/v2.0.0/swagger.html", apiMock.getApi().getSwaggerUrl());
     }
 
+    @Test
+    public void testStop() {
+        List<?> chainListeners = Whitebox.getInternalState(kernelRule.getKernel().getBlockchain(), "listeners");
+        List<?> pendingListeners = Whitebox.getInternalState(kernelRule.getKernel().getPendingManager(),
+                "listeners");
+        int chainSize = chainListeners.size();
+        int pendingSize = pendingListeners.size();
+
+        // the response cache and the websocket publisher are detached
+        apiMock.stop();
+        assertEquals(chainSize - 2, chainListeners.size());
+        assertEquals(pendingSize - 2, pendingListeners.size());
+        assertNull(Whitebox.getInternalState(apiMock.getApi(), "responseCache"));
+        assertNull(Whitebox.getInternalState(apiMock.getApi(), "webSocketPublisher"));
+    }
+
 }
@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.api.http;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.semux.util.Bytes;
+
+import io.netty.handler.codec.http.HttpMethod;
+
+public class ApiResponseCacheTest {
+
+    private static final Map<String, String> NO_PARAMS = Collections.emptyMap();
+
+    private final ApiResponseCache cache = new ApiResponseCache(1024 * 1024);
+
+    @Test
+    public void testKey() {
+        assertNotNull(cache.getKey(HttpMethod.GET, "/v2.0.0/delegates", NO_PARAMS));
+        assertNotNull(cache.getKey(HttpMethod.GET, "/v2.0.0/delegates/", NO_PARAMS));
+        assertNull(cache.getKey(HttpMethod.POST, "/v2.0.0/delegates", NO_PARAMS));
+        assertNull(cache.getKey(HttpMethod.GET, "/v2.0.0/accounts", NO_PARAMS));
+    }
+
+    @Test
+    public void testParameters() {
+        Map<String, String> params1 = new HashMap<>();
+        params1.put("number", "1");
+        params1.put("pretty", "true");
+        Map<String, String> params2 = new HashMap<>();
+        params2.put("number", "2");
+
+        ApiResponseCache.Key key1 = cache.getKey(HttpMethod.GET, "/v2.0.0/block-by-number", params1);
+        ApiResponseCache.Key key2 = cache.getKey(HttpMethod.GET, "/v2.0.0/block-by-number", params2);
+        cache.put(key1, cache.getGeneration(key1), Bytes.of("1"));
+
+        assertNotNull(cache.get(key1));
+        assertNull(cache.get(key2));
+    }
+
+    @Test
+    public void testInvalidation() {
+        ApiResponseCache.Key blockchainKey = cache.getKey(HttpMethod.GET, "/v2.0.0/latest-block", NO_PARAMS);
+        ApiResponseCache.Key pendingKey = cache.getKey(HttpMethod.GET, "/v2.0.0/pending-transactions", NO_PARAMS);
+        cache.put(blockchainKey, cache.getGeneration(blockchainKey), Bytes.of("block"));
+        cache.put(pendingKey, cache.getGeneration(pendingKey), Bytes.of("pending"));
+
+        cache.onPendingTransactionAdded(null);
+        assertArrayEquals(Bytes.of("block"), cache.get(blockchainKey).getBody());
+        assertNull(cache.get(pendingKey));
+
+        cache.put(pendingKey, cache.getGeneration(pendingKey), Bytes.of("pending"));
+        cache.onPendingTransactionsRemoved(Collections.emptyList());
+        assertArrayEquals(Bytes.of("block"), cache.get(blockchainKey).getBody());
+        assertNull(cache.get(pendingKey));
+
+        cache.put(pendingKey, cache.getGeneration(pendingKey), Bytes.of("pending"));
+        cache.onBlockAdded(null);
+        assertNull(cache.get(blockchainKey));
+        assertNull(cache.get(pendingKey));
+    }
+
+    @Test
+    public void testStalePut() {
+        ApiResponseCache.Key key = cache.getKey(HttpMethod.GET, "/v2.0.0/validators", NO_PARAMS);
+        long generation = cache.getGeneration(key);
+
+        cache.onBlockAdded(null);
+        ApiResponseCache.Entry entry = cache.put(key, generation, Bytes.of("stale"));
+
+        assertNotNull(entry);
+        assertNull(cache.get(key));
+    }
+
+    @Test
+    public void testETag() {
+        ApiResponseCache.Key key = cache.getKey(HttpMethod.GET, "/v2.0.0/info", NO_PARAMS);
+        ApiResponseCache.Entry entry1 = cache.put(key, cache.getGeneration(key), Bytes.of("info"));
+        ApiResponseCache.Entry entry2 = cache.put(key, cache.getGeneration(key), Bytes.of("info"));
+        ApiResponseCache.Entry entry3 = cache.put(key, cache.getGeneration(key), Bytes.of("info2"));
+
+        assertEquals(entry1.getETag(), entry2.getETag());
+        assertNotEquals(entry1.getETag(), entry3.getETag());
+    }
+}
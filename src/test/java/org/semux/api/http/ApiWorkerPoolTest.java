@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.api.http;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class ApiWorkerPoolTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private ApiWorkerPool pool;
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    private void block() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    public void testRouteLimit() throws InterruptedException {
+        pool = new ApiWorkerPool(4, 16, 2);
+
+        assertTrue(pool.submit("/heavy", this::block));
+        assertTrue(pool.submit("/heavy", this::block));
+        assertFalse(pool.submit("/heavy", this::block));
+
+        // other routes are not affected
+        CountDownLatch done = new CountDownLatch(1);
+        assertTrue(pool.submit("/cheap", done::countDown));
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testQueueLimit() {
+        pool = new ApiWorkerPool(1, 1, 10);
+
+        assertTrue(pool.submit("/a", this::block)); // running
+        assertTrue(pool.submit("/b", this::block)); // queued
+        assertFalse(pool.submit("/c", this::block)); // rejected
+    }
+
+    @Test
+    public void testPermitsReleased() throws InterruptedException {
+        pool = new ApiWorkerPool(1, 16, 1);
+
+        CountDownLatch done = new CountDownLatch(2);
+        assertTrue(pool.submit("/a", done::countDown));
+
+        // the permit is returned right after the first task completes
+        boolean accepted = false;
+        for (int i = 0; i < 100 && !accepted; i++) {
+            accepted = pool.submit("/a", done::countDown);
+            Thread.sleep(10);
+        }
+        assertTrue(accepted);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+}
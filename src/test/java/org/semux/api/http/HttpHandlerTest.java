@@ -6,6 +6,7 @@
  */
 package org.semux.api.http;
 
+import static java.net.HttpURLConnection.HTTP_INTERNAL_ERROR;
 import static java.net.HttpURLConnection.HTTP_NOT_FOUND;
 import static java.net.HttpURLConnection.HTTP_OK;
 import static junit.framework.TestCase.assertTrue;
@@ -15,14 +16,17 @@ import static org.junit.Assert.assertEquals;
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.EnumMap;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.semux.KernelMock;
+import org.semux.api.ApiHandler;
 import org.semux.api.Version;
 import org.semux.api.v1_0_1.ApiHandlerResponse;
 import org.semux.rules.KernelRule;
@@ -67,7 +71,7 @@ public class HttpHandlerTest {
         new Thread(() -> server.start(ip, port, httpChannelInitializer == null ? new HttpChannelInitializer() {
             @Override
             HttpHandler initHandler() {
-                return new HttpHandler(kernel.getConfig(), (m, u, p, h) -> {
+                return new HttpHandler(kernel.getConfig(), (m, u, p, b, h) -> {
                     uri = u;
                     params = p;
                     headers = h;
@@ -187,4 +191,37 @@ public class HttpHandlerTest {
             assertEquals("keep-alive", con.getHeaderField("connection"));
         }
     }
+
+    @Test
+    public void testWorkerError() throws IOException {
+        AtomicBoolean thrown = new AtomicBoolean();
+        ApiHandler apiHandler = (m, u, p, b, h) -> {
+            if (!thrown.getAndSet(true)) {
+                throw new AssertionError("test");
+            }
+            return new ApiHandlerResponse(true, "test");
+        };
+        Map<Version, ApiHandler> apiHandlers = new EnumMap<>(Version.class);
+        for (Version v : Version.values()) {
+            apiHandlers.put(v, apiHandler);
+        }
+        startServer(new HttpChannelInitializer() {
+            @Override
+            HttpHandler initHandler() {
+                return new HttpHandler(kernel, apiHandlers, new ApiWorkerPool(1, 4, 4), null);
+            }
+        });
+
+        // an error in the handler is answered, and the connection is released
+        int[] codes = new int[2];
+        for (int i = 0; i < codes.length; i++) {
+            URL url = new URL("http://" + ip + ":" + port + "/test");
+            HttpURLConnection con = (HttpURLConnection) url.openConnection();
+            con.setRequestProperty("Connection", "keep-alive");
+            con.setRequestProperty("Authorization", auth);
+            codes[i] = con.getResponseCode();
+        }
+        assertEquals(HTTP_INTERNAL_ERROR, codes[0]);
+        assertEquals(HTTP_OK, codes[1]);
+    }
 }
@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.api.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.semux.core.Amount.Unit.SEM;
+import static org.semux.core.Amount.ZERO;
+
+import org.junit.After;
+import org.junit.Test;
+import org.semux.Network;
+import org.semux.api.http.WebSocketPublisher.DropPolicy;
+import org.semux.api.http.WebSocketPublisher.Subscriber;
+import org.semux.api.http.WebSocketPublisher.Topic;
+import org.semux.core.Transaction;
+import org.semux.core.TransactionType;
+import org.semux.crypto.Key;
+import org.semux.util.Bytes;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.CloseWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.util.ReferenceCountUtil;
+
+public class WebSocketPublisherTest {
+
+    private final WebSocketPublisher publisher = new WebSocketPublisher(2);
+    private final EmbeddedChannel channel = new EmbeddedChannel();
+
+    @After
+    public void tearDown() {
+        publisher.stop();
+        channel.finishAndReleaseAll();
+    }
+
+    private String readText() {
+        channel.runPendingTasks();
+        TextWebSocketFrame frame = channel.readOutbound();
+        if (frame == null) {
+            return null;
+        }
+        try {
+            return frame.text();
+        } finally {
+            frame.release();
+        }
+    }
+
+    @Test
+    public void testDropOldest() {
+        Subscriber subscriber = publisher.addSubscriber(channel);
+        subscriber.offer(Bytes.of("1"));
+        subscriber.offer(Bytes.of("2"));
+        subscriber.offer(Bytes.of("3"));
+
+        assertEquals("{\"event\":\"dropped\",\"result\":1}", readText());
+        assertEquals("2", readText());
+        assertEquals("3", readText());
+        assertNull(readText());
+    }
+
+    @Test
+    public void testDropNewest() {
+        Subscriber subscriber = publisher.addSubscriber(channel);
+        subscriber.setDropPolicy(DropPolicy.DROP_NEWEST);
+        subscriber.offer(Bytes.of("1"));
+        subscriber.offer(Bytes.of("2"));
+        subscriber.offer(Bytes.of("3"));
+
+        assertEquals("{\"event\":\"dropped\",\"result\":1}", readText());
+        assertEquals("1", readText());
+        assertEquals("2", readText());
+        assertNull(readText());
+    }
+
+    @Test
+    public void testDisconnect() {
+        Subscriber subscriber = publisher.addSubscriber(channel);
+        subscriber.setDropPolicy(DropPolicy.DISCONNECT);
+        subscriber.offer(Bytes.of("1"));
+        subscriber.offer(Bytes.of("2"));
+        subscriber.offer(Bytes.of("3"));
+        channel.runPendingTasks();
+
+        assertFalse(channel.isOpen());
+        Object frame;
+        boolean closed = false;
+        while ((frame = channel.readOutbound()) != null) {
+            closed |= frame instanceof CloseWebSocketFrame;
+            ReferenceCountUtil.release(frame);
+        }
+        assertTrue(closed);
+    }
+
+    @Test
+    public void testPendingTransactionFilter() {
+        Key key = new Key();
+        byte[] to = Bytes.random(20);
+        Transaction tx = new Transaction(Network.DEVNET, TransactionType.TRANSFER, to, SEM.of(1), ZERO, 1,
+                System.currentTimeMillis(), Bytes.EMPTY_BYTES).sign(key);
+
+        Subscriber subscriber = publisher.addSubscriber(channel);
+        subscriber.subscribe(Topic.PENDING_TRANSACTIONS, Bytes.random(20));
+        publisher.publishPendingTransaction(tx);
+        assertNull(readText());
+
+        subscriber.subscribe(Topic.PENDING_TRANSACTIONS, to);
+        publisher.publishPendingTransaction(tx);
+        assertTrue(readText().startsWith("{\"event\":\"pending-transaction\""));
+
+        subscriber.unsubscribe(Topic.PENDING_TRANSACTIONS, null);
+        publisher.publishPendingTransaction(tx);
+        assertNull(readText());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTransactionsRequireAddress() {
+        publisher.addSubscriber(channel).subscribe(Topic.TRANSACTIONS, null);
+    }
+}
@@ -69,6 +69,8 @@ public class SemuxApiErrorTest extends SemuxApiTestBase {
 
                 { PUT.class, uriBuilder("addToWhitelist").queryParam("ip", "I_am_not_an_ip").build() },
 
+                { POST.class, uriBuilder("batch").build() },
+
                 { GET.class, uriBuilder("getBlockByNumber").build() },
 
                 { GET.class, uriBuilder("getBlockByNumber").queryParam("number", "9999999999999999").build() },
@@ -67,6 +67,7 @@ import javax.ws.rs.BadRequestException;
 import org.junit.Test;
 import org.semux.TestUtils;
 import org.semux.api.v2_0_0.model.AddNodeResponse;
+import org.semux.api.v2_0_0.model.ApiHandlerResponse;
 import org.semux.api.v2_0_0.model.BlockType;
 import org.semux.api.v2_0_0.model.ComposeRawTransactionResponse;
 import org.semux.api.v2_0_0.model.CreateAccountResponse;
@@ -166,6 +167,33 @@ public class SemuxApiTest extends SemuxApiTestBase {
         assertTrue(ipfilterJson.exists());
     }
 
+    @Test
+    public void batchTest() {
+        Key from = new Key(), to = new Key();
+        Transaction tx = createTransaction(config, from, to, Amount.Unit.SEM.of(1));
+        Block block = createBlock(chain.getLatestBlockNumber() + 1, Collections.singletonList(tx),
+                Collections.singletonList(new TransactionResult(true)));
+        chain.addBlock(block);
+
+        String operations = "["
+                + "{\"method\":\"getAccount\",\"address\":\"" + to.toAddressString() + "\"},"
+                + "{\"method\":\"getTransaction\",\"hash\":\"" + Hex.encode0x(tx.getHash()) + "\"},"
+                + "{\"method\":\"getTransaction\",\"hash\":\"" + Hex.encode0x(Bytes.random(32)) + "\"},"
+                + "{\"method\":\"getBlocksByNumber\",\"from\":\"0\",\"to\":\"" + (block.getNumber() + 1) + "\"}"
+                + "]";
+        List<ApiHandlerResponse> response = api.batch(operations);
+        assertEquals(4, response.size());
+        assertTrue(response.get(0).isSuccess());
+        assertTrue(response.get(1).isSuccess());
+        assertFalse(response.get(2).isSuccess());
+        assertTrue(response.get(3).isSuccess());
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void batchInvalidTest() {
+        api.batch("[{\"method\":\"transfer\"}]");
+    }
+
     @Test
     public void createAccountTest() {
         int size = wallet.getAccounts().size();
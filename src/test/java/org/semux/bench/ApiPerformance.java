@@ -7,10 +7,19 @@
 package org.semux.bench;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Rule;
 import org.junit.Test;
+import org.semux.api.ApiHandler;
 import org.semux.api.SemuxApiMock;
 import org.semux.config.Config;
 import org.semux.rules.KernelRule;
@@ -18,6 +27,10 @@ import org.semux.util.ApiClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.netty.handler.codec.http.EmptyHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+
 /**
  * TODO: investigate, significant performance decrease noticed.
  */
@@ -49,4 +62,101 @@ public class ApiPerformance {
             api.stop();
         }
     }
+
+    @Test
+    public void testLoad() throws Exception {
+        SemuxApiMock api = new SemuxApiMock(kernelRule.getKernel());
+        api.start();
+
+        int threads = 8;
+        int repeat = 2000;
+        ExecutorService exec = Executors.newFixedThreadPool(threads);
+        try {
+            Config config = api.getKernel().getConfig();
+            ApiClient a = new ApiClient(new InetSocketAddress(config.apiListenIp(), config.apiListenPort()),
+                    config.apiUsername(),
+                    config.apiPassword());
+
+            // warm up
+            for (int i = 0; i < 100; i++) {
+                a.request("v2.0.0/latest-block-number");
+            }
+
+            long allocated1 = getApiAllocatedBytes();
+            long t1 = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(exec.submit(() -> {
+                    for (int j = 0; j < repeat; j++) {
+                        a.request("v2.0.0/latest-block-number");
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get();
+            }
+            long t2 = System.nanoTime();
+            long allocated2 = getApiAllocatedBytes();
+
+            int total = threads * repeat;
+            logger.info("Perf_api_load: {} requests/s, {} bytes allocated/request on API threads",
+                    total * 1_000_000_000L / (t2 - t1), (allocated2 - allocated1) / total);
+        } finally {
+            exec.shutdownNow();
+            api.stop();
+        }
+    }
+
+    @Test
+    public void testDispatch() {
+        SemuxApiMock api = new SemuxApiMock(kernelRule.getKernel());
+        api.start();
+
+        try {
+            ApiHandler handler = new org.semux.api.v2_0_0.impl.ApiHandlerImpl(api.getKernel());
+            Map<String, String> noParams = Collections.emptyMap();
+            Map<String, String> params = Collections.singletonMap("number", "0");
+            HttpHeaders headers = EmptyHttpHeaders.INSTANCE;
+
+            int repeat = 100_000;
+            for (int i = 0; i < repeat; i++) { // warm up
+                handler.service(HttpMethod.GET, "/v2.0.0/latest-block-number", noParams, null, headers);
+                handler.service(HttpMethod.GET, "/v2.0.0/block-by-number/", params, null, headers);
+            }
+
+            long t1 = System.nanoTime();
+            for (int i = 0; i < repeat; i++) {
+                handler.service(HttpMethod.GET, "/v2.0.0/latest-block-number", noParams, null, headers);
+            }
+            long t2 = System.nanoTime();
+            for (int i = 0; i < repeat; i++) {
+                handler.service(HttpMethod.GET, "/v2.0.0/block-by-number/", params, null, headers);
+            }
+            long t3 = System.nanoTime();
+
+            logger.info("Perf_api_dispatch_no_params: " + (t2 - t1) / repeat + " ns/request");
+            logger.info("Perf_api_dispatch_params: " + (t3 - t2) / repeat + " ns/request");
+        } finally {
+            api.stop();
+        }
+    }
+
+    /**
+     * Returns the number of bytes allocated so far by the API server threads.
+     *
+     * @return
+     */
+    private long getApiAllocatedBytes() {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+
+        long sum = 0;
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            if (t.getName().startsWith("api-")) {
+                sum += bean.getThreadAllocatedBytes(t.getId());
+            }
+        }
+        return sum;
+    }
 }
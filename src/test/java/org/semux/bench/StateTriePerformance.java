@@ -0,0 +1,57 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.bench;
+
+import org.semux.core.state.StateTrie;
+import org.semux.db.DatabaseName;
+import org.semux.util.Bytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class StateTriePerformance {
+    private static final Logger logger = LoggerFactory.getLogger(StateTriePerformance.class);
+
+    private static final int ACCOUNTS = 1_000_000;
+    private static final int BLOCKS = 1_000;
+
+    // a full block of transfers updates about 2 accounts per transaction
+    private static final int UPDATES_PER_BLOCK = 2 * 5_000;
+
+    public static StateTrie testBuild() {
+        StateTrie trie = new StateTrie();
+
+        long t1 = System.nanoTime();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            trie.update(DatabaseName.ACCOUNT, Bytes.of(i), Bytes.random(40));
+        }
+        trie.getRootHash();
+        long t2 = System.nanoTime();
+
+        logger.info("Perf_trie_build: " + (t2 - t1) / 1_000_000 + " ms for " + ACCOUNTS + " accounts");
+        return trie;
+    }
+
+    public static void testBlockUpdate(StateTrie trie) {
+        long t1 = System.nanoTime();
+        for (int i = 0; i < BLOCKS; i++) {
+            for (int j = 0; j < UPDATES_PER_BLOCK; j++) {
+                int account = (int) (Math.random() * ACCOUNTS);
+                trie.update(DatabaseName.ACCOUNT, Bytes.of(account), Bytes.random(40));
+            }
+            trie.getRootHash();
+        }
+        long t2 = System.nanoTime();
+
+        logger.info("Perf_trie_block: " + (t2 - t1) / 1_000 / BLOCKS + " μs/block, " + UPDATES_PER_BLOCK
+                + " updates/block");
+    }
+
+    public static void main(String[] args) {
+        StateTrie trie = testBuild();
+        testBlockUpdate(trie);
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.consensus;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.semux.config.Config;
+import org.semux.config.Constants;
+import org.semux.config.DevnetConfig;
+import org.semux.core.Block;
+import org.semux.core.BlockHeader;
+import org.semux.core.BlockchainImpl;
+import org.semux.core.BootstrapFile;
+import org.semux.core.Transaction;
+import org.semux.core.TransactionResult;
+import org.semux.core.ValidatorSet;
+import org.semux.core.exception.BlockchainException;
+import org.semux.crypto.Hex;
+import org.semux.crypto.Key;
+import org.semux.rules.TemporaryDatabaseRule;
+import org.semux.util.Bytes;
+import org.semux.util.MerkleUtil;
+
+public class BootstrapImporterTest {
+
+    @Rule
+    public TemporaryDatabaseRule temporaryDBFactory = new TemporaryDatabaseRule();
+
+    @Rule
+    public TemporaryDatabaseRule anotherDBFactory = new TemporaryDatabaseRule();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Config config;
+    private Key validator;
+    private BlockchainImpl chain;
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        config = new DevnetConfig(Constants.DEFAULT_DATA_DIR);
+        validator = new Key();
+        chain = createChain(temporaryDBFactory, validator);
+
+        for (int i = 0; i < 3; i++) {
+            chain.addBlock(createBlock(chain.getLatestBlock()));
+        }
+
+        file = temporaryFolder.newFile().toPath();
+        try (BootstrapFile.Writer writer = new BootstrapFile.Writer(file, config.network().id(), 1)) {
+            for (long i = 1; i <= chain.getLatestBlockNumber(); i++) {
+                writer.write(chain.getBlock(i));
+            }
+            assertEquals(3, writer.finish());
+        }
+    }
+
+    @Test
+    public void testImportBlocks() throws IOException {
+        BlockchainImpl imported = createChain(anotherDBFactory, validator);
+        assertEquals(3, new BootstrapImporter(config, imported).importBlocks(file));
+
+        Block latest = imported.getLatestBlock();
+        assertArrayEquals(chain.getLatestBlock().getHash(), latest.getHash());
+        assertEquals(config.getBlockReward(latest.getNumber()),
+                imported.getAccountState().getAccount(latest.getCoinbase()).getAvailable());
+    }
+
+    @Test
+    public void testInvalidVotes() throws IOException {
+        // the blocks are signed by another validator
+        BlockchainImpl imported = createChain(anotherDBFactory, new Key());
+        try {
+            new BootstrapImporter(config, imported).importBlocks(file);
+            fail("The blocks should be rejected");
+        } catch (BlockchainException e) {
+            assertEquals(0, imported.getLatestBlockNumber());
+        }
+    }
+
+    @Test
+    public void testAssumeValid() throws IOException {
+        // the blocks have junk vote signatures of the validator
+        Path junk = temporaryFolder.newFile().toPath();
+        try (BootstrapFile.Writer writer = new BootstrapFile.Writer(junk, config.network().id(), 1)) {
+            for (long i = 1; i <= chain.getLatestBlockNumber(); i++) {
+                Block block = chain.getBlock(i);
+                block.setVotes(Collections.singletonList(validator.sign(Bytes.random(32))));
+                writer.write(block);
+            }
+            writer.finish();
+        }
+
+        Map<Long, byte[]> checkpoints = new HashMap<>();
+        config = spy(config);
+        when(config.checkpoints()).thenReturn(checkpoints);
+        when(config.syncAssumeValid()).thenReturn(3L);
+
+        // the checkpoint isn't the head of the blocks
+        checkpoints.put(3L, Bytes.random(32));
+        BlockchainImpl imported = createChain(anotherDBFactory, validator);
+        try {
+            new BootstrapImporter(config, imported).importBlocks(junk);
+            fail("The blocks should be rejected");
+        } catch (BlockchainException e) {
+            assertEquals(0, imported.getLatestBlockNumber());
+        }
+
+        // the votes of the ancestors of the checkpoint are assumed valid
+        checkpoints.put(3L, chain.getBlockHeader(3).getHash());
+        assertEquals(3, new BootstrapImporter(config, imported).importBlocks(junk));
+        assertArrayEquals(chain.getLatestBlock().getHash(), imported.getLatestBlock().getHash());
+    }
+
+    private BlockchainImpl createChain(TemporaryDatabaseRule dbFactory, Key validator) {
+        BlockchainImpl chain = spy(new BlockchainImpl(config, dbFactory));
+        doReturn(new ValidatorSet(Collections.singletonList(Hex.encode(validator.toAddress())))).when(chain)
+                .getValidatorSet();
+        return chain;
+    }
+
+    private Block createBlock(Block parent) {
+        List<Transaction> txs = Collections.emptyList();
+        List<TransactionResult> results = Collections.emptyList();
+        BlockHeader header = new BlockHeader(parent.getNumber() + 1, new Key().toAddress(), parent.getHash(),
+                parent.getTimestamp() + 1, MerkleUtil.computeTransactionsRoot(txs),
+                MerkleUtil.computeResultsRoot(results), Bytes.EMPTY_HASH, Bytes.EMPTY_BYTES);
+        Block block = new Block(header, txs, results);
+
+        Vote vote = new Vote(VoteType.PRECOMMIT, Vote.VALUE_APPROVE, block.getNumber(), block.getView(),
+                block.getHash());
+        block.setVotes(Collections.singletonList(vote.sign(validator).getSignature()));
+        return block;
+    }
+}
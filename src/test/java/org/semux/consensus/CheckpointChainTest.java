@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.consensus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.semux.util.Bytes;
+
+public class CheckpointChainTest {
+
+    private byte[][] hashes = { Bytes.random(32), Bytes.random(32), Bytes.random(32), Bytes.random(32) };
+
+    @Test
+    public void testAdd() {
+        CheckpointChain chain = new CheckpointChain(1, 3, hashes[3]);
+        assertEquals(3, chain.getNext());
+
+        // the headers are added backwards from the checkpoint
+        assertFalse(chain.add(2, hashes[2], hashes[1]));
+        assertTrue(chain.add(3, hashes[3], hashes[2]));
+        assertTrue(chain.contains(3, hashes[3]));
+        assertFalse(chain.contains(2, hashes[2]));
+
+        // and must be the parents of the previous ones
+        assertFalse(chain.add(2, Bytes.random(32), hashes[1]));
+        assertTrue(chain.add(2, hashes[2], hashes[1]));
+        assertTrue(chain.add(1, hashes[1], hashes[0]));
+        assertTrue(chain.isComplete());
+        assertFalse(chain.add(0, hashes[0], Bytes.random(32)));
+    }
+
+    @Test
+    public void testAppend() {
+        CheckpointChain chain = new CheckpointChain(1, 3, hashes[3]);
+
+        // the headers are appended from the first block, and must be the children
+        // of the previous ones
+        assertFalse(chain.append(2, hashes[2], hashes[1]));
+        assertTrue(chain.append(1, hashes[1], hashes[0]));
+        assertFalse(chain.append(2, hashes[2], Bytes.random(32)));
+        assertTrue(chain.append(2, hashes[2], hashes[1]));
+        assertFalse(chain.contains(1, hashes[1]));
+
+        // up to the checkpoint
+        assertFalse(chain.append(3, Bytes.random(32), hashes[2]));
+        assertTrue(chain.append(3, hashes[3], hashes[2]));
+        assertTrue(chain.isComplete());
+        assertTrue(chain.contains(1, hashes[1]));
+        assertTrue(chain.contains(3, hashes[3]));
+        assertFalse(chain.append(4, Bytes.random(32), hashes[3]));
+    }
+
+    @Test
+    public void testContains() {
+        CheckpointChain chain = new CheckpointChain(1, 3, hashes[3]);
+        chain.add(3, hashes[3], hashes[2]);
+        chain.add(2, hashes[2], hashes[1]);
+        chain.add(1, hashes[1], hashes[0]);
+
+        assertTrue(chain.contains(1, hashes[1]));
+        assertTrue(chain.contains(2, hashes[2]));
+        assertFalse(chain.contains(2, hashes[1]));
+        assertFalse(chain.contains(0, hashes[0]));
+        assertFalse(chain.contains(4, hashes[3]));
+    }
+}
@@ -26,6 +26,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import org.semux.core.Blockchain;
+import org.semux.core.ValidatorSet;
 import org.semux.net.Channel;
 import org.semux.net.ChannelManager;
 import org.semux.net.Peer;
@@ -106,7 +107,7 @@ public class SemuxBftOnNewHeightTest {
 
         semuxBFT.chain = mock(Blockchain.class);
         semuxBFT.height = height;
-        semuxBFT.validators = new ArrayList<>();
+        semuxBFT.validators = new ValidatorSet(new ArrayList<>());
 
         semuxBFT.channelMgr = mock(ChannelManager.class);
         when(semuxBFT.channelMgr.getActiveChannels(any())).thenReturn(activeValidators);
@@ -6,14 +6,23 @@
  */
 package org.semux.consensus;
 
+import static org.awaitility.Awaitility.await;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.semux.consensus.ValidatorActivatedFork.UNIFORM_DISTRIBUTION;
 import static org.semux.core.Amount.Unit.SEM;
@@ -22,6 +31,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -34,16 +44,26 @@ import org.semux.config.Constants;
 import org.semux.config.MainnetConfig;
 import org.semux.core.Amount;
 import org.semux.core.Block;
+import org.semux.core.BlockHeader;
 import org.semux.core.Blockchain;
 import org.semux.core.BlockchainImpl;
 import org.semux.core.PendingManager;
 import org.semux.core.Transaction;
 import org.semux.core.TransactionResult;
 import org.semux.core.TransactionType;
+import org.semux.core.ValidatorSet;
+import org.semux.crypto.Hex;
 import org.semux.crypto.Key;
+import org.semux.net.Channel;
+import org.semux.net.msg.ReasonCode;
+import org.semux.net.msg.consensus.CompactProposalMessage;
+import org.semux.net.msg.consensus.GetProposalTransactionsMessage;
+import org.semux.net.msg.consensus.ProposalTransactionsMessage;
 import org.semux.rules.KernelRule;
 import org.semux.rules.TemporaryDatabaseRule;
+import org.semux.util.ByteArray;
 import org.semux.util.Bytes;
+import org.semux.util.MerkleUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -60,12 +80,12 @@ public class SemuxBftTest {
 
     @Test
     public void testIsPrimaryH256() {
-        List<String> validators = IntStream.range(1, 100).boxed().map(i -> String.format("v%d", i))
+        List<String> validators = IntStream.range(1, 100).boxed().map(i -> Hex.encode(Bytes.of(i)))
                 .collect(Collectors.toList());
 
         SemuxBft bft = mock(SemuxBft.class);
         bft.config = new MainnetConfig(Constants.DEFAULT_DATA_DIR);
-        bft.validators = validators;
+        bft.validators = new ValidatorSet(validators);
         bft.chain = mock(Blockchain.class);
         when(bft.chain.forkActivated(anyLong(), eq(UNIFORM_DISTRIBUTION))).thenReturn(false);
         when(bft.isPrimary(anyLong(), anyInt(), anyString())).thenCallRealMethod();
@@ -75,12 +95,12 @@ public class SemuxBftTest {
 
     @Test
     public void testIsPrimaryUniformDist() {
-        List<String> validators = IntStream.range(1, 100).boxed().map(i -> String.format("v%d", i))
+        List<String> validators = IntStream.range(1, 100).boxed().map(i -> Hex.encode(Bytes.of(i)))
                 .collect(Collectors.toList());
 
         SemuxBft bft = mock(SemuxBft.class);
         bft.config = new MainnetConfig(Constants.DEFAULT_DATA_DIR);
-        bft.validators = validators;
+        bft.validators = new ValidatorSet(validators);
         bft.chain = mock(Blockchain.class);
         when(bft.chain.forkActivated(anyLong(), eq(UNIFORM_DISTRIBUTION))).thenReturn(true);
         when(bft.isPrimary(anyLong(), anyInt(), anyString())).thenCallRealMethod();
@@ -237,6 +257,89 @@ public class SemuxBftTest {
         assertFalse(semuxBFT.validateBlock(block.getHeader(), Collections.singletonList(tx)));
     }
 
+    @Test
+    public void testVoteVerifier() throws InterruptedException {
+        kernelRule.getKernel().setBlockchain(new BlockchainImpl(kernelRule.getKernel().getConfig(), temporaryDBRule));
+        SemuxBft semuxBFT = new SemuxBft(kernelRule.getKernel());
+        semuxBFT.voteVerifier.start();
+        try {
+            Vote vote = Vote.newApprove(VoteType.VALIDATE, 1, 0, Bytes.random(32)).sign(new Key());
+            Channel channel = mock(Channel.class, RETURNS_DEEP_STUBS);
+
+            // the same vote relayed by two peers is verified once
+            semuxBFT.voteVerifier.verify(channel, Vote.fromBytes(vote.toBytes()));
+            semuxBFT.voteVerifier.verify(channel, Vote.fromBytes(vote.toBytes()));
+            for (int i = 0; i < 2; i++) {
+                SemuxBft.Event ev = semuxBFT.events.poll(10, TimeUnit.SECONDS);
+                assertEquals(SemuxBft.Event.Type.VOTE, ev.getType());
+                assertTrue(((Vote) ev.getData()).validate());
+            }
+            assertEquals(1, semuxBFT.verifiedVotes.estimatedSize());
+
+            // a copied signature does not validate another vote
+            Vote forged = new Vote(Vote.newApprove(VoteType.VALIDATE, 1, 0, Bytes.random(32)).getEncoded(),
+                    vote.getSignature().toBytes());
+            semuxBFT.voteVerifier.verify(channel, forged);
+            verify(channel.getMessageQueue(), timeout(10000)).disconnect(ReasonCode.BAD_PEER);
+            assertTrue(semuxBFT.events.isEmpty());
+
+            // a vote failing to verify isn't cached
+            Vote broken = spy(Vote.newApprove(VoteType.VALIDATE, 1, 0, Bytes.random(32)).sign(new Key()));
+            doThrow(new IllegalStateException()).when(broken).revalidate();
+            semuxBFT.voteVerifier.verify(channel, broken);
+            await().until(() -> semuxBFT.verifiedVotes.asMap().size() == 2);
+            assertTrue(semuxBFT.events.isEmpty());
+        } finally {
+            semuxBFT.voteVerifier.stop();
+        }
+    }
+
+    @Test
+    public void testCompactProposal() {
+        kernelRule.getKernel().setBlockchain(new BlockchainImpl(kernelRule.getKernel().getConfig(), temporaryDBRule));
+        SemuxBft semuxBFT = new SemuxBft(kernelRule.getKernel());
+        semuxBFT.status = SemuxBft.Status.RUNNING;
+
+        Key key = new Key();
+        List<Transaction> txs = Collections.singletonList(createTransaction(new Key(), key, 0, 0));
+        BlockHeader header = new BlockHeader(1, key.toAddress(), Bytes.random(32), System.currentTimeMillis(),
+                MerkleUtil.computeTransactionsRoot(txs), MerkleUtil.computeResultsRoot(Collections.emptyList()),
+                Bytes.EMPTY_HASH, new byte[0]);
+        Proposal proposal = new Proposal(new Proof(1, 0, Collections.emptyList()), header, txs).sign(key);
+        byte[] hash = header.getHash();
+
+        Channel channel1 = mock(Channel.class, RETURNS_DEEP_STUBS);
+        when(channel1.getRemotePeer().getPeerId()).thenReturn("peer1");
+        Channel channel2 = mock(Channel.class, RETURNS_DEEP_STUBS);
+        when(channel2.getRemotePeer().getPeerId()).thenReturn("peer2");
+
+        // the missing transaction is requested from the peer
+        semuxBFT.onCompactProposal(channel1, new CompactProposalMessage(proposal));
+        verify(channel1.getMessageQueue()).sendMessage(any(GetProposalTransactionsMessage.class));
+
+        // and only the peer which was asked can complete it
+        semuxBFT.onMessage(channel2, new ProposalTransactionsMessage(hash, txs));
+        assertEquals(1, semuxBFT.partialProposals.estimatedSize());
+        assertTrue(semuxBFT.events.isEmpty());
+
+        // not found by the peer
+        semuxBFT.onMessage(channel1, new ProposalTransactionsMessage(hash, Collections.emptyList()));
+        assertEquals(0, semuxBFT.partialProposals.estimatedSize());
+        assertTrue(semuxBFT.events.isEmpty());
+        verify(channel1.getMessageQueue(), never()).disconnect(any());
+
+        // the transactions of an unknown proposal are not found
+        semuxBFT.onMessage(channel2, new GetProposalTransactionsMessage(hash, Collections.singletonList(0)));
+        verify(channel2.getMessageQueue()).sendMessage(
+                argThat(m -> m instanceof ProposalTransactionsMessage
+                        && ((ProposalTransactionsMessage) m).getTransactions().isEmpty()));
+
+        // each transaction can be requested once
+        semuxBFT.compactProposals.put(ByteArray.of(hash), proposal);
+        semuxBFT.onMessage(channel2, new GetProposalTransactionsMessage(hash, Arrays.asList(0, 0)));
+        verify(channel2.getMessageQueue()).disconnect(ReasonCode.BAD_PEER);
+    }
+
     private Transaction createTransaction(Key to, Key from, long time, long nonce) {
         return new Transaction(
                 kernelRule.getKernel().getConfig().network(),
@@ -6,6 +6,7 @@
  */
 package org.semux.consensus;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
@@ -38,6 +39,7 @@ import org.semux.core.BlockchainImpl;
 import org.semux.core.Transaction;
 import org.semux.core.TransactionResult;
 import org.semux.core.TransactionType;
+import org.semux.core.ValidatorSet;
 import org.semux.core.state.AccountState;
 import org.semux.core.state.DelegateState;
 import org.semux.crypto.Hex;
@@ -144,7 +146,7 @@ public class SemuxSyncTest {
 
         // mock the chain
         BlockchainImpl chain = spy(new BlockchainImpl(kernelRule.getKernel().getConfig(), temporaryDBRule));
-        doReturn(validators).when(chain).getValidators();
+        doReturn(new ValidatorSet(validators)).when(chain).getValidatorSet();
         kernelRule.getKernel().setBlockchain(chain);
 
         // mock sync manager
@@ -184,7 +186,7 @@ public class SemuxSyncTest {
 
         // mock the chain
         BlockchainImpl chain = spy(new BlockchainImpl(kernelRule.getKernel().getConfig(), temporaryDBRule));
-        doReturn(validators).when(chain).getValidators();
+        doReturn(new ValidatorSet(validators)).when(chain).getValidatorSet();
         kernelRule.getKernel().setBlockchain(chain);
 
         // mock sync manager
@@ -201,9 +203,80 @@ public class SemuxSyncTest {
         checkpoints.put(block.getNumber(), RandomUtils.nextBytes(32));
         Config config = spy(kernelRule.getKernel().getConfig());
         when(config.checkpoints()).thenReturn(checkpoints);
-        Whitebox.setInternalState(sync, "config", config);
+        Whitebox.setInternalState(Whitebox.getInternalState(sync, "importer"), "config", config);
 
         // tests
         assertFalse(sync.validateBlock(block, chain.getAccountState(), chain.getDelegateState()));
     }
+
+    @Test
+    public void testAssumeValid() {
+        Key key1 = new Key();
+        List<String> validators = Arrays.asList(Hex.encode(key1.toAddress()));
+
+        // mock the chain
+        BlockchainImpl chain = spy(new BlockchainImpl(kernelRule.getKernel().getConfig(), temporaryDBRule));
+        doReturn(new ValidatorSet(validators)).when(chain).getValidatorSet();
+        kernelRule.getKernel().setBlockchain(chain);
+
+        // mock sync manager
+        SemuxSync sync = spy(new SemuxSync(kernelRule.getKernel()));
+
+        // prepare block, with a vote of the validator over another message
+        Block block = kernelRule.createBlock(Collections.emptyList());
+        block.setVotes(Collections.singletonList(key1.sign(Bytes.random(32))));
+
+        // mock checkpoints
+        Map<Long, byte[]> checkpoints = new HashMap<>();
+        checkpoints.put(block.getNumber() + 10, RandomUtils.nextBytes(32));
+        Config config = spy(kernelRule.getKernel().getConfig());
+        when(config.checkpoints()).thenReturn(checkpoints);
+
+        // only checkpoints can be trusted
+        when(config.syncAssumeValid()).thenReturn(block.getNumber());
+        assertEquals(0, SemuxSync.getAssumeValid(config));
+        when(config.syncAssumeValid()).thenReturn(block.getNumber() + 10);
+        assertEquals(block.getNumber() + 10, SemuxSync.getAssumeValid(config));
+
+        // tests
+        assertFalse(sync.validateBlockVotes(block));
+        BlockImporter importer = Whitebox.getInternalState(sync, "importer");
+
+        // a block which isn't an ancestor of the checkpoint is verified
+        CheckpointChain forged = new CheckpointChain(block.getNumber(), block.getNumber(), RandomUtils.nextBytes(32));
+        assertFalse(forged.add(block.getNumber(), block.getHash(), block.getParentHash()));
+        importer.setCheckpointChain(forged);
+        assertFalse(sync.validateBlockVotes(block));
+
+        CheckpointChain checkpointChain = new CheckpointChain(block.getNumber(), block.getNumber(), block.getHash());
+        assertTrue(checkpointChain.add(block.getNumber(), block.getHash(), block.getParentHash()));
+        importer.setCheckpointChain(checkpointChain);
+        assertTrue(sync.validateBlockVotes(block));
+
+        // the voters must still be validators
+        block.setVotes(Collections.singletonList(new Key().sign(Bytes.random(32))));
+        assertFalse(sync.validateBlockVotes(block));
+    }
+
+    @Test
+    public void testPeerStats() {
+        SemuxSync.PeerStats stats = new SemuxSync.PeerStats();
+        assertEquals(10_000L, stats.getTimeout());
+        assertTrue(stats.isAvailable());
+
+        // the timeout follows the latency
+        for (int i = 0; i < 16; i++) {
+            stats.onDownload(200, 1024);
+        }
+        assertEquals(1000L, stats.getTimeout());
+        double weight = stats.getWeight();
+
+        // and timeouts lower the weight
+        stats.onTimeout();
+        assertTrue(stats.getWeight() < weight);
+
+        // one request at a time
+        stats.inFlight = 1;
+        assertFalse(stats.isAvailable());
+    }
 }
@@ -8,6 +8,7 @@ package org.semux.core;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.semux.core.Amount.ZERO;
 
@@ -79,6 +80,24 @@ public class BlockTest {
                 block.toBytesVotes()));
     }
 
+    @Test
+    public void testSerializationRetainsEncodings() {
+        BlockHeader header = new BlockHeader(number, coinbase, prevHash, timestamp, transactionsRoot, resultsRoot,
+                stateRoot, data);
+        Block block = new Block(header, transactions, results, view, votes);
+
+        byte[] h = block.toBytesHeader();
+        byte[] t = block.toBytesTransactions();
+        byte[] r = block.toBytesResults();
+        Block block2 = Block.fromBytes(h, t, r, block.toBytesVotes());
+
+        assertSame(h, block2.toBytesHeader());
+        assertSame(t, block2.toBytesTransactions());
+        assertSame(r, block2.toBytesResults());
+        assertEquals(block.getTransactionIndices(), block2.getTransactionIndices());
+        assertArrayEquals(tx.toBytes(), block2.getTransactions().get(0).toBytes());
+    }
+
     private void testFields(Block block) {
         assertArrayEquals(hash, block.getHash());
         assertEquals(number, block.getNumber());
@@ -6,6 +6,7 @@
  */
 package org.semux.core;
 
+import static org.awaitility.Awaitility.await;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -15,6 +16,8 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.semux.core.Amount.Unit.NANO_SEM;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -29,6 +32,7 @@ import org.semux.config.Constants;
 import org.semux.config.DevnetConfig;
 import org.semux.consensus.ValidatorActivatedFork;
 import org.semux.core.BlockchainImpl.StatsType;
+import org.semux.core.exception.BlockchainException;
 import org.semux.crypto.Key;
 import org.semux.rules.TemporaryDatabaseRule;
 import org.semux.util.Bytes;
@@ -39,6 +43,9 @@ public class BlockchainImplTest {
     @Rule
     public TemporaryDatabaseRule temporaryDBFactory = new TemporaryDatabaseRule();
 
+    @Rule
+    public TemporaryDatabaseRule anotherDBFactory = new TemporaryDatabaseRule();
+
     private Config config;
     private BlockchainImpl chain;
 
@@ -160,6 +167,122 @@ public class BlockchainImplTest {
         assertTrue(chain.hasTransaction(tx.getHash()));
     }
 
+    @Test
+    public void testTransactionFilterSnapshot() {
+        Block newBlock = createBlock(1);
+        chain.addBlock(newBlock);
+        chain.flush();
+
+        // reload from the saved filter
+        chain = new BlockchainImpl(config, temporaryDBFactory);
+        assertTrue(chain.hasTransaction(tx.getHash()));
+        assertFalse(chain.hasTransaction(Bytes.random(32)));
+
+        // rebuild from the index, as the saved filter has been used
+        chain = new BlockchainImpl(config, temporaryDBFactory);
+        assertTrue(chain.hasTransaction(tx.getHash()));
+    }
+
+    @Test
+    public void testTransactionFilterGrowth() {
+        Whitebox.setInternalState(chain, "transactionFilterCapacity", 1L);
+        chain.addBlock(createBlock(1));
+
+        // a larger filter is built in the background
+        await().until(() -> Whitebox.<Long>getInternalState(chain, "transactionFilterCapacity") > 1L);
+        assertTrue(chain.hasTransaction(tx.getHash()));
+    }
+
+    @Test
+    public void testSnapshot() {
+        BlockchainSnapshot snapshot = chain.getSnapshot();
+
+        Block newBlock = createBlock(1);
+        chain.getAccountState().adjustAvailable(to, value);
+        chain.getAccountState().commit();
+        chain.addBlock(newBlock);
+
+        // the snapshot stays at the genesis block
+        assertEquals(0, snapshot.getLatestBlockNumber());
+        assertNull(snapshot.getBlock(1));
+        assertNull(snapshot.getTransaction(tx.getHash()));
+        assertEquals(Amount.ZERO, snapshot.getAccountState().getAccount(to).getAvailable());
+        snapshot.close();
+
+        // while a new one sees the new block and its state
+        try (BlockchainSnapshot latest = chain.getSnapshot()) {
+            assertEquals(1, latest.getLatestBlockNumber());
+            assertNotNull(latest.getTransaction(tx.getHash()));
+            assertEquals(value, latest.getAccountState().getAccount(to).getAvailable());
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSnapshotIsReadOnly() {
+        try (BlockchainSnapshot snapshot = chain.getSnapshot()) {
+            snapshot.addBlock(createBlock(1));
+        }
+    }
+
+    @Test
+    public void testStateRoot() {
+        byte[] root = chain.getStateRoot();
+        BlockchainSnapshot snapshot = chain.getSnapshot();
+
+        chain.getAccountState().adjustAvailable(to, value);
+        chain.getAccountState().commit();
+        chain.addBlock(createBlock(1));
+
+        assertFalse(Arrays.equals(root, chain.getStateRoot()));
+        assertArrayEquals(root, snapshot.getStateRoot());
+        snapshot.close();
+
+        // the trie is loaded on restart
+        assertArrayEquals(chain.getStateRoot(), new BlockchainImpl(config, temporaryDBFactory).getStateRoot());
+    }
+
+    @Test
+    public void testExportImportState() throws IOException {
+        chain.getAccountState().adjustAvailable(to, value);
+        chain.getAccountState().commit();
+        Block newBlock = createBlock(1);
+        chain.addBlock(newBlock);
+
+        Path file = temporaryDBFactory.newFile().toPath();
+        StateSnapshot.Manifest manifest = chain.exportState(file);
+        assertEquals(1, manifest.getNumber());
+
+        BlockchainImpl imported = new BlockchainImpl(config, anotherDBFactory);
+        try (StateSnapshot.Reader snapshot = new StateSnapshot.Reader(file)) {
+            imported.importState(snapshot);
+        }
+
+        assertEquals(1, imported.getLatestBlockNumber());
+        assertArrayEquals(newBlock.getHash(), imported.getLatestBlockHash());
+        assertArrayEquals(chain.getGenesis().getHash(), imported.getBlock(0).getHash());
+        assertEquals(value, imported.getAccountState().getAccount(to).getAvailable());
+        assertArrayEquals(chain.getStateRoot(), imported.getStateRoot());
+        assertEquals(chain.getValidators(), imported.getValidators());
+        assertEquals(chain.getDelegateState().getDelegates().size(),
+                imported.getDelegateState().getDelegates().size());
+
+        // the history before the snapshot is missing, while later blocks can be added
+        assertNull(imported.getTransaction(tx.getHash()));
+        imported.addBlock(createBlock(2));
+        assertEquals(2, imported.getLatestBlockNumber());
+    }
+
+    @Test(expected = BlockchainException.class)
+    public void testImportStateIntoNonEmptyChain() throws IOException {
+        Path file = temporaryDBFactory.newFile().toPath();
+        chain.exportState(file);
+        chain.addBlock(createBlock(1));
+
+        try (StateSnapshot.Reader snapshot = new StateSnapshot.Reader(file)) {
+            chain.importState(snapshot);
+        }
+    }
+
     @Test
     public void testGetTransactionResult() {
         assertNull(chain.getTransaction(tx.getHash()));
@@ -194,6 +317,78 @@ public class BlockchainImplTest {
         }
     }
 
+    @Test
+    public void testPruneBlocks() {
+        chain.addBlock(createBlock(1));
+        for (int i = 2; i <= 5; i++) {
+            chain.addBlock(createBlock(i, Collections.emptyList(), Collections.emptyList()));
+        }
+        assertEquals(0, chain.getEarliestBlockNumber());
+
+        chain.pruneBlocks(4);
+        assertEquals(4, chain.getEarliestBlockNumber());
+        assertNotNull(chain.getBlock(0));
+        assertNull(chain.getBlock(1));
+        assertNotNull(chain.getBlockHeader(1));
+        assertNotNull(chain.getBlock(4));
+
+        // the transaction is still indexed, but its body is gone
+        assertTrue(chain.hasTransaction(tx.getHash()));
+        assertNull(chain.getTransaction(tx.getHash()));
+        assertNull(chain.getCoinbaseTransaction(2));
+        assertNotNull(chain.getCoinbaseTransaction(4));
+
+        // the latest block is never pruned
+        chain.pruneBlocks(100);
+        assertEquals(5, chain.getEarliestBlockNumber());
+        assertNotNull(chain.getLatestBlock());
+
+        // the range survives restarts
+        assertEquals(5, new BlockchainImpl(config, temporaryDBFactory).getEarliestBlockNumber());
+    }
+
+    @Test
+    public void testLazyAccountIndex() {
+        Whitebox.setInternalState(config, "blockchainAccountIndex", IndexMode.LAZY);
+        chain = new BlockchainImpl(config, temporaryDBFactory);
+
+        chain.addBlock(createBlock(1));
+        assertEquals(0, chain.getTransactionCount(tx.getFrom()));
+        assertNull(chain.getCoinbaseTransaction(1));
+
+        // caught up from the block database
+        assertEquals(1, chain.indexBlocks(100));
+        assertEquals(0, chain.indexBlocks(100));
+        assertEquals(1, chain.getTransactionCount(tx.getFrom()));
+        assertNotNull(chain.getCoinbaseTransaction(1));
+
+        // turned on again, the index catches up before it follows the blocks
+        Whitebox.setInternalState(config, "blockchainAccountIndex", IndexMode.ON);
+        chain = new BlockchainImpl(config, temporaryDBFactory);
+        chain.addBlock(createBlock(2, Collections.emptyList(), Collections.emptyList()));
+        assertNull(chain.getCoinbaseTransaction(2));
+        assertEquals(1, chain.indexBlocks(100));
+        assertNotNull(chain.getCoinbaseTransaction(2));
+
+        chain.addBlock(createBlock(3, Collections.emptyList(), Collections.emptyList()));
+        assertNotNull(chain.getCoinbaseTransaction(3));
+        assertEquals(0, chain.indexBlocks(100));
+    }
+
+    @Test
+    public void testIndexesOff() {
+        Whitebox.setInternalState(config, "blockchainAccountIndex", IndexMode.OFF);
+        Whitebox.setInternalState(config, "blockchainValidatorStats", false);
+        chain = new BlockchainImpl(config, temporaryDBFactory);
+
+        chain.addBlock(createBlock(1));
+        assertTrue(chain.hasTransaction(tx.getHash()));
+        assertNotNull(chain.getTransaction(tx.getHash()));
+        assertEquals(0, chain.getTransactionCount(tx.getFrom()));
+        assertEquals(0, chain.getValidatorStats(coinbase).getBlocksForged());
+        assertEquals(0, chain.indexBlocks(100));
+    }
+
     @Test
     public void testGetTransactionCount() {
         assertNull(chain.getTransaction(tx.getHash()));
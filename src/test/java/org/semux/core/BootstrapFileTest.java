@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.semux.crypto.Key;
+import org.semux.util.Bytes;
+import org.semux.util.MerkleUtil;
+
+public class BootstrapFileTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Block createBlock(long number) {
+        List<Transaction> txs = Collections.emptyList();
+        List<TransactionResult> results = Collections.emptyList();
+        BlockHeader header = new BlockHeader(number, new Key().toAddress(), Bytes.EMPTY_HASH, number,
+                MerkleUtil.computeTransactionsRoot(txs), MerkleUtil.computeResultsRoot(results), Bytes.EMPTY_HASH,
+                Bytes.EMPTY_BYTES);
+        return new Block(header, txs, results);
+    }
+
+    private Path write(long first, int n) throws IOException {
+        Path file = temporaryFolder.newFile().toPath();
+        try (BootstrapFile.Writer writer = new BootstrapFile.Writer(file, (byte) 2, first)) {
+            for (int i = 0; i < n; i++) {
+                writer.write(createBlock(first + i));
+            }
+            writer.finish();
+        }
+        return file;
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        Path file = write(10, 5);
+
+        try (BootstrapFile.Reader reader = new BootstrapFile.Reader(file)) {
+            assertEquals(2, reader.getNetwork());
+            assertEquals(10, reader.getFirst());
+            for (int i = 0; i < 5; i++) {
+                Block block = reader.read();
+                assertEquals(10 + i, block.getNumber());
+                assertArrayEquals(Bytes.EMPTY_HASH, block.getParentHash());
+            }
+            assertNull(reader.read());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWriteOutOfOrder() throws IOException {
+        try (BootstrapFile.Writer writer = new BootstrapFile.Writer(temporaryFolder.newFile().toPath(), (byte) 2,
+                1)) {
+            writer.write(createBlock(2));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testCorruptedRecord() throws IOException {
+        Path file = write(1, 5);
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            // flip a byte of the first block
+            raf.seek(20);
+            int b = raf.read();
+            raf.seek(20);
+            raf.write(b ^ 0xff);
+        }
+
+        try (BootstrapFile.Reader reader = new BootstrapFile.Reader(file)) {
+            while (reader.read() != null) {
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncatedFile() throws IOException {
+        Path file = write(1, 5);
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(raf.length() - 4);
+        }
+
+        try (BootstrapFile.Reader reader = new BootstrapFile.Reader(file)) {
+            while (reader.read() != null) {
+            }
+        }
+    }
+}
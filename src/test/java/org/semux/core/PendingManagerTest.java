@@ -9,6 +9,7 @@ package org.semux.core;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.spy;
 import static org.semux.core.Amount.Unit.MILLI_SEM;
@@ -16,6 +17,7 @@ import static org.semux.core.Amount.Unit.SEM;
 import static org.semux.core.PendingManager.ALLOWED_TIME_DRIFT;
 import static org.semux.core.TransactionResult.Error.INVALID_TIMESTAMP;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -103,6 +105,27 @@ public class PendingManagerTest {
         assertEquals(1, pendingMgr.getPendingTransactions().size());
     }
 
+    @Test
+    public void testRequestTransactions() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        long nonce = accountState.getAccount(from).getNonce();
+
+        Transaction tx = new Transaction(network, type, to, value, fee, nonce, now, Bytes.EMPTY_BYTES).sign(key);
+        byte[] unknown = Bytes.random(32);
+
+        // unknown hashes are requested only once
+        List<byte[]> requested = pendingMgr.requestTransactions(Arrays.asList(tx.getHash(), unknown));
+        assertEquals(2, requested.size());
+        assertTrue(pendingMgr.requestTransactions(Arrays.asList(tx.getHash(), unknown)).isEmpty());
+
+        // accepted transactions are served once relayed
+        pendingMgr.addTransaction(tx);
+        Thread.sleep(200);
+        List<Transaction> txs = pendingMgr.getRelayedTransactions(Arrays.asList(tx.getHash(), unknown));
+        assertEquals(1, txs.size());
+        assertArrayEquals(tx.getHash(), txs.get(0).getHash());
+    }
+
     @Test
     public void testAddTransactionSyncErrorInvalidFormat() {
         Transaction tx = new Transaction(network, type, to, value, fee, 0, 0, Bytes.EMPTY_BYTES).sign(key);
@@ -225,6 +248,18 @@ public class PendingManagerTest {
         Thread.sleep(100);
         assertEquals(1, pendingMgr.getPendingTransactions().size());
 
+        List<PendingManager.PendingTransaction> removed = new ArrayList<>();
+        pendingMgr.addListener(new PendingManagerListener() {
+            @Override
+            public void onPendingTransactionAdded(PendingManager.PendingTransaction tx) {
+            }
+
+            @Override
+            public void onPendingTransactionsRemoved(List<PendingManager.PendingTransaction> txs) {
+                removed.addAll(txs);
+            }
+        });
+
         long number = 1;
         byte[] coinbase = Bytes.random(20);
         byte[] prevHash = Bytes.random(20);
@@ -241,6 +276,8 @@ public class PendingManagerTest {
         kernel.getBlockchain().getAccountState().increaseNonce(from);
         kernel.getBlockchain().getAccountState().increaseNonce(from);
         pendingMgr.onBlockAdded(block);
+        assertEquals(1, removed.size());
+        assertArrayEquals(tx.getHash(), removed.get(0).transaction.getHash());
 
         Transaction tx3 = new Transaction(network, type, to, value, fee, nonce + 2, now, Bytes.EMPTY_BYTES).sign(key);
         pendingMgr.addTransaction(tx3);
@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.semux.db.DatabaseName;
+import org.semux.util.Bytes;
+
+public class StateSnapshotTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final byte[] blockHash = Bytes.random(32);
+
+    private StateSnapshot.Manifest write(Path file, int n) throws IOException {
+        try (StateSnapshot.Writer writer = new StateSnapshot.Writer(file)) {
+            for (int i = 0; i < n; i++) {
+                writer.add(DatabaseName.ACCOUNT, Bytes.of(i), new byte[1024]);
+            }
+            return writer.finish((byte) 1, 100, blockHash);
+        }
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        Path file = temporaryFolder.newFile().toPath();
+        // a bit more than two chunks
+        StateSnapshot.Manifest manifest = write(file, 2 * 1024 + 1);
+        assertEquals(3, manifest.getChunkCount());
+
+        try (StateSnapshot.Reader reader = new StateSnapshot.Reader(file)) {
+            assertArrayEquals(manifest.getDigest(), reader.getManifest().getDigest());
+            assertEquals(100, reader.getManifest().getNumber());
+            assertArrayEquals(blockHash, reader.getManifest().getBlockHash());
+            reader.verify();
+
+            List<StateSnapshot.Entry> entries = new ArrayList<>();
+            for (int i = 0; i < manifest.getChunkCount(); i++) {
+                entries.addAll(StateSnapshot.decodeChunk(reader.getChunk(i)));
+            }
+            assertEquals(2 * 1024 + 1, entries.size());
+            assertEquals(DatabaseName.ACCOUNT, entries.get(0).getDatabase());
+            assertArrayEquals(Bytes.of(2 * 1024), entries.get(2 * 1024).getKey());
+        }
+    }
+
+    @Test
+    public void testManifest() throws IOException {
+        StateSnapshot.Manifest manifest = write(temporaryFolder.newFile().toPath(), 10);
+        StateSnapshot.Manifest decoded = StateSnapshot.Manifest.fromBytes(manifest.toBytes());
+        assertArrayEquals(manifest.getDigest(), decoded.getDigest());
+        assertEquals(1, decoded.getNetwork());
+        assertFalse(decoded.isValidChunk(0, Bytes.random(16)));
+        assertFalse(decoded.isValidChunk(1, Bytes.random(16)));
+    }
+
+    @Test(expected = IOException.class)
+    public void testCorruptedChunk() throws IOException {
+        Path file = temporaryFolder.newFile().toPath();
+        write(file, 10);
+
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(100);
+            raf.write(raf.read() ^ 0xff);
+        }
+
+        try (StateSnapshot.Reader reader = new StateSnapshot.Reader(file)) {
+            reader.verify();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncatedFile() throws IOException {
+        Path file = temporaryFolder.newFile().toPath();
+        write(file, 10);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+
+        new StateSnapshot.Reader(file).close();
+    }
+}
@@ -41,6 +41,31 @@ public class TransactionResultTest {
         testFields(TransactionResult.fromBytes(res.toBytes()));
     }
 
+    @Test
+    public void testEncodingCache() {
+        byte[] output = returns.clone();
+        TransactionResult res = new TransactionResult(valid, output, logs);
+        byte[] bytes = res.toBytes();
+
+        output[0]++;
+        assertArrayEquals(bytes, res.toBytes());
+
+        res.addLog(Bytes.random(8));
+        assertEquals(logs.size() + 1, TransactionResult.fromBytes(res.toBytes()).getLogs().size());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testUnmodifiableLogs() {
+        new TransactionResult(valid, returns, logs).getLogs().add(Bytes.random(8));
+    }
+
+    @Test
+    public void testNullLogs() {
+        TransactionResult res = new TransactionResult(valid, returns, null);
+        assertEquals(0, res.getLogs().size());
+        assertEquals(0, TransactionResult.fromBytes(res.toBytes()).getLogs().size());
+    }
+
     @Test
     public void testTransactionResultSize() {
         TransactionResult res = new TransactionResult(valid, returns, logs);
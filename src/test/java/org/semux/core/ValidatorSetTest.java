@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.semux.config.Config;
+import org.semux.config.Constants;
+import org.semux.config.MainnetConfig;
+import org.semux.crypto.Key;
+import org.semux.util.Bytes;
+
+public class ValidatorSetTest {
+
+    private Key v1 = new Key();
+    private Key v2 = new Key();
+    private Key v3 = new Key();
+
+    @Test
+    public void testContains() {
+        ValidatorSet set = new ValidatorSet(Arrays.asList(v1.toAddressString(), v2.toAddressString()));
+        assertEquals(2, set.size());
+        assertEquals(2, set.getTwoThirds());
+        assertEquals(v1.toAddressString(), set.get(0));
+
+        assertTrue(set.contains(v1.toAddressString()));
+        assertTrue(set.contains(v2.toAddress()));
+        assertFalse(set.contains(v3.toAddressString()));
+        assertFalse(set.contains(v3.toAddress()));
+
+        // twice, the second time by the public key
+        for (int i = 0; i < 2; i++) {
+            assertTrue(set.contains(v1.sign(Bytes.random(32))));
+            assertFalse(set.contains(v3.sign(Bytes.random(32))));
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testImmutable() {
+        new ValidatorSet(Collections.singletonList(v1.toAddressString())).getValidators().add(v2.toAddressString());
+    }
+
+    @Test
+    public void testGetPrimary() {
+        Config config = new MainnetConfig(Constants.DEFAULT_DATA_DIR);
+        List<String> validators = Arrays.asList(v1.toAddressString(), v2.toAddressString(), v3.toAddressString());
+        ValidatorSet set = new ValidatorSet(validators);
+
+        for (long height = 1; height < 100; height++) {
+            for (int view = 0; view < 3; view++) {
+                for (boolean uniformDist : new boolean[] { false, true }) {
+                    assertEquals(config.getPrimaryValidator(validators, height, view, uniformDist),
+                            set.getPrimary(config, height, view, uniformDist));
+                    assertEquals(config.getPrimaryValidator(validators, height, view, uniformDist),
+                            set.getPrimary(config, height, view, uniformDist));
+                }
+            }
+        }
+    }
+}
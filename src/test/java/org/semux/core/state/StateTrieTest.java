@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.core.state;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.semux.db.Database;
+import org.semux.db.DatabaseName;
+import org.semux.rules.TemporaryDatabaseRule;
+import org.semux.util.Bytes;
+
+public class StateTrieTest {
+
+    @Rule
+    public TemporaryDatabaseRule temporaryDBFactory = new TemporaryDatabaseRule();
+
+    @Test
+    public void testEmpty() {
+        StateTrie trie = new StateTrie();
+        assertArrayEquals(Bytes.EMPTY_HASH, trie.getRootHash());
+
+        trie.update(DatabaseName.ACCOUNT, Bytes.of("key"), Bytes.of("value"));
+        trie.update(DatabaseName.ACCOUNT, Bytes.of("key"), null);
+        assertArrayEquals(Bytes.EMPTY_HASH, trie.getRootHash());
+        assertEquals(0, trie.size());
+    }
+
+    @Test
+    public void testOrderIndependence() {
+        List<byte[]> keys = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            keys.add(Bytes.random(20));
+        }
+
+        StateTrie trie1 = new StateTrie();
+        keys.forEach(key -> trie1.update(DatabaseName.ACCOUNT, key, key));
+
+        Collections.shuffle(keys);
+        StateTrie trie2 = new StateTrie();
+        keys.forEach(key -> trie2.update(DatabaseName.ACCOUNT, key, key));
+
+        assertEquals(1000, trie2.size());
+        assertArrayEquals(trie1.getRootHash(), trie2.getRootHash());
+    }
+
+    @Test
+    public void testUpdateAndDelete() {
+        StateTrie trie = new StateTrie();
+        for (int i = 0; i < 100; i++) {
+            trie.update(DatabaseName.VOTE, Bytes.of(i), Bytes.of(i));
+        }
+        byte[] root = trie.getRootHash();
+
+        // same key, different database
+        trie.update(DatabaseName.DELEGATE, Bytes.of(1), Bytes.of(1));
+        assertFalse(Arrays.equals(root, trie.getRootHash()));
+        trie.update(DatabaseName.DELEGATE, Bytes.of(1), null);
+        assertArrayEquals(root, trie.getRootHash());
+
+        // new value
+        trie.update(DatabaseName.VOTE, Bytes.of(1), Bytes.of(2));
+        assertFalse(Arrays.equals(root, trie.getRootHash()));
+        trie.update(DatabaseName.VOTE, Bytes.of(1), Bytes.of(1));
+        assertArrayEquals(root, trie.getRootHash());
+
+        // deleting a missing key
+        trie.update(DatabaseName.VOTE, Bytes.of(1000), null);
+        assertArrayEquals(root, trie.getRootHash());
+        assertEquals(100, trie.size());
+    }
+
+    @Test
+    public void testPersistence() {
+        Database db = temporaryDBFactory.getDB(DatabaseName.TRIE);
+        StateTrie memory = new StateTrie();
+        StateTrie trie = new StateTrie(db);
+        for (int i = 0; i < 1000; i++) {
+            memory.update(DatabaseName.ACCOUNT, Bytes.of(i), Bytes.of(i));
+            trie.update(DatabaseName.ACCOUNT, Bytes.of(i), Bytes.of(i));
+        }
+        trie.flush(1);
+
+        // the nodes are loaded on demand
+        StateTrie loaded = new StateTrie(db);
+        assertEquals(1, loaded.getNumber());
+        assertEquals(1000, loaded.size());
+        assertArrayEquals(memory.getRootHash(), loaded.getRootHash());
+
+        for (int i = 0; i < 1000; i += 2) {
+            memory.update(DatabaseName.ACCOUNT, Bytes.of(i), null);
+            loaded.update(DatabaseName.ACCOUNT, Bytes.of(i), null);
+        }
+        memory.update(DatabaseName.VOTE, Bytes.of(1), Bytes.of(1));
+        loaded.update(DatabaseName.VOTE, Bytes.of(1), Bytes.of(1));
+        assertArrayEquals(memory.getRootHash(), loaded.getRootHash());
+
+        // the saved root is dropped until the next flush
+        assertEquals(-1, new StateTrie(db).getNumber());
+        loaded.flush(2);
+
+        loaded = new StateTrie(db);
+        assertEquals(2, loaded.getNumber());
+        assertEquals(501, loaded.size());
+        assertArrayEquals(memory.getRootHash(), loaded.getRootHash());
+
+        loaded.clear();
+        assertArrayEquals(Bytes.EMPTY_HASH, new StateTrie(db).getRootHash());
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.db;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Rule;
+import org.junit.Test;
+import org.semux.rules.TemporaryDatabaseRule;
+import org.semux.util.Bytes;
+
+public class BufferedDatabaseTest {
+
+    @Rule
+    public TemporaryDatabaseRule temporaryDBFactory = new TemporaryDatabaseRule();
+
+    private byte[] key1 = Bytes.of("key1");
+    private byte[] key2 = Bytes.of("key2");
+    private byte[] value1 = Bytes.of("value1");
+    private byte[] value2 = Bytes.of("value2");
+
+    @Test
+    public void testFlush() {
+        Database db = temporaryDBFactory.getDB(DatabaseName.INDEX);
+        db.put(key2, value2);
+
+        BufferedDatabase buffered = new BufferedDatabase(db);
+        buffered.put(key1, value1);
+        buffered.delete(key2);
+
+        // the updates are only visible through the buffer
+        assertArrayEquals(value1, buffered.get(key1));
+        assertNull(buffered.get(key2));
+        assertNull(db.get(key1));
+        assertArrayEquals(value2, db.get(key2));
+        assertEquals(2, buffered.size());
+
+        buffered.flush();
+        assertEquals(0, buffered.size());
+        assertArrayEquals(value1, db.get(key1));
+        assertNull(db.get(key2));
+    }
+
+    @Test
+    public void testDiscard() {
+        Database db = temporaryDBFactory.getDB(DatabaseName.INDEX);
+
+        BufferedDatabase buffered = new BufferedDatabase(db);
+        buffered.updateBatch(Arrays.asList(Pair.of(key1, value1), Pair.of(key2, value2)));
+        buffered.discard();
+        buffered.flush();
+
+        assertNull(db.get(key1));
+        assertNull(db.get(key2));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testIteratorWithUpdates() {
+        BufferedDatabase buffered = new BufferedDatabase(temporaryDBFactory.getDB(DatabaseName.INDEX));
+        buffered.put(key1, value1);
+        buffered.iterator();
+    }
+
+    @Test
+    public void testFactory() {
+        BufferedDatabase.BufferedFactory factory = new BufferedDatabase.BufferedFactory(temporaryDBFactory,
+                DatabaseName.BLOCK, DatabaseName.INDEX);
+        factory.getDB(DatabaseName.INDEX).put(key1, value1);
+        factory.getDB(DatabaseName.ACCOUNT).put(key1, value1);
+
+        // only the given databases are buffered
+        assertNull(temporaryDBFactory.getDB(DatabaseName.INDEX).get(key1));
+        assertArrayEquals(value1, temporaryDBFactory.getDB(DatabaseName.ACCOUNT).get(key1));
+
+        factory.flush();
+        assertArrayEquals(value1, temporaryDBFactory.getDB(DatabaseName.INDEX).get(key1));
+    }
+}
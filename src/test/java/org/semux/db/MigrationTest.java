@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.junit.Test;
+import org.semux.db.exception.DatabaseException;
+import org.semux.event.PubSub;
+import org.semux.event.PubSubEvent;
+
+public class MigrationTest {
+
+    private static class TestMigration extends Migration<Long> {
+
+        private final long last;
+        private final long invalid;
+
+        private long checkpoint = 1;
+        private final List<Long> pending = new ArrayList<>();
+        private final List<Long> migrated = new ArrayList<>();
+
+        TestMigration(PubSub pubSub, long last, long invalid) {
+            super(pubSub, 10);
+            this.last = last;
+            this.invalid = invalid;
+        }
+
+        @Override
+        protected long getCheckpoint() {
+            return checkpoint;
+        }
+
+        @Override
+        protected long getLast() {
+            return last;
+        }
+
+        @Override
+        protected Long read(long number) {
+            return number;
+        }
+
+        @Override
+        protected boolean verify(Long item) {
+            return item != invalid;
+        }
+
+        @Override
+        protected void apply(Long item) {
+            pending.add(item);
+        }
+
+        @Override
+        protected void checkpoint(long next) {
+            migrated.addAll(pending);
+            pending.clear();
+            checkpoint = next;
+        }
+
+        @Override
+        protected PubSubEvent createProgressEvent(long migrated, long last) {
+            return new PubSubEvent() {
+            };
+        }
+    }
+
+    private static List<Long> range(long from, long to) {
+        return LongStream.rangeClosed(from, to).boxed().collect(Collectors.toList());
+    }
+
+    @Test
+    public void testRun() {
+        PubSub pubSub = mock(PubSub.class);
+        TestMigration migration = new TestMigration(pubSub, 25, -1);
+
+        assertEquals(25, migration.run());
+        assertEquals(range(1, 25), migration.migrated);
+        assertEquals(26, migration.checkpoint);
+        verify(pubSub, times(3)).publish(any());
+
+        // nothing left to migrate
+        assertEquals(0, migration.run());
+    }
+
+    @Test
+    public void testResume() {
+        PubSub pubSub = mock(PubSub.class);
+        TestMigration migration = new TestMigration(pubSub, 25, 17);
+
+        try {
+            migration.run();
+            fail("The invalid item should stop the migration");
+        } catch (DatabaseException e) {
+            // expected
+        }
+        assertEquals(range(1, 10), migration.migrated);
+        assertEquals(11, migration.checkpoint);
+
+        // the items of the interrupted batch are discarded, and migrated again
+        migration.pending.clear();
+        TestMigration resumed = new TestMigration(pubSub, 25, -1);
+        resumed.checkpoint = migration.checkpoint;
+        resumed.migrated.addAll(migration.migrated);
+
+        assertEquals(15, resumed.run());
+        assertEquals(range(1, 25), resumed.migrated);
+    }
+}
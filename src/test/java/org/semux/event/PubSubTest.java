@@ -8,7 +8,14 @@ package org.semux.event;
 
 import static junit.framework.TestCase.fail;
 import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -68,9 +75,128 @@ public class PubSubTest {
         pubSub.publish(new TestEvent1());
     }
 
+    @Test
+    public void testSlowSubscriber() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger dispatched = new AtomicInteger(0);
+
+        pubSub.subscribe(event -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, TestEvent3.class);
+        pubSub.subscribe(event -> dispatched.incrementAndGet(), TestEvent3.class);
+
+        for (int i = 0; i < 10; i++) {
+            pubSub.publish(new TestEvent3());
+        }
+
+        // the fast subscriber is not held up by the slow one
+        await().atMost(30, TimeUnit.SECONDS).until(() -> dispatched.get() == 10);
+        assertTrue(pubSub.getBacklog() > 0);
+        release.countDown();
+        await().atMost(30, TimeUnit.SECONDS).until(() -> pubSub.getBacklog() == 0);
+    }
+
+    @Test
+    public void testCoalescing() throws InterruptedException {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> received = new CopyOnWriteArrayList<>();
+
+        pubSub.subscribe(event -> {
+            received.add(((TestProgressEvent) event).progress);
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, TestProgressEvent.class);
+
+        pubSub.publish(new TestProgressEvent(1));
+        assertTrue(entered.await(30, TimeUnit.SECONDS));
+        for (int i = 2; i <= 100; i++) {
+            pubSub.publish(new TestProgressEvent(i));
+        }
+        release.countDown();
+
+        await().atMost(30, TimeUnit.SECONDS).until(() -> received.size() == 2);
+        assertEquals(Arrays.asList(1, 100), received);
+    }
+
+    @Test
+    public void testMetrics() {
+        long published = pubSub.getPublishedEvents();
+        long dispatched = pubSub.getDispatchedEvents();
+        pubSub.subscribe(event -> {
+        }, TestEvent4.class);
+
+        pubSub.publish(new TestEvent4());
+        await().atMost(30, TimeUnit.SECONDS).until(() -> pubSub.getDispatchedEvents() == dispatched + 1);
+        assertEquals(published + 1, pubSub.getPublishedEvents());
+        assertTrue(pubSub.getMaxDispatchLatency() >= pubSub.getAverageDispatchLatency());
+    }
+
+    @Test
+    public void testRestart() throws InterruptedException {
+        CountDownLatch entered = new CountDownLatch(4);
+        AtomicInteger dispatched = new AtomicInteger(0);
+
+        // keep all the threads busy, so that the next lane waits in the executor
+        List<PubSubSubscriber> slow = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            PubSubSubscriber subscriber = event -> {
+                entered.countDown();
+                try {
+                    new CountDownLatch(1).await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            };
+            pubSub.subscribe(subscriber, TestEvent5.class);
+            slow.add(subscriber);
+        }
+        pubSub.subscribe(event -> dispatched.incrementAndGet(), TestEvent6.class);
+
+        pubSub.publish(new TestEvent5());
+        assertTrue(entered.await(30, TimeUnit.SECONDS));
+        pubSub.publish(new TestEvent6());
+
+        // the pending events are discarded, and the lanes are scheduled again
+        pubSub.stop();
+        slow.forEach(pubSub::unsubscribeAll);
+        pubSub.start();
+
+        pubSub.publish(new TestEvent6());
+        await().atMost(30, TimeUnit.SECONDS).until(() -> dispatched.get() == 1);
+    }
+
     private static class TestEvent1 implements PubSubEvent {
     }
 
     private static class TestEvent2 implements PubSubEvent {
     }
+
+    private static class TestEvent3 implements PubSubEvent {
+    }
+
+    private static class TestEvent4 implements PubSubEvent {
+    }
+
+    private static class TestEvent5 implements PubSubEvent {
+    }
+
+    private static class TestEvent6 implements PubSubEvent {
+    }
+
+    private static class TestProgressEvent implements CoalescablePubSubEvent {
+        final int progress;
+
+        TestProgressEvent(int progress) {
+            this.progress = progress;
+        }
+    }
 }
@@ -21,7 +21,9 @@ import org.junit.Test;
 import org.semux.Kernel;
 import org.semux.core.Amount;
 import org.semux.core.Blockchain;
+import org.semux.core.ValidatorSet;
 import org.semux.core.state.Delegate;
+import org.semux.crypto.Key;
 import org.semux.util.Bytes;
 
 public class WalletDelegateTest {
@@ -65,10 +67,10 @@ public class WalletDelegateTest {
         Kernel kernel = mock(Kernel.class);
         Blockchain blockchain = mock(Blockchain.class);
 
-        String v1 = "validator1";
-        String v2 = "validator2";
+        String v1 = new Key().toAddressString();
+        String v2 = new Key().toAddressString();
         when(kernel.getBlockchain()).thenReturn(blockchain);
-        when(blockchain.getValidators()).thenReturn(Arrays.asList(v1, v2));
+        when(blockchain.getValidatorSet()).thenReturn(new ValidatorSet(Arrays.asList(v1, v2)));
 
         Delegate d = new Delegate(address, name, registeredAt, votes);
         WalletDelegate wd = new WalletDelegate(d);
@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.semux.net.NodeManager.Node;
+
+public class AddressBookTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final Node node1 = new Node("127.0.0.1", 5161);
+    private final Node node2 = new Node("127.0.0.2", 5161);
+    private final Node node3 = new Node("127.0.0.3", 5161);
+
+    @Test
+    public void testPick() {
+        AddressBook book = new AddressBook();
+        assertTrue(book.add(node1));
+        assertTrue(book.add(node2));
+        assertTrue(book.add(node3));
+        assertFalse(book.add(node1));
+
+        book.onConnected(node2, 50);
+        book.onSuccess(node2);
+        book.onFailure(node3);
+
+        // best ranked first, and the filter applies
+        assertEquals(Arrays.asList(node2, node1), book.pick(2, node -> true));
+        assertEquals(Collections.singletonList(node3), book.pick(3, node -> true));
+
+        // attempted nodes wait to be retried
+        assertTrue(book.pick(3, node -> true).isEmpty());
+    }
+
+    @Test
+    public void testBan() {
+        AddressBook book = new AddressBook();
+        book.add(node1);
+        book.ban(node1, 60_000);
+
+        assertTrue(book.isBanned(node1));
+        assertTrue(book.pick(1, node -> true).isEmpty());
+    }
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        Path file = temporaryFolder.newFolder().toPath().resolve(NodeManager.ADDRESS_BOOK_FILE);
+
+        AddressBook book = new AddressBook();
+        book.add(node1);
+        book.add(node2);
+        book.onSuccess(node2);
+        book.ban(node1, 60_000);
+        book.pick(2, node -> true);
+        book.save(file);
+
+        AddressBook loaded = AddressBook.load(file);
+        assertEquals(2, loaded.size());
+        assertTrue(loaded.isBanned(node1));
+        // the attempts are not saved
+        assertEquals(Collections.singletonList(node2), loaded.pick(2, node -> true));
+    }
+
+    @Test
+    public void testLoadCorrupted() throws IOException {
+        Path file = temporaryFolder.newFile().toPath();
+        Files.write(file, new byte[] { 1, 2, 3 });
+
+        assertEquals(0, AddressBook.load(file).size());
+    }
+}
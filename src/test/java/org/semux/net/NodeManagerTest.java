@@ -8,7 +8,13 @@ package org.semux.net;
 
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
 
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
 import java.util.Set;
 
 import org.junit.After;
@@ -75,4 +81,21 @@ public class NodeManagerTest {
         Thread.sleep(500);
         assertFalse(kernel2.getChannelManager().getActivePeers().isEmpty());
     }
+
+    @Test
+    public void testHandshakeAborted() throws IOException {
+        KernelMock kernel2 = kernelRule2.getKernel();
+        NodeManager nodeMgr = spy(kernel2.getNodeManager());
+        kernel2.setNodeManager(nodeMgr);
+
+        // a peer which accepts the connection but closes it before the handshake
+        try (ServerSocket ss = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            Node node = new Node("127.0.0.1", ss.getLocalPort());
+            nodeMgr.addNode(node);
+            nodeMgr.doConnect();
+            ss.accept().close();
+
+            verify(nodeMgr, timeout(2000)).onHandshakeAborted(node);
+        }
+    }
 }
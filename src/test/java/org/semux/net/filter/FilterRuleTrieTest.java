@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import io.netty.handler.ipfilter.IpFilterRuleType;
+
+public class FilterRuleTrieTest {
+
+    private static InetAddress ip(String ip) throws UnknownHostException {
+        return InetAddress.getByName(ip);
+    }
+
+    @Test
+    public void testFirstMatch() throws UnknownHostException {
+        FilterRule wide = new FilterRule("10.0.0.0/8", IpFilterRuleType.REJECT);
+        FilterRule narrow = new FilterRule("10.1.0.0/16", IpFilterRuleType.ACCEPT);
+        FilterRule single = new FilterRule("10.1.2.3", IpFilterRuleType.REJECT);
+
+        FilterRuleTrie trie = new FilterRuleTrie();
+        trie.addLast(wide);
+        trie.addLast(narrow);
+        trie.addLast(single);
+
+        // the wider rule comes first, so it wins over the narrower ones
+        assertEquals(wide, trie.match(ip("10.1.2.3")));
+        assertNull(trie.match(ip("11.0.0.1")));
+
+        trie.addFirst(narrow);
+        assertEquals(narrow, trie.match(ip("10.1.2.3")));
+        assertEquals(wide, trie.match(ip("10.2.0.1")));
+    }
+
+    @Test
+    public void testIpv6() throws UnknownHostException {
+        FilterRule rule = new FilterRule("2001:db8::/32", IpFilterRuleType.REJECT);
+
+        FilterRuleTrie trie = new FilterRuleTrie();
+        trie.addLast(rule);
+        trie.addLast(new FilterRule("0.0.0.0/0", IpFilterRuleType.ACCEPT));
+
+        assertEquals(rule, trie.match(ip("2001:db8::1")));
+        assertNull(trie.match(ip("2001:db9::1")));
+    }
+
+    @Test
+    public void testMatchesLinearScan() throws UnknownHostException {
+        List<FilterRule> rules = new ArrayList<>();
+        for (int i = 0; i < 256; i++) {
+            String cidr = (i * 7 % 256) + "." + i + ".0.0/" + (8 + i % 17);
+            rules.add(new FilterRule(cidr, i % 3 == 0 ? IpFilterRuleType.ACCEPT : IpFilterRuleType.REJECT));
+        }
+        SemuxIpFilter filter = new SemuxIpFilter(rules);
+
+        for (int a = 0; a < 256; a += 5) {
+            for (int b = 0; b < 256; b += 3) {
+                InetSocketAddress address = new InetSocketAddress(ip(a + "." + b + ".1.1"), 5161);
+                boolean expected = rules.stream().filter(rule -> rule.matches(address)).findFirst()
+                        .map(rule -> rule.ruleType() == IpFilterRuleType.ACCEPT).orElse(true);
+                assertEquals(expected, filter.isAcceptable(address));
+            }
+        }
+    }
+
+    @Test
+    public void testBlacklistAndPurge() throws UnknownHostException {
+        SemuxIpFilter filter = new SemuxIpFilter.Builder().accept("127.0.0.0/8").build();
+        InetSocketAddress address = new InetSocketAddress(ip("127.0.0.1"), 5161);
+        assertTrue(filter.isAcceptable(address));
+
+        filter.blacklistIp("127.0.0.1");
+        assertFalse(filter.isAcceptable(address));
+
+        filter.whitelistIp("127.0.0.1");
+        assertTrue(filter.isAcceptable(address));
+        assertEquals(3, filter.getRules().size());
+
+        filter.purgeRules();
+        filter.appendRule(new FilterRule("127.0.0.1", IpFilterRuleType.REJECT));
+        assertFalse(filter.isAcceptable(address));
+    }
+}
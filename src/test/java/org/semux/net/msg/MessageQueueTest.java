@@ -99,7 +99,7 @@ public class MessageQueueTest {
     public void testSendResponse() throws InterruptedException {
         Channel ch = connect();
 
-        PongMessage msg = new PongMessage();
+        PongMessage msg = new PongMessage(0);
         ch.getMessageQueue().sendMessage(msg);
 
         Thread.sleep(200);
@@ -0,0 +1,36 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg.consensus;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+import org.semux.net.msg.MessageCode;
+
+public class BlockNotFoundMessageTest {
+
+    @Test
+    public void testSerialization() {
+        BlockNotFoundMessage m = new BlockNotFoundMessage(1, 100, 200);
+        BlockNotFoundMessage m2 = new BlockNotFoundMessage(m.getEncoded());
+
+        assertThat(m2.getCode()).isEqualTo(MessageCode.BLOCK_NOT_FOUND);
+        assertThat(m2.getNumber()).isEqualTo(1);
+        assertThat(m2.getEarliestBlockNumber()).isEqualTo(100);
+        assertThat(m2.getLatestBlockNumber()).isEqualTo(200);
+    }
+
+    @Test
+    public void testAnswers() {
+        BlockNotFoundMessage m = new BlockNotFoundMessage(1, 100, 200);
+
+        // the requests of the missing block are answered
+        assertThat(new GetBlockMessage(1).isAnsweredBy(m)).isTrue();
+        assertThat(new GetBlockHeaderMessage(1).isAnsweredBy(m)).isTrue();
+        assertThat(new GetBlockMessage(2).isAnsweredBy(m)).isFalse();
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg.consensus;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.semux.core.Amount.Unit.NANO_SEM;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.semux.Network;
+import org.semux.consensus.Proof;
+import org.semux.consensus.Proposal;
+import org.semux.core.BlockHeader;
+import org.semux.core.Transaction;
+import org.semux.core.TransactionType;
+import org.semux.crypto.Key;
+import org.semux.util.Bytes;
+import org.semux.util.MerkleUtil;
+import org.semux.util.SimpleEncoder;
+
+public class CompactProposalMessageTest {
+
+    @Test
+    public void testSerialization() {
+        Key key = new Key();
+        List<Transaction> txs = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            txs.add(new Transaction(Network.DEVNET, TransactionType.TRANSFER, Bytes.random(20), NANO_SEM.of(2),
+                    NANO_SEM.of(50_000_000L), i, System.currentTimeMillis(), Bytes.EMPTY_BYTES).sign(key));
+        }
+
+        Proof proof = new Proof(1, 0, Collections.emptyList());
+        BlockHeader header = new BlockHeader(1, Bytes.random(Key.ADDRESS_LEN), Bytes.random(32),
+                System.currentTimeMillis(), MerkleUtil.computeTransactionsRoot(txs),
+                MerkleUtil.computeResultsRoot(Collections.emptyList()), Bytes.EMPTY_HASH, new byte[0]);
+        Proposal proposal = new Proposal(proof, header, txs).sign(key);
+
+        CompactProposalMessage msg = new CompactProposalMessage(new CompactProposalMessage(proposal).getEncoded());
+        assertEquals(1, msg.getHeight());
+        assertEquals(0, msg.getView());
+        assertArrayEquals(header.getHash(), msg.getBlockHeader().getHash());
+        assertEquals(txs.size(), msg.getTransactionHashes().size());
+        for (int i = 0; i < txs.size(); i++) {
+            assertArrayEquals(txs.get(i).getHash(), msg.getTransactionHashes().get(i));
+        }
+
+        // the rebuilt proposal carries the original signature
+        assertTrue(msg.toProposal(txs).validate());
+        List<Transaction> reordered = new ArrayList<>(txs);
+        Collections.reverse(reordered);
+        assertFalse(msg.toProposal(reordered).validate());
+    }
+
+    @Test
+    public void testProposalTransactions() {
+        byte[] blockHash = Bytes.random(32);
+        GetProposalTransactionsMessage get = new GetProposalTransactionsMessage(
+                new GetProposalTransactionsMessage(blockHash, Arrays.asList(0, 2)).getEncoded());
+        assertArrayEquals(blockHash, get.getBlockHash());
+        assertEquals(Arrays.asList(0, 2), get.getIndices());
+
+        Transaction tx = new Transaction(Network.DEVNET, TransactionType.TRANSFER, Bytes.random(20),
+                NANO_SEM.of(2), NANO_SEM.of(50_000_000L), 0, System.currentTimeMillis(), Bytes.EMPTY_BYTES)
+                        .sign(new Key());
+        ProposalTransactionsMessage resp = new ProposalTransactionsMessage(
+                new ProposalTransactionsMessage(blockHash, Collections.singletonList(tx)).getEncoded());
+        assertArrayEquals(blockHash, resp.getBlockHash());
+        assertArrayEquals(tx.getHash(), resp.getTransactions().get(0).getHash());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManyIndices() {
+        SimpleEncoder enc = new SimpleEncoder();
+        enc.writeBytes(Bytes.random(32));
+        enc.writeInt(Integer.MAX_VALUE);
+        enc.writeInt(0);
+        new GetProposalTransactionsMessage(enc.toBytes());
+    }
+}
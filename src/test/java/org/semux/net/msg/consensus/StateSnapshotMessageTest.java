@@ -0,0 +1,37 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg.consensus;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.semux.net.msg.MessageCode;
+import org.semux.util.Bytes;
+
+public class StateSnapshotMessageTest {
+
+    @Test
+    public void testSerialization() {
+        byte[] digest = Bytes.random(32);
+        byte[] data = Bytes.random(1024);
+
+        GetStateSnapshotMessage request = new GetStateSnapshotMessage(
+                new GetStateSnapshotMessage(digest, GetStateSnapshotMessage.MANIFEST).getEncoded());
+        assertEquals(MessageCode.GET_STATE_SNAPSHOT, request.getCode());
+        assertEquals(StateSnapshotMessage.class, request.getResponseMessageClass());
+        assertArrayEquals(digest, request.getDigest());
+        assertEquals(GetStateSnapshotMessage.MANIFEST, request.getIndex());
+
+        StateSnapshotMessage response = new StateSnapshotMessage(
+                new StateSnapshotMessage(digest, 3, data).getEncoded());
+        assertEquals(MessageCode.STATE_SNAPSHOT, response.getCode());
+        assertArrayEquals(digest, response.getDigest());
+        assertEquals(3, response.getIndex());
+        assertArrayEquals(data, response.getData());
+    }
+}
@@ -26,6 +26,7 @@ public class HelloMessageTest {
         String peerId = key.toAddressString();
         Peer peer = new Peer("127.0.0.1", 5161, config.networkVersion(), config.getClientId(), peerId, 2,
                 config.capabilitySet());
+        peer.setEarliestBlockNumber(1);
 
         HelloMessage msg = new HelloMessage(peer, key);
         assertTrue(msg.validate(config));
@@ -34,5 +35,6 @@ public class HelloMessageTest {
         msg = new HelloMessage(msg.getEncoded());
         assertTrue(msg.validate(config));
         assertEquals(key.toAddressString(), msg.getPeer().getPeerId());
+        assertEquals(1, msg.getPeer().getEarliestBlockNumber());
     }
 }
@@ -0,0 +1,28 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg.p2p;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.semux.util.Bytes;
+
+public class PongMessageTest {
+
+    @Test
+    public void testCodec() {
+        PongMessage msg = new PongMessage(new PongMessage(1234L).getEncoded());
+        assertEquals(1234L, msg.getEarliestBlockNumber());
+    }
+
+    @Test
+    public void testOlderClients() {
+        // older clients only send the timestamp
+        PongMessage msg = new PongMessage(Bytes.of(System.currentTimeMillis()));
+        assertEquals(0L, msg.getEarliestBlockNumber());
+    }
+}
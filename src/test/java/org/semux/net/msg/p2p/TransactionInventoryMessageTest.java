@@ -0,0 +1,58 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg.p2p;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.semux.net.msg.p2p.TransactionInventoryMessage.MAX_HASHES;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.semux.util.Bytes;
+
+public class TransactionInventoryMessageTest {
+
+    @Test
+    public void testCodec() {
+        List<byte[]> hashes = new ArrayList<>();
+        hashes.add(Bytes.random(32));
+        hashes.add(Bytes.random(32));
+
+        TransactionInventoryMessage msg = new TransactionInventoryMessage(
+                new TransactionInventoryMessage(hashes).getEncoded());
+        assertTrue(msg.validate());
+        assertEquals(2, msg.getHashes().size());
+        assertArrayEquals(hashes.get(0), msg.getHashes().get(0));
+        assertArrayEquals(hashes.get(1), msg.getHashes().get(1));
+
+        GetTransactionsMessage msg2 = new GetTransactionsMessage(new GetTransactionsMessage(hashes).getEncoded());
+        assertTrue(msg2.validate());
+        assertArrayEquals(hashes.get(1), msg2.getHashes().get(1));
+    }
+
+    @Test
+    public void testOverflow() {
+        List<byte[]> hashes = new ArrayList<>();
+        for (int i = 0; i < MAX_HASHES + 1; i++) {
+            hashes.add(Bytes.random(32));
+        }
+
+        assertFalse(new TransactionInventoryMessage(new TransactionInventoryMessage(hashes).getEncoded()).validate());
+        assertFalse(new GetTransactionsMessage(new GetTransactionsMessage(hashes).getEncoded()).validate());
+    }
+
+    @Test
+    public void testInvalidHash() {
+        List<byte[]> hashes = Collections.singletonList(Bytes.random(20));
+        assertFalse(new TransactionInventoryMessage(hashes).validate());
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.net.msg.p2p;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.semux.core.Amount.Unit.NANO_SEM;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.semux.Network;
+import org.semux.core.Transaction;
+import org.semux.core.TransactionType;
+import org.semux.crypto.Key;
+import org.semux.util.Bytes;
+
+public class TransactionsMessageTest {
+
+    @Test
+    public void testCodec() {
+        Key key = new Key();
+        List<Transaction> txs = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            txs.add(new Transaction(Network.DEVNET, TransactionType.TRANSFER, Bytes.random(20), NANO_SEM.of(2),
+                    NANO_SEM.of(50_000_000L), i, System.currentTimeMillis(), Bytes.EMPTY_BYTES).sign(key));
+        }
+
+        TransactionsMessage msg = new TransactionsMessage(new TransactionsMessage(txs).getEncoded());
+        assertTrue(msg.validate());
+        assertEquals(txs.size(), msg.getTransactions().size());
+        for (int i = 0; i < txs.size(); i++) {
+            Transaction tx = msg.getTransactions().get(i);
+            assertArrayEquals(txs.get(i).getHash(), tx.getHash());
+            assertTrue(tx.validate(Network.DEVNET));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2017-2018 The Semux Developers
+ *
+ * Distributed under the MIT software license, see the accompanying file
+ * LICENSE or https://opensource.org/licenses/mit-license.php
+ */
+package org.semux.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class BloomFilterTest {
+
+    @Test
+    public void testNoFalseNegatives() {
+        BloomFilter filter = BloomFilter.create(1000, 0.01);
+        List<byte[]> keys = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            byte[] key = Bytes.random(32);
+            keys.add(key);
+            filter.put(key);
+        }
+
+        for (byte[] key : keys) {
+            assertTrue(filter.mightContain(key));
+        }
+        assertEquals(1000, filter.size());
+    }
+
+    @Test
+    public void testFalsePositiveRate() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(Bytes.random(32));
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filter.mightContain(Bytes.random(32))) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 300);
+    }
+
+    @Test
+    public void testSerialization() {
+        BloomFilter filter = BloomFilter.create(100, 0.01);
+        byte[] key = Bytes.random(32);
+        filter.put(key);
+
+        BloomFilter filter2 = BloomFilter.fromBytes(filter.toBytes());
+        assertTrue(filter2.mightContain(key));
+        assertEquals(filter.size(), filter2.size());
+        assertEquals(filter.bitSize(), filter2.bitSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShortKey() {
+        BloomFilter.create(100, 0.01).mightContain(Bytes.random(8));
+    }
+
+    @Test
+    public void testEmpty() {
+        assertFalse(BloomFilter.create(100, 0.01).mightContain(Bytes.random(32)));
+    }
+}
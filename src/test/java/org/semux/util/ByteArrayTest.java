@@ -48,4 +48,14 @@ public class ByteArrayTest {
         assertTrue(y instanceof ByteArray);
         assertThat(ByteArray.of(x), equalTo(y));
     }
+
+    @Test
+    public void testHashCode() {
+        byte[] b = Bytes.random(20);
+        ByteArray a = ByteArray.of(b);
+
+        assertEquals(ByteArray.of(Arrays.copyOf(b, b.length)).hashCode(), a.hashCode());
+        assertEquals(a.hashCode(), a.hashCode());
+        assertEquals(ByteArray.of(new byte[0]).hashCode(), ByteArray.of(new byte[0]).hashCode());
+    }
 }
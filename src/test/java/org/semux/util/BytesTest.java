@@ -73,4 +73,14 @@ public class BytesTest {
         assertEquals(l2, Bytes.toLong(Bytes.of(l2)));
         assertEquals(l3, Bytes.toLong(Bytes.of(l3)));
     }
+
+    @Test
+    public void testMergeNumbers() {
+        byte[] address = Bytes.random(20);
+
+        assertArrayEquals(Bytes.merge((byte) 0x01, Bytes.of(Long.MIN_VALUE)), Bytes.merge((byte) 0x01, Long.MIN_VALUE));
+        assertArrayEquals(Bytes.merge(address, Bytes.of(123L)), Bytes.merge(address, 123L));
+        assertArrayEquals(Bytes.merge(new byte[] { 0x07 }, address, Bytes.of(-1)),
+                Bytes.merge((byte) 0x07, address, -1));
+    }
 }
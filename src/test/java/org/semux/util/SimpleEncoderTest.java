@@ -22,4 +22,25 @@ public class SimpleEncoderTest {
 
         assertThat(enc.toBytes(), equalTo(Bytes.merge(append, Bytes.of((byte) 1), Bytes.of("s"))));
     }
+
+    @Test
+    public void testGrowth() {
+        SimpleEncoder enc = new SimpleEncoder(1);
+        byte[] bytes = Bytes.random(1000);
+        enc.writeInt(7);
+        enc.writeBytes(bytes);
+
+        SimpleDecoder dec = new SimpleDecoder(enc.toBytes());
+        assertThat(dec.readInt(), equalTo(7));
+        assertThat(dec.readBytes(), equalTo(bytes));
+    }
+
+    @Test
+    public void testSizeOfBytes() {
+        for (int length : new int[] { 0, 1, 0x7f, 0x80, 0x3fff, 0x4000, 0x1fffff, 0x200000 }) {
+            SimpleEncoder enc = new SimpleEncoder();
+            enc.writeBytes(new byte[length]);
+            assertThat(SimpleEncoder.sizeOfBytes(length), equalTo(enc.getWriteIndex()));
+        }
+    }
 }